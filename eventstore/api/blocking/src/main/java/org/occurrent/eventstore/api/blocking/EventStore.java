@@ -21,5 +21,5 @@ package org.occurrent.eventstore.api.blocking;
  * event stream and pass it to a domain model and then write the result. These scenarios typically don't require advanced querying
  * capabilities and "operations" support (such as deleting events).
  */
-public interface EventStore extends ReadEventStream, ConditionallyWriteToEventStream, UnconditionallyWriteToEventStream, EventStreamExists {
+public interface EventStore extends ReadEventStream, ConditionallyWriteToEventStream, UnconditionallyWriteToEventStream, WriteToMultipleEventStreams, EventStreamExists {
 }
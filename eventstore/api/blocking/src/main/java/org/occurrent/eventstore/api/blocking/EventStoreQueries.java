@@ -17,8 +17,16 @@
 package org.occurrent.eventstore.api.blocking;
 
 import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.GroupBy;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.filter.Filter;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
@@ -37,6 +45,110 @@ public interface EventStoreQueries {
      */
     Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy);
 
+    /**
+     * Query events with the supplied {@code queryOptions}, for example to increase the cursor batch size of a long scan or to route the query
+     * to a secondary. The {@code queryOptions} override the query options configured for the event store. The default implementation ignores
+     * the {@code queryOptions} and delegates to {@link #query(Filter, int, int, SortBy)}.
+     *
+     * @return All cloud events matching the specified filter, skip, limit and sort by <code>sortBy</code>.
+     */
+    default Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy, QueryOptions queryOptions) {
+        return query(filter, skip, limit, sortBy);
+    }
+
+    /**
+     * @return All cloud events matching the specified filter
+     * @see #query(Filter, int, int, SortBy, QueryOptions)
+     */
+    default Stream<CloudEvent> query(Filter filter, QueryOptions queryOptions) {
+        return query(filter, 0, Integer.MAX_VALUE, SortBy.NATURAL_ASC, queryOptions);
+    }
+
+    /**
+     * Query events using keyset pagination. Contrary to {@link #query(Filter, int, int, SortBy)}, which skips the events of all previous pages
+     * in the database, the next page is found by a range query on the sort key of the last event in the previous page (which is encoded in the
+     * continuation token). This makes the cost of fetching a page independent of how deep into the result the page is.
+     *
+     * @param filter            The filter to apply
+     * @param limit             The maximum number of events in the page
+     * @param sortBy            How to sort the events. Note that {@link SortBy#NATURAL_ASC} and {@link SortBy#NATURAL_DESC} are sorted by the id of the database document
+     *                          and that {@link SortBy#TIME_ASC} and {@link SortBy#TIME_DESC} are sorted by time and the id of the database document.
+     * @param continuationToken The {@link EventPage#continuationToken} of the previous page, or {@code null} to fetch the first page.
+     *                          The {@code filter} and {@code sortBy} must be the same as for the previous page.
+     * @return An {@link EventPage} containing at most {@code limit} events.
+     */
+    EventPage queryPage(Filter filter, int limit, SortBy sortBy, String continuationToken);
+
+    /**
+     * Query the first page of events using keyset pagination, see {@link #queryPage(Filter, int, SortBy, String)}.
+     *
+     * @return An {@link EventPage} containing at most {@code limit} events.
+     */
+    default EventPage queryPage(Filter filter, int limit, SortBy sortBy) {
+        return queryPage(filter, limit, sortBy, null);
+    }
+
+    /**
+     * Query only a subset of the cloud event attributes and extensions of the events matching the supplied {@code filter}. Only the requested
+     * {@code attributes} are fetched from the database which makes this a lot cheaper than {@link #query(Filter, int, int, SortBy)} when
+     * the data of the cloud events is not needed.
+     *
+     * @param filter     The filter to apply
+     * @param attributes The cloud event attributes and extensions to fetch, for example "id", "type", "time" and "streamId". The data cannot be fetched.
+     * @return A {@link CloudEventView} for each cloud event matching the specified filter, skip, limit and sort by <code>sortBy</code>.
+     */
+    Stream<CloudEventView> queryViews(Filter filter, Set<String> attributes, int skip, int limit, SortBy sortBy);
+
+    /**
+     * @return A {@link CloudEventView} containing the supplied {@code attributes} for each cloud event matching the specified filter
+     * @see #queryViews(Filter, Set, int, int, SortBy)
+     */
+    default Stream<CloudEventView> queryViews(Filter filter, Set<String> attributes) {
+        return queryViews(filter, attributes, 0, Integer.MAX_VALUE, SortBy.NATURAL_ASC);
+    }
+
+    /**
+     * Aggregate the events matching the supplied {@code filter} in the database (instead of reading all events and aggregating them in the JVM).
+     * The events are grouped by the supplied {@code groupBy} attributes and the number of events as well as the min and max time is calculated
+     * for each group.
+     *
+     * @param filter  The filter to apply
+     * @param groupBy The attributes to group the events by, for example {@link GroupBy#type()} or {@link GroupBy#time(GroupBy.TimeBucket)}.
+     *                If empty, all events matching the filter are aggregated into a single group.
+     * @return The {@link AggregatedGroup}'s sorted by count in descending order
+     */
+    Stream<AggregatedGroup> aggregate(Filter filter, List<GroupBy> groupBy);
+
+    /**
+     * @return The {@link AggregatedGroup}'s sorted by count in descending order
+     * @see #aggregate(Filter, List)
+     */
+    default Stream<AggregatedGroup> aggregate(Filter filter, GroupBy... groupBy) {
+        return aggregate(filter, Arrays.asList(groupBy));
+    }
+
+    /**
+     * Query all events matching the supplied {@code filter} by splitting the event store into {@code partitions} that are read by separate
+     * cursors. The returned stream is parallel and each partition is read by the thread that processes it, so use {@link Stream#sequential()}
+     * to read the partitions one by one, or run the terminal operation in a custom {@link java.util.concurrent.ForkJoinPool} to control
+     * which threads that are used. The events are returned in insertion order if the terminal operation respects the encounter order (such as
+     * {@link Stream#forEachOrdered(java.util.function.Consumer)}).
+     * <p>
+     * This is useful when reading a large number of events, for example when rebuilding a read model. The default implementation
+     * delegates to {@link #query(Filter)}.
+     * </p>
+     *
+     * @param filter     The filter to apply
+     * @param partitions The (maximum) number of partitions, and thus cursors, to use
+     * @return All cloud events matching the specified filter as a parallel stream
+     */
+    default Stream<CloudEvent> queryParallel(Filter filter, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be greater than zero");
+        }
+        return query(filter).parallel();
+    }
+
     /**
      * Count specific events in the event store that matches the supplied {@code filter}.
      *
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.api.blocking;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.WriteCondition;
+
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Describes a write of {@code events} to the event stream with id {@code streamId} given that the {@code writeCondition} is fulfilled.
+ * Used when writing to multiple event streams at once (see {@link WriteToMultipleEventStreams}).
+ */
+public class EventStreamWrite {
+    public final String streamId;
+    public final WriteCondition writeCondition;
+    public final Stream<CloudEvent> events;
+
+    /**
+     * Create a new instance of {@code EventStreamWrite}.
+     *
+     * @param streamId       The id of the stream
+     * @param writeCondition The write condition that must be fulfilled for the events to be written
+     * @param events         The events to be appended/written to the stream
+     */
+    public EventStreamWrite(String streamId, WriteCondition writeCondition, Stream<CloudEvent> events) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        requireNonNull(writeCondition, WriteCondition.class.getSimpleName() + " cannot be null");
+        requireNonNull(events, "Events cannot be null");
+        this.streamId = streamId;
+        this.writeCondition = writeCondition;
+        this.events = events;
+    }
+
+    /**
+     * Write {@code events} to the stream with the supplied {@code streamId} regardless of the current stream version.
+     *
+     * @param streamId The id of the stream
+     * @param events   The events to be appended/written to the stream
+     * @return An {@link EventStreamWrite} with the behavior specified above.
+     */
+    public static EventStreamWrite write(String streamId, Stream<CloudEvent> events) {
+        return new EventStreamWrite(streamId, WriteCondition.anyStreamVersion(), events);
+    }
+
+    /**
+     * Write {@code events} to the stream with the supplied {@code streamId} if the {@code writeCondition} is fulfilled.
+     *
+     * @param streamId       The id of the stream
+     * @param writeCondition The write condition that must be fulfilled for the events to be written
+     * @param events         The events to be appended/written to the stream
+     * @return An {@link EventStreamWrite} with the behavior specified above.
+     */
+    public static EventStreamWrite write(String streamId, WriteCondition writeCondition, Stream<CloudEvent> events) {
+        return new EventStreamWrite(streamId, writeCondition, events);
+    }
+
+    @Override
+    public String toString() {
+        return "EventStreamWrite{" +
+                "streamId='" + streamId + '\'' +
+                ", writeCondition=" + writeCondition +
+                '}';
+    }
+}
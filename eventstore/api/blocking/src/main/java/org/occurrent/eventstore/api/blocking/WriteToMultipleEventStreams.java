@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.api.blocking;
+
+import org.occurrent.eventstore.api.DuplicateCloudEventException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Event stores that supports writing to multiple event streams in a single atomic operation should implement this interface.
+ */
+public interface WriteToMultipleEventStreams {
+
+    /**
+     * Write events to multiple event streams in a single atomic operation. Either all events are written or none of them.
+     * The writes are applied in order, which means that if the same stream id occurs more than once, the write condition
+     * is evaluated against the stream version that is the result of the previous writes to that stream.
+     *
+     * @param writes The writes to perform
+     * @throws WriteConditionsNotFulfilledException If the write condition of one or more writes were not fulfilled. The exception contains
+     *                                              one {@link org.occurrent.eventstore.api.WriteConditionNotFulfilledException} per failed write.
+     * @throws DuplicateCloudEventException         If a cloud event in the supplied <code>writes</code> already exists in the event store
+     */
+    void write(List<EventStreamWrite> writes);
+
+    /**
+     * Write events to multiple event streams in a single atomic operation.
+     *
+     * @param writes The writes to perform
+     * @see #write(List)
+     */
+    default void write(EventStreamWrite... writes) {
+        write(Arrays.asList(writes));
+    }
+}
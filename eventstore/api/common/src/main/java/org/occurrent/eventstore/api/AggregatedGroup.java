@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The result of aggregating the events that share the same values for the attributes they were grouped by (see {@link GroupBy}).
+ */
+public class AggregatedGroup {
+    /**
+     * The value of each attribute that the events were grouped by. The key is the {@link GroupBy#attribute}. A "time" value is the
+     * start of the {@link GroupBy.TimeBucket} as an {@link OffsetDateTime} (in UTC) and a "source" value is a {@link java.net.URI}.
+     */
+    public final Map<String, Object> group;
+    /**
+     * The number of events in the group
+     */
+    public final long count;
+    /**
+     * The earliest time of the events in the group, or {@code null} if no event in the group has a time.
+     */
+    public final OffsetDateTime minTime;
+    /**
+     * The latest time of the events in the group, or {@code null} if no event in the group has a time.
+     */
+    public final OffsetDateTime maxTime;
+
+    public AggregatedGroup(Map<String, Object> group, long count, OffsetDateTime minTime, OffsetDateTime maxTime) {
+        requireNonNull(group, "Group cannot be null");
+        this.group = Collections.unmodifiableMap(new LinkedHashMap<>(group));
+        this.count = count;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AggregatedGroup)) return false;
+        AggregatedGroup that = (AggregatedGroup) o;
+        return count == that.count &&
+                Objects.equals(group, that.group) &&
+                Objects.equals(minTime, that.minTime) &&
+                Objects.equals(maxTime, that.maxTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(group, count, minTime, maxTime);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregatedGroup{" +
+                "group=" + group +
+                ", count=" + count +
+                ", minTime=" + minTime +
+                ", maxTime=" + maxTime +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.GroupBy.TimeBucket;
+import org.occurrent.filter.Filter;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Aggregates cloud events in memory, see {@link GroupBy} and {@link AggregatedGroup}.
+ */
+public class CloudEventAggregator {
+
+    /**
+     * @param cloudEvents The cloud events to aggregate
+     * @param groupBy     The attributes to group the cloud events by. If empty, all cloud events are aggregated into a single group.
+     * @return The {@link AggregatedGroup}'s sorted by count in descending order
+     */
+    public static List<AggregatedGroup> aggregate(Stream<CloudEvent> cloudEvents, List<GroupBy> groupBy) {
+        requireNonNull(cloudEvents, "Cloud events cannot be null");
+        requireNonNull(groupBy, GroupBy.class.getSimpleName() + " cannot be null");
+
+        Map<Map<String, Object>, Accumulator> accumulators = new LinkedHashMap<>();
+        cloudEvents.forEach(cloudEvent -> accumulators.computeIfAbsent(group(cloudEvent, groupBy), __ -> new Accumulator()).accumulate(cloudEvent.getTime()));
+        return accumulators.entrySet().stream()
+                .map(entry -> new AggregatedGroup(entry.getKey(), entry.getValue().count, entry.getValue().minTime, entry.getValue().maxTime))
+                .sorted(Comparator.comparingLong((AggregatedGroup aggregatedGroup) -> aggregatedGroup.count).reversed())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Truncate the supplied time to the start of the {@link TimeBucket} (in UTC).
+     */
+    public static OffsetDateTime truncate(OffsetDateTime time, TimeBucket timeBucket) {
+        OffsetDateTime utc = time.withOffsetSameInstant(UTC);
+        switch (timeBucket) {
+            case MINUTE:
+                return utc.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR:
+                return utc.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return utc.truncatedTo(ChronoUnit.DAYS);
+            case MONTH:
+                return utc.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            case YEAR:
+                return utc.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+            default:
+                throw new IllegalStateException("Unexpected value: " + timeBucket);
+        }
+    }
+
+    private static Map<String, Object> group(CloudEvent cloudEvent, List<GroupBy> groupBy) {
+        Map<String, Object> group = new LinkedHashMap<>();
+        for (GroupBy by : groupBy) {
+            final Object value;
+            if (by.timeBucket != null) {
+                value = cloudEvent.getTime() == null ? null : truncate(cloudEvent.getTime(), by.timeBucket);
+            } else if (Filter.SOURCE.equals(by.attribute)) {
+                value = cloudEvent.getSource();
+            } else {
+                value = FilterEvaluator.attributeValue(cloudEvent, by.attribute);
+            }
+            group.put(by.attribute, value);
+        }
+        return group;
+    }
+
+    private static class Accumulator {
+        private long count;
+        private OffsetDateTime minTime;
+        private OffsetDateTime maxTime;
+
+        void accumulate(OffsetDateTime time) {
+            count++;
+            if (time != null) {
+                OffsetDateTime utc = time.withOffsetSameInstant(UTC);
+                minTime = minTime == null || utc.isBefore(minTime) ? utc : minTime;
+                maxTime = maxTime == null || utc.isAfter(maxTime) ? utc : maxTime;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+
+/**
+ * A lightweight view of a cloud event that only contains a subset of the cloud event attributes and extensions (and never the data).
+ * Attributes that were not fetched are returned as {@code null}.
+ */
+public class CloudEventView {
+    private final Map<String, Object> attributes;
+
+    /**
+     * @param attributes The attributes and extensions of the cloud event. The "source" and "dataschema" attributes are represented as {@link URI}'s
+     *                   and "time" is represented as an {@link OffsetDateTime}.
+     */
+    public CloudEventView(Map<String, Object> attributes) {
+        requireNonNull(attributes, "Attributes cannot be null");
+        this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+    }
+
+    public String getId() {
+        return (String) attributes.get("id");
+    }
+
+    public URI getSource() {
+        return (URI) attributes.get("source");
+    }
+
+    public String getType() {
+        return (String) attributes.get("type");
+    }
+
+    public String getSubject() {
+        return (String) attributes.get("subject");
+    }
+
+    public OffsetDateTime getTime() {
+        return (OffsetDateTime) attributes.get("time");
+    }
+
+    public String getDataContentType() {
+        return (String) attributes.get("datacontenttype");
+    }
+
+    public URI getDataSchema() {
+        return (URI) attributes.get("dataschema");
+    }
+
+    public String getStreamId() {
+        return (String) attributes.get(STREAM_ID);
+    }
+
+    public Long getStreamVersion() {
+        return (Long) attributes.get(STREAM_VERSION);
+    }
+
+    /**
+     * @param name The name of the attribute or extension
+     * @return The value of the attribute or extension, or {@code null} if it was not fetched or isn't defined for the cloud event.
+     */
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * @return The names of the attributes and extensions that are defined in this view
+     */
+    public Set<String> getAttributeNames() {
+        return attributes.keySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CloudEventView)) return false;
+        CloudEventView that = (CloudEventView) o;
+        return Objects.equals(attributes, that.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(attributes);
+    }
+
+    @Override
+    public String toString() {
+        return "CloudEventView{" +
+                "attributes=" + attributes +
+                '}';
+    }
+}
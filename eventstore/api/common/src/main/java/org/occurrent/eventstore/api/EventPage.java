@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import io.cloudevents.CloudEvent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A page of cloud events returned by a keyset paginated query. Use the {@link #continuationToken} to fetch the next page.
+ */
+public class EventPage {
+    public final List<CloudEvent> events;
+    /**
+     * An opaque token that is used to fetch the next page, or {@code null} if this is the last page.
+     */
+    public final String continuationToken;
+
+    public EventPage(List<CloudEvent> events, String continuationToken) {
+        requireNonNull(events, "Events cannot be null");
+        this.events = Collections.unmodifiableList(events);
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * @return {@code true} if there are more events after this page, {@code false} otherwise.
+     */
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EventPage)) return false;
+        EventPage eventPage = (EventPage) o;
+        return Objects.equals(events, eventPage.events) &&
+                Objects.equals(continuationToken, eventPage.continuationToken);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(events, continuationToken);
+    }
+
+    @Override
+    public String toString() {
+        return "EventPage{" +
+                "events=" + events +
+                ", continuationToken='" + continuationToken + '\'' +
+                '}';
+    }
+}
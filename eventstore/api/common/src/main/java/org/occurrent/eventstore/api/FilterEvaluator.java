@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.condition.Condition;
+import org.occurrent.condition.Condition.MultiOperandCondition;
+import org.occurrent.condition.Condition.MultiOperandConditionName;
+import org.occurrent.condition.Condition.SingleOperandCondition;
+import org.occurrent.condition.Condition.SingleOperandConditionName;
+import org.occurrent.filter.Filter;
+import org.occurrent.filter.Filter.CompositionFilter;
+import org.occurrent.filter.Filter.SingleConditionFilter;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Evaluates a {@link Filter} against a {@link CloudEvent} in memory. The semantics are the same as for the MongoDB event stores,
+ * for example a {@code ne} condition matches a cloud event that doesn't have the attribute.
+ * <p>
+ * Filters on the cloud event data (e.g. {@link Filter#data(String, org.occurrent.condition.Condition)}) are evaluated against the data of cloud events
+ * with a JSON content type, just as the MongoDB event stores that store such data as a document. Nested properties are separated by a dot and an array
+ * matches a condition if one of its elements does (just as in MongoDB). Data of other content types is not stored as a document by the
+ * MongoDB event stores and is thus never matched by a data filter.
+ * </p>
+ */
+public class FilterEvaluator {
+
+    public static boolean evaluate(Filter filter, CloudEvent cloudEvent) {
+        Objects.requireNonNull(filter, "Filter cannot be null");
+        Objects.requireNonNull(cloudEvent, CloudEvent.class.getSimpleName() + " cannot be null");
+
+        if (filter instanceof Filter.All) {
+            return true;
+        } else if (filter instanceof SingleConditionFilter) {
+            SingleConditionFilter singleConditionFilter = (SingleConditionFilter) filter;
+            return evaluate(singleConditionFilter.condition, attributeValue(cloudEvent, singleConditionFilter.fieldName));
+        } else if (filter instanceof CompositionFilter) {
+            CompositionFilter compositionFilter = (CompositionFilter) filter;
+            Stream<Filter> filters = compositionFilter.filters.stream();
+            switch (compositionFilter.operator) {
+                case AND:
+                    return filters.allMatch(f -> evaluate(f, cloudEvent));
+                case OR:
+                    return filters.anyMatch(f -> evaluate(f, cloudEvent));
+                default:
+                    throw new IllegalStateException("Unexpected value: " + compositionFilter.operator);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported filter: " + filter.getClass());
+        }
+    }
+
+    /**
+     * Get the value of the supplied attribute or extension from the cloud event in the same representation as used by the {@link Filter}'s.
+     * I.e. "source", "dataschema" and "specversion" are represented as strings. JSON data (and properties of the JSON data) are represented as
+     * {@link Map}'s, {@link List}'s, strings, {@link BigDecimal}'s and booleans.
+     */
+    public static Object attributeValue(CloudEvent cloudEvent, String attributeName) {
+        switch (attributeName) {
+            case Filter.SPEC_VERSION:
+                return cloudEvent.getSpecVersion() == null ? null : cloudEvent.getSpecVersion().toString();
+            case Filter.ID:
+                return cloudEvent.getId();
+            case Filter.TYPE:
+                return cloudEvent.getType();
+            case Filter.TIME:
+                return cloudEvent.getTime();
+            case Filter.SOURCE:
+                return toString(cloudEvent.getSource());
+            case Filter.SUBJECT:
+                return cloudEvent.getSubject();
+            case Filter.DATA_SCHEMA:
+                return toString(cloudEvent.getDataSchema());
+            case Filter.DATA_CONTENT_TYPE:
+                return cloudEvent.getDataContentType();
+            default:
+                if (attributeName.equals(Filter.DATA)) {
+                    return jsonData(cloudEvent);
+                } else if (attributeName.startsWith(Filter.DATA + ".")) {
+                    return property(jsonData(cloudEvent), attributeName.substring(Filter.DATA.length() + 1).split("\\."), 0);
+                }
+                return cloudEvent.getExtension(attributeName);
+        }
+    }
+
+    // Same rules as in the MongoDB event stores, data of other content types is not stored as a document
+    private static Object jsonData(CloudEvent cloudEvent) {
+        String contentType = cloudEvent.getDataContentType();
+        byte[] data = cloudEvent.getData();
+        if (data == null || !(contentType == null || contentType.startsWith("application/json") || contentType.startsWith("text/json"))) {
+            return null;
+        }
+        return JsonParser.parse(new String(data, UTF_8));
+    }
+
+    // The properties of the objects in an array are collected into a list (just as in MongoDB)
+    private static Object property(Object value, String[] path, int pathIndex) {
+        if (pathIndex == path.length || value == null) {
+            return value;
+        } else if (value instanceof Map) {
+            return property(((Map<?, ?>) value).get(path[pathIndex]), path, pathIndex + 1);
+        } else if (value instanceof List) {
+            List<Object> properties = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                Object property = element instanceof Map ? property(element, path, pathIndex) : null;
+                if (property instanceof List) {
+                    properties.addAll((List<?>) property);
+                } else if (property != null) {
+                    properties.add(property);
+                }
+            }
+            return properties.isEmpty() ? null : properties;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean evaluate(Condition<?> condition, Object value) {
+        if (condition instanceof MultiOperandCondition) {
+            MultiOperandCondition<Object> operation = (MultiOperandCondition<Object>) condition;
+            MultiOperandConditionName operationName = operation.operationName;
+            Stream<Condition<Object>> operations = operation.operations.stream();
+            switch (operationName) {
+                case AND:
+                    return operations.allMatch(c -> evaluate(c, value));
+                case OR:
+                    return operations.anyMatch(c -> evaluate(c, value));
+                case NOT:
+                    return operations.noneMatch(c -> evaluate(c, value));
+                default:
+                    throw new IllegalStateException("Unexpected value: " + operationName);
+            }
+        } else if (condition instanceof SingleOperandCondition) {
+            SingleOperandCondition<Object> singleOperandCondition = (SingleOperandCondition<Object>) condition;
+            Object operand = singleOperandCondition.operand;
+            SingleOperandConditionName singleOperandConditionName = singleOperandCondition.singleOperandConditionName;
+            switch (singleOperandConditionName) {
+                case EQ:
+                    return isEqualToArrayOrElement(value, operand);
+                case NE:
+                    return !isEqualToArrayOrElement(value, operand);
+                case LT:
+                    return compareArrayElements(value, operand, result -> result < 0);
+                case GT:
+                    return compareArrayElements(value, operand, result -> result > 0);
+                case LTE:
+                    return compareArrayElements(value, operand, result -> result <= 0);
+                case GTE:
+                    return compareArrayElements(value, operand, result -> result >= 0);
+                default:
+                    throw new IllegalStateException("Unexpected value: " + singleOperandConditionName);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported condition: " + condition.getClass());
+        }
+    }
+
+    // An array (of JSON data) is equal to an operand if the array itself or one of its elements is equal to the operand (just as in MongoDB)
+    private static boolean isEqualToArrayOrElement(Object value, Object operand) {
+        return isEqual(value, operand) || (value instanceof List && ((List<?>) value).stream().anyMatch(element -> isEqual(element, operand)));
+    }
+
+    private static boolean compareArrayElements(Object value, Object operand, IntPredicate predicate) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream().anyMatch(element -> compare(element, operand, predicate));
+        }
+        return compare(value, operand, predicate);
+    }
+
+    private static boolean isEqual(Object value, Object operand) {
+        if (value == null || operand == null) {
+            return value == operand;
+        }
+        Object normalizedValue = normalize(value);
+        Object normalizedOperand = normalize(operand);
+        if (normalizedValue instanceof BigDecimal && normalizedOperand instanceof BigDecimal) {
+            return ((BigDecimal) normalizedValue).compareTo((BigDecimal) normalizedOperand) == 0;
+        }
+        return normalizedValue.equals(normalizedOperand);
+    }
+
+    // Values that are not comparable never match "lt", "gt", "lte" and "gte" (just as in MongoDB)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean compare(Object value, Object operand, IntPredicate predicate) {
+        if (value == null || operand == null) {
+            return false;
+        }
+        Object normalizedValue = normalize(value);
+        Object normalizedOperand = normalize(operand);
+        if (normalizedValue.getClass() != normalizedOperand.getClass() || !(normalizedValue instanceof Comparable)) {
+            return false;
+        }
+        return predicate.test(((Comparable) normalizedValue).compareTo(normalizedOperand));
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant();
+        } else if (value instanceof Number) {
+            return new BigDecimal(value.toString());
+        } else if (value instanceof URI) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    private static String toString(URI uri) {
+        return uri == null ? null : uri.toString();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+import org.occurrent.filter.Filter;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Defines how cloud events are grouped when aggregating events (see {@code EventStoreQueries#aggregate}). Events can be grouped by
+ * a cloud event attribute or extension, or by the "time" attribute truncated to a {@link TimeBucket}.
+ */
+public final class GroupBy {
+    /**
+     * The name of the cloud event attribute or extension to group by
+     */
+    public final String attribute;
+    /**
+     * The time bucket if grouping by time, otherwise {@code null}.
+     */
+    public final TimeBucket timeBucket;
+
+    private GroupBy(String attribute, TimeBucket timeBucket) {
+        this.attribute = attribute;
+        this.timeBucket = timeBucket;
+    }
+
+    /**
+     * Group by the cloud event type
+     */
+    public static GroupBy type() {
+        return attribute(Filter.TYPE);
+    }
+
+    /**
+     * Group by the cloud event subject
+     */
+    public static GroupBy subject() {
+        return attribute(Filter.SUBJECT);
+    }
+
+    /**
+     * Group by the cloud event source
+     */
+    public static GroupBy source() {
+        return attribute(Filter.SOURCE);
+    }
+
+    /**
+     * Group by the id of the stream that the cloud event belongs to
+     */
+    public static GroupBy streamId() {
+        return attribute(OccurrentCloudEventExtension.STREAM_ID);
+    }
+
+    /**
+     * Group by the time of the cloud event truncated to the supplied {@code timeBucket} (in UTC).
+     */
+    public static GroupBy time(TimeBucket timeBucket) {
+        requireNonNull(timeBucket, TimeBucket.class.getSimpleName() + " cannot be null");
+        return new GroupBy(Filter.TIME, timeBucket);
+    }
+
+    /**
+     * Group by an arbitrary cloud event attribute or extension. Use {@link #time(TimeBucket)} to group by time.
+     */
+    public static GroupBy attribute(String attribute) {
+        requireNonNull(attribute, "Attribute cannot be null");
+        if (Filter.TIME.equals(attribute)) {
+            throw new IllegalArgumentException("Use " + GroupBy.class.getSimpleName() + ".time(TimeBucket) to group by time");
+        } else if (attribute.equals(Filter.DATA) || attribute.startsWith(Filter.DATA + ".") || attribute.contains("$")) {
+            throw new IllegalArgumentException("Cannot group by " + attribute);
+        }
+        return new GroupBy(attribute, null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GroupBy)) return false;
+        GroupBy groupBy = (GroupBy) o;
+        return Objects.equals(attribute, groupBy.attribute) &&
+                timeBucket == groupBy.timeBucket;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(attribute, timeBucket);
+    }
+
+    @Override
+    public String toString() {
+        return "GroupBy{" +
+                "attribute='" + attribute + '\'' +
+                ", timeBucket=" + timeBucket +
+                '}';
+    }
+
+    public enum TimeBucket {
+        MINUTE, HOUR, DAY, MONTH, YEAR
+    }
+}
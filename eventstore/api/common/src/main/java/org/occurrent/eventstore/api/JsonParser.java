@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON parser that is used by the {@link FilterEvaluator} to evaluate filters on the cloud event data. Objects are parsed
+ * into a {@link Map}, arrays into a {@link List} and numbers into a {@link BigDecimal}.
+ */
+class JsonParser {
+    private final String json;
+    private int index;
+
+    private JsonParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @return The parsed JSON value
+     * @throws IllegalArgumentException If {@code json} is not valid JSON
+     */
+    static Object parse(String json) {
+        JsonParser parser = new JsonParser(json);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.index != json.length()) {
+            throw parser.invalidJson();
+        }
+        return value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (index == json.length()) {
+            throw invalidJson();
+        }
+        char c = json.charAt(index);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                return readLiteral("true", Boolean.TRUE);
+            case 'f':
+                return readLiteral("false", Boolean.FALSE);
+            case 'n':
+                return readLiteral("null", null);
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        index++;
+        skipWhitespace();
+        if (consume('}')) {
+            return object;
+        }
+        do {
+            skipWhitespace();
+            if (index == json.length() || json.charAt(index) != '"') {
+                throw invalidJson();
+            }
+            String name = readString();
+            skipWhitespace();
+            if (!consume(':')) {
+                throw invalidJson();
+            }
+            object.put(name, readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume('}')) {
+            throw invalidJson();
+        }
+        return object;
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        index++;
+        skipWhitespace();
+        if (consume(']')) {
+            return array;
+        }
+        do {
+            array.add(readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume(']')) {
+            throw invalidJson();
+        }
+        return array;
+    }
+
+    private String readString() {
+        StringBuilder string = new StringBuilder();
+        index++;
+        while (index < json.length()) {
+            char c = json.charAt(index++);
+            if (c == '"') {
+                return string.toString();
+            } else if (c != '\\') {
+                string.append(c);
+            } else if (index < json.length()) {
+                char escaped = json.charAt(index++);
+                switch (escaped) {
+                    case 'b':
+                        string.append('\b');
+                        break;
+                    case 'f':
+                        string.append('\f');
+                        break;
+                    case 'n':
+                        string.append('\n');
+                        break;
+                    case 'r':
+                        string.append('\r');
+                        break;
+                    case 't':
+                        string.append('\t');
+                        break;
+                    case 'u':
+                        if (index + 4 > json.length()) {
+                            throw invalidJson();
+                        }
+                        try {
+                            string.append((char) Integer.parseInt(json.substring(index, index + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw invalidJson();
+                        }
+                        index += 4;
+                        break;
+                    default:
+                        string.append(escaped);
+                }
+            }
+        }
+        throw invalidJson();
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!json.startsWith(literal, index)) {
+            throw invalidJson();
+        }
+        index += literal.length();
+        return value;
+    }
+
+    private BigDecimal readNumber() {
+        int start = index;
+        while (index < json.length() && "+-0123456789.eE".indexOf(json.charAt(index)) != -1) {
+            index++;
+        }
+        try {
+            return new BigDecimal(json.substring(start, index));
+        } catch (NumberFormatException e) {
+            throw invalidJson();
+        }
+    }
+
+    private boolean consume(char c) {
+        if (index < json.length() && json.charAt(index) == c) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (index < json.length() && Character.isWhitespace(json.charAt(index))) {
+            index++;
+        }
+    }
+
+    private IllegalArgumentException invalidJson() {
+        return new IllegalArgumentException("Invalid JSON at index " + index + ": " + json);
+    }
+}
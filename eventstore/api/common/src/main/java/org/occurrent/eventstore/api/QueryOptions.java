@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options that tune how an event store reads events from the database, such as the cursor batch size or the read preference.
+ * An option that is {@code null} is not configured, meaning that the event store default (or the database driver default) is used.
+ * Event stores that don't support a specific option ignore it.
+ */
+public class QueryOptions {
+    private static final QueryOptions NONE = new QueryOptions(null, null, null, null);
+
+    /**
+     * The number of documents to return in each batch from the database
+     */
+    public final Integer batchSize;
+    /**
+     * The maximum execution time of a query in the database
+     */
+    public final Duration maxTime;
+    /**
+     * Whether or not the database should time out idle cursors
+     */
+    public final Boolean noCursorTimeout;
+    /**
+     * Which members of a replica set that queries are routed to
+     */
+    public final ReadPreference readPreference;
+
+    private QueryOptions(Integer batchSize, Duration maxTime, Boolean noCursorTimeout, ReadPreference readPreference) {
+        if (batchSize != null && batchSize < 0) {
+            throw new IllegalArgumentException("Batch size cannot be negative");
+        } else if (maxTime != null && maxTime.isNegative()) {
+            throw new IllegalArgumentException("Max time cannot be negative");
+        }
+        this.batchSize = batchSize;
+        this.maxTime = maxTime;
+        this.noCursorTimeout = noCursorTimeout;
+        this.readPreference = readPreference;
+    }
+
+    /**
+     * @return {@code QueryOptions} without any options configured
+     */
+    public static QueryOptions none() {
+        return NONE;
+    }
+
+    /**
+     * @param other The options that takes precedence
+     * @return New {@code QueryOptions} where the options configured in {@code other} replaces the options in this instance
+     */
+    public QueryOptions overrideWith(QueryOptions other) {
+        requireNonNull(other, QueryOptions.class.getSimpleName() + " cannot be null");
+        return new QueryOptions(other.batchSize == null ? batchSize : other.batchSize,
+                other.maxTime == null ? maxTime : other.maxTime,
+                other.noCursorTimeout == null ? noCursorTimeout : other.noCursorTimeout,
+                other.readPreference == null ? readPreference : other.readPreference);
+    }
+
+    /**
+     * @return New {@code QueryOptions} without a read preference. This is used for reads that take place in a transaction since they must read from the primary.
+     */
+    public QueryOptions withoutReadPreference() {
+        return readPreference == null ? this : new QueryOptions(batchSize, maxTime, noCursorTimeout, null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QueryOptions)) return false;
+        QueryOptions that = (QueryOptions) o;
+        return Objects.equals(batchSize, that.batchSize) &&
+                Objects.equals(maxTime, that.maxTime) &&
+                Objects.equals(noCursorTimeout, that.noCursorTimeout) &&
+                readPreference == that.readPreference;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(batchSize, maxTime, noCursorTimeout, readPreference);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryOptions{" +
+                "batchSize=" + batchSize +
+                ", maxTime=" + maxTime +
+                ", noCursorTimeout=" + noCursorTimeout +
+                ", readPreference=" + readPreference +
+                '}';
+    }
+
+    public enum ReadPreference {
+        PRIMARY, PRIMARY_PREFERRED, SECONDARY, SECONDARY_PREFERRED, NEAREST
+    }
+
+    public static final class Builder {
+        private Integer batchSize;
+        private Duration maxTime;
+        private Boolean noCursorTimeout;
+        private ReadPreference readPreference;
+
+        /**
+         * @param batchSize The number of documents to return in each batch from the database
+         * @return A same {@code Builder instance}
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param maxTime The maximum execution time of a query in the database
+         * @return A same {@code Builder instance}
+         */
+        public Builder maxTime(Duration maxTime) {
+            this.maxTime = maxTime;
+            return this;
+        }
+
+        /**
+         * @param noCursorTimeout {@code true} to prevent the database from timing out idle cursors, for example when processing each event takes a long time.
+         * @return A same {@code Builder instance}
+         */
+        public Builder noCursorTimeout(boolean noCursorTimeout) {
+            this.noCursorTimeout = noCursorTimeout;
+            return this;
+        }
+
+        /**
+         * @param readPreference Which members of a replica set that queries are routed to, for example {@link ReadPreference#SECONDARY_PREFERRED}
+         *                       to move analytic load off the primary.
+         * @return A same {@code Builder instance}
+         */
+        public Builder readPreference(ReadPreference readPreference) {
+            this.readPreference = readPreference;
+            return this;
+        }
+
+        public QueryOptions build() {
+            return new QueryOptions(batchSize, maxTime, noCursorTimeout, readPreference);
+        }
+    }
+}
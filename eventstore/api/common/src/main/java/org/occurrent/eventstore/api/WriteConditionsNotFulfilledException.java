@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.api;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Thrown when writing to multiple event streams at once and the write condition of one or more of the writes were not fulfilled.
+ * No events have been written to the event store. Each write whose condition was not fulfilled is represented by a
+ * {@link WriteConditionNotFulfilledException} in {@link #writeConditionNotFulfilledExceptions}.
+ */
+public class WriteConditionsNotFulfilledException extends RuntimeException {
+    public final List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions;
+
+    public WriteConditionsNotFulfilledException(List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions) {
+        super(generateMessage(requireNonNull(writeConditionNotFulfilledExceptions, "Write condition not fulfilled exceptions cannot be null")));
+        this.writeConditionNotFulfilledExceptions = Collections.unmodifiableList(writeConditionNotFulfilledExceptions);
+    }
+
+    private static String generateMessage(List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions) {
+        return writeConditionNotFulfilledExceptions.stream()
+                .map(e -> "Stream " + e.eventStreamId + ": " + e.getMessage())
+                .collect(Collectors.joining(" ", WriteCondition.class.getSimpleName() + " was not fulfilled for " + writeConditionNotFulfilledExceptions.size() + " event stream(s). ", ""));
+    }
+}
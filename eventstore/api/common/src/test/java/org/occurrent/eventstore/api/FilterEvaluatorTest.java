@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.occurrent.filter.Filter;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+import static org.occurrent.condition.Condition.*;
+import static org.occurrent.filter.Filter.*;
+
+class FilterEvaluatorTest {
+    private static final OffsetDateTime TIME = OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3), UTC);
+
+    private static final CloudEvent CLOUD_EVENT = CloudEventBuilder.v1()
+            .withId("id")
+            .withSource(URI.create("urn:name"))
+            .withType("type")
+            .withTime(TIME)
+            .withExtension(STREAM_ID, "streamId")
+            .withExtension(STREAM_VERSION, 2L)
+            .build();
+
+    @ParameterizedTest
+    @MethodSource("arguments")
+    void evaluatesFilterCorrectly(Filter filter, boolean expectedResult) {
+        boolean actual = FilterEvaluator.evaluate(filter, CLOUD_EVENT);
+
+        assertThat(actual).isEqualTo(expectedResult);
+    }
+
+    @Test
+    void evaluates_data_filters_against_json_data() {
+        // Given
+        CloudEvent cloudEvent = CloudEventBuilder.v1(CLOUD_EVENT)
+                .withData("application/json", "{\"name\" : \"John\", \"age\" : 42, \"address\" : {\"city\" : \"Stockholm\"}, \"tags\" : [\"a\", \"b\"], \"orders\" : [{\"total\" : 10.5}, {\"total\" : 2}]}".getBytes(UTF_8))
+                .build();
+
+        // Then
+        assertThat(FilterEvaluator.evaluate(data("name", eq("John")), cloudEvent)).isTrue();
+        assertThat(FilterEvaluator.evaluate(data("name", ne("John")), cloudEvent)).isFalse();
+        assertThat(FilterEvaluator.evaluate(data("age", gt(40)), cloudEvent)).isTrue();
+        assertThat(FilterEvaluator.evaluate(data("age", lt(40L)), cloudEvent)).isFalse();
+        assertThat(FilterEvaluator.evaluate(data("address.city", eq("Stockholm")), cloudEvent)).isTrue();
+        assertThat(FilterEvaluator.evaluate(data("tags", eq("b")), cloudEvent)).isTrue();
+        assertThat(FilterEvaluator.evaluate(data("tags", ne("b")), cloudEvent)).isFalse();
+        assertThat(FilterEvaluator.evaluate(data("orders.total", gte(10)), cloudEvent)).isTrue();
+        assertThat(FilterEvaluator.evaluate(data("orders.total", gt(11)), cloudEvent)).isFalse();
+        assertThat(FilterEvaluator.evaluate(data("missing", ne("value")), cloudEvent)).isTrue();
+        assertThat(FilterEvaluator.evaluate(data("name.first", eq("John")), cloudEvent)).isFalse();
+    }
+
+    @Test
+    void data_filters_never_match_data_with_non_json_content_type() {
+        // Given
+        CloudEvent cloudEvent = CloudEventBuilder.v1(CLOUD_EVENT).withData("text/plain", "{\"name\" : \"John\"}".getBytes(UTF_8)).build();
+
+        // Then
+        assertThat(FilterEvaluator.evaluate(data("name", eq("John")), cloudEvent)).isFalse();
+        assertThat(FilterEvaluator.evaluate(data("name", ne("John")), cloudEvent)).isTrue();
+    }
+
+    @Test
+    void throws_iae_when_filtering_on_invalid_json_data() {
+        // Given
+        CloudEvent cloudEvent = CloudEventBuilder.v1(CLOUD_EVENT).withData("application/json", "{\"name\" : ".getBytes(UTF_8)).build();
+
+        // When
+        Throwable throwable = catchThrowable(() -> FilterEvaluator.evaluate(data("name", eq("John")), cloudEvent));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Stream<Arguments> arguments() {
+        return Stream.of(
+                Arguments.of(all(), true),
+                Arguments.of(id("id"), true),
+                Arguments.of(id("other"), false),
+                Arguments.of(source(URI.create("urn:name")), true),
+                Arguments.of(type("type").and(streamId("streamId")), true),
+                Arguments.of(type("type").and(streamId("other")), false),
+                Arguments.of(type("other").or(streamId("streamId")), true),
+                Arguments.of(streamVersion(2L), true),
+                Arguments.of(streamVersion(gt(1L)), true),
+                Arguments.of(streamVersion(lte(1L)), false),
+                Arguments.of(time(TIME.withOffsetSameInstant(ZoneOffset.ofHours(2))), true),
+                Arguments.of(time(lt(TIME.plusSeconds(1))), true),
+                Arguments.of(time(gte(TIME.plusSeconds(1))), false),
+                Arguments.of(subject("subject"), false),
+                Arguments.of(subject(ne("subject")), true),
+                Arguments.of(subject(gt("a")), false),
+                Arguments.of(specVersion("1.0"), true),
+                Arguments.of(filter("extension", eq("value")), false),
+                Arguments.of(type(not(eq("type"))), false),
+                Arguments.of(streamVersion(and(gt(1L), lt(3L))), true)
+        );
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.occurrent.eventstore.api.QueryOptions.ReadPreference.PRIMARY;
+import static org.occurrent.eventstore.api.QueryOptions.ReadPreference.SECONDARY_PREFERRED;
+
+class QueryOptionsTest {
+
+    @Test
+    void options_configured_in_other_query_options_takes_precedence_when_overriding() {
+        // Given
+        QueryOptions storeOptions = new QueryOptions.Builder().batchSize(100).maxTime(Duration.ofSeconds(10)).readPreference(PRIMARY).build();
+        QueryOptions queryOptions = new QueryOptions.Builder().batchSize(10).readPreference(SECONDARY_PREFERRED).build();
+
+        // When
+        QueryOptions options = storeOptions.overrideWith(queryOptions);
+
+        // Then
+        assertThat(options).isEqualTo(new QueryOptions.Builder().batchSize(10).maxTime(Duration.ofSeconds(10)).readPreference(SECONDARY_PREFERRED).build());
+    }
+
+    @Test
+    void overriding_with_no_options_returns_equal_query_options() {
+        // Given
+        QueryOptions storeOptions = new QueryOptions.Builder().batchSize(100).noCursorTimeout(true).build();
+
+        // When
+        QueryOptions options = storeOptions.overrideWith(QueryOptions.none());
+
+        // Then
+        assertThat(options).isEqualTo(storeOptions);
+    }
+
+    @Test
+    void without_read_preference_keeps_all_other_options() {
+        // Given
+        QueryOptions queryOptions = new QueryOptions.Builder().batchSize(10).noCursorTimeout(false).readPreference(SECONDARY_PREFERRED).build();
+
+        // When
+        QueryOptions options = queryOptions.withoutReadPreference();
+
+        // Then
+        assertThat(options).isEqualTo(new QueryOptions.Builder().batchSize(10).noCursorTimeout(false).build());
+    }
+
+    @Test
+    void throws_iae_when_batch_size_is_negative() {
+        // When
+        Throwable throwable = catchThrowable(() -> new QueryOptions.Builder().batchSize(-1).build());
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Batch size cannot be negative");
+    }
+
+    @Test
+    void throws_iae_when_max_time_is_negative() {
+        // When
+        Throwable throwable = catchThrowable(() -> new QueryOptions.Builder().maxTime(Duration.ofMillis(-1)).build());
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Max time cannot be negative");
+    }
+}
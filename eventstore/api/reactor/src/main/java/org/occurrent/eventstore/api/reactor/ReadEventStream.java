@@ -17,8 +17,13 @@
 package org.occurrent.eventstore.api.reactor;
 
 import io.cloudevents.CloudEvent;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
+import static java.util.Objects.requireNonNull;
+
 /**
  * An interface that should be implemented by event stores that supports reading an {@link EventStream}.
  */
@@ -33,6 +38,19 @@ public interface ReadEventStream {
         return read(streamId, 0, Integer.MAX_VALUE);
     }
 
+    /**
+     * Read all events from multiple event streams. Event stores that supports it read all event streams in a single query, which is
+     * much faster than reading the event streams one by one when loading many event streams (for example in a projection).
+     * The events of each returned {@link EventStream} are loaded into memory.
+     *
+     * @param streamIds The ids of the streams to read.
+     * @return One {@link EventStream} per distinct stream id in the same order as {@code streamIds}. An {@link EventStream} with version {@code 0} is returned for event streams that doesn't exist.
+     */
+    default Flux<EventStream<CloudEvent>> read(Collection<String> streamIds) {
+        requireNonNull(streamIds, "Stream ids cannot be null");
+        return Flux.fromIterable(streamIds).distinct().concatMap(this::read);
+    }
+
     /**
      * Read events from a particular event stream from a particular position.
      *
@@ -40,4 +58,29 @@ public interface ReadEventStream {
      * @return An {@link EventStream} containing the events of the stream. Will return an {@link EventStream} with version {@code 0} if event stream doesn't exists.
      */
     Mono<EventStream<CloudEvent>> read(String streamId, int skip, int limit);
+
+    /**
+     * Read the events from a particular event stream starting from a particular stream version. This is typically used to read
+     * the events that have been written after a snapshot. Contrary to {@link #read(String, int, int)}, the events before
+     * {@code fromStreamVersion} are not traversed by the event store.
+     *
+     * @param streamId          The id of the stream to read.
+     * @param fromStreamVersion The stream version of the first event to read (inclusive).
+     * @return An {@link EventStream} containing the events of the stream with a stream version greater than or equal to {@code fromStreamVersion}. The version of the {@link EventStream} is the current version of the stream.
+     * Will return an {@link EventStream} with version {@code 0} if event stream doesn't exists.
+     */
+    default Mono<EventStream<CloudEvent>> readFromVersion(String streamId, long fromStreamVersion) {
+        return readVersionRange(streamId, fromStreamVersion, Long.MAX_VALUE);
+    }
+
+    /**
+     * Read the events from a particular event stream whose stream version is within a particular range.
+     *
+     * @param streamId          The id of the stream to read.
+     * @param fromStreamVersion The stream version of the first event to read (inclusive).
+     * @param toStreamVersion   The stream version of the last event to read (inclusive).
+     * @return An {@link EventStream} containing the events of the stream with a stream version between {@code fromStreamVersion} and {@code toStreamVersion}. The version of the {@link EventStream} is the current version of the stream.
+     * Will return an {@link EventStream} with version {@code 0} if event stream doesn't exists.
+     */
+    Mono<EventStream<CloudEvent>> readVersionRange(String streamId, long fromStreamVersion, long toStreamVersion);
 }
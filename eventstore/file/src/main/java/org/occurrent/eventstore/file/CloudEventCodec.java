@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.file;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+
+/**
+ * A compact binary encoding of a (spec version 1.0) {@link CloudEvent}. The encoded cloud event starts with a byte of flags
+ * that tells which of the optional attributes that are present, followed by the id, source and type and the optional attributes,
+ * the extensions and the data:
+ * <pre>
+ * flags id source type [subject] [datacontenttype] [dataschema] [time] extensionCount (name tag value)* [data]
+ * </pre>
+ * The stream id and stream version extensions are not encoded since the {@link FileEventStore} keeps them next to the encoded
+ * cloud event, they're added again when the cloud event is decoded.
+ */
+final class CloudEventCodec {
+    private static final int SUBJECT = 1;
+    private static final int DATA_CONTENT_TYPE = 1 << 1;
+    private static final int DATA_SCHEMA = 1 << 2;
+    private static final int TIME = 1 << 3;
+    private static final int DATA = 1 << 4;
+
+    private static final byte STRING_EXTENSION = 1;
+    private static final byte INTEGER_EXTENSION = 2;
+    private static final byte LONG_EXTENSION = 3;
+    private static final byte DOUBLE_EXTENSION = 4;
+    private static final byte BOOLEAN_EXTENSION = 5;
+
+    private CloudEventCodec() {
+    }
+
+    static byte[] encode(CloudEvent cloudEvent) {
+        byte[] data = cloudEvent.getData();
+        BinaryWriter writer = new BinaryWriter(128 + (data == null ? 0 : data.length));
+        int flags = (cloudEvent.getSubject() == null ? 0 : SUBJECT)
+                | (cloudEvent.getDataContentType() == null ? 0 : DATA_CONTENT_TYPE)
+                | (cloudEvent.getDataSchema() == null ? 0 : DATA_SCHEMA)
+                | (cloudEvent.getTime() == null ? 0 : TIME)
+                | (data == null ? 0 : DATA);
+        writer.writeByte(flags)
+                .writeString(cloudEvent.getId())
+                .writeString(cloudEvent.getSource().toString())
+                .writeString(cloudEvent.getType());
+        if (cloudEvent.getSubject() != null) {
+            writer.writeString(cloudEvent.getSubject());
+        }
+        if (cloudEvent.getDataContentType() != null) {
+            writer.writeString(cloudEvent.getDataContentType());
+        }
+        if (cloudEvent.getDataSchema() != null) {
+            writer.writeString(cloudEvent.getDataSchema().toString());
+        }
+        OffsetDateTime time = cloudEvent.getTime();
+        if (time != null) {
+            writer.writeSignedVarLong(time.toEpochSecond())
+                    .writeVarLong(time.getNano())
+                    .writeSignedVarLong(time.getOffset().getTotalSeconds());
+        }
+        long numberOfExtensions = cloudEvent.getExtensionNames().stream().filter(name -> !isOccurrentExtension(name)).count();
+        writer.writeVarLong(numberOfExtensions);
+        for (String name : cloudEvent.getExtensionNames()) {
+            if (!isOccurrentExtension(name)) {
+                writeExtension(writer, name, cloudEvent.getExtension(name));
+            }
+        }
+        if (data != null) {
+            writer.writeBytes(data);
+        }
+        return writer.toByteArray();
+    }
+
+    static CloudEvent decode(ByteBuffer buffer, String streamId, long streamVersion) {
+        BinaryReader reader = new BinaryReader(buffer);
+        int flags = reader.readByte();
+        CloudEventBuilder builder = CloudEventBuilder.v1()
+                .withId(reader.readString())
+                .withSource(URI.create(reader.readString()))
+                .withType(reader.readString());
+        if ((flags & SUBJECT) != 0) {
+            builder.withSubject(reader.readString());
+        }
+        if ((flags & DATA_CONTENT_TYPE) != 0) {
+            builder.withDataContentType(reader.readString());
+        }
+        if ((flags & DATA_SCHEMA) != 0) {
+            builder.withDataSchema(URI.create(reader.readString()));
+        }
+        if ((flags & TIME) != 0) {
+            Instant instant = Instant.ofEpochSecond(reader.readSignedVarLong(), reader.readVarLong());
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(Math.toIntExact(reader.readSignedVarLong()));
+            builder.withTime(OffsetDateTime.ofInstant(instant, offset));
+        }
+        int numberOfExtensions = reader.readVarInt();
+        for (int i = 0; i < numberOfExtensions; i++) {
+            readExtension(reader, builder);
+        }
+        if ((flags & DATA) != 0) {
+            builder.withData(reader.readBytes());
+        }
+        return builder.withExtension(new OccurrentCloudEventExtension(streamId, streamVersion)).build();
+    }
+
+    /**
+     * @return The id of the encoded cloud event in the {@code buffer}
+     */
+    static String decodeId(ByteBuffer buffer) {
+        BinaryReader reader = new BinaryReader(buffer);
+        reader.readByte();
+        return reader.readString();
+    }
+
+    /**
+     * @return The source of the encoded cloud event in the {@code buffer}
+     */
+    static URI decodeSource(ByteBuffer buffer) {
+        BinaryReader reader = new BinaryReader(buffer);
+        reader.readByte();
+        reader.skip(reader.readVarInt());
+        return URI.create(reader.readString());
+    }
+
+    private static void writeExtension(BinaryWriter writer, String name, Object value) {
+        writer.writeString(name);
+        if (value instanceof String) {
+            writer.writeByte(STRING_EXTENSION).writeString((String) value);
+        } else if (value instanceof Integer) {
+            writer.writeByte(INTEGER_EXTENSION).writeSignedVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            writer.writeByte(LONG_EXTENSION).writeSignedVarLong((Long) value);
+        } else if (value instanceof Double) {
+            writer.writeByte(DOUBLE_EXTENSION).writeVarLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Boolean) {
+            writer.writeByte(BOOLEAN_EXTENSION).writeByte((Boolean) value ? 1 : 0);
+        } else {
+            throw new IllegalArgumentException("Extension " + name + " has an unsupported type: " + (value == null ? null : value.getClass().getName()));
+        }
+    }
+
+    private static void readExtension(BinaryReader reader, CloudEventBuilder builder) {
+        String name = reader.readString();
+        byte tag = reader.readByte();
+        switch (tag) {
+            case STRING_EXTENSION:
+                builder.withExtension(name, reader.readString());
+                break;
+            case INTEGER_EXTENSION:
+                builder.withExtension(name, Math.toIntExact(reader.readSignedVarLong()));
+                break;
+            case LONG_EXTENSION:
+                builder.withExtension(name, reader.readSignedVarLong());
+                break;
+            case DOUBLE_EXTENSION:
+                builder.withExtension(name, Double.longBitsToDouble(reader.readVarLong()));
+                break;
+            case BOOLEAN_EXTENSION:
+                builder.withExtension(name, reader.readByte() != 0);
+                break;
+            default:
+                throw new IllegalStateException("Unknown extension type " + tag + " for extension " + name);
+        }
+    }
+
+    private static boolean isOccurrentExtension(String name) {
+        return STREAM_ID.equals(name) || STREAM_VERSION.equals(name);
+    }
+}
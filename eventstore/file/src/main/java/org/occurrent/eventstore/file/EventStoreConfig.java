@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.file;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration for the {@link FileEventStore}
+ */
+public class EventStoreConfig {
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 4096;
+
+    public final int segmentSize;
+    public final Duration fsyncMaxDelay;
+    public final boolean waitForFsync;
+
+    private EventStoreConfig(int segmentSize, Duration fsyncMaxDelay, boolean waitForFsync) {
+        requireNonNull(fsyncMaxDelay, "Fsync max delay cannot be null");
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        } else if (fsyncMaxDelay.isNegative()) {
+            throw new IllegalArgumentException("Fsync max delay cannot be negative");
+        }
+        this.segmentSize = segmentSize;
+        this.fsyncMaxDelay = fsyncMaxDelay;
+        this.waitForFsync = waitForFsync;
+    }
+
+    /**
+     * @return An {@link EventStoreConfig} with 64 MB segments where writes wait until the events have been forced to disk (without delay).
+     */
+    public static EventStoreConfig defaults() {
+        return new Builder().build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EventStoreConfig)) return false;
+        EventStoreConfig that = (EventStoreConfig) o;
+        return segmentSize == that.segmentSize &&
+                waitForFsync == that.waitForFsync &&
+                Objects.equals(fsyncMaxDelay, that.fsyncMaxDelay);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(segmentSize, fsyncMaxDelay, waitForFsync);
+    }
+
+    @Override
+    public String toString() {
+        return "EventStoreConfig{" +
+                "segmentSize=" + segmentSize +
+                ", fsyncMaxDelay=" + fsyncMaxDelay +
+                ", waitForFsync=" + waitForFsync +
+                '}';
+    }
+
+    public static final class Builder {
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private Duration fsyncMaxDelay = Duration.ZERO;
+        private boolean waitForFsync = true;
+
+        /**
+         * @param segmentSize The size (in bytes) of each segment file. A write (including all of its events) must fit in a single segment. Default is 64 MB.
+         * @return A same {@code Builder instance}
+         */
+        public Builder segmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Configure how long the fsync thread waits for more writes after a write before it forces the written events to disk.
+         * All events that have been written when the events are forced are forced together, so a longer delay means fewer (but larger)
+         * fsyncs at the expense of latency for writes that {@link #waitForFsync(boolean) waits for fsync}. Default is {@link Duration#ZERO},
+         * i.e. concurrent writes are still forced together but the fsync thread doesn't wait for more writes.
+         *
+         * @param fsyncMaxDelay The max delay
+         * @return A same {@code Builder instance}
+         */
+        public Builder fsyncMaxDelay(Duration fsyncMaxDelay) {
+            this.fsyncMaxDelay = fsyncMaxDelay;
+            return this;
+        }
+
+        /**
+         * @param waitForFsync If {@code true} (default) a write returns when the events have been forced to disk, which means that the events
+         *                     survive a power loss or operating system crash. If {@code false} a write returns when the events have been written
+         *                     to the (memory-mapped) files, they still survive a crash of the JVM but events written during the last
+         *                     {@link #fsyncMaxDelay(Duration)} may be lost if the operating system crashes.
+         * @return A same {@code Builder instance}
+         */
+        public Builder waitForFsync(boolean waitForFsync) {
+            this.waitForFsync = waitForFsync;
+            return this;
+        }
+
+        public EventStoreConfig build() {
+            return new EventStoreConfig(segmentSize, fsyncMaxDelay, waitForFsync);
+        }
+    }
+}
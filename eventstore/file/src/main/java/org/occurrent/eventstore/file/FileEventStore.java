@@ -0,0 +1,742 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.file;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.SpecVersion;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventAggregator;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.DuplicateCloudEventException;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.FilterEvaluator;
+import org.occurrent.eventstore.api.GroupBy;
+import org.occurrent.eventstore.api.LongConditionEvaluator;
+import org.occurrent.eventstore.api.WriteCondition;
+import org.occurrent.eventstore.api.WriteCondition.StreamVersionWriteCondition;
+import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
+import org.occurrent.eventstore.api.blocking.EventStore;
+import org.occurrent.eventstore.api.blocking.EventStoreOperations;
+import org.occurrent.eventstore.api.blocking.EventStoreQueries;
+import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.filter.Filter;
+import org.occurrent.functionalsupport.internal.FunctionalSupport.Pair;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An {@link EventStore} that stores events in append-only, memory-mapped segment files on local disk. This is useful when MongoDB is not
+ * available, for example in edge deployments. It also supports the {@link EventStoreOperations} and {@link EventStoreQueries} contracts.
+ * <p>
+ * Each write (to one or more event streams) is appended to the log as a single record containing the events in a compact binary encoding,
+ * which makes the write atomic. Deleting and updating events appends a record as well, the space of deleted and updated events is not reclaimed.
+ * The records are replayed when the event store is opened to rebuild the index of each event stream (the offset of each event in the log),
+ * the index of cloud event id and source (used to reject duplicate cloud events with a {@link DuplicateCloudEventException}) and the global
+ * order of the events. Events are decoded from the memory-mapped files when they're read.
+ * </p>
+ * <p>
+ * By default a write returns when the events have been forced to disk. Concurrent writes are forced together, see {@link EventStoreConfig}.
+ * If forcing the events to disk fails the write throws an {@link IllegalStateException} and all later writes are rejected, since it's not known
+ * whether the events will survive a crash. The event store must then be reopened.
+ * Queries evaluate the filter against all events using the {@link FilterEvaluator}.
+ * </p>
+ * <p>
+ * Only one {@code FileEventStore} (in any process) can use a directory at a time. Call {@link #close()} to release the directory.
+ * </p>
+ */
+public class FileEventStore implements EventStore, EventStoreOperations, EventStoreQueries, Closeable {
+    private static final byte WRITE_RECORD = 1;
+    private static final byte DELETE_EVENT_STREAM_RECORD = 2;
+    private static final byte DELETE_EVENT_RECORD = 3;
+    private static final byte UPDATE_EVENT_RECORD = 4;
+    private static final String TOKEN_SEPARATOR = ":";
+
+    private final EventStoreConfig config;
+    private final SegmentedLog segmentedLog;
+
+    // All changes are made while holding the write lock, the log is appended in the same order as the changes are made
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, StreamIndex> streams = new HashMap<>();
+    // All events in the order they were written, identified by a global sequence number
+    private final NavigableMap<Long, EventLocation> events = new TreeMap<>();
+    private final Map<Pair<String, URI>, Long> cloudEventIndex = new HashMap<>();
+    private long sequence;
+
+    /**
+     * Create a {@link FileEventStore} that stores the events in the supplied {@code directory} using the {@link EventStoreConfig#defaults() default configuration}.
+     * The directory is created if it doesn't exist.
+     *
+     * @param directory The directory that contains the segment files
+     */
+    public FileEventStore(Path directory) {
+        this(directory, EventStoreConfig.defaults());
+    }
+
+    /**
+     * Create a {@link FileEventStore} that stores the events in the supplied {@code directory}. The directory is created if it doesn't exist.
+     *
+     * @param directory The directory that contains the segment files
+     * @param config    The {@link EventStoreConfig} to use
+     */
+    public FileEventStore(Path directory, EventStoreConfig config) {
+        requireNonNull(directory, "Directory cannot be null");
+        requireNonNull(config, EventStoreConfig.class.getSimpleName() + " cannot be null");
+        this.config = config;
+        this.segmentedLog = new SegmentedLog(directory, config.segmentSize, config.fsyncMaxDelay, this::replay);
+    }
+
+    @Override
+    public EventStream<CloudEvent> read(String streamId, int skip, int limit) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        return withLock(lock.readLock(), () -> {
+            StreamIndex streamIndex = streams.get(streamId);
+            if (streamIndex == null) {
+                return new EventStreamImpl(streamId, 0, Collections.emptyList());
+            }
+            int fromIndex = Math.min(skip, streamIndex.events.size());
+            int toIndex = (int) Math.min((long) fromIndex + limit, streamIndex.events.size());
+            return new EventStreamImpl(streamId, streamIndex.version(), new ArrayList<>(streamIndex.events.subList(fromIndex, toIndex)));
+        }).decode();
+    }
+
+    @Override
+    public EventStream<CloudEvent> readVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        requireTrue(fromStreamVersion <= toStreamVersion, "fromStreamVersion (" + fromStreamVersion + ") cannot be greater than toStreamVersion (" + toStreamVersion + ")");
+        return withLock(lock.readLock(), () -> {
+            StreamIndex streamIndex = streams.get(streamId);
+            if (streamIndex == null) {
+                return new EventStreamImpl(streamId, 0, Collections.emptyList());
+            }
+            int fromIndex = streamIndex.indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(fromStreamVersion);
+            int toIndex = toStreamVersion == Long.MAX_VALUE ? streamIndex.events.size() : streamIndex.indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(toStreamVersion + 1);
+            return new EventStreamImpl(streamId, streamIndex.version(), new ArrayList<>(streamIndex.events.subList(fromIndex, toIndex)));
+        }).decode();
+    }
+
+    @Override
+    public boolean exists(String streamId) {
+        return withLock(lock.readLock(), () -> streams.containsKey(streamId));
+    }
+
+    @Override
+    public void write(String streamId, Stream<CloudEvent> events) {
+        write(streamId, WriteCondition.anyStreamVersion(), events);
+    }
+
+    @Override
+    public void write(String streamId, WriteCondition writeCondition, Stream<CloudEvent> events) {
+        requireTrue(writeCondition != null, WriteCondition.class.getSimpleName() + " cannot be null");
+        write(Collections.singletonList(new EventStreamWrite(streamId, writeCondition, events)), writeConditionNotFulfilledExceptions -> writeConditionNotFulfilledExceptions.get(0));
+    }
+
+    @Override
+    public void write(List<EventStreamWrite> writes) {
+        requireNonNull(writes, "Writes cannot be null");
+        write(writes, WriteConditionsNotFulfilledException::new);
+    }
+
+    private void write(List<EventStreamWrite> writes, Function<List<WriteConditionNotFulfilledException>, RuntimeException> writeConditionsNotFulfilled) {
+        // Encode the events before taking the lock so that concurrent writers encode their events in parallel
+        List<EncodedEventStreamWrite> encodedWrites = writes.stream().map(EncodedEventStreamWrite::new).collect(Collectors.toList());
+
+        Long endPosition = withLock(lock.writeLock(), () -> {
+            Map<String, Long> streamVersions = new HashMap<>();
+            List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions = new ArrayList<>();
+            Set<Pair<String, URI>> cloudEventKeys = new HashSet<>();
+            for (EncodedEventStreamWrite write : encodedWrites) {
+                long currentStreamVersion = streamVersions.computeIfAbsent(write.streamId, this::currentStreamVersion);
+                if (isConditionFulfilledBy(write.writeCondition, currentStreamVersion)) {
+                    streamVersions.put(write.streamId, currentStreamVersion + write.cloudEvents.size());
+                } else {
+                    writeConditionNotFulfilledExceptions.add(writeConditionNotFulfilled(write.streamId, currentStreamVersion, write.writeCondition));
+                }
+                for (CloudEvent cloudEvent : write.cloudEvents) {
+                    Pair<String, URI> cloudEventKey = cloudEventKey(cloudEvent.getId(), cloudEvent.getSource());
+                    if (cloudEventIndex.containsKey(cloudEventKey) || !cloudEventKeys.add(cloudEventKey)) {
+                        throw new DuplicateCloudEventException(cloudEvent.getId(), cloudEvent.getSource(), null);
+                    }
+                }
+            }
+            if (!writeConditionNotFulfilledExceptions.isEmpty()) {
+                throw writeConditionsNotFulfilled.apply(writeConditionNotFulfilledExceptions);
+            } else if (cloudEventKeys.isEmpty()) {
+                return null;
+            }
+
+            // WRITE_RECORD numberOfEvents (sequence streamId streamVersion cloudEvent)*
+            BinaryWriter record = new BinaryWriter(encodedWrites.stream().mapToInt(write -> write.size).sum() + 64 * cloudEventKeys.size());
+            record.writeByte(WRITE_RECORD).writeVarLong(cloudEventKeys.size());
+            List<EventLocation> newEvents = new ArrayList<>(cloudEventKeys.size());
+            long nextSequence = sequence;
+            streamVersions.clear();
+            for (EncodedEventStreamWrite write : encodedWrites) {
+                long streamVersion = streamVersions.computeIfAbsent(write.streamId, this::currentStreamVersion);
+                for (int i = 0; i < write.encodedCloudEvents.size(); i++) {
+                    CloudEvent cloudEvent = write.cloudEvents.get(i);
+                    byte[] encodedCloudEvent = write.encodedCloudEvents.get(i);
+                    nextSequence++;
+                    streamVersion++;
+                    record.writeVarLong(nextSequence).writeString(write.streamId).writeVarLong(streamVersion).writeVarLong(encodedCloudEvent.length);
+                    newEvents.add(new EventLocation(write.streamId, streamVersion, nextSequence, cloudEventKey(cloudEvent.getId(), cloudEvent.getSource()), record.size(), encodedCloudEvent.length));
+                    record.writeRaw(encodedCloudEvent);
+                }
+                streamVersions.put(write.streamId, streamVersion);
+            }
+
+            byte[] payload = record.toByteArray();
+            long position = segmentedLog.append(payload);
+            newEvents.forEach(event -> addEvent(event.relativeTo(position)));
+            return position + payload.length;
+        });
+
+        awaitFsync(endPosition);
+    }
+
+    @Override
+    public void deleteEventStream(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        Long endPosition = withLock(lock.writeLock(), () -> {
+            if (!streams.containsKey(streamId)) {
+                return null;
+            }
+            byte[] payload = new BinaryWriter(streamId.length() + 8).writeByte(DELETE_EVENT_STREAM_RECORD).writeString(streamId).toByteArray();
+            long position = segmentedLog.append(payload);
+            removeEventStream(streamId);
+            return position + payload.length;
+        });
+        awaitFsync(endPosition);
+    }
+
+    @Override
+    public void deleteEvent(String cloudEventId, URI cloudEventSource) {
+        Pair<String, URI> cloudEventKey = cloudEventKey(cloudEventId, cloudEventSource);
+        Long endPosition = withLock(lock.writeLock(), () -> {
+            Long sequence = cloudEventIndex.get(cloudEventKey);
+            if (sequence == null) {
+                return null;
+            }
+            byte[] payload = new BinaryWriter(16).writeByte(DELETE_EVENT_RECORD).writeVarLong(sequence).toByteArray();
+            long position = segmentedLog.append(payload);
+            removeEvent(sequence);
+            return position + payload.length;
+        });
+        awaitFsync(endPosition);
+    }
+
+    @Override
+    public Optional<CloudEvent> updateEvent(String cloudEventId, URI cloudEventSource, Function<CloudEvent, CloudEvent> updateFunction) {
+        requireNonNull(updateFunction, "Update function cannot be null");
+        Pair<String, URI> cloudEventKey = cloudEventKey(cloudEventId, cloudEventSource);
+        List<CloudEvent> result = new ArrayList<>(1);
+        Long endPosition = withLock(lock.writeLock(), () -> {
+            Long sequence = cloudEventIndex.get(cloudEventKey);
+            if (sequence == null) {
+                return null;
+            }
+            EventLocation currentEvent = events.get(sequence);
+            CloudEvent updatedCloudEvent = updateFunction.apply(decode(currentEvent));
+            if (updatedCloudEvent == null) {
+                throw new IllegalArgumentException("It's not allowed to return a null CloudEvent from the update function.");
+            }
+            Pair<String, URI> updatedCloudEventKey = cloudEventKey(updatedCloudEvent.getId(), updatedCloudEvent.getSource());
+            if (!updatedCloudEventKey.equals(cloudEventKey) && cloudEventIndex.containsKey(updatedCloudEventKey)) {
+                throw new DuplicateCloudEventException(updatedCloudEvent.getId(), updatedCloudEvent.getSource(), null);
+            }
+
+            // UPDATE_EVENT_RECORD sequence cloudEvent
+            byte[] encodedCloudEvent = CloudEventCodec.encode(updatedCloudEvent);
+            BinaryWriter record = new BinaryWriter(encodedCloudEvent.length + 32).writeByte(UPDATE_EVENT_RECORD).writeVarLong(sequence).writeVarLong(encodedCloudEvent.length);
+            int cloudEventOffset = record.size();
+            byte[] payload = record.writeRaw(encodedCloudEvent).toByteArray();
+            long position = segmentedLog.append(payload);
+            EventLocation updatedEvent = replaceEvent(sequence, updatedCloudEventKey, position + cloudEventOffset, encodedCloudEvent.length);
+            result.add(decode(updatedEvent));
+            return position + payload.length;
+        });
+        awaitFsync(endPosition);
+        return result.stream().findFirst();
+    }
+
+    @Override
+    public Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy) {
+        return find(filter, sortBy).map(event -> event.cloudEvent).skip(skip).limit(limit);
+    }
+
+    @Override
+    public EventPage queryPage(Filter filter, int limit, SortBy sortBy, String continuationToken) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        }
+
+        StoredCloudEvent after = continueAfter(sortBy, continuationToken);
+        Comparator<StoredCloudEvent> comparator = comparator(sortBy);
+        // Read one more event than the limit to find out if there's a next page
+        List<StoredCloudEvent> events = find(filter, sortBy)
+                .filter(event -> after == null || comparator.compare(event, after) > 0)
+                .limit(limit == Integer.MAX_VALUE ? limit : limit + 1)
+                .collect(Collectors.toList());
+
+        final List<StoredCloudEvent> eventsInPage;
+        final String nextContinuationToken;
+        if (events.size() > limit) {
+            eventsInPage = events.subList(0, limit);
+            nextContinuationToken = continuationToken(sortBy, eventsInPage.get(limit - 1));
+        } else {
+            eventsInPage = events;
+            nextContinuationToken = null;
+        }
+        return new EventPage(eventsInPage.stream().map(event -> event.cloudEvent).collect(Collectors.toList()), nextContinuationToken);
+    }
+
+    @Override
+    public Stream<CloudEventView> queryViews(Filter filter, Set<String> attributes, int skip, int limit, SortBy sortBy) {
+        requireNonNull(attributes, "Attributes cannot be null");
+        if (attributes.isEmpty()) {
+            throw new IllegalArgumentException("Attributes cannot be empty");
+        }
+        for (String attribute : attributes) {
+            if (Filter.DATA.equals(attribute) || "data_base64".equals(attribute) || "_id".equals(attribute)) {
+                throw new IllegalArgumentException("Attribute " + attribute + " cannot be included in a " + CloudEventView.class.getSimpleName());
+            }
+        }
+        return query(filter, skip, limit, sortBy).map(cloudEvent -> toCloudEventView(cloudEvent, attributes));
+    }
+
+    @Override
+    public Stream<AggregatedGroup> aggregate(Filter filter, List<GroupBy> groupBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        return CloudEventAggregator.aggregate(query(filter), groupBy).stream();
+    }
+
+    @Override
+    public long count(Filter filter) {
+        requireNonNull(filter, "Filter cannot be null");
+        if (filter instanceof Filter.All) {
+            return withLock(lock.readLock(), events::size);
+        }
+        return find(filter, SortBy.NATURAL_ASC).count();
+    }
+
+    /**
+     * Force all written events to disk and close the segment files. The event store cannot be used after it has been closed.
+     */
+    @Override
+    public void close() {
+        segmentedLog.close();
+    }
+
+    // The events (decoded from the log) matching the filter sorted by sortBy. The events are read from a snapshot of the index,
+    // the log is append-only so the events of the snapshot can be decoded without holding the lock.
+    private Stream<StoredCloudEvent> find(Filter filter, SortBy sortBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        List<EventLocation> snapshot = withLock(lock.readLock(), () -> new ArrayList<>(sortBy == SortBy.NATURAL_DESC ? events.descendingMap().values() : events.values()));
+        Stream<StoredCloudEvent> matchingEvents = snapshot.stream()
+                .map(event -> new StoredCloudEvent(event.sequence, decode(event)))
+                .filter(event -> FilterEvaluator.evaluate(filter, event.cloudEvent));
+        return sortBy == SortBy.TIME_ASC || sortBy == SortBy.TIME_DESC ? matchingEvents.sorted(comparator(sortBy)) : matchingEvents;
+    }
+
+    private static Comparator<StoredCloudEvent> comparator(SortBy sortBy) {
+        Comparator<StoredCloudEvent> bySequence = Comparator.comparingLong(event -> event.sequence);
+        // Events without time are sorted before all other events (just as in MongoDB)
+        Comparator<StoredCloudEvent> byTime = Comparator.comparing((StoredCloudEvent event) -> event.time, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(bySequence);
+        switch (sortBy) {
+            case NATURAL_ASC:
+                return bySequence;
+            case NATURAL_DESC:
+                return bySequence.reversed();
+            case TIME_ASC:
+                return byTime;
+            case TIME_DESC:
+                return byTime.reversed();
+            default:
+                throw new IllegalStateException("Unexpected value: " + sortBy);
+        }
+    }
+
+    // Replay
+
+    private void replay(long position, ByteBuffer payload) {
+        BinaryReader reader = new BinaryReader(payload);
+        byte recordType = reader.readByte();
+        switch (recordType) {
+            case WRITE_RECORD:
+                int numberOfEvents = reader.readVarInt();
+                for (int i = 0; i < numberOfEvents; i++) {
+                    long sequence = reader.readVarLong();
+                    String streamId = reader.readString();
+                    long streamVersion = reader.readVarLong();
+                    int length = reader.readVarInt();
+                    addEvent(new EventLocation(streamId, streamVersion, sequence, cloudEventKey(payload, reader.position()), position + reader.position(), length));
+                    reader.skip(length);
+                }
+                break;
+            case DELETE_EVENT_STREAM_RECORD:
+                removeEventStream(reader.readString());
+                break;
+            case DELETE_EVENT_RECORD:
+                removeEvent(reader.readVarLong());
+                break;
+            case UPDATE_EVENT_RECORD:
+                long sequence = reader.readVarLong();
+                int length = reader.readVarInt();
+                replaceEvent(sequence, cloudEventKey(payload, reader.position()), position + reader.position(), length);
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + recordType + " at position " + position);
+        }
+    }
+
+    // Index maintenance, only called when holding the write lock (or when replaying the log)
+
+    private void addEvent(EventLocation event) {
+        events.put(event.sequence, event);
+        cloudEventIndex.put(event.cloudEventKey, event.sequence);
+        streams.computeIfAbsent(event.streamId, __ -> new StreamIndex()).events.add(event);
+        sequence = Math.max(sequence, event.sequence);
+    }
+
+    private void removeEventStream(String streamId) {
+        StreamIndex streamIndex = streams.remove(streamId);
+        if (streamIndex != null) {
+            for (EventLocation event : streamIndex.events) {
+                events.remove(event.sequence);
+                cloudEventIndex.remove(event.cloudEventKey);
+            }
+        }
+    }
+
+    private void removeEvent(long sequence) {
+        EventLocation event = events.remove(sequence);
+        if (event == null) {
+            return;
+        }
+        cloudEventIndex.remove(event.cloudEventKey);
+        StreamIndex streamIndex = streams.get(event.streamId);
+        streamIndex.events.remove(streamIndex.indexOf(event.streamVersion));
+        if (streamIndex.events.isEmpty()) {
+            streams.remove(event.streamId);
+        }
+    }
+
+    private EventLocation replaceEvent(long sequence, Pair<String, URI> cloudEventKey, long position, int length) {
+        EventLocation currentEvent = events.get(sequence);
+        EventLocation updatedEvent = new EventLocation(currentEvent.streamId, currentEvent.streamVersion, sequence, cloudEventKey, position, length);
+        cloudEventIndex.remove(currentEvent.cloudEventKey);
+        cloudEventIndex.put(cloudEventKey, sequence);
+        events.put(sequence, updatedEvent);
+        StreamIndex streamIndex = streams.get(currentEvent.streamId);
+        streamIndex.events.set(streamIndex.indexOf(currentEvent.streamVersion), updatedEvent);
+        return updatedEvent;
+    }
+
+    private long currentStreamVersion(String streamId) {
+        StreamIndex streamIndex = streams.get(streamId);
+        return streamIndex == null ? 0 : streamIndex.version();
+    }
+
+    // The id and source of the encoded cloud event that starts at the offset of the record payload
+    private static Pair<String, URI> cloudEventKey(ByteBuffer payload, int offset) {
+        ByteBuffer cloudEvent = payload.duplicate();
+        cloudEvent.position(offset);
+        return new Pair<>(CloudEventCodec.decodeId(cloudEvent.slice()), CloudEventCodec.decodeSource(cloudEvent.slice()));
+    }
+
+    private CloudEvent decode(EventLocation event) {
+        return CloudEventCodec.decode(segmentedLog.read(event.position, event.length), event.streamId, event.streamVersion);
+    }
+
+    private void awaitFsync(Long endPosition) {
+        if (endPosition != null && config.waitForFsync) {
+            segmentedLog.awaitFsync(endPosition);
+        }
+    }
+
+    // Continuation tokens
+
+    private static String continuationToken(SortBy sortBy, StoredCloudEvent event) {
+        String time = event.time == null ? "" : event.time.getEpochSecond() + "." + event.time.getNano();
+        String token = sortBy.name() + TOKEN_SEPARATOR + event.sequence + TOKEN_SEPARATOR + time;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(UTF_8));
+    }
+
+    // Returns the (sort key of the) event after which the next page starts
+    private static StoredCloudEvent continueAfter(SortBy sortBy, String continuationToken) {
+        if (continuationToken == null) {
+            return null;
+        }
+        final String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(continuationToken), UTF_8).split(TOKEN_SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+        } else if (!sortBy.name().equals(parts[0])) {
+            throw new IllegalArgumentException("Continuation token was created for " + parts[0] + " and cannot be used for " + sortBy.name());
+        }
+        try {
+            long sequence = Long.parseLong(parts[1]);
+            if (parts[2].isEmpty()) {
+                return new StoredCloudEvent(sequence, null, null);
+            }
+            String[] time = parts[2].split("\\.");
+            return new StoredCloudEvent(sequence, null, Instant.ofEpochSecond(Long.parseLong(time[0]), Long.parseLong(time[1])));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+    }
+
+    // Cloud events without the attribute are not included in the view (just as in MongoDB)
+    private static CloudEventView toCloudEventView(CloudEvent cloudEvent, Set<String> attributes) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String attribute : attributes) {
+            final Object value;
+            switch (attribute) {
+                case Filter.SOURCE:
+                    value = cloudEvent.getSource();
+                    break;
+                case Filter.DATA_SCHEMA:
+                    value = cloudEvent.getDataSchema();
+                    break;
+                default:
+                    value = FilterEvaluator.attributeValue(cloudEvent, attribute);
+            }
+            if (value != null) {
+                values.put(attribute, value);
+            }
+        }
+        return new CloudEventView(values);
+    }
+
+    private static boolean isConditionFulfilledBy(WriteCondition writeCondition, long version) {
+        if (writeCondition.isAnyStreamVersion()) {
+            return true;
+        }
+
+        if (!(writeCondition instanceof StreamVersionWriteCondition)) {
+            return false;
+        }
+
+        StreamVersionWriteCondition c = (StreamVersionWriteCondition) writeCondition;
+        return LongConditionEvaluator.evaluate(c.condition, version);
+    }
+
+    private static WriteConditionNotFulfilledException writeConditionNotFulfilled(String streamId, long currentStreamVersion, WriteCondition writeCondition) {
+        return new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+    }
+
+    private static <T> T withLock(Lock lock, Supplier<T> supplier) {
+        lock.lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void requireTrue(boolean bool, String message) {
+        if (!bool) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static Pair<String, URI> cloudEventKey(String cloudEventId, URI cloudEventSource) {
+        requireNonNull(cloudEventId, "CloudEvent id cannot be null");
+        requireNonNull(cloudEventSource, "CloudEvent source cannot be null");
+        return new Pair<>(cloudEventId, cloudEventSource);
+    }
+
+    /**
+     * The events of an event stream (sorted by stream version) that are stored in the log
+     */
+    private static class StreamIndex {
+        private final List<EventLocation> events = new ArrayList<>();
+
+        private long version() {
+            return events.isEmpty() ? 0 : events.get(events.size() - 1).streamVersion;
+        }
+
+        private int indexOf(long streamVersion) {
+            int index = indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(streamVersion);
+            if (index == events.size() || events.get(index).streamVersion != streamVersion) {
+                throw new IllegalStateException("Stream version " + streamVersion + " is missing from the index");
+            }
+            return index;
+        }
+
+        private int indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(long streamVersion) {
+            int low = 0;
+            int high = events.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (events.get(mid).streamVersion < streamVersion) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Where an event is stored in the log, {@code position} is the position of the encoded cloud event
+     */
+    private static class EventLocation {
+        private final String streamId;
+        private final long streamVersion;
+        private final long sequence;
+        private final Pair<String, URI> cloudEventKey;
+        private final long position;
+        private final int length;
+
+        private EventLocation(String streamId, long streamVersion, long sequence, Pair<String, URI> cloudEventKey, long position, int length) {
+            this.streamId = streamId;
+            this.streamVersion = streamVersion;
+            this.sequence = sequence;
+            this.cloudEventKey = cloudEventKey;
+            this.position = position;
+            this.length = length;
+        }
+
+        // The position of events in a record that is being written is relative to the start of the record
+        private EventLocation relativeTo(long recordPosition) {
+            return new EventLocation(streamId, streamVersion, sequence, cloudEventKey, recordPosition + position, length);
+        }
+    }
+
+    private static class EncodedEventStreamWrite {
+        private final String streamId;
+        private final WriteCondition writeCondition;
+        private final List<CloudEvent> cloudEvents;
+        private final List<byte[]> encodedCloudEvents;
+        private final int size;
+
+        private EncodedEventStreamWrite(EventStreamWrite write) {
+            this.streamId = write.streamId;
+            this.writeCondition = write.writeCondition;
+            this.cloudEvents = write.events.peek(e -> requireTrue(e.getSpecVersion() == SpecVersion.V1, "Spec version needs to be " + SpecVersion.V1)).collect(Collectors.toList());
+            this.encodedCloudEvents = cloudEvents.stream().map(CloudEventCodec::encode).collect(Collectors.toList());
+            this.size = encodedCloudEvents.stream().mapToInt(encodedCloudEvent -> encodedCloudEvent.length).sum();
+        }
+    }
+
+    private static class StoredCloudEvent {
+        private final long sequence;
+        private final CloudEvent cloudEvent;
+        private final Instant time;
+
+        private StoredCloudEvent(long sequence, CloudEvent cloudEvent) {
+            this(sequence, cloudEvent, cloudEvent.getTime() == null ? null : cloudEvent.getTime().toInstant());
+        }
+
+        private StoredCloudEvent(long sequence, CloudEvent cloudEvent, Instant time) {
+            this.sequence = sequence;
+            this.cloudEvent = cloudEvent;
+            this.time = time;
+        }
+    }
+
+    private class EventStreamImpl implements EventStream<CloudEvent> {
+        private final String streamId;
+        private final long version;
+        private final List<EventLocation> eventLocations;
+        private final List<CloudEvent> events;
+
+        private EventStreamImpl(String streamId, long version, List<EventLocation> eventLocations) {
+            this.streamId = streamId;
+            this.version = version;
+            this.eventLocations = eventLocations;
+            this.events = null;
+        }
+
+        private EventStreamImpl(String streamId, long version, List<EventLocation> eventLocations, List<CloudEvent> events) {
+            this.streamId = streamId;
+            this.version = version;
+            this.eventLocations = eventLocations;
+            this.events = Collections.unmodifiableList(events);
+        }
+
+        // Decode the events without holding the lock
+        private EventStreamImpl decode() {
+            return new EventStreamImpl(streamId, version, eventLocations, eventLocations.stream().map(FileEventStore.this::decode).collect(Collectors.toList()));
+        }
+
+        @Override
+        public String id() {
+            return streamId;
+        }
+
+        @Override
+        public long version() {
+            return version;
+        }
+
+        @Override
+        public Stream<CloudEvent> events() {
+            return events.stream();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof EventStreamImpl)) return false;
+            EventStreamImpl that = (EventStreamImpl) o;
+            return version == that.version &&
+                    Objects.equals(streamId, that.streamId) &&
+                    Objects.equals(events, that.events);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(streamId, version, events);
+        }
+
+        @Override
+        public String toString() {
+            return "EventStreamImpl{" +
+                    "streamId='" + streamId + '\'' +
+                    ", version=" + version +
+                    ", events=" + events +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An append-only log of records that is stored in memory-mapped segment files in a directory. Each record is written as
+ * <pre>
+ * length (int) crc32 (int) payload
+ * </pre>
+ * and records never span segments, a new segment is created when a record doesn't fit in the current segment. The rest of a segment
+ * is zero-filled which marks the end of the segment (a record always has a non-empty payload).
+ * <p>
+ * Records are identified by a position which is the segment number (high 32 bits) and the offset of the payload in the segment (low 32 bits).
+ * Positions are increasing in the order the records are appended.
+ * </p>
+ * <p>
+ * Appended records are written to the page cache, so they survive a crash of the JVM, and a background thread forces (fsyncs) them to disk.
+ * All records that have been appended when the thread wakes up are forced together, so concurrent writers share the cost of an fsync.
+ * Writers that need durability call {@link #awaitFsync(long)}. When the log is opened, the records are verified using the length and checksum
+ * and the log is truncated at the first record that is incomplete or corrupt, which is where a crash happened before the record was forced.
+ * </p>
+ */
+final class SegmentedLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedLog.class);
+
+    static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_FILE_SUFFIX = ".segment";
+    private static final String LOCK_FILE_NAME = "lock";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long fsyncMaxDelayNanos;
+    private final FileChannel lockFileChannel;
+    private final FileLock lock;
+    // Segment number is the index in the list. Readers access the segments without synchronization.
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Thread fsyncThread;
+
+    // Guarded by "this"
+    private Segment currentSegment;
+    private int writeOffset;
+
+    // Guarded by fsyncMonitor
+    private final Object fsyncMonitor = new Object();
+    private long appendedPosition;
+    private long fsyncedPosition;
+    private RuntimeException fsyncFailure;
+    private boolean closed;
+    private boolean fsyncThreadStopped;
+
+    /**
+     * Open (or create) the log in the supplied directory. The records that are already stored in the log are passed to the {@code recordVisitor}
+     * in the order they were appended.
+     */
+    SegmentedLog(Path directory, int segmentSize, Duration fsyncMaxDelay, RecordVisitor recordVisitor) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncMaxDelayNanos = fsyncMaxDelay.toNanos();
+        try {
+            Files.createDirectories(directory);
+            lockFileChannel = FileChannel.open(directory.resolve(LOCK_FILE_NAME), CREATE, WRITE);
+            lock = tryLock(lockFileChannel);
+            if (lock == null) {
+                lockFileChannel.close();
+                throw new IllegalStateException("Event store in " + directory + " is already opened by another process");
+            }
+            recover(recordVisitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open event store in " + directory, e);
+        }
+        long position = position(currentSegment.number, writeOffset);
+        this.appendedPosition = position;
+        this.fsyncedPosition = position;
+        this.fsyncThread = new Thread(this::fsyncContinuously, "occurrent-file-event-store-fsync");
+        fsyncThread.setDaemon(true);
+        fsyncThread.start();
+    }
+
+    /**
+     * Append a record to the log. The record is visible to {@link #read(long, int)} when this method returns but it's not necessarily durable,
+     * call {@link #awaitFsync(long)} with the returned position plus the length of the payload to wait until it's been forced to disk.
+     * Records cannot be appended after the log has been closed or after an fsync has failed.
+     *
+     * @return The position of the payload of the record
+     */
+    synchronized long append(byte[] payload) {
+        synchronized (fsyncMonitor) {
+            if (closed) {
+                throw new IllegalStateException("Event store in " + directory + " is closed");
+            } else if (fsyncFailure != null) {
+                throw new IllegalStateException("Cannot write to event store in " + directory + " since a previous fsync failed", fsyncFailure);
+            }
+        }
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Cannot write " + payload.length + " bytes since it doesn't fit in a segment of " + segmentSize + " bytes");
+        }
+        if (writeOffset + recordSize > currentSegment.capacity()) {
+            currentSegment = createSegment(currentSegment.number + 1);
+            writeOffset = 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = currentSegment.buffer.duplicate();
+        buffer.position(writeOffset + RECORD_HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(writeOffset + 4, (int) crc.getValue());
+        buffer.putInt(writeOffset, payload.length);
+
+        long position = position(currentSegment.number, writeOffset + RECORD_HEADER_SIZE);
+        writeOffset += recordSize;
+        synchronized (fsyncMonitor) {
+            appendedPosition = position(currentSegment.number, writeOffset);
+            fsyncMonitor.notifyAll();
+        }
+        return position;
+    }
+
+    /**
+     * @return A read-only buffer with the {@code length} bytes starting at {@code position}
+     */
+    ByteBuffer read(long position, int length) {
+        ByteBuffer buffer = segments.get(segmentNumber(position)).buffer.asReadOnlyBuffer();
+        int offset = offset(position);
+        buffer.position(offset);
+        buffer.limit(offset + length);
+        return buffer.slice();
+    }
+
+    /**
+     * Wait until all records up to (excluding) {@code position} have been forced to disk. Throws an {@link IllegalStateException} if the
+     * records cannot be forced to disk since an fsync has failed or since the fsync thread has stopped.
+     */
+    void awaitFsync(long position) {
+        synchronized (fsyncMonitor) {
+            while (fsyncedPosition < position && fsyncFailure == null && !fsyncThreadStopped) {
+                try {
+                    fsyncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for fsync", e);
+                }
+            }
+            if (fsyncedPosition >= position) {
+                return;
+            } else if (fsyncFailure != null) {
+                throw new IllegalStateException("Failed to fsync event store in " + directory, fsyncFailure);
+            } else {
+                throw new IllegalStateException("Event store in " + directory + " was closed before the write was forced to disk");
+            }
+        }
+    }
+
+    /**
+     * Force all appended records to disk and close the log
+     */
+    @Override
+    public void close() {
+        // Synchronized on "this" so that no record is being appended, the fsync thread then forces all appended records before it stops
+        synchronized (this) {
+            synchronized (fsyncMonitor) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                fsyncMonitor.notifyAll();
+            }
+        }
+        // Don't wait for fsyncMaxDelay if the fsync thread is waiting for more records
+        LockSupport.unpark(fsyncThread);
+        try {
+            fsyncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+            lock.release();
+            lockFileChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close event store in " + directory, e);
+        }
+    }
+
+    private boolean isClosed() {
+        synchronized (fsyncMonitor) {
+            return closed;
+        }
+    }
+
+    private void fsyncContinuously() {
+        try {
+            forceAppendedRecords();
+        } finally {
+            synchronized (fsyncMonitor) {
+                fsyncThreadStopped = true;
+                fsyncMonitor.notifyAll();
+            }
+        }
+    }
+
+    // Returns when the log has been closed and all records have been forced to disk, or when an fsync has failed
+    private void forceAppendedRecords() {
+        while (true) {
+            final long fromPosition;
+            synchronized (fsyncMonitor) {
+                while (!closed && appendedPosition == fsyncedPosition) {
+                    try {
+                        fsyncMonitor.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (appendedPosition == fsyncedPosition) {
+                    return;
+                }
+                fromPosition = fsyncedPosition;
+            }
+
+            if (fsyncMaxDelayNanos > 0 && !isClosed()) {
+                // Wait for more records to be appended so that they're forced together
+                LockSupport.parkNanos(fsyncMaxDelayNanos);
+            }
+
+            final long toPosition;
+            synchronized (fsyncMonitor) {
+                toPosition = appendedPosition;
+            }
+            try {
+                for (int segmentNumber = segmentNumber(fromPosition); segmentNumber <= segmentNumber(toPosition); segmentNumber++) {
+                    segments.get(segmentNumber).buffer.force();
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to fsync event store in {}", directory, e);
+                synchronized (fsyncMonitor) {
+                    fsyncFailure = e;
+                    fsyncMonitor.notifyAll();
+                }
+                return;
+            }
+            synchronized (fsyncMonitor) {
+                fsyncedPosition = toPosition;
+                fsyncMonitor.notifyAll();
+            }
+        }
+    }
+
+    // Recovery
+
+    private void recover(RecordVisitor recordVisitor) throws IOException {
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_FILE_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+
+        for (int segmentNumber = 0; segmentNumber < segmentFiles.size(); segmentNumber++) {
+            Path segmentFile = segmentFiles.get(segmentNumber);
+            if (!segmentFile.equals(segmentFile(segmentNumber))) {
+                throw new IllegalStateException("Expected segment " + segmentFile(segmentNumber) + " but found " + segmentFile);
+            }
+            Segment segment = mapSegment(segmentNumber, FileChannel.open(segmentFile, READ, WRITE));
+            segments.add(segment);
+            int endOffset = replay(segment, recordVisitor);
+            currentSegment = segment;
+            if (endOffset < 0) {
+                writeOffset = -endOffset - 1;
+                truncate(segment, writeOffset, segmentFiles.subList(segmentNumber + 1, segmentFiles.size()));
+                break;
+            }
+            writeOffset = endOffset;
+        }
+
+        if (currentSegment == null) {
+            currentSegment = createSegment(0);
+            writeOffset = 0;
+        }
+    }
+
+    /**
+     * @return The offset after the last record in the segment, or {@code -(offset + 1)} if the record at {@code offset} is incomplete or corrupt
+     */
+    private static int replay(Segment segment, RecordVisitor recordVisitor) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int capacity = segment.capacity();
+        int offset = 0;
+        while (offset + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                return isZeroFilled(buffer, offset, capacity) ? offset : -(offset + 1);
+            } else if (length < 0 || offset + RECORD_HEADER_SIZE + length > capacity) {
+                return -(offset + 1);
+            }
+            int crc = buffer.getInt(offset + 4);
+            buffer.limit(offset + RECORD_HEADER_SIZE + length);
+            buffer.position(offset + RECORD_HEADER_SIZE);
+            ByteBuffer payload = buffer.slice();
+            buffer.clear();
+            CRC32 actualCrc = new CRC32();
+            actualCrc.update(payload.duplicate());
+            if ((int) actualCrc.getValue() != crc) {
+                return -(offset + 1);
+            }
+            recordVisitor.visit(position(segment.number, offset + RECORD_HEADER_SIZE), payload.asReadOnlyBuffer());
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    private static boolean isZeroFilled(ByteBuffer buffer, int fromOffset, int toOffset) {
+        for (int offset = fromOffset; offset < toOffset; offset++) {
+            if (buffer.get(offset) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A crash may leave a partially written record (and records after it that have been written to disk before it) in the log.
+    // These records have never been acknowledged as durable, so they're removed.
+    private void truncate(Segment segment, int offset, List<Path> laterSegmentFiles) throws IOException {
+        log.warn("Found an incomplete or corrupt record at offset {} in {}, truncating the event store at this position", offset, segmentFile(segment.number));
+        ByteBuffer buffer = segment.buffer.duplicate();
+        for (int i = offset; i < segment.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        segment.buffer.force();
+        for (Path laterSegmentFile : laterSegmentFiles) {
+            Files.delete(laterSegmentFile);
+        }
+        fsyncDirectory();
+    }
+
+    // Segments
+
+    private Segment createSegment(int segmentNumber) {
+        try {
+            FileChannel channel = FileChannel.open(segmentFile(segmentNumber), CREATE, READ, WRITE);
+            Segment segment = mapSegment(segmentNumber, channel, segmentSize);
+            segments.add(segment);
+            fsyncDirectory();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create segment " + segmentNumber + " in " + directory, e);
+        }
+    }
+
+    private static Segment mapSegment(int segmentNumber, FileChannel channel) throws IOException {
+        return mapSegment(segmentNumber, channel, Math.toIntExact(channel.size()));
+    }
+
+    private static Segment mapSegment(int segmentNumber, FileChannel channel, int size) throws IOException {
+        return new Segment(segmentNumber, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    // Makes sure that created (and deleted) segment files survive a crash. Not all platforms support opening a directory, in which case
+    // it's up to the file system.
+    private void fsyncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Failed to fsync directory {}", directory, e);
+        }
+    }
+
+    private Path segmentFile(int segmentNumber) {
+        return directory.resolve(String.format("%020d%s", segmentNumber, SEGMENT_FILE_SUFFIX));
+    }
+
+    // The lock is held by the JVM so the directory is also locked for other event stores in the same process
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    static long position(int segmentNumber, int offset) {
+        return ((long) segmentNumber << 32) | offset;
+    }
+
+    private static int segmentNumber(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offset(long position) {
+        return (int) position;
+    }
+
+    interface RecordVisitor {
+        /**
+         * @param position The position of the payload of the record
+         * @param payload  The payload of the record
+         */
+        void visit(long position, ByteBuffer payload);
+    }
+
+    private static final class Segment {
+        private final int number;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(int number, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private int capacity() {
+            return buffer.capacity();
+        }
+    }
+}
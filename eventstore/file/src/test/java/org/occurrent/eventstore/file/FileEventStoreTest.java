@@ -0,0 +1,397 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.file;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.occurrent.eventstore.api.DuplicateCloudEventException;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.WriteCondition;
+import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
+import org.occurrent.eventstore.api.blocking.EventStoreQueries.SortBy;
+import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.filter.Filter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+import static org.occurrent.eventstore.api.WriteCondition.streamVersionEq;
+import static org.occurrent.filter.Filter.type;
+
+class FileEventStoreTest {
+
+    private static final URI SOURCE = URI.create("urn:occurrent:test");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_and_read_events() {
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // When
+            eventStore.write("name", Stream.of(event("1", "NameDefined"), event("2", "NameWasChanged")));
+            eventStore.write("name", Stream.of(event("3", "NameWasChanged")));
+
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            assertThat(eventStream.version()).isEqualTo(3);
+            assertThat(eventStream.events().map(CloudEvent::getId)).containsExactly("1", "2", "3");
+            assertThat(eventStream.events().map(e -> e.getExtension(STREAM_VERSION))).containsExactly(1L, 2L, 3L);
+            assertThat(eventStream.events().map(e -> e.getExtension(STREAM_ID))).containsOnly("name");
+            assertThat(eventStore.read("name", 1, 1).events().map(CloudEvent::getId)).containsExactly("2");
+            assertThat(eventStore.readVersionRange("name", 2, 3).events().map(CloudEvent::getId)).containsExactly("2", "3");
+            assertThat(eventStore.exists("name")).isTrue();
+            assertThat(eventStore.exists("other")).isFalse();
+            assertThat(eventStore.read("other").version()).isZero();
+        }
+    }
+
+    @Test
+    void cloud_events_are_read_back_with_all_attributes_extensions_and_data() {
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // Given
+            CloudEvent cloudEvent = CloudEventBuilder.v1()
+                    .withId("id")
+                    .withSource(SOURCE)
+                    .withType("type")
+                    .withSubject("subject")
+                    .withDataSchema(URI.create("urn:schema"))
+                    .withTime(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 123_456789), UTC))
+                    .withExtension("intext", 2)
+                    .withExtension("longext", 3L)
+                    .withExtension("boolext", true)
+                    .withExtension("stringext", "value")
+                    .withData("application/json", "{\"name\" : \"hello\"}".getBytes(UTF_8))
+                    .build();
+
+            // When
+            eventStore.write("name", Stream.of(cloudEvent));
+
+            // Then
+            CloudEvent expected = CloudEventBuilder.v1(cloudEvent).withExtension(STREAM_ID, "name").withExtension(STREAM_VERSION, 1L).build();
+            assertThat(eventStore.read("name").events()).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void write_condition_that_is_not_fulfilled_throws_write_condition_not_fulfilled_exception() {
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // Given
+            eventStore.write("name", Stream.of(event("1", "NameDefined")));
+
+            // When
+            Throwable throwable = catchThrowable(() -> eventStore.write("name", streamVersionEq(0), Stream.of(event("2", "NameWasChanged"))));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(WriteConditionNotFulfilledException.class)
+                    .hasMessage("WriteCondition was not fulfilled. Expected version to be equal to 0 but was 1.");
+            assertThat(eventStore.read("name").version()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void writing_a_cloud_event_with_an_id_and_source_that_already_exists_throws_duplicate_cloud_event_exception() {
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // Given
+            eventStore.write("name", Stream.of(event("1", "NameDefined")));
+
+            // When
+            Throwable throwable = catchThrowable(() -> eventStore.write("other", Stream.of(event("2", "NameDefined"), event("1", "NameDefined"))));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(DuplicateCloudEventException.class);
+            assertThat(eventStore.exists("other")).isFalse();
+        }
+    }
+
+    @Test
+    void writes_to_multiple_event_streams_are_atomic() {
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // Given
+            eventStore.write("stream1", Stream.of(event("1", "NameDefined")));
+
+            // When
+            Throwable throwable = catchThrowable(() -> eventStore.write(Arrays.asList(
+                    new EventStreamWrite("stream1", streamVersionEq(1), Stream.of(event("2", "NameWasChanged"))),
+                    new EventStreamWrite("stream2", streamVersionEq(1), Stream.of(event("3", "NameDefined"))))));
+            eventStore.write(Arrays.asList(
+                    new EventStreamWrite("stream1", streamVersionEq(1), Stream.of(event("4", "NameWasChanged"))),
+                    new EventStreamWrite("stream2", streamVersionEq(0), Stream.of(event("5", "NameDefined")))));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(WriteConditionsNotFulfilledException.class);
+            assertThat(eventStore.read("stream1").events().map(CloudEvent::getId)).containsExactly("1", "4");
+            assertThat(eventStore.read("stream2").events().map(CloudEvent::getId)).containsExactly("5");
+        }
+    }
+
+    @Test
+    void events_are_available_after_the_event_store_is_reopened() {
+        // Given
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            eventStore.write("stream1", Stream.of(event("1", "NameDefined"), event("2", "NameWasChanged"), event("3", "NameWasChanged")));
+            eventStore.write("stream2", Stream.of(event("4", "NameDefined"), event("5", "NameWasChanged")));
+            eventStore.deleteEventStream("stream2");
+            eventStore.deleteEvent("2", SOURCE);
+            eventStore.updateEvent("3", SOURCE, e -> CloudEventBuilder.v1(e).withType("NameWasUpdated").build());
+        }
+
+        // When
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("stream1");
+            assertThat(eventStream.version()).isEqualTo(3);
+            assertThat(eventStream.events().map(CloudEvent::getType)).containsExactly("NameDefined", "NameWasUpdated");
+            assertThat(eventStore.exists("stream2")).isFalse();
+
+            eventStore.write("stream1", streamVersionEq(3), Stream.of(event("6", "NameWasChanged")));
+            assertThat(catchThrowable(() -> eventStore.write("stream3", Stream.of(event("1", "NameDefined"))))).isExactlyInstanceOf(DuplicateCloudEventException.class);
+            assertThat(eventStore.read("stream1").events().map(CloudEvent::getId)).containsExactly("1", "3", "6");
+        }
+    }
+
+    @Test
+    void events_are_written_to_multiple_segments() {
+        // Given
+        EventStoreConfig config = new EventStoreConfig.Builder().segmentSize(4096).build();
+        try (FileEventStore eventStore = new FileEventStore(directory, config)) {
+            for (int i = 0; i < 200; i++) {
+                eventStore.write("name", Stream.of(event(String.valueOf(i), "NameWasChanged")));
+            }
+        }
+
+        // When
+        try (FileEventStore eventStore = new FileEventStore(directory, config)) {
+            // Then
+            assertThat(segments()).hasSizeGreaterThan(1);
+            assertThat(eventStore.read("name").events().map(CloudEvent::getId)).containsExactlyElementsOf(Stream.iterate(0, i -> i + 1).limit(200).map(String::valueOf).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void incomplete_record_at_the_end_of_the_log_is_discarded_when_the_event_store_is_opened() throws IOException {
+        // Given
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            eventStore.write("name", Stream.of(event("1", "NameDefined")));
+            eventStore.write("name", Stream.of(event("2", "NameWasChanged")));
+        }
+        // Simulate a crash in the middle of a write by corrupting the end of the second record
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, READ, WRITE)) {
+            int endOfLog = endOfLog(segment);
+            channel.write(ByteBuffer.wrap(new byte[]{42, 42, 42}), endOfLog - 3);
+        }
+
+        // When
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            eventStore.write("name", Stream.of(event("3", "NameWasChanged")));
+        }
+
+        // Then
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            assertThat(eventStore.read("name").events().map(CloudEvent::getId)).containsExactly("1", "3");
+        }
+    }
+
+    @Test
+    void the_directory_cannot_be_used_by_two_event_stores_at_the_same_time() {
+        try (FileEventStore ignored = new FileEventStore(directory)) {
+            // When
+            Throwable throwable = catchThrowable(() -> new FileEventStore(directory));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void concurrent_writes_are_all_stored() throws Exception {
+        // Given
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try (FileEventStore eventStore = new FileEventStore(directory)) {
+            // When
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String streamId = "stream" + i;
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        eventStore.write(streamId, Stream.of(event(streamId + "-" + j, "NameWasChanged")));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            // Then
+            assertThat(eventStore.count()).isEqualTo(400);
+            assertThat(eventStore.read("stream3").version()).isEqualTo(50);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Nested
+    @DisplayName("operations")
+    class Operations {
+
+        @Test
+        void update_event_returns_the_updated_event() {
+            try (FileEventStore eventStore = new FileEventStore(directory)) {
+                // Given
+                eventStore.write("name", Stream.of(event("1", "NameDefined")));
+
+                // When
+                Optional<CloudEvent> updated = eventStore.updateEvent("1", SOURCE, e -> CloudEventBuilder.v1(e).withSubject("subject").build());
+
+                // Then
+                assertThat(updated).hasValueSatisfying(e -> assertThat(e.getSubject()).isEqualTo("subject"));
+                assertThat(eventStore.read("name").events().map(CloudEvent::getSubject)).containsExactly("subject");
+                assertThat(eventStore.updateEvent("2", SOURCE, e -> e)).isEmpty();
+            }
+        }
+
+        @Test
+        void update_event_throws_iae_when_update_function_returns_null() {
+            try (FileEventStore eventStore = new FileEventStore(directory)) {
+                // Given
+                eventStore.write("name", Stream.of(event("1", "NameDefined")));
+
+                // When
+                Throwable throwable = catchThrowable(() -> eventStore.updateEvent("1", SOURCE, e -> null));
+
+                // Then
+                assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class);
+            }
+        }
+
+        @Test
+        void delete_event_removes_the_event_but_keeps_the_stream_version() {
+            try (FileEventStore eventStore = new FileEventStore(directory)) {
+                // Given
+                eventStore.write("name", Stream.of(event("1", "NameDefined"), event("2", "NameWasChanged")));
+
+                // When
+                eventStore.deleteEvent("2", SOURCE);
+
+                // Then
+                assertThat(eventStore.read("name").events().map(CloudEvent::getId)).containsExactly("1");
+                assertThat(eventStore.count()).isEqualTo(1);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("queries")
+    class Queries {
+
+        @Test
+        void query_filters_and_sorts_events() {
+            try (FileEventStore eventStore = new FileEventStore(directory)) {
+                // Given
+                eventStore.write("stream1", Stream.of(event("1", "NameDefined", 1), event("2", "NameWasChanged", 3)));
+                eventStore.write("stream2", Stream.of(event("3", "NameDefined", 2), event("4", "NameWasChanged", 4)));
+
+                // When
+                Stream<CloudEvent> events = eventStore.query(type("NameWasChanged"), SortBy.TIME_DESC);
+
+                // Then
+                assertThat(events.map(CloudEvent::getId)).containsExactly("4", "2");
+                assertThat(eventStore.query(Filter.all(), 1, 2, SortBy.TIME_ASC).map(CloudEvent::getId)).containsExactly("3", "2");
+                assertThat(eventStore.query(Filter.all(), SortBy.NATURAL_DESC).map(CloudEvent::getId)).containsExactly("4", "3", "2", "1");
+                assertThat(eventStore.count(type("NameDefined"))).isEqualTo(2);
+            }
+        }
+
+        @Test
+        void query_page_pages_through_all_events() {
+            try (FileEventStore eventStore = new FileEventStore(directory)) {
+                // Given
+                eventStore.write("stream1", Stream.of(event("1", "NameDefined", 1), event("2", "NameWasChanged", 3), event("3", "NameWasChanged", 5)));
+                eventStore.write("stream2", Stream.of(event("4", "NameDefined", 2), event("5", "NameWasChanged", 4)));
+
+                // When
+                EventPage page1 = eventStore.queryPage(Filter.all(), 2, SortBy.TIME_ASC, null);
+                EventPage page2 = eventStore.queryPage(Filter.all(), 2, SortBy.TIME_ASC, page1.continuationToken);
+                EventPage page3 = eventStore.queryPage(Filter.all(), 2, SortBy.TIME_ASC, page2.continuationToken);
+
+                // Then
+                assertThat(page1.events.stream().map(CloudEvent::getId)).containsExactly("1", "4");
+                assertThat(page2.events.stream().map(CloudEvent::getId)).containsExactly("2", "5");
+                assertThat(page3.events.stream().map(CloudEvent::getId)).containsExactly("3");
+                assertThat(page3.continuationToken).isNull();
+                assertThat(catchThrowable(() -> eventStore.queryPage(Filter.all(), 2, SortBy.NATURAL_ASC, page1.continuationToken))).isExactlyInstanceOf(IllegalArgumentException.class);
+            }
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".segment")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The offset of the first zero length record header
+    private static int endOfLog(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int offset = 0;
+        while (buffer.getInt(offset) != 0) {
+            offset += SegmentedLog.RECORD_HEADER_SIZE + buffer.getInt(offset);
+        }
+        return offset;
+    }
+
+    private static CloudEvent event(String id, String type) {
+        return CloudEventBuilder.v1().withId(id).withSource(SOURCE).withType(type).withData("text/plain", id.getBytes(UTF_8)).build();
+    }
+
+    private static CloudEvent event(String id, String type, int minute) {
+        return CloudEventBuilder.v1(event(id, type)).withTime(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, minute, 0), UTC)).build();
+    }
+}
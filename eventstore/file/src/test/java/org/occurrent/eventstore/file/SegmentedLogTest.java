@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class SegmentedLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void records_appended_before_close_are_forced_to_disk() {
+        // Given
+        SegmentedLog segmentedLog = new SegmentedLog(directory, 4096, Duration.ofSeconds(10), (position, payload) -> {
+        });
+        long position = segmentedLog.append(new byte[]{1, 2, 3});
+
+        // When
+        segmentedLog.close();
+
+        // Then
+        segmentedLog.awaitFsync(position + 3);
+    }
+
+    @Test
+    void await_fsync_throws_ise_instead_of_waiting_forever_when_the_log_is_closed() {
+        // Given
+        SegmentedLog segmentedLog = new SegmentedLog(directory, 4096, Duration.ZERO, (position, payload) -> {
+        });
+        long position = segmentedLog.append(new byte[]{1, 2, 3});
+        segmentedLog.close();
+
+        // When
+        Throwable awaitFsyncThrowable = catchThrowable(() -> segmentedLog.awaitFsync(position + 1000));
+        Throwable appendThrowable = catchThrowable(() -> segmentedLog.append(new byte[]{4}));
+
+        // Then
+        assertThat(awaitFsyncThrowable).isExactlyInstanceOf(IllegalStateException.class).hasMessageContaining("was closed before the write was forced to disk");
+        assertThat(appendThrowable).isExactlyInstanceOf(IllegalStateException.class).hasMessageContaining("is closed");
+    }
+}
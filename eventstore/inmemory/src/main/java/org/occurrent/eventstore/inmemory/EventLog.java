@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.inmemory;
+
+import io.cloudevents.CloudEvent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable snapshot of the events in an event stream. Events are stored in fixed size chunks that are shared between snapshots,
+ * so that {@link #append(List)} creates a new snapshot in O(1) (per event) without copying the existing events. A snapshot never sees
+ * the events appended after it was created, which means that readers can iterate a snapshot while events are appended to the stream.
+ * <p>
+ * Appending to a snapshot that has already been appended to (i.e. that is not the latest snapshot of its storage) copies the events
+ * to new storage since the slots after the snapshot are already taken.
+ * </p>
+ * <p>
+ * {@link #replace(int, CloudEvent)} and {@link #delete(int)} create a snapshot with new storage that shares the unaffected chunks with this snapshot.
+ * Replacing an event only copies the directory of chunks and the chunk(s) that are written to, deleting an event copies the chunks from the one that
+ * contains the deleted event since the events after it are shifted.
+ * </p>
+ */
+final class EventLog extends AbstractList<CloudEvent> implements RandomAccess {
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Storage storage;
+    private final CloudEvent[][] chunks;
+    private final int size;
+
+    private EventLog(Storage storage, CloudEvent[][] chunks, int size) {
+        this.storage = storage;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    static EventLog empty() {
+        return new EventLog(new Storage(), new CloudEvent[0][], 0);
+    }
+
+    static EventLog of(Collection<CloudEvent> events) {
+        return empty().append(events);
+    }
+
+    EventLog append(Collection<CloudEvent> events) {
+        if (events.isEmpty()) {
+            return this;
+        }
+        synchronized (storage) {
+            if (storage.size == size) {
+                CloudEvent[][] newChunks = storage.chunks;
+                int index = size;
+                for (CloudEvent event : events) {
+                    int chunkIndex = index >>> CHUNK_SHIFT;
+                    if (chunkIndex == newChunks.length) {
+                        // Only the directory of chunks is copied, the chunks themselves are shared with the previous snapshots
+                        newChunks = Arrays.copyOf(newChunks, Math.max(1, newChunks.length * 2));
+                    }
+                    if (newChunks[chunkIndex] == null) {
+                        newChunks[chunkIndex] = new CloudEvent[CHUNK_SIZE];
+                    }
+                    newChunks[chunkIndex][index & CHUNK_MASK] = event;
+                    index++;
+                }
+                storage.chunks = newChunks;
+                storage.size = index;
+                return new EventLog(storage, newChunks, index);
+            }
+        }
+        EventLog copy = empty().append(this);
+        return copy.append(events);
+    }
+
+    EventLog replace(int index, CloudEvent event) {
+        checkIndex(index);
+        CloudEvent[][] newChunks = copyChunks();
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        if (newChunks[chunkIndex] == chunks[chunkIndex]) {
+            newChunks[chunkIndex] = chunks[chunkIndex].clone();
+        }
+        newChunks[chunkIndex][index & CHUNK_MASK] = event;
+        return new EventLog(new Storage(newChunks, size), newChunks, size);
+    }
+
+    EventLog delete(int index) {
+        checkIndex(index);
+        int newSize = size - 1;
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        CloudEvent[][] newChunks = Arrays.copyOf(chunks, chunks.length);
+        for (int i = chunkIndex; i < newChunks.length; i++) {
+            newChunks[i] = (i << CHUNK_SHIFT) < newSize ? new CloudEvent[CHUNK_SIZE] : null;
+        }
+        if (newChunks[chunkIndex] != null) {
+            System.arraycopy(chunks[chunkIndex], 0, newChunks[chunkIndex], 0, index & CHUNK_MASK);
+        }
+        for (int i = index; i < newSize; i++) {
+            newChunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = get(i + 1);
+        }
+        return new EventLog(new Storage(newChunks, newSize), newChunks, newSize);
+    }
+
+    @Override
+    public CloudEvent get(int index) {
+        checkIndex(index);
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    // Copies the directory of chunks. A chunk that is not full is copied as well since its free slots may be taken by the events
+    // that are appended to the storage of this snapshot. The chunks after the last event of this snapshot are not included.
+    private CloudEvent[][] copyChunks() {
+        CloudEvent[][] newChunks = Arrays.copyOf(chunks, chunks.length);
+        int lastChunkIndex = (size - 1) >>> CHUNK_SHIFT;
+        Arrays.fill(newChunks, lastChunkIndex + 1, newChunks.length, null);
+        if ((size & CHUNK_MASK) != 0) {
+            newChunks[lastChunkIndex] = chunks[lastChunkIndex].clone();
+        }
+        return newChunks;
+    }
+
+    // The slots that are used by all snapshots of this storage. Guarded by "this".
+    private static class Storage {
+        private CloudEvent[][] chunks;
+        private int size;
+
+        private Storage() {
+            this(new CloudEvent[0][], 0);
+        }
+
+        private Storage(CloudEvent[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+    }
+}
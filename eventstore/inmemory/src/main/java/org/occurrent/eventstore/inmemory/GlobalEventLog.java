@@ -0,0 +1,429 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.inmemory;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.condition.Condition;
+import org.occurrent.condition.Condition.MultiOperandCondition;
+import org.occurrent.condition.Condition.SingleOperandCondition;
+import org.occurrent.eventstore.api.FilterEvaluator;
+import org.occurrent.eventstore.api.blocking.EventStoreQueries.SortBy;
+import org.occurrent.filter.Filter;
+import org.occurrent.filter.Filter.CompositionFilter;
+import org.occurrent.filter.Filter.CompositionOperator;
+import org.occurrent.filter.Filter.SingleConditionFilter;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+
+/**
+ * All events of the {@link InMemoryEventStore} in insertion order. Each event is identified by a global sequence number that is
+ * assigned when the event is written, and the events are indexed by type, subject, stream id and time. A {@link Filter} is answered
+ * by looking up the events in the indexes (when the filter has conditions on the indexed attributes) and evaluating the filter against
+ * the events using the {@link FilterEvaluator}, which makes the semantics the same as for the MongoDB event stores.
+ * <p>
+ * Queries are not isolated from concurrent writes, i.e. a query may or may not include events that are written while the query is running.
+ * </p>
+ */
+final class GlobalEventLog {
+    private static final String TOKEN_SEPARATOR = ":";
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong lastAddedSequence = new AtomicLong();
+    private final AtomicLong numberOfEvents = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, CloudEvent> events = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, NavigableSet<Long>> typeIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NavigableSet<Long>> subjectIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NavigableSet<Long>> streamIdIndex = new ConcurrentHashMap<>();
+    private final NavigableSet<SortKey> timeIndex = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> eventsWithoutTime = new ConcurrentSkipListSet<>();
+
+    /**
+     * @return The sequence number to use for the next event. Sequence numbers are increasing but there may be gaps (for example if a write is rejected).
+     */
+    long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * @return The sequence number of the last event that was added, or {@code 0} if no events have been added.
+     */
+    long lastAddedSequence() {
+        return lastAddedSequence.get();
+    }
+
+    void add(long sequence, CloudEvent cloudEvent) {
+        if (events.put(sequence, cloudEvent) == null) {
+            numberOfEvents.incrementAndGet();
+        }
+        index(sequence, cloudEvent);
+        lastAddedSequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    void replace(long sequence, CloudEvent cloudEvent) {
+        CloudEvent currentCloudEvent = events.put(sequence, cloudEvent);
+        if (currentCloudEvent == null) {
+            numberOfEvents.incrementAndGet();
+        } else {
+            unindex(sequence, currentCloudEvent);
+        }
+        index(sequence, cloudEvent);
+    }
+
+    void remove(long sequence) {
+        CloudEvent cloudEvent = events.remove(sequence);
+        if (cloudEvent != null) {
+            numberOfEvents.decrementAndGet();
+            unindex(sequence, cloudEvent);
+        }
+    }
+
+    long count(Filter filter) {
+        requireNonNull(filter, "Filter cannot be null");
+        return filter instanceof Filter.All ? numberOfEvents.get() : query(filter, SortBy.NATURAL_ASC, null).count();
+    }
+
+    /**
+     * @param filter The filter to apply
+     * @param sortBy How to sort the events
+     * @param after  Only include events after this sort key (in {@code sortBy} order), or {@code null} to include all events.
+     * @return The events matching the filter sorted by {@code sortBy}
+     */
+    Stream<SequencedCloudEvent> query(Filter filter, SortBy sortBy, SortKey after) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        NavigableSet<Long> candidates = candidates(filter);
+        final Stream<SequencedCloudEvent> sortedEvents;
+        if (candidates == null) {
+            sortedEvents = sortedSequences(sortBy, after).map(this::get);
+        } else {
+            Comparator<SortKey> comparator = comparator(sortBy);
+            sortedEvents = candidates.stream()
+                    .map(this::get)
+                    .filter(Objects::nonNull)
+                    .filter(cloudEvent -> after == null || comparator.compare(cloudEvent.sortKey(), after) > 0)
+                    .sorted(Comparator.comparing(SequencedCloudEvent::sortKey, comparator));
+        }
+        return sortedEvents
+                .filter(Objects::nonNull)
+                .filter(cloudEvent -> FilterEvaluator.evaluate(filter, cloudEvent.cloudEvent));
+    }
+
+    /**
+     * @return The events with a sequence number greater than {@code sequence} in insertion order
+     */
+    Stream<SequencedCloudEvent> eventsAfter(long sequence) {
+        return events.tailMap(sequence, false).entrySet().stream().map(entry -> new SequencedCloudEvent(entry.getKey(), entry.getValue()));
+    }
+
+    private SequencedCloudEvent get(long sequence) {
+        CloudEvent cloudEvent = events.get(sequence);
+        return cloudEvent == null ? null : new SequencedCloudEvent(sequence, cloudEvent);
+    }
+
+    // The sequence numbers of all events sorted by sortBy, using the time index when sorting by time
+    private Stream<Long> sortedSequences(SortBy sortBy, SortKey after) {
+        switch (sortBy) {
+            case NATURAL_ASC:
+                return (after == null ? events.keySet() : events.tailMap(after.sequence, false).keySet()).stream();
+            case NATURAL_DESC:
+                return (after == null ? events.descendingKeySet() : events.headMap(after.sequence, false).descendingKeySet()).stream();
+            case TIME_ASC: {
+                // Events without time are sorted before all other events (just as in MongoDB)
+                NavigableSet<Long> withoutTime = after == null ? eventsWithoutTime : (after.time == null ? eventsWithoutTime.tailSet(after.sequence, false) : Collections.emptyNavigableSet());
+                NavigableSet<SortKey> withTime = after == null || after.time == null ? timeIndex : timeIndex.tailSet(after, false);
+                return Stream.concat(withoutTime.stream(), withTime.stream().map(sortKey -> sortKey.sequence));
+            }
+            case TIME_DESC: {
+                NavigableSet<SortKey> withTime = after == null ? timeIndex.descendingSet() : (after.time == null ? Collections.emptyNavigableSet() : timeIndex.headSet(after, false).descendingSet());
+                NavigableSet<Long> withoutTime = after == null || after.time != null ? eventsWithoutTime.descendingSet() : eventsWithoutTime.headSet(after.sequence, false).descendingSet();
+                return Stream.concat(withTime.stream().map(sortKey -> sortKey.sequence), withoutTime.stream());
+            }
+            default:
+                throw new IllegalStateException("Unexpected value: " + sortBy);
+        }
+    }
+
+    private static Comparator<SortKey> comparator(SortBy sortBy) {
+        switch (sortBy) {
+            case NATURAL_ASC:
+                return Comparator.comparingLong(sortKey -> sortKey.sequence);
+            case NATURAL_DESC:
+                return Comparator.<SortKey>comparingLong(sortKey -> sortKey.sequence).reversed();
+            case TIME_ASC:
+                return Comparator.naturalOrder();
+            case TIME_DESC:
+                return Comparator.<SortKey>naturalOrder().reversed();
+            default:
+                throw new IllegalStateException("Unexpected value: " + sortBy);
+        }
+    }
+
+    // Indexes
+
+    private void index(long sequence, CloudEvent cloudEvent) {
+        addToIndex(typeIndex, cloudEvent.getType(), sequence);
+        addToIndex(subjectIndex, cloudEvent.getSubject(), sequence);
+        addToIndex(streamIdIndex, (String) cloudEvent.getExtension(STREAM_ID), sequence);
+        SortKey sortKey = SortKey.of(sequence, cloudEvent);
+        if (sortKey.time == null) {
+            eventsWithoutTime.add(sequence);
+        } else {
+            timeIndex.add(sortKey);
+        }
+    }
+
+    private void unindex(long sequence, CloudEvent cloudEvent) {
+        removeFromIndex(typeIndex, cloudEvent.getType(), sequence);
+        removeFromIndex(subjectIndex, cloudEvent.getSubject(), sequence);
+        removeFromIndex(streamIdIndex, (String) cloudEvent.getExtension(STREAM_ID), sequence);
+        SortKey sortKey = SortKey.of(sequence, cloudEvent);
+        if (sortKey.time == null) {
+            eventsWithoutTime.remove(sequence);
+        } else {
+            timeIndex.remove(sortKey);
+        }
+    }
+
+    private static void addToIndex(ConcurrentMap<String, NavigableSet<Long>> index, String value, long sequence) {
+        if (value != null) {
+            index.compute(value, (__, sequences) -> {
+                NavigableSet<Long> newSequences = sequences == null ? new ConcurrentSkipListSet<>() : sequences;
+                newSequences.add(sequence);
+                return newSequences;
+            });
+        }
+    }
+
+    private static void removeFromIndex(ConcurrentMap<String, NavigableSet<Long>> index, String value, long sequence) {
+        if (value != null) {
+            index.computeIfPresent(value, (__, sequences) -> {
+                sequences.remove(sequence);
+                return sequences.isEmpty() ? null : sequences;
+            });
+        }
+    }
+
+    /**
+     * @return The sequence numbers of the events that may match the filter, or {@code null} if the filter cannot be answered by the indexes
+     * (in which case all events must be evaluated).
+     */
+    private NavigableSet<Long> candidates(Filter filter) {
+        if (filter instanceof SingleConditionFilter) {
+            SingleConditionFilter singleConditionFilter = (SingleConditionFilter) filter;
+            return candidates(singleConditionFilter.fieldName, singleConditionFilter.condition);
+        } else if (filter instanceof CompositionFilter) {
+            CompositionFilter compositionFilter = (CompositionFilter) filter;
+            List<NavigableSet<Long>> candidates = compositionFilter.filters.stream().map(this::candidates).collect(Collectors.toList());
+            return combine(compositionFilter.operator == CompositionOperator.AND, candidates);
+        }
+        return null;
+    }
+
+    private NavigableSet<Long> candidates(String fieldName, Condition<?> condition) {
+        if (condition instanceof MultiOperandCondition) {
+            MultiOperandCondition<?> multiOperandCondition = (MultiOperandCondition<?>) condition;
+            switch (multiOperandCondition.operationName) {
+                case AND:
+                case OR:
+                    List<NavigableSet<Long>> candidates = multiOperandCondition.operations.stream().map(operation -> candidates(fieldName, operation)).collect(Collectors.toList());
+                    return combine(multiOperandCondition.operationName == Condition.MultiOperandConditionName.AND, candidates);
+                default:
+                    return null;
+            }
+        } else if (!(condition instanceof SingleOperandCondition)) {
+            return null;
+        }
+
+        SingleOperandCondition<?> singleOperandCondition = (SingleOperandCondition<?>) condition;
+        Object operand = singleOperandCondition.operand;
+        if (Filter.TIME.equals(fieldName) && operand instanceof OffsetDateTime) {
+            return timeRange(singleOperandCondition.singleOperandConditionName, ((OffsetDateTime) operand).toInstant());
+        }
+        final ConcurrentMap<String, NavigableSet<Long>> index;
+        switch (fieldName) {
+            case Filter.TYPE:
+                index = typeIndex;
+                break;
+            case Filter.SUBJECT:
+                index = subjectIndex;
+                break;
+            case STREAM_ID:
+                index = streamIdIndex;
+                break;
+            default:
+                return null;
+        }
+        if (singleOperandCondition.singleOperandConditionName != Condition.SingleOperandConditionName.EQ || !(operand instanceof String)) {
+            return null;
+        }
+        NavigableSet<Long> sequences = index.get(operand);
+        return sequences == null ? new TreeSet<>() : new TreeSet<>(sequences);
+    }
+
+    private NavigableSet<Long> timeRange(Condition.SingleOperandConditionName conditionName, Instant time) {
+        SortKey first = new SortKey(time, Long.MIN_VALUE);
+        SortKey last = new SortKey(time, Long.MAX_VALUE);
+        final NavigableSet<SortKey> range;
+        switch (conditionName) {
+            case EQ:
+                range = timeIndex.subSet(first, true, last, true);
+                break;
+            case LT:
+                range = timeIndex.headSet(first, false);
+                break;
+            case LTE:
+                range = timeIndex.headSet(last, true);
+                break;
+            case GT:
+                range = timeIndex.tailSet(last, false);
+                break;
+            case GTE:
+                range = timeIndex.tailSet(first, true);
+                break;
+            default:
+                return null;
+        }
+        return range.stream().map(sortKey -> sortKey.sequence).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    // "null" means that the candidates are unknown, i.e. all events
+    private static NavigableSet<Long> combine(boolean and, List<NavigableSet<Long>> candidates) {
+        if (and) {
+            NavigableSet<Long> result = null;
+            for (NavigableSet<Long> sequences : candidates) {
+                if (sequences == null) {
+                    continue;
+                } else if (result == null) {
+                    result = new TreeSet<>(sequences);
+                } else {
+                    result.retainAll(sequences);
+                }
+            }
+            return result;
+        } else if (candidates.contains(null)) {
+            return null;
+        } else {
+            NavigableSet<Long> result = new TreeSet<>();
+            candidates.forEach(result::addAll);
+            return result;
+        }
+    }
+
+    // Continuation tokens
+
+    /**
+     * @return An opaque continuation token that is used to find the events after the event with the supplied {@code sortKey}
+     */
+    static String continuationToken(SortBy sortBy, SortKey sortKey) {
+        String time = sortKey.time == null ? "" : sortKey.time.getEpochSecond() + "." + sortKey.time.getNano();
+        String token = sortBy.name() + TOKEN_SEPARATOR + sortKey.sequence + TOKEN_SEPARATOR + time;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(UTF_8));
+    }
+
+    /**
+     * @return The sort key encoded in the {@code continuationToken}, or {@code null} if {@code continuationToken} is {@code null}.
+     * @throws IllegalArgumentException If the continuation token is invalid or was created for another {@code sortBy}.
+     */
+    static SortKey continueAfter(SortBy sortBy, String continuationToken) {
+        if (continuationToken == null) {
+            return null;
+        }
+        final String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(continuationToken), UTF_8).split(TOKEN_SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+        } else if (!sortBy.name().equals(parts[0])) {
+            throw new IllegalArgumentException("Continuation token was created for " + parts[0] + " and cannot be used for " + sortBy.name());
+        }
+        try {
+            long sequence = Long.parseLong(parts[1]);
+            if (parts[2].isEmpty()) {
+                return new SortKey(null, sequence);
+            }
+            String[] time = parts[2].split("\\.");
+            return new SortKey(Instant.ofEpochSecond(Long.parseLong(time[0]), Long.parseLong(time[1])), sequence);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+    }
+
+    /**
+     * The time (which may be {@code null}) and sequence number of an event. Sort keys are sorted by time (events without time first)
+     * and then by sequence number.
+     */
+    static final class SortKey implements Comparable<SortKey> {
+        private static final Comparator<SortKey> COMPARATOR = Comparator.<SortKey, Instant>comparing(sortKey -> sortKey.time, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingLong(sortKey -> sortKey.sequence);
+
+        final Instant time;
+        final long sequence;
+
+        SortKey(Instant time, long sequence) {
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        static SortKey of(long sequence, CloudEvent cloudEvent) {
+            OffsetDateTime time = cloudEvent.getTime();
+            return new SortKey(time == null ? null : time.toInstant(), sequence);
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            return COMPARATOR.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SortKey)) return false;
+            SortKey sortKey = (SortKey) o;
+            return sequence == sortKey.sequence &&
+                    Objects.equals(time, sortKey.time);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(time, sequence);
+        }
+    }
+}
@@ -20,22 +20,39 @@ import io.cloudevents.CloudEvent;
 import io.cloudevents.SpecVersion;
 import io.cloudevents.core.builder.CloudEventBuilder;
 import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+import org.occurrent.cloudevents.OccurrentExtensionGetter;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventAggregator;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.DuplicateCloudEventException;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.FilterEvaluator;
+import org.occurrent.eventstore.api.GroupBy;
 import org.occurrent.eventstore.api.LongConditionEvaluator;
 import org.occurrent.eventstore.api.WriteCondition;
 import org.occurrent.eventstore.api.WriteCondition.StreamVersionWriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
 import org.occurrent.eventstore.api.blocking.EventStore;
 import org.occurrent.eventstore.api.blocking.EventStoreOperations;
+import org.occurrent.eventstore.api.blocking.EventStoreQueries;
 import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.filter.Filter;
 import org.occurrent.functionalsupport.internal.FunctionalSupport.Pair;
 
 import java.net.URI;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -46,15 +63,30 @@ import static org.occurrent.functionalsupport.internal.FunctionalSupport.zip;
 
 /**
  * This is an {@link EventStore} that stores events in-memory. This is mainly useful for testing
- * and/or demo purposes. It also supports the {@link EventStoreOperations} contract.
+ * and/or demo purposes. It also supports the {@link EventStoreOperations} and {@link EventStoreQueries} contracts.
+ * <p>
+ * Just as the MongoDB event stores, the in-memory event store rejects cloud events with the same id and source as an existing
+ * cloud event by throwing a {@link DuplicateCloudEventException}. Queries are answered by a global log of all events in insertion order
+ * that is indexed by type, subject, stream id and time. Filters on the cloud event data are evaluated against JSON data, see {@link FilterEvaluator}.
+ * </p>
  */
-public class InMemoryEventStore implements EventStore, EventStoreOperations {
-
-    private final ConcurrentMap<String, List<CloudEvent>> state = new ConcurrentHashMap<>();
+public class InMemoryEventStore implements EventStore, EventStoreOperations, EventStoreQueries {
+
+    // Each stream is an append-only EventLog so that appending doesn't copy the existing events and readers get a stable snapshot
+    private final ConcurrentMap<String, EventLog> state = new ConcurrentHashMap<>();
+    // Writes to a single stream are made atomic by the state map. Writes to multiple streams hold the write lock
+    // so that they're not interleaved with reads or other writes.
+    private final ReadWriteLock multipleStreamsLock = new ReentrantReadWriteLock();
+    // Index from the (id, source) of each cloud event to the stream and stream version of the cloud event. An entry is reserved
+    // (using putIfAbsent) before the events are appended, which is how duplicate cloud events are detected.
+    private final ConcurrentMap<Pair<String, URI>, EventPosition> cloudEventIndex = new ConcurrentHashMap<>();
+    // All events in insertion order, used by the queries and subscriptions
+    private final GlobalEventLog globalEventLog = new GlobalEventLog();
+    private final List<Runnable> writeListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public EventStream<CloudEvent> read(String streamId, int skip, int limit) {
-        List<CloudEvent> events = state.get(streamId);
+        List<CloudEvent> events = withLock(multipleStreamsLock.readLock(), () -> state.get(streamId));
         if (events == null) {
             return new EventStreamImpl(streamId, 0, Collections.emptyList());
         } else if (skip == 0 && limit == Integer.MAX_VALUE) {
@@ -63,29 +95,171 @@ public class InMemoryEventStore implements EventStore, EventStoreOperations {
         return new EventStreamImpl(streamId, calculateStreamVersion(events), events.subList(skip, limit));
     }
 
+    @Override
+    public EventStream<CloudEvent> readVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        requireTrue(fromStreamVersion <= toStreamVersion, "fromStreamVersion (" + fromStreamVersion + ") cannot be greater than toStreamVersion (" + toStreamVersion + ")");
+        List<CloudEvent> events = withLock(multipleStreamsLock.readLock(), () -> state.get(streamId));
+        if (events == null) {
+            return new EventStreamImpl(streamId, 0, Collections.emptyList());
+        }
+        int fromIndex = indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(events, fromStreamVersion);
+        int toIndex = toStreamVersion == Long.MAX_VALUE ? events.size() : indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(events, toStreamVersion + 1);
+        return new EventStreamImpl(streamId, calculateStreamVersion(events), events.subList(fromIndex, toIndex));
+    }
+
     @Override
     public void write(String streamId, WriteCondition writeCondition, Stream<CloudEvent> events) {
         requireTrue(writeCondition != null, WriteCondition.class.getSimpleName() + " cannot be null");
         Stream<CloudEvent> cloudEventStream = events.peek(e -> requireTrue(e.getSpecVersion() == SpecVersion.V1, "Spec version needs to be " + SpecVersion.V1));
 
-        state.compute(streamId, (__, currentEvents) -> {
+        withLock(multipleStreamsLock.readLock(), () -> state.compute(streamId, (__, currentEvents) -> {
             long currentStreamVersion = calculateStreamVersion(currentEvents);
 
-            if (currentEvents == null && isConditionFulfilledBy(writeCondition, 0)) {
-                return applyOccurrentCloudEventExtension(cloudEventStream, streamId, 0);
-            } else if (currentEvents != null && isConditionFulfilledBy(writeCondition, currentStreamVersion)) {
-                List<CloudEvent> newEvents = new ArrayList<>(currentEvents);
-                newEvents.addAll(applyOccurrentCloudEventExtension(cloudEventStream, streamId, currentStreamVersion));
-                return newEvents;
+            if (isConditionFulfilledBy(writeCondition, currentStreamVersion)) {
+                List<CloudEvent> newEvents = applyOccurrentCloudEventExtension(cloudEventStream, streamId, currentStreamVersion);
+                // Sequence numbers are assigned and added to the global event log atomically so that events are added to the
+                // global event log in sequence order even when several streams are written concurrently (subscriptions rely on this).
+                synchronized (globalEventLog) {
+                    indexCloudEvents(streamId, newEvents);
+                    addToGlobalEventLog(newEvents);
+                }
+                return (currentEvents == null ? EventLog.empty() : currentEvents).append(newEvents);
             } else {
-                throw new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+                throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+            }
+        }));
+        notifyWriteListeners();
+    }
+
+    @Override
+    public void write(List<EventStreamWrite> writes) {
+        requireNonNull(writes, "Writes cannot be null");
+
+        withLock(multipleStreamsLock.writeLock(), () -> {
+            // If a write condition is not fulfilled the new event logs are discarded, the next append to the current event log then copies its events
+            Map<String, EventLog> newState = new HashMap<>();
+            List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions = new ArrayList<>();
+            List<Pair<String, URI>> indexedCloudEvents = new ArrayList<>();
+            List<CloudEvent> writtenCloudEvents = new ArrayList<>();
+            try {
+                for (EventStreamWrite write : writes) {
+                    String streamId = write.streamId;
+                    EventLog currentEvents = newState.containsKey(streamId) ? newState.get(streamId) : state.get(streamId);
+                    long currentStreamVersion = calculateStreamVersion(currentEvents);
+                    if (isConditionFulfilledBy(write.writeCondition, currentStreamVersion)) {
+                        Stream<CloudEvent> cloudEventStream = write.events.peek(e -> requireTrue(e.getSpecVersion() == SpecVersion.V1, "Spec version needs to be " + SpecVersion.V1));
+                        List<CloudEvent> newEvents = applyOccurrentCloudEventExtension(cloudEventStream, streamId, currentStreamVersion);
+                        indexedCloudEvents.addAll(indexCloudEvents(streamId, newEvents));
+                        newState.put(streamId, (currentEvents == null ? EventLog.empty() : currentEvents).append(newEvents));
+                        writtenCloudEvents.addAll(newEvents);
+                    } else {
+                        writeConditionNotFulfilledExceptions.add(writeConditionNotFulfilled(streamId, currentStreamVersion, write.writeCondition));
+                    }
+                }
+
+                if (!writeConditionNotFulfilledExceptions.isEmpty()) {
+                    throw new WriteConditionsNotFulfilledException(writeConditionNotFulfilledExceptions);
+                }
+            } catch (RuntimeException e) {
+                // Nothing is written so the cloud events reserved by the previous writes are released (whatever the failure is)
+                indexedCloudEvents.forEach(cloudEventIndex::remove);
+                throw e;
             }
+            // Writes to a single stream are blocked by the write lock so the events are added in sequence order
+            addToGlobalEventLog(writtenCloudEvents);
+            state.putAll(newState);
+            return null;
         });
+        notifyWriteListeners();
+    }
+
+    /**
+     * @return The global sequence number of the last event that was written to the event store, or {@code 0} if no events have been written.
+     * Global sequence numbers are increasing but not necessarily consecutive, for example a rejected write leaves a gap.
+     */
+    public long globalSequence() {
+        return globalEventLog.lastAddedSequence();
+    }
+
+    /**
+     * Read all events with a global sequence number greater than {@code globalSequence} in the order they were written. Events that are
+     * written while the returned stream is consumed may or may not be included.
+     *
+     * @param globalSequence The global sequence number to read events after, use {@code 0} to read all events.
+     * @return The events after {@code globalSequence} in global sequence order
+     */
+    public Stream<SequencedCloudEvent> readAfterGlobalSequence(long globalSequence) {
+        return globalEventLog.eventsAfter(globalSequence);
+    }
+
+    /**
+     * Add a listener that is invoked after events have been written to the event store. The listener is invoked by the thread
+     * that wrote the events so it must not block, typically it just wakes up another thread that reads the events
+     * using {@link #readAfterGlobalSequence(long)}.
+     *
+     * @param listener The listener to add
+     */
+    public void addWriteListener(Runnable listener) {
+        requireNonNull(listener, "Listener cannot be null");
+        writeListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener that was added by {@link #addWriteListener(Runnable)}.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeWriteListener(Runnable listener) {
+        writeListeners.remove(listener);
+    }
+
+    private void notifyWriteListeners() {
+        writeListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Reserves the (id, source) of the supplied cloud events in the index. If one of the cloud events already exists, none of
+     * the cloud events are indexed and a {@link DuplicateCloudEventException} is thrown.
+     *
+     * @return The keys of the cloud events that were indexed
+     */
+    private List<Pair<String, URI>> indexCloudEvents(String streamId, List<CloudEvent> cloudEvents) {
+        List<Pair<String, URI>> indexedCloudEvents = new ArrayList<>(cloudEvents.size());
+        for (CloudEvent cloudEvent : cloudEvents) {
+            Pair<String, URI> cloudEventKey = cloudEventKey(cloudEvent.getId(), cloudEvent.getSource());
+            EventPosition position = new EventPosition(streamId, OccurrentExtensionGetter.getStreamVersion(cloudEvent), globalEventLog.nextSequence());
+            if (cloudEventIndex.putIfAbsent(cloudEventKey, position) != null) {
+                indexedCloudEvents.forEach(cloudEventIndex::remove);
+                throw new DuplicateCloudEventException(cloudEvent.getId(), cloudEvent.getSource(), null);
+            }
+            indexedCloudEvents.add(cloudEventKey);
+        }
+        return indexedCloudEvents;
+    }
+
+    // The cloud events must have been indexed by indexCloudEvents since the index contains their sequence numbers
+    private void addToGlobalEventLog(List<CloudEvent> cloudEvents) {
+        for (CloudEvent cloudEvent : cloudEvents) {
+            globalEventLog.add(cloudEventIndex.get(cloudEventKey(cloudEvent.getId(), cloudEvent.getSource())).sequence, cloudEvent);
+        }
+    }
+
+    private static WriteConditionNotFulfilledException writeConditionNotFulfilled(String streamId, long currentStreamVersion, WriteCondition writeCondition) {
+        return new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+    }
+
+    private static <T> T withLock(Lock lock, Supplier<T> supplier) {
+        lock.lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.unlock();
+        }
     }
 
     private static List<CloudEvent> applyOccurrentCloudEventExtension(Stream<CloudEvent> events, String streamId, long streamVersion) {
         return zip(LongStream.iterate(streamVersion + 1, i -> i + 1).boxed(), events, Pair::new)
-                .map(pair -> modifyCloudEvent(e -> e.withExtension(new OccurrentCloudEventExtension(streamId, streamVersion + pair.t1))).apply(pair.t2))
+                .map(pair -> modifyCloudEvent(e -> e.withExtension(new OccurrentCloudEventExtension(streamId, pair.t1))).apply(pair.t2))
                 .collect(Collectors.toList());
     }
 
@@ -96,7 +270,7 @@ public class InMemoryEventStore implements EventStore, EventStoreOperations {
 
     @Override
     public boolean exists(String streamId) {
-        return state.containsKey(streamId);
+        return withLock(multipleStreamsLock.readLock(), () -> state.containsKey(streamId));
     }
 
     private static boolean isConditionFulfilledBy(WriteCondition writeCondition, long version) {
@@ -114,46 +288,158 @@ public class InMemoryEventStore implements EventStore, EventStoreOperations {
 
     @Override
     public void deleteEventStream(String streamId) {
-        state.remove(streamId);
+        withLock(multipleStreamsLock.readLock(), () -> state.computeIfPresent(streamId, (__, events) -> {
+            for (CloudEvent cloudEvent : events) {
+                EventPosition position = cloudEventIndex.remove(cloudEventKey(cloudEvent.getId(), cloudEvent.getSource()));
+                if (position != null) {
+                    globalEventLog.remove(position.sequence);
+                }
+            }
+            return null;
+        }));
     }
 
     @Override
     public void deleteEvent(String cloudEventId, URI cloudEventSource) {
-        Predicate<CloudEvent> cloudEventMatchesInput = uniqueCloudEvent(cloudEventId, cloudEventSource);
-        String streamId = findStreamIdByCloudEvent(cloudEventMatchesInput).orElse(null);
-
-        if (streamId == null) {
+        Pair<String, URI> cloudEventKey = cloudEventKey(cloudEventId, cloudEventSource);
+        EventPosition position = cloudEventIndex.get(cloudEventKey);
+        if (position == null) {
             return;
         }
 
-        state.computeIfPresent(streamId, (__, events) -> {
-            List<CloudEvent> newEvents = events.stream().filter(cloudEventMatchesInput.negate()).collect(Collectors.toList());
-            if (newEvents.isEmpty()) {
+        withLock(multipleStreamsLock.readLock(), () -> state.computeIfPresent(position.streamId, (__, events) -> {
+            int index = indexOfCloudEvent(events, cloudEventKey, position);
+            if (index < 0) {
+                return events;
+            }
+            cloudEventIndex.remove(cloudEventKey, position);
+            globalEventLog.remove(position.sequence);
+            if (events.size() == 1) {
                 return null;
             }
-            return newEvents;
-        });
+            return events.delete(index);
+        }));
     }
 
     @Override
     public Optional<CloudEvent> updateEvent(String cloudEventId, URI cloudEventSource, Function<CloudEvent, CloudEvent> updateFunction) {
         requireNonNull(updateFunction, "Update function cannot be null");
 
-        Predicate<CloudEvent> cloudEventPredicate = uniqueCloudEvent(cloudEventId, cloudEventSource);
-        return findStreamIdByCloudEvent(cloudEventPredicate)
-                .map(streamId -> state.computeIfPresent(streamId, (__, events) ->
-                        events.stream().map(cloudEvent -> {
-                            if (cloudEventPredicate.test(cloudEvent)) {
-                                CloudEvent updatedCloudEvent = updateFunction.apply(cloudEvent);
-                                if (updatedCloudEvent == null) {
-                                    throw new IllegalArgumentException("It's not allowed to return a null CloudEvent from the update function.");
-                                }
-                                return updatedCloudEvent;
-                            } else {
-                                return cloudEvent;
-                            }
-                        }).collect(Collectors.toList())))
-                .flatMap(events -> events.stream().filter(cloudEventPredicate).findFirst());
+        Pair<String, URI> cloudEventKey = cloudEventKey(cloudEventId, cloudEventSource);
+        EventPosition position = cloudEventIndex.get(cloudEventKey);
+        if (position == null) {
+            return Optional.empty();
+        }
+
+        AtomicReference<CloudEvent> result = new AtomicReference<>();
+        withLock(multipleStreamsLock.readLock(), () -> state.computeIfPresent(position.streamId, (__, events) -> {
+            int index = indexOfCloudEvent(events, cloudEventKey, position);
+            if (index < 0) {
+                return events;
+            }
+            CloudEvent updatedCloudEvent = updateFunction.apply(events.get(index));
+            if (updatedCloudEvent == null) {
+                throw new IllegalArgumentException("It's not allowed to return a null CloudEvent from the update function.");
+            }
+            Pair<String, URI> updatedCloudEventKey = cloudEventKey(updatedCloudEvent.getId(), updatedCloudEvent.getSource());
+            if (!updatedCloudEventKey.equals(cloudEventKey)) {
+                if (cloudEventIndex.putIfAbsent(updatedCloudEventKey, position) != null) {
+                    throw new DuplicateCloudEventException(updatedCloudEvent.getId(), updatedCloudEvent.getSource(), null);
+                }
+                cloudEventIndex.remove(cloudEventKey, position);
+            }
+            globalEventLog.replace(position.sequence, updatedCloudEvent);
+            result.set(updatedCloudEvent);
+            return events.replace(index, updatedCloudEvent);
+        }));
+        return Optional.ofNullable(result.get());
+    }
+
+    @Override
+    public Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy) {
+        return globalEventLog.query(filter, sortBy, null)
+                .map(sequencedCloudEvent -> sequencedCloudEvent.cloudEvent)
+                .skip(skip)
+                .limit(limit);
+    }
+
+    @Override
+    public EventPage queryPage(Filter filter, int limit, SortBy sortBy, String continuationToken) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        }
+
+        // Read one more event than the limit to find out if there's a next page
+        List<SequencedCloudEvent> events = globalEventLog.query(filter, sortBy, GlobalEventLog.continueAfter(sortBy, continuationToken))
+                .limit(limit == Integer.MAX_VALUE ? limit : limit + 1)
+                .collect(Collectors.toList());
+
+        final List<SequencedCloudEvent> eventsInPage;
+        final String nextContinuationToken;
+        if (events.size() > limit) {
+            eventsInPage = events.subList(0, limit);
+            nextContinuationToken = GlobalEventLog.continuationToken(sortBy, eventsInPage.get(limit - 1).sortKey());
+        } else {
+            eventsInPage = events;
+            nextContinuationToken = null;
+        }
+        return new EventPage(eventsInPage.stream().map(sequencedCloudEvent -> sequencedCloudEvent.cloudEvent).collect(Collectors.toList()), nextContinuationToken);
+    }
+
+    @Override
+    public Stream<CloudEventView> queryViews(Filter filter, Set<String> attributes, int skip, int limit, SortBy sortBy) {
+        requireNonNull(attributes, "Attributes cannot be null");
+        if (attributes.isEmpty()) {
+            throw new IllegalArgumentException("Attributes cannot be empty");
+        }
+        for (String attribute : attributes) {
+            if (Filter.DATA.equals(attribute) || "data_base64".equals(attribute) || "_id".equals(attribute)) {
+                throw new IllegalArgumentException("Attribute " + attribute + " cannot be included in a " + CloudEventView.class.getSimpleName());
+            }
+        }
+        return query(filter, skip, limit, sortBy).map(cloudEvent -> toCloudEventView(cloudEvent, attributes));
+    }
+
+    /**
+     * Aggregate the events matching the supplied {@code filter} in memory, see {@link CloudEventAggregator}.
+     *
+     * @param filter  The filter to apply
+     * @param groupBy The attributes to group the events by. If empty, all events matching the filter are aggregated into a single group.
+     * @return The {@link AggregatedGroup}'s sorted by count in descending order
+     */
+    @Override
+    public Stream<AggregatedGroup> aggregate(Filter filter, List<GroupBy> groupBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        return CloudEventAggregator.aggregate(query(filter), groupBy).stream();
+    }
+
+    @Override
+    public long count(Filter filter) {
+        return globalEventLog.count(filter);
+    }
+
+    // Cloud events without the attribute are not included in the view (just as in MongoDB)
+    private static CloudEventView toCloudEventView(CloudEvent cloudEvent, Set<String> attributes) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String attribute : attributes) {
+            final Object value;
+            switch (attribute) {
+                case Filter.SOURCE:
+                    value = cloudEvent.getSource();
+                    break;
+                case Filter.DATA_SCHEMA:
+                    value = cloudEvent.getDataSchema();
+                    break;
+                default:
+                    value = FilterEvaluator.attributeValue(cloudEvent, attribute);
+            }
+            if (value != null) {
+                values.put(attribute, value);
+            }
+        }
+        return new CloudEventView(values);
     }
 
     private static class EventStreamImpl implements EventStream<CloudEvent> {
@@ -223,11 +509,47 @@ public class InMemoryEventStore implements EventStore, EventStoreOperations {
         return e -> e.getId().equals(cloudEventId) && e.getSource().equals(cloudEventSource);
     }
 
-    private Optional<String> findStreamIdByCloudEvent(Predicate<CloudEvent> predicate) {
-        return state.entrySet().stream()
-                .filter(entry -> entry.getValue().stream().anyMatch(predicate))
-                .map(Entry::getKey)
-                .findFirst();
+    private static Pair<String, URI> cloudEventKey(String cloudEventId, URI cloudEventSource) {
+        requireNonNull(cloudEventId, "CloudEvent id cannot be null");
+        requireNonNull(cloudEventSource, "CloudEvent source cannot be null");
+        return new Pair<>(cloudEventId, cloudEventSource);
+    }
+
+    // The index may contain cloud events that are being written (but not yet added to the stream) so the cloud event at the position must be checked
+    private static int indexOfCloudEvent(List<CloudEvent> events, Pair<String, URI> cloudEventKey, EventPosition position) {
+        int index = indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(events, position.streamVersion);
+        if (index < events.size() && uniqueCloudEvent(cloudEventKey.t1, cloudEventKey.t2).test(events.get(index))) {
+            return index;
+        }
+        return -1;
+    }
+
+    private static class EventPosition {
+        private final String streamId;
+        private final long streamVersion;
+        private final long sequence;
+
+        private EventPosition(String streamId, long streamVersion, long sequence) {
+            this.streamId = streamId;
+            this.streamVersion = streamVersion;
+            this.sequence = sequence;
+        }
+    }
+
+    // The events are ordered by stream version but there may be gaps in the stream versions (if events have been deleted) so we use binary search
+    @SuppressWarnings("ConstantConditions")
+    private static int indexOfFirstEventWithStreamVersionGreaterThanOrEqualTo(List<CloudEvent> events, long streamVersion) {
+        int low = 0;
+        int high = events.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((long) events.get(mid).getExtension(STREAM_VERSION) < streamVersion) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     @SuppressWarnings("ConstantConditions")
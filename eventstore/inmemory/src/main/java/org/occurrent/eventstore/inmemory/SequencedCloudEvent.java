@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.inmemory;
+
+import io.cloudevents.CloudEvent;
+
+import java.util.Objects;
+
+/**
+ * A cloud event and the global sequence number that was assigned to it when it was written to the {@link InMemoryEventStore}.
+ */
+public final class SequencedCloudEvent {
+    public final long sequence;
+    public final CloudEvent cloudEvent;
+
+    SequencedCloudEvent(long sequence, CloudEvent cloudEvent) {
+        this.sequence = sequence;
+        this.cloudEvent = cloudEvent;
+    }
+
+    GlobalEventLog.SortKey sortKey() {
+        return GlobalEventLog.SortKey.of(sequence, cloudEvent);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SequencedCloudEvent)) return false;
+        SequencedCloudEvent that = (SequencedCloudEvent) o;
+        return sequence == that.sequence &&
+                Objects.equals(cloudEvent, that.cloudEvent);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequence, cloudEvent);
+    }
+
+    @Override
+    public String toString() {
+        return "SequencedCloudEvent{" +
+                "sequence=" + sequence +
+                ", cloudEvent=" + cloudEvent +
+                '}';
+    }
+}
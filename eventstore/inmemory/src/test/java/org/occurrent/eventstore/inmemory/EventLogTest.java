@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.inmemory;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventLogTest {
+
+    @Test
+    void appending_events_spanning_several_chunks_keeps_the_order_of_the_events() {
+        // Given
+        List<CloudEvent> events = cloudEvents(0, 1000);
+
+        // When
+        EventLog eventLog = EventLog.empty();
+        for (CloudEvent event : events) {
+            eventLog = eventLog.append(Arrays.asList(event));
+        }
+
+        // Then
+        assertThat(eventLog).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    void snapshot_doesnt_see_events_appended_after_it_was_created() {
+        // Given
+        EventLog snapshot = EventLog.of(cloudEvents(0, 300));
+
+        // When
+        EventLog appended = snapshot.append(cloudEvents(300, 600));
+
+        // Then
+        assertThat(snapshot).containsExactlyElementsOf(cloudEvents(0, 300));
+        assertThat(appended).containsExactlyElementsOf(cloudEvents(0, 600));
+    }
+
+    @Test
+    void appending_to_a_snapshot_that_has_already_been_appended_to_doesnt_overwrite_the_other_events() {
+        // Given
+        EventLog snapshot = EventLog.of(cloudEvents(0, 10));
+        EventLog first = snapshot.append(cloudEvents(10, 20));
+
+        // When
+        EventLog second = snapshot.append(cloudEvents(100, 105));
+
+        // Then
+        assertThat(first).containsExactlyElementsOf(cloudEvents(0, 20));
+        assertThat(second.subList(10, 15)).containsExactlyElementsOf(cloudEvents(100, 105));
+        assertThat(second).hasSize(15);
+    }
+
+    @Test
+    void replacing_an_event_doesnt_change_the_snapshot_or_the_events_appended_to_it() {
+        // Given
+        EventLog snapshot = EventLog.of(cloudEvents(0, 300));
+        EventLog appended = snapshot.append(cloudEvents(300, 310));
+        CloudEvent replacement = cloudEvents(1000, 1001).get(0);
+
+        // When
+        EventLog replaced = snapshot.replace(5, replacement).append(cloudEvents(500, 510));
+
+        // Then
+        assertThat(snapshot).containsExactlyElementsOf(cloudEvents(0, 300));
+        assertThat(appended).containsExactlyElementsOf(cloudEvents(0, 310));
+        List<CloudEvent> expected = new ArrayList<>(cloudEvents(0, 300));
+        expected.set(5, replacement);
+        expected.addAll(cloudEvents(500, 510));
+        assertThat(replaced).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void deleting_an_event_shifts_the_events_after_it_without_changing_the_snapshot() {
+        // Given
+        EventLog snapshot = EventLog.of(cloudEvents(0, 600));
+
+        // When
+        EventLog deleted = snapshot.delete(100).append(cloudEvents(1000, 1001));
+
+        // Then
+        List<CloudEvent> expected = new ArrayList<>(cloudEvents(0, 600));
+        expected.remove(100);
+        expected.addAll(cloudEvents(1000, 1001));
+        assertThat(snapshot).containsExactlyElementsOf(cloudEvents(0, 600));
+        assertThat(deleted).containsExactlyElementsOf(expected);
+    }
+
+    private static List<CloudEvent> cloudEvents(int fromInclusive, int toExclusive) {
+        return IntStream.range(fromInclusive, toExclusive)
+                .mapToObj(i -> CloudEventBuilder.v1().withId(String.valueOf(i)).withSource(URI.create("urn:test")).withType("type").build())
+                .collect(Collectors.toList());
+    }
+}
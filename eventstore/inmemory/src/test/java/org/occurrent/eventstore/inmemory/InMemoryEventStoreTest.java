@@ -30,16 +30,30 @@ import org.occurrent.domain.DomainEvent;
 import org.occurrent.domain.Name;
 import org.occurrent.domain.NameDefined;
 import org.occurrent.domain.NameWasChanged;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.DuplicateCloudEventException;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.GroupBy;
 import org.occurrent.eventstore.api.WriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
 import org.occurrent.eventstore.api.blocking.EventStore;
+import org.occurrent.eventstore.api.blocking.EventStoreQueries;
 import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.filter.Filter;
 
 import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -48,6 +62,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.ZoneOffset.UTC;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
 import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
 import static org.occurrent.condition.Condition.*;
@@ -143,6 +158,267 @@ public class InMemoryEventStoreTest {
         }
     }
 
+    @Nested
+    @DisplayName("read version range")
+    class ReadVersionRange {
+
+        @Test
+        void read_from_version_returns_events_with_stream_version_greater_than_or_equal_to_from_version(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            unconditionallyPersist(inMemoryEventStore, "name", Stream.of(event1, event2, event3));
+
+            // When
+            EventStream<CloudEvent> eventStream = inMemoryEventStore.readFromVersion("name", 2);
+
+            // Then
+            softly.assertThat(eventStream.version()).isEqualTo(3);
+            softly.assertThat(eventStream.events().map(deserialize(objectMapper))).containsExactly(event2, event3);
+        }
+
+        @Test
+        void read_version_range_returns_events_within_range_when_events_have_been_deleted(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            String eventId = UUID.randomUUID().toString();
+            DomainEvent event2 = new NameWasChanged(eventId, now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jennifer Doe");
+            unconditionallyPersist(inMemoryEventStore, "name", Stream.of(event1, event2, event3, event4));
+            inMemoryEventStore.deleteEvent(eventId, URI.create("http://name"));
+
+            // When
+            EventStream<CloudEvent> eventStream = inMemoryEventStore.readVersionRange("name", 2, 3);
+
+            // Then
+            softly.assertThat(eventStream.version()).isEqualTo(4);
+            softly.assertThat(eventStream.events().map(deserialize(objectMapper))).containsExactly(event3);
+        }
+
+        @Test
+        void read_version_range_returns_empty_event_stream_when_stream_does_not_exist(SoftAssertions softly) {
+            // When
+            EventStream<CloudEvent> eventStream = new InMemoryEventStore().readVersionRange("name", 1, 10);
+
+            // Then
+            softly.assertThat(eventStream.version()).isZero();
+            softly.assertThat(eventStream.events()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("aggregation")
+    class Aggregation {
+
+        @Test
+        void aggregate_counts_events_grouped_by_type() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(new NameDefined(UUID.randomUUID().toString(), time, "John Doe"), new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(1), "Jan Doe")));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(new NameDefined(UUID.randomUUID().toString(), time.plusHours(2), "Jane Doe"), new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(3), "Jennifer Doe")));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(4), "Jennie Doe")));
+
+            // When
+            List<AggregatedGroup> groups = inMemoryEventStore.aggregate(Filter.all(), GroupBy.type()).collect(Collectors.toList());
+
+            // Then
+            assertThat(groups).containsExactly(
+                    new AggregatedGroup(Collections.singletonMap("type", NameWasChanged.class.getName()), 3, time.plusHours(1).atOffset(UTC), time.plusHours(4).atOffset(UTC)),
+                    new AggregatedGroup(Collections.singletonMap("type", NameDefined.class.getName()), 2, time.atOffset(UTC), time.plusHours(2).atOffset(UTC)));
+        }
+
+        @Test
+        void aggregate_groups_by_stream_id_and_time_bucket() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            unconditionallyPersist(inMemoryEventStore, "name", Stream.of(new NameDefined(UUID.randomUUID().toString(), time, "John Doe"), new NameWasChanged(UUID.randomUUID().toString(), time.plusMinutes(20), "Jan Doe"),
+                    new NameWasChanged(UUID.randomUUID().toString(), time.plusDays(1), "Jane Doe")));
+
+            // When
+            List<AggregatedGroup> groups = inMemoryEventStore.aggregate(Filter.all(), GroupBy.streamId(), GroupBy.time(GroupBy.TimeBucket.DAY)).collect(Collectors.toList());
+
+            // Then
+            assertThat(groups).extracting(group -> group.group.get(STREAM_ID), group -> group.group.get("time"), group -> group.count).containsExactly(
+                    tuple("name", LocalDateTime.of(2020, 7, 26, 0, 0).atOffset(UTC), 2L),
+                    tuple("name", LocalDateTime.of(2020, 7, 27, 0, 0).atOffset(UTC), 1L));
+        }
+
+        @Test
+        void aggregate_only_includes_events_matching_the_filter() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(new NameDefined(UUID.randomUUID().toString(), time, "John Doe"), new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(1), "Jan Doe")));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(new NameDefined(UUID.randomUUID().toString(), time.plusHours(2), "Jane Doe")));
+
+            // When
+            List<AggregatedGroup> groups = inMemoryEventStore.aggregate(Filter.streamId("name1").and(Filter.time(gt(time.atOffset(UTC))))).collect(Collectors.toList());
+
+            // Then
+            assertThat(groups).containsExactly(new AggregatedGroup(Collections.emptyMap(), 1, time.plusHours(1).atOffset(UTC), time.plusHours(1).atOffset(UTC)));
+        }
+
+    @Nested
+    @DisplayName("queries")
+    class Queries {
+
+        @Test
+        void read_after_global_sequence_returns_events_in_write_order_and_write_listeners_are_notified() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            AtomicInteger notifications = new AtomicInteger();
+            inMemoryEventStore.addWriteListener(notifications::incrementAndGet);
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+
+            // When
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1, event2));
+            long globalSequence = inMemoryEventStore.globalSequence();
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event3));
+
+            // Then
+            assertThat(globalSequence).isEqualTo(2);
+            assertThat(inMemoryEventStore.readAfterGlobalSequence(0).map(e -> e.sequence)).containsExactly(1L, 2L, 3L);
+            assertThat(inMemoryEventStore.readAfterGlobalSequence(globalSequence).map(e -> e.cloudEvent).map(deserialize(objectMapper))).containsExactly(event3);
+            assertThat(notifications).hasValue(2);
+        }
+
+        @Test
+        void query_and_count_by_data() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jan Doe");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1, event2));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event3));
+
+            // When
+            Stream<CloudEvent> events = inMemoryEventStore.query(Filter.data("name", eq("Jan Doe")));
+
+            // Then
+            assertThat(events.map(deserialize(objectMapper))).containsExactly(event2, event3);
+            assertThat(inMemoryEventStore.count(Filter.data("name", ne("Jan Doe")))).isEqualTo(1);
+        }
+
+        @Test
+        void query_by_type_sorted_by_time_descending_with_skip_and_limit() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), time, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(1), "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(3), "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(2), "Jennifer Doe");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1, event2));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event3, event4));
+
+            // When
+            Stream<CloudEvent> events = inMemoryEventStore.query(Filter.type(NameWasChanged.class.getName()), 1, 2, EventStoreQueries.SortBy.TIME_DESC);
+
+            // Then
+            assertThat(events.map(deserialize(objectMapper))).containsExactly(event4, event2);
+        }
+
+        @Test
+        void query_combines_indexed_and_non_indexed_conditions() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), time, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(1), "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), time.plusHours(2), "Jane Doe");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1, event2));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event3));
+
+            // When
+            Filter filter = Filter.time(and(gte(time.plusHours(1).atOffset(UTC)), lt(time.plusHours(3).atOffset(UTC))))
+                    .and(Filter.subject("Jane Doe").or(Filter.id(event2.getEventId())));
+            List<CloudEvent> events = inMemoryEventStore.query(filter, EventStoreQueries.SortBy.NATURAL_DESC).collect(Collectors.toList());
+
+            // Then
+            assertThat(events.stream().map(deserialize(objectMapper))).containsExactly(event3, event2);
+            assertThat(inMemoryEventStore.count(filter)).isEqualTo(2);
+        }
+
+        @Test
+        void queries_reflect_deleted_and_updated_events(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1, event2));
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event3));
+
+            // When
+            inMemoryEventStore.deleteEventStream("name2");
+            inMemoryEventStore.updateEvent(event2.getEventId(), NAME_SOURCE, cloudEvent -> CloudEventBuilder.v1(cloudEvent).withType("Updated").build());
+
+            // Then
+            softly.assertThat(inMemoryEventStore.count()).isEqualTo(2);
+            softly.assertThat(inMemoryEventStore.count(Filter.type(NameWasChanged.class.getName()))).isZero();
+            softly.assertThat(inMemoryEventStore.query(Filter.type("Updated")).map(CloudEvent::getId)).containsExactly(event2.getEventId());
+            softly.assertThat(inMemoryEventStore.query(Filter.streamId("name2"))).isEmpty();
+        }
+
+        @Test
+        void query_page_returns_all_events_sorted_by_time_in_pages() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), time.plusHours(2), "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), time, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(1), "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), time, "Jennifer Doe");
+            DomainEvent event5 = new NameWasChanged(UUID.randomUUID().toString(), time.plusHours(3), "Jennie Doe");
+            unconditionallyPersist(inMemoryEventStore, "name", Stream.of(event1, event2, event3, event4, event5));
+
+            // When
+            EventPage page1 = inMemoryEventStore.queryPage(Filter.all(), 2, EventStoreQueries.SortBy.TIME_ASC);
+            EventPage page2 = inMemoryEventStore.queryPage(Filter.all(), 2, EventStoreQueries.SortBy.TIME_ASC, page1.continuationToken);
+            EventPage page3 = inMemoryEventStore.queryPage(Filter.all(), 2, EventStoreQueries.SortBy.TIME_ASC, page2.continuationToken);
+
+            // Then
+            assertThat(page1.events.stream().map(deserialize(objectMapper))).containsExactly(event2, event4);
+            assertThat(page2.events.stream().map(deserialize(objectMapper))).containsExactly(event3, event1);
+            assertThat(page3.events.stream().map(deserialize(objectMapper))).containsExactly(event5);
+            assertThat(page3.hasNext()).isFalse();
+            assertThat(catchThrowable(() -> inMemoryEventStore.queryPage(Filter.all(), 2, EventStoreQueries.SortBy.NATURAL_ASC, page1.continuationToken))).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void query_views_only_contains_the_requested_attributes() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            DomainEvent event = new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe");
+            unconditionallyPersist(inMemoryEventStore, "name", Stream.of(event));
+
+            // When
+            List<CloudEventView> views = inMemoryEventStore.queryViews(Filter.all(), new HashSet<>(Arrays.asList("id", "source", STREAM_VERSION))).collect(Collectors.toList());
+
+            // Then
+            assertThat(views).containsExactly(new CloudEventView(new HashMap<String, Object>() {{
+                put("id", event.getEventId());
+                put("source", NAME_SOURCE);
+                put(STREAM_VERSION, 1L);
+            }}));
+        }
+    }
+    }
+
     @Nested
     @DisplayName("deletion")
     class Deletion {
@@ -190,6 +466,143 @@ public class InMemoryEventStoreTest {
         }
     }
 
+    @Nested
+    @DisplayName("write to multiple event streams")
+    class WriteToMultipleEventStreams {
+
+        @Test
+        void writes_events_to_all_streams_when_all_write_conditions_are_fulfilled(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Smith");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1));
+
+            // When
+            inMemoryEventStore.write(
+                    EventStreamWrite.write("name1", streamVersionEq(1), Stream.of(event2).map(convertDomainEventToCloudEvent(objectMapper))),
+                    EventStreamWrite.write("name2", streamVersionEq(0), Stream.of(event3).map(convertDomainEventToCloudEvent(objectMapper))),
+                    EventStreamWrite.write("name2", streamVersionEq(1), Stream.of(event4).map(convertDomainEventToCloudEvent(objectMapper)))
+            );
+
+            // Then
+            EventStream<CloudEvent> eventStream1 = inMemoryEventStore.read("name1");
+            EventStream<CloudEvent> eventStream2 = inMemoryEventStore.read("name2");
+            softly.assertThat(eventStream1.version()).isEqualTo(2);
+            softly.assertThat(eventStream1.events().map(deserialize(objectMapper))).containsExactly(event1, event2);
+            softly.assertThat(eventStream2.version()).isEqualTo(2);
+            softly.assertThat(eventStream2.events().map(deserialize(objectMapper))).containsExactly(event3, event4);
+        }
+
+        @Test
+        void writes_no_events_and_reports_each_write_condition_that_is_not_fulfilled(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Smith");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1));
+
+            // When
+            Throwable throwable = catchThrowable(() -> inMemoryEventStore.write(
+                    EventStreamWrite.write("name1", streamVersionEq(0), Stream.of(event2).map(convertDomainEventToCloudEvent(objectMapper))),
+                    EventStreamWrite.write("name2", streamVersionEq(0), Stream.of(event3).map(convertDomainEventToCloudEvent(objectMapper))),
+                    EventStreamWrite.write("name3", streamVersionEq(2), Stream.of(event4).map(convertDomainEventToCloudEvent(objectMapper)))
+            ));
+
+            // Then
+            softly.assertThat(throwable).isExactlyInstanceOf(WriteConditionsNotFulfilledException.class);
+            softly.assertThat(((WriteConditionsNotFulfilledException) throwable).writeConditionNotFulfilledExceptions)
+                    .extracting(e -> e.eventStreamId, e -> e.eventStreamVersion)
+                    .containsExactly(tuple("name1", 1L), tuple("name3", 0L));
+            softly.assertThat(inMemoryEventStore.read("name1").events().map(deserialize(objectMapper))).containsExactly(event1);
+            softly.assertThat(inMemoryEventStore.exists("name2")).isFalse();
+            softly.assertThat(inMemoryEventStore.exists("name3")).isFalse();
+        }
+
+        @Test
+        void cloud_events_of_a_failed_write_can_be_written_again(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            CloudEvent cloudEvent = convertDomainEventToCloudEvent(objectMapper).apply(new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe"));
+            CloudEvent v03CloudEvent = CloudEventBuilder.v03().withId(UUID.randomUUID().toString()).withSource(NAME_SOURCE).withType("type").build();
+            Throwable throwable = catchThrowable(() -> inMemoryEventStore.write(
+                    EventStreamWrite.write("name1", streamVersionEq(0), Stream.of(cloudEvent)),
+                    EventStreamWrite.write("name2", streamVersionEq(0), Stream.of(v03CloudEvent))
+            ));
+
+            // When
+            inMemoryEventStore.write("name1", Stream.of(cloudEvent));
+
+            // Then
+            softly.assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class);
+            softly.assertThat(inMemoryEventStore.read("name1").events().map(CloudEvent::getId)).containsExactly(cloudEvent.getId());
+            softly.assertThat(inMemoryEventStore.exists("name2")).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("duplicate cloud events")
+    class DuplicateCloudEvents {
+
+        @Test
+        void writing_cloud_event_with_same_id_and_source_as_existing_cloud_event_throws_duplicate_cloud_event_exception(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            LocalDateTime now = LocalDateTime.now();
+            String eventId = UUID.randomUUID().toString();
+            DomainEvent event1 = new NameDefined(eventId, now, "John Doe");
+            DomainEvent event2 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event1));
+
+            // When
+            Throwable throwable = catchThrowable(() -> unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event2, new NameWasChanged(eventId, now, "Jan Doe"))));
+
+            // Then
+            softly.assertThat(throwable).isExactlyInstanceOf(DuplicateCloudEventException.class);
+            softly.assertThat(((DuplicateCloudEventException) throwable).getId()).isEqualTo(eventId);
+            softly.assertThat(inMemoryEventStore.exists("name2")).isFalse();
+            // The rejected write didn't index event2 so it can still be written
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event2));
+            softly.assertThat(inMemoryEventStore.read("name2").events().map(deserialize(objectMapper))).containsExactly(event2);
+        }
+
+        @Test
+        void cloud_event_can_be_written_again_after_its_event_stream_has_been_deleted() {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            DomainEvent event = new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe");
+            unconditionallyPersist(inMemoryEventStore, "name1", Stream.of(event));
+            inMemoryEventStore.deleteEventStream("name1");
+
+            // When
+            unconditionallyPersist(inMemoryEventStore, "name2", Stream.of(event));
+
+            // Then
+            assertThat(inMemoryEventStore.read("name2").events().map(deserialize(objectMapper))).containsExactly(event);
+        }
+
+        @Test
+        void updated_cloud_event_is_found_by_its_new_id(SoftAssertions softly) {
+            // Given
+            InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+            String eventId = UUID.randomUUID().toString();
+            unconditionallyPersist(inMemoryEventStore, "name", Stream.of(new NameDefined(eventId, LocalDateTime.now(), "John Doe")));
+
+            // When
+            inMemoryEventStore.updateEvent(eventId, NAME_SOURCE, cloudEvent -> CloudEventBuilder.v1(cloudEvent).withId("newId").build());
+
+            // Then
+            softly.assertThat(inMemoryEventStore.updateEvent(eventId, NAME_SOURCE, Function.identity())).isEmpty();
+            softly.assertThat(inMemoryEventStore.updateEvent("newId", NAME_SOURCE, Function.identity())).hasValueSatisfying(cloudEvent -> assertThat(cloudEvent.getId()).isEqualTo("newId"));
+        }
+    }
+
     @Nested
     @DisplayName("Conditionally Write to InMemory Event Store")
     class ConditionallyWriteToInMemoryEventStore {
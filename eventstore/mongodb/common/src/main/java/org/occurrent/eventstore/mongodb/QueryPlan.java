@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb;
+
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Describes how MongoDB executes the query of a {@code Filter} against the event collection, as reported by the {@code explain} command.
+ * Use it to find queries that scan the entire event collection and add indexes for them.
+ */
+public class QueryPlan {
+    /**
+     * The MongoDB query (as JSON) that the filter was converted to
+     */
+    public final String query;
+    /**
+     * {@code true} if MongoDB scans the entire event collection to answer the query, {@code false} otherwise
+     */
+    public final boolean collectionScan;
+    /**
+     * The names of the indexes used by the query
+     */
+    public final Set<String> indexNames;
+    /**
+     * The winning plan returned by the {@code explain} command
+     */
+    public final Document winningPlan;
+
+    public QueryPlan(String query, boolean collectionScan, Set<String> indexNames, Document winningPlan) {
+        requireNonNull(query, "Query cannot be null");
+        requireNonNull(indexNames, "Index names cannot be null");
+        requireNonNull(winningPlan, "Winning plan cannot be null");
+        this.query = query;
+        this.collectionScan = collectionScan;
+        this.indexNames = Collections.unmodifiableSet(new LinkedHashSet<>(indexNames));
+        this.winningPlan = winningPlan;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QueryPlan)) return false;
+        QueryPlan queryPlan = (QueryPlan) o;
+        return collectionScan == queryPlan.collectionScan &&
+                Objects.equals(query, queryPlan.query) &&
+                Objects.equals(indexNames, queryPlan.indexNames) &&
+                Objects.equals(winningPlan, queryPlan.winningPlan);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, collectionScan, indexNames, winningPlan);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlan{" +
+                "query='" + query + '\'' +
+                ", collectionScan=" + collectionScan +
+                ", indexNames=" + indexNames +
+                ", winningPlan=" + winningPlan +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.GroupBy;
+import org.occurrent.eventstore.api.GroupBy.TimeBucket;
+import org.occurrent.filter.Filter;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates the MongoDB aggregation pipeline used to aggregate events (see {@link GroupBy}) and converts the result into {@link AggregatedGroup}'s.
+ */
+public class AggregationPipeline {
+    private static final String ID = "_id";
+    private static final String COUNT = "count";
+    private static final String MIN_TIME = "minTime";
+    private static final String MAX_TIME = "maxTime";
+    private static final String TIME_FIELD = "$" + Filter.TIME;
+
+    /**
+     * @param timeRepresentation The time representation used by the event store
+     * @param query              The query (converted from a {@link Filter}) that selects the events to aggregate
+     * @param groupBy            The attributes to group by
+     * @return The aggregation pipeline
+     */
+    public static List<Bson> pipeline(TimeRepresentation timeRepresentation, Bson query, List<GroupBy> groupBy) {
+        requireNonNull(timeRepresentation, TimeRepresentation.class.getSimpleName() + " cannot be null");
+        requireNonNull(query, "Query cannot be null");
+        requireNonNull(groupBy, GroupBy.class.getSimpleName() + " cannot be null");
+
+        // Group keys are named by index since attribute names may contain characters that are not allowed in field names
+        Document groupId = new Document();
+        for (int i = 0; i < groupBy.size(); i++) {
+            GroupBy by = groupBy.get(i);
+            groupId.append(groupKey(i), by.timeBucket == null ? "$" + by.attribute : timeBucket(timeRepresentation, by.timeBucket));
+        }
+
+        Object time = timeAsDate(timeRepresentation);
+        Document group = new Document(ID, groupId)
+                .append(COUNT, new Document("$sum", 1))
+                .append(MIN_TIME, new Document("$min", time))
+                .append(MAX_TIME, new Document("$max", time));
+
+        return asList(new Document("$match", query), new Document("$group", group), new Document("$sort", new Document(COUNT, -1)));
+    }
+
+    /**
+     * @param groupBy  The attributes that was used to create the {@link #pipeline(TimeRepresentation, Bson, List)}
+     * @param document A document returned by the aggregation pipeline
+     * @return The {@link AggregatedGroup} of the document
+     */
+    public static AggregatedGroup convertToAggregatedGroup(List<GroupBy> groupBy, Document document) {
+        Document groupId = document.get(ID, Document.class);
+        Map<String, Object> group = new LinkedHashMap<>();
+        for (int i = 0; i < groupBy.size(); i++) {
+            GroupBy by = groupBy.get(i);
+            Object value = groupId == null ? null : groupId.get(groupKey(i));
+            if (value == null) {
+                group.put(by.attribute, null);
+            } else if (by.timeBucket != null) {
+                group.put(by.attribute, OffsetDateTime.parse((String) value));
+            } else if (Filter.SOURCE.equals(by.attribute)) {
+                group.put(by.attribute, URI.create((String) value));
+            } else {
+                group.put(by.attribute, value);
+            }
+        }
+        long count = ((Number) document.get(COUNT)).longValue();
+        return new AggregatedGroup(group, count, toOffsetDateTime(document.get(MIN_TIME)), toOffsetDateTime(document.get(MAX_TIME)));
+    }
+
+    private static String groupKey(int index) {
+        return "g" + index;
+    }
+
+    private static Object timeAsDate(TimeRepresentation timeRepresentation) {
+        switch (timeRepresentation) {
+            case DATE:
+                return TIME_FIELD;
+            case RFC_3339_STRING:
+                return new Document("$dateFromString", new Document("dateString", TIME_FIELD).append("onNull", null));
+            default:
+                throw new IllegalStateException("Unexpected value: " + timeRepresentation);
+        }
+    }
+
+    private static Document timeBucket(TimeRepresentation timeRepresentation, TimeBucket timeBucket) {
+        final String format;
+        switch (timeBucket) {
+            case MINUTE:
+                format = "%Y-%m-%dT%H:%M:00Z";
+                break;
+            case HOUR:
+                format = "%Y-%m-%dT%H:00:00Z";
+                break;
+            case DAY:
+                format = "%Y-%m-%dT00:00:00Z";
+                break;
+            case MONTH:
+                format = "%Y-%m-01T00:00:00Z";
+                break;
+            case YEAR:
+                format = "%Y-01-01T00:00:00Z";
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + timeBucket);
+        }
+        return new Document("$dateToString", new Document("format", format).append("date", timeAsDate(timeRepresentation)));
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Object date) {
+        return date == null ? null : OffsetDateTime.ofInstant(((Date) date).toInstant(), UTC);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.occurrent.eventstore.api.CloudEventView;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+
+/**
+ * Maps projected MongoDB documents into {@link CloudEventView}'s
+ */
+public class CloudEventViewMapper {
+    private static final String ID = "_id";
+
+    /**
+     * @param attributes The cloud event attributes and extensions to include
+     * @return A projection document that only includes the supplied {@code attributes}
+     * @throws IllegalArgumentException If {@code attributes} is empty or contains the data
+     */
+    public static Document projection(Set<String> attributes) {
+        requireNonNull(attributes, "Attributes cannot be null");
+        if (attributes.isEmpty()) {
+            throw new IllegalArgumentException("Attributes cannot be empty");
+        }
+        Document projection = new Document();
+        for (String attribute : attributes) {
+            if ("data".equals(attribute) || "data_base64".equals(attribute) || ID.equals(attribute)) {
+                throw new IllegalArgumentException("Attribute " + attribute + " cannot be included in a " + CloudEventView.class.getSimpleName());
+            }
+            projection.append(attribute, 1);
+        }
+        return projection.append(ID, 0);
+    }
+
+    /**
+     * @param document A document that has been projected using {@link #projection(Set)}
+     * @return A {@link CloudEventView} of the document
+     */
+    public static CloudEventView convertToCloudEventView(Document document) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if (ID.equals(name)) {
+                continue;
+            } else if (value == null) {
+                attributes.put(name, null);
+                continue;
+            }
+
+            switch (name) {
+                case "source":
+                case "dataschema":
+                    attributes.put(name, URI.create((String) value));
+                    break;
+                case "time":
+                    attributes.put(name, OccurrentCloudEventBsonDecoder.toOffsetDateTime(value));
+                    break;
+                case STREAM_VERSION:
+                    attributes.put(name, ((Number) value).longValue());
+                    break;
+                case "id":
+                case "type":
+                case "subject":
+                case "datacontenttype":
+                case "specversion":
+                    attributes.put(name, value);
+                    break;
+                default:
+                    attributes.put(name, OccurrentCloudEventBsonDecoder.toExtensionValue(value));
+            }
+        }
+        return new CloudEventView(attributes);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Support for keyset pagination of events stored in MongoDB. Events are sorted by the document id, or by time and document id, and the sort key of
+ * the last event in a page is encoded in an opaque continuation token. The next page is found by a range query on the sort key, which (contrary to
+ * {@code skip}) doesn't need to traverse the documents of the previous pages.
+ * <p>
+ * The {@code sortBy} parameters are the names of the {@code SortBy} enums of the blocking and reactor {@code EventStoreQueries}.
+ * </p>
+ */
+public class KeysetPagination {
+    private static final String ID = "_id";
+    private static final String TIME = "time";
+
+    private static final String TOKEN_SORT_BY = "s";
+    private static final String TOKEN_TIME = "t";
+    private static final String TOKEN_ID = "i";
+
+    private static final String TIME_ASC = "TIME_ASC";
+    private static final String TIME_DESC = "TIME_DESC";
+    private static final String NATURAL_ASC = "NATURAL_ASC";
+    private static final String NATURAL_DESC = "NATURAL_DESC";
+
+    /**
+     * @return The sort document to use for the supplied {@code sortBy}. The document id is always included so that the sort order is total.
+     */
+    public static Document sort(String sortBy) {
+        int direction = isAscending(sortBy) ? 1 : -1;
+        Document sort = new Document();
+        if (isSortedByTime(sortBy)) {
+            sort.append(TIME, direction);
+        }
+        return sort.append(ID, direction);
+    }
+
+    /**
+     * @return A query that matches all documents after the document that the {@code continuationToken} was created from (in {@code sortBy} order),
+     * or an empty document if {@code continuationToken} is {@code null}.
+     * @throws IllegalArgumentException If the continuation token is invalid or was created for another {@code sortBy}.
+     */
+    public static Document continueAfter(String sortBy, String continuationToken) {
+        requireValidSortBy(sortBy);
+        if (continuationToken == null) {
+            return new Document();
+        }
+
+        Document token = decode(continuationToken);
+        if (!sortBy.equals(token.getString(TOKEN_SORT_BY))) {
+            throw new IllegalArgumentException("Continuation token was created for " + token.getString(TOKEN_SORT_BY) + " and cannot be used for " + sortBy);
+        }
+
+        Object id = token.get(TOKEN_ID);
+        String comparison = isAscending(sortBy) ? "$gt" : "$lt";
+        if (!isSortedByTime(sortBy)) {
+            return new Document(ID, new Document(comparison, id));
+        }
+
+        // Documents without time are sorted before all other documents in ascending order (and after all other documents in descending order)
+        Object time = token.get(TOKEN_TIME);
+        Document sameTimeAndGreaterId = new Document(TIME, time).append(ID, new Document(comparison, id));
+        if (time == null && isAscending(sortBy)) {
+            return new Document("$or", Arrays.asList(sameTimeAndGreaterId, new Document(TIME, new Document("$ne", null))));
+        } else if (time == null) {
+            return sameTimeAndGreaterId;
+        } else if (isAscending(sortBy)) {
+            return new Document("$or", Arrays.asList(new Document(TIME, new Document(comparison, time)), sameTimeAndGreaterId));
+        } else {
+            return new Document("$or", Arrays.asList(new Document(TIME, new Document(comparison, time)), sameTimeAndGreaterId, new Document(TIME, null)));
+        }
+    }
+
+    /**
+     * Create a continuation token from the last document in a page.
+     *
+     * @param sortBy The sort order of the page
+     * @param time   The value of the "time" field of the last document (may be {@code null}). Can be either a java value or a {@code BsonValue}.
+     * @param id     The value of the "_id" field of the last document. Can be either a java value or a {@code BsonValue}.
+     * @return An opaque continuation token
+     */
+    public static String continuationToken(String sortBy, Object time, Object id) {
+        requireValidSortBy(sortBy);
+        requireNonNull(id, "id cannot be null");
+        Document token = new Document(TOKEN_SORT_BY, sortBy).append(TOKEN_ID, id);
+        if (isSortedByTime(sortBy)) {
+            token.append(TOKEN_TIME, time);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toJson().getBytes(UTF_8));
+    }
+
+    private static Document decode(String continuationToken) {
+        try {
+            Document token = Document.parse(new String(Base64.getUrlDecoder().decode(continuationToken), UTF_8));
+            if (!token.containsKey(TOKEN_SORT_BY) || !token.containsKey(TOKEN_ID)) {
+                throw new IllegalArgumentException("Invalid continuation token: " + continuationToken);
+            }
+            return token;
+        } catch (IllegalArgumentException | JsonParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+    }
+
+    private static boolean isSortedByTime(String sortBy) {
+        return requireValidSortBy(sortBy).startsWith("TIME");
+    }
+
+    private static boolean isAscending(String sortBy) {
+        return requireValidSortBy(sortBy).endsWith("ASC");
+    }
+
+    private static String requireValidSortBy(String sortBy) {
+        requireNonNull(sortBy, "sortBy cannot be null");
+        switch (sortBy) {
+            case TIME_ASC:
+            case TIME_DESC:
+            case NATURAL_ASC:
+            case NATURAL_DESC:
+                return sortBy;
+            default:
+                throw new IllegalArgumentException("Unexpected value: " + sortBy);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits the documents returned by a single query for multiple event streams into one group of documents per event stream.
+ */
+public class MultipleEventStreamsReader {
+
+    /**
+     * The (streamid, streamversion) index is defined as (ascending, descending) so the index can be traversed backwards
+     * to return the events of each stream in stream version order without an in-memory sort.
+     */
+    public static final Document SORT_BY_STREAM_ID_AND_STREAM_VERSION = new Document(OccurrentCloudEventExtension.STREAM_ID, -1).append(OccurrentCloudEventExtension.STREAM_VERSION, 1);
+
+    /**
+     * @param streamIds The stream ids to read
+     * @return The distinct stream ids in the same order as {@code streamIds}
+     * @throws NullPointerException if {@code streamIds} or any of the stream ids are {@code null}
+     */
+    public static List<String> distinctStreamIds(Collection<String> streamIds) {
+        requireNonNull(streamIds, "Stream ids cannot be null");
+        LinkedHashSet<String> distinctStreamIds = new LinkedHashSet<>();
+        for (String streamId : streamIds) {
+            distinctStreamIds.add(requireNonNull(streamId, "Stream id cannot be null"));
+        }
+        return new ArrayList<>(distinctStreamIds);
+    }
+
+    /**
+     * Group documents, sorted by stream id and stream version, into event streams.
+     *
+     * @param streamIds       The distinct stream ids that were read. The returned event streams are in the same order.
+     * @param documents       The documents sorted by stream id and stream version
+     * @param streamIdOf      Function that returns the stream id of a document
+     * @param streamVersionOf Function that returns the stream version of a document
+     * @param eventStream     Function that creates the event stream from the stream id, the stream version and the documents of the stream
+     * @param <T>             The type of the documents
+     * @param <S>             The type of the event stream
+     * @return One event stream per stream id. The version of an event stream is the stream version of its last document, or {@code 0} if the event stream doesn't exist.
+     */
+    public static <T, S> List<S> groupByStreamId(List<String> streamIds, Iterable<T> documents, Function<T, String> streamIdOf, ToLongFunction<T> streamVersionOf,
+                                                EventStreamFactory<T, S> eventStream) {
+        Map<String, List<T>> documentsByStreamId = new LinkedHashMap<>();
+        streamIds.forEach(streamId -> documentsByStreamId.put(streamId, new ArrayList<>()));
+        for (T document : documents) {
+            List<T> documentsInStream = documentsByStreamId.get(streamIdOf.apply(document));
+            if (documentsInStream != null) {
+                documentsInStream.add(document);
+            }
+        }
+
+        List<S> eventStreams = new ArrayList<>(documentsByStreamId.size());
+        documentsByStreamId.forEach((streamId, documentsInStream) -> {
+            long version = documentsInStream.isEmpty() ? 0 : streamVersionOf.applyAsLong(documentsInStream.get(documentsInStream.size() - 1));
+            eventStreams.add(eventStream.create(streamId, version, documentsInStream));
+        });
+        return eventStreams;
+    }
+
+    @FunctionalInterface
+    public interface EventStreamFactory<T, S> {
+        S create(String streamId, long version, List<T> documents);
+    }
+}
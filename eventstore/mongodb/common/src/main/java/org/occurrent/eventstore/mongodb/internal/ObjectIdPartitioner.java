@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the events in an event collection into ranges of {@code _id}'s ({@link ObjectId}'s) so that each range can be read
+ * by a separate cursor. The ranges are based on the timestamp of the {@link ObjectId}'s which means that the ranges are evenly
+ * distributed in (insertion) time, not necessarily in number of events.
+ */
+public class ObjectIdPartitioner {
+    private static final String ID = "_id";
+
+    /**
+     * @param minId      The smallest {@code _id} in the collection or {@code null} if the collection is empty
+     * @param maxId      The largest {@code _id} in the collection or {@code null} if the collection is empty
+     * @param partitions The (maximum) number of partitions
+     * @return A list of queries, one for each partition, that together cover all possible {@code _id}'s (including events that are
+     * inserted after the partitions have been calculated). The partitions are sorted in {@code _id} order.
+     */
+    public static List<Document> partitions(ObjectId minId, ObjectId maxId, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be greater than zero");
+        }
+
+        List<ObjectId> boundaries = new ArrayList<>();
+        if (minId != null && maxId != null && partitions > 1) {
+            long minTimestamp = Integer.toUnsignedLong(minId.getTimestamp());
+            long maxTimestamp = Integer.toUnsignedLong(maxId.getTimestamp());
+            long range = maxTimestamp - minTimestamp + 1;
+            long previousBoundary = minTimestamp;
+            for (int i = 1; i < partitions; i++) {
+                long boundary = minTimestamp + range * i / partitions;
+                if (boundary > previousBoundary) {
+                    boundaries.add(objectIdWithTimestamp(boundary));
+                    previousBoundary = boundary;
+                }
+            }
+        }
+
+        List<Document> queries = new ArrayList<>(boundaries.size() + 1);
+        if (boundaries.isEmpty()) {
+            queries.add(new Document());
+            return queries;
+        }
+
+        queries.add(new Document(ID, new Document("$lt", boundaries.get(0))));
+        for (int i = 1; i < boundaries.size(); i++) {
+            queries.add(new Document(ID, new Document("$gte", boundaries.get(i - 1)).append("$lt", boundaries.get(i))));
+        }
+        queries.add(new Document(ID, new Document("$gte", boundaries.get(boundaries.size() - 1))));
+        return queries;
+    }
+
+    // The smallest possible ObjectId with the given timestamp (in seconds)
+    private static ObjectId objectIdWithTimestamp(long timestamp) {
+        return new ObjectId(ByteBuffer.allocate(12).putInt((int) timestamp).array());
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.types.Time;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+
+/**
+ * Creates a {@link CloudEvent} directly from the values of a MongoDB {@link Document} without first converting the
+ * document into JSON and deserializing the JSON with the cloud events {@code JsonFormat}.
+ * <p>
+ * The resulting cloud event is equal to what was produced when the document was converted into JSON (using {@code Document.toJson()})
+ * and deserialized by the cloud events Jackson {@code JsonFormat}. For example is JSON data converted into compact JSON and
+ * extensions that are neither strings, numbers nor booleans are represented as JSON strings.
+ * </p>
+ */
+public class OccurrentCloudEventBsonDecoder {
+    private static final String ID = "_id";
+    private static final String SPEC_VERSION = "specversion";
+    private static final String TIME = "time";
+    private static final String DATA_CONTENT_TYPE = "datacontenttype";
+    private static final String DATA_CONTENT_ENCODING = "datacontentencoding";
+    private static final String DATA = "data";
+    private static final String DATA_BASE64 = "data_base64";
+    private static final String BASE64 = "base64";
+
+    /**
+     * Create a {@link CloudEvent} from the supplied {@code document}. The returned cloud event is always of spec version 1.0.
+     *
+     * @param timeRepresentation The way that "time" is represented in the document
+     * @param document           The document to convert
+     * @return A {@link CloudEvent} with the Occurrent extensions.
+     */
+    public static CloudEvent decode(TimeRepresentation timeRepresentation, Document document) {
+        SpecVersion specVersion = SpecVersion.parse(requireString(document, SPEC_VERSION));
+        CloudEventBuilder builder = CloudEventBuilder.fromSpecVersion(specVersion);
+        Set<String> attributeNames = specVersion.getAllAttributes();
+
+        Object data = null;
+        boolean hasData = false;
+        Object dataBase64 = null;
+        String dataContentEncoding = null;
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            switch (name) {
+                case ID:
+                case SPEC_VERSION:
+                    break;
+                case DATA:
+                    data = value;
+                    hasData = true;
+                    break;
+                case DATA_BASE64:
+                    dataBase64 = value;
+                    break;
+                case DATA_CONTENT_ENCODING:
+                    if (specVersion == SpecVersion.V03) {
+                        dataContentEncoding = requireStringValue(name, value);
+                    } else {
+                        setExtension(builder, name, value);
+                    }
+                    break;
+                case TIME:
+                    builder.withTime(toOffsetDateTime(value));
+                    break;
+                default:
+                    if (attributeNames.contains(name)) {
+                        builder.setAttribute(name, requireStringValue(name, value));
+                    } else {
+                        setExtension(builder, name, value);
+                    }
+            }
+        }
+
+        byte[] dataBytes = toData(specVersion, document.getString(DATA_CONTENT_TYPE), dataContentEncoding, hasData, data, dataBase64);
+        if (dataBytes != null) {
+            builder.withData(dataBytes);
+        }
+
+        if (specVersion != SpecVersion.V1) {
+            builder = CloudEventBuilder.v1(builder.build());
+        }
+
+        // The stream version is always represented as a long (even though it may fit in an int)
+        Object streamVersion = document.get(STREAM_VERSION);
+        return builder.withExtension(STREAM_VERSION, streamVersion == null ? null : ((Number) streamVersion).longValue()).build();
+    }
+
+    private static byte[] convertDataToBytes(String dataContentType, Object data) {
+        final String dataAsString;
+        if (isJsonContentType(dataContentType)) {
+            dataAsString = JacksonCompatibleJsonWriter.toJson(data);
+        } else if (data instanceof String) {
+            dataAsString = (String) data;
+        } else {
+            throw new IllegalArgumentException("Wrong type for attribute data. Because content type is not a json, only a string is accepted as data");
+        }
+        return dataAsString.getBytes(UTF_8);
+    }
+
+    private static void setExtension(CloudEventBuilder builder, String name, Object value) {
+        Object extensionValue = toExtensionValue(value);
+        if (extensionValue instanceof String) {
+            builder.withExtension(name, (String) extensionValue);
+        } else if (extensionValue instanceof Boolean) {
+            builder.withExtension(name, (Boolean) extensionValue);
+        } else {
+            builder.withExtension(name, (Number) extensionValue);
+        }
+    }
+
+    /**
+     * Convert a value (as decoded by the {@code DocumentCodec} or a {@link BsonValue}) into a cloud event extension value,
+     * i.e. a {@code String}, {@code Boolean} or {@code Number}.
+     */
+    static Object toExtensionValue(Object bsonOrJavaValue) {
+        Object value = toJavaValue(bsonOrJavaValue);
+        if (value instanceof String || value instanceof Boolean || value instanceof Integer) {
+            return value;
+        } else if (value instanceof Double && isFinite((Double) value)) {
+            return value;
+        } else if (value instanceof Long) {
+            // A long that fits in an int is represented as an int in JSON
+            long longValue = (Long) value;
+            return longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE ? (Number) (int) longValue : (Number) longValue;
+        } else {
+            return JacksonCompatibleJsonWriter.toJson(value);
+        }
+    }
+
+    /**
+     * Convert the {@code data} field into the bytes of the cloud event.
+     */
+    static byte[] toData(SpecVersion specVersion, String dataContentType, String dataContentEncoding, boolean hasData, Object data, Object dataBase64) {
+        if (hasData && dataBase64 != null) {
+            throw new IllegalArgumentException("CloudEvent cannot have both 'data' and 'data_base64' fields");
+        } else if (dataBase64 != null) {
+            return Base64.getDecoder().decode(requireStringValue(DATA_BASE64, toJavaValue(dataBase64)));
+        } else if (hasData && specVersion == SpecVersion.V03 && BASE64.equals(dataContentEncoding)) {
+            return Base64.getDecoder().decode(requireStringValue(DATA, toJavaValue(data)));
+        } else if (hasData) {
+            return convertDataToBytes(dataContentType, toJavaValue(data));
+        }
+        return null;
+    }
+
+    static OffsetDateTime toOffsetDateTime(Object bsonOrJavaValue) {
+        Object time = toJavaValue(bsonOrJavaValue);
+        // Be a bit nice and don't enforce a Date or String here in case the TimeRepresentation has been changed
+        if (time instanceof Date) {
+            return OffsetDateTime.ofInstant(((Date) time).toInstant(), UTC);
+        }
+        return Time.parseTime(requireStringValue(TIME, time));
+    }
+
+    // Convert "simple" bson values into the same java types as the DocumentCodec. Documents and arrays are kept since they are maps and lists.
+    private static Object toJavaValue(Object value) {
+        if (!(value instanceof BsonValue)) {
+            return value;
+        }
+        BsonValue bsonValue = (BsonValue) value;
+        switch (bsonValue.getBsonType()) {
+            case STRING:
+                return bsonValue.asString().getValue();
+            case INT32:
+                return bsonValue.asInt32().getValue();
+            case INT64:
+                return bsonValue.asInt64().getValue();
+            case DOUBLE:
+                return bsonValue.asDouble().getValue();
+            case BOOLEAN:
+                return bsonValue.asBoolean().getValue();
+            case DATE_TIME:
+                return new Date(bsonValue.asDateTime().getValue());
+            case NULL:
+                return null;
+            default:
+                return bsonValue;
+        }
+    }
+
+    // Non-finite doubles are represented using extended JSON ({"$numberDouble": "NaN"})
+    private static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    // Same rules as in the cloud events JsonFormat
+    static boolean isJsonContentType(String contentType) {
+        return contentType == null || contentType.startsWith("application/json") || contentType.startsWith("text/json");
+    }
+
+    private static String requireString(Document document, String name) {
+        Object value = document.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing mandatory " + name + " attribute");
+        }
+        return requireStringValue(name, value);
+    }
+
+    private static String requireStringValue(String name, Object value) {
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Wrong type for attribute " + name + ", expecting a string but was " + (value == null ? "null" : value.getClass().getSimpleName()) + ".");
+        }
+        return (String) value;
+    }
+
+    /**
+     * Writes values decoded by the {@code DocumentCodec} as compact JSON using the same formatting as Jackson.
+     * Values that don't have a JSON representation (such as {@code ObjectId}) are written using relaxed extended JSON.
+     */
+    static class JacksonCompatibleJsonWriter {
+        private static final char[] HEX_CHARS = "0123456789ABCDEF".toCharArray();
+        private static final String EXTENDED_JSON_PREFIX = "{\"v\": ";
+
+        static String toJson(Object value) {
+            StringBuilder sb = new StringBuilder(128);
+            write(sb, value);
+            return sb.toString();
+        }
+
+        private static void write(StringBuilder sb, Object bsonOrJavaValue) {
+            Object value = toJavaValue(bsonOrJavaValue);
+            if (value == null) {
+                sb.append("null");
+            } else if (value instanceof String) {
+                writeString(sb, (String) value);
+            } else if (value instanceof Map) {
+                sb.append('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    first = false;
+                    writeString(sb, String.valueOf(entry.getKey()));
+                    sb.append(':');
+                    write(sb, entry.getValue());
+                }
+                sb.append('}');
+            } else if (value instanceof List) {
+                sb.append('[');
+                boolean first = true;
+                for (Object element : (List<?>) value) {
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    first = false;
+                    write(sb, element);
+                }
+                sb.append(']');
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+                sb.append(value);
+            } else if (value instanceof Double && isFinite((Double) value)) {
+                sb.append(value);
+            } else {
+                writeExtendedJson(sb, value);
+            }
+        }
+
+        private static void writeExtendedJson(StringBuilder sb, Object value) {
+            String json = new Document("v", value).toJson();
+            // Remove the wrapping document and the whitespace that is added by the bson JsonWriter
+            String valueJson = json.substring(EXTENDED_JSON_PREFIX.length(), json.length() - 1);
+            boolean inString = false;
+            for (int i = 0; i < valueJson.length(); i++) {
+                char c = valueJson.charAt(i);
+                if (inString) {
+                    sb.append(c);
+                    if (c == '\\') {
+                        sb.append(valueJson.charAt(++i));
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                    sb.append(c);
+                } else if (!Character.isWhitespace(c)) {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private static void writeString(StringBuilder sb, String value) {
+            sb.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        sb.append("\\\"");
+                        break;
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\b':
+                        sb.append("\\b");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    case '\f':
+                        sb.append("\\f");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append("\\u00").append(HEX_CHARS[c >> 4]).append(HEX_CHARS[c & 0xF]);
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.core.impl.CloudEventUtils;
+import io.cloudevents.rw.CloudEventAttributesWriter;
+import io.cloudevents.rw.CloudEventExtensionsWriter;
+import io.cloudevents.rw.CloudEventReader;
+import io.cloudevents.types.Time;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonReader;
+import org.bson.types.ObjectId;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
+
+/**
+ * Writes a {@link CloudEvent} (and the Occurrent extensions) directly to a {@link BsonWriter} without first serializing the
+ * cloud event to JSON and parsing the JSON into a {@code Document}.
+ * <p>
+ * The produced BSON is identical (including field order and value types) to what was produced when the cloud event
+ * was serialized using the cloud events Jackson {@code JsonFormat} and then parsed using {@code Document.parse(..)}.
+ * This means that documents written by the encoder are compatible with documents that are already persisted.
+ * </p>
+ */
+public class OccurrentCloudEventBsonEncoder {
+    private static final String SPEC_VERSION = "specversion";
+    private static final String TIME = "time";
+    private static final String DATA = "data";
+    private static final String DATA_BASE64 = "data_base64";
+    private static final String DATA_CONTENT_ENCODING = "datacontentencoding";
+    private static final String BASE64 = "base64";
+    private static final String ID = "_id";
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+
+    /**
+     * Encode the {@code cloudEvent} into a {@link RawBsonDocument} that can be inserted as is into MongoDB
+     * (for example by using {@code mongoCollection.withDocumentClass(RawBsonDocument.class)}).
+     *
+     * @param timeRepresentation How the "time" attribute should be represented in the database
+     * @param streamId           The id of the stream that the cloud event belongs to
+     * @param streamVersion      The stream version of the cloud event (-1 means that the stream version is not written)
+     * @param cloudEvent         The cloud event to encode
+     * @param generateId         {@code true} if an {@code _id} ({@link ObjectId}) should be generated as the first field of the document,
+     *                           this is what the MongoDB driver does when a {@code Document} without {@code _id} is inserted.
+     * @return A {@link RawBsonDocument} containing the encoded cloud event.
+     */
+    public static RawBsonDocument encodeToRawBsonDocument(TimeRepresentation timeRepresentation, String streamId, long streamVersion,
+                                                          CloudEvent cloudEvent, boolean generateId) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(INITIAL_BUFFER_SIZE);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            if (generateId) {
+                writer.writeObjectId(ID, new ObjectId());
+            }
+            writeCloudEvent(writer, timeRepresentation, streamId, streamVersion, cloudEvent);
+            writer.writeEndDocument();
+        }
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    /**
+     * Write all fields of the {@code cloudEvent} to the {@code writer}. The start and the end of the document is
+     * expected to be written by the caller.
+     */
+    public static void writeCloudEvent(BsonWriter writer, TimeRepresentation timeRepresentation, String streamId, long streamVersion, CloudEvent cloudEvent) {
+        writer.writeString(SPEC_VERSION, cloudEvent.getSpecVersion().toString());
+
+        CloudEventReader cloudEventReader = CloudEventUtils.toVisitable(cloudEvent);
+        cloudEventReader.readAttributes(new AttributesWriter(writer, timeRepresentation));
+
+        ExtensionsWriter extensionsWriter = new ExtensionsWriter(writer, streamId, streamVersion);
+        cloudEventReader.readExtensions(extensionsWriter);
+
+        writeData(writer, cloudEvent);
+
+        if (!extensionsWriter.streamIdWritten) {
+            writer.writeString(STREAM_ID, streamId);
+        }
+        if (!extensionsWriter.streamVersionWritten && streamVersion != -1) {
+            writer.writeInt64(STREAM_VERSION, streamVersion);
+        }
+    }
+
+    private static void writeData(BsonWriter writer, CloudEvent cloudEvent) {
+        byte[] data = cloudEvent.getData();
+        if (data == null) {
+            return;
+        }
+
+        if (isJsonContentType(cloudEvent.getDataContentType())) {
+            writer.writeName(DATA);
+            writeJson(writer, new String(data, UTF_8));
+        } else if (cloudEvent.getSpecVersion() == SpecVersion.V03) {
+            writer.writeString(DATA_CONTENT_ENCODING, BASE64);
+            writer.writeString(DATA, Base64.getEncoder().encodeToString(data));
+        } else {
+            writer.writeString(DATA_BASE64, Base64.getEncoder().encodeToString(data));
+        }
+    }
+
+    // Same rules as in the cloud events JsonFormat
+    private static boolean isJsonContentType(String contentType) {
+        return contentType == null || contentType.startsWith("application/json") || contentType.startsWith("text/json");
+    }
+
+    // Pipe the JSON value into the writer using the same reader as "Document.parse" in order to get the same BSON types
+    private static void writeJson(BsonWriter writer, String json) {
+        JsonReader jsonReader = new JsonReader("{\"v\":" + json + "}");
+        jsonReader.readStartDocument();
+        jsonReader.readName();
+        if (jsonReader.getCurrentBsonType() == BsonType.DOCUMENT) {
+            writer.pipe(jsonReader);
+        } else {
+            BsonValue value = BSON_VALUE_CODEC.decode(jsonReader, DecoderContext.builder().build());
+            BSON_VALUE_CODEC.encode(writer, value, EncoderContext.builder().build());
+        }
+    }
+
+    private static class AttributesWriter implements CloudEventAttributesWriter {
+        private final BsonWriter writer;
+        private final TimeRepresentation timeRepresentation;
+
+        private AttributesWriter(BsonWriter writer, TimeRepresentation timeRepresentation) {
+            this.writer = writer;
+            this.timeRepresentation = timeRepresentation;
+        }
+
+        @Override
+        public void setAttribute(String name, String value) {
+            writer.writeString(name, value);
+        }
+
+        @Override
+        public void setAttribute(String name, URI value) {
+            writer.writeString(name, value.toString());
+        }
+
+        @Override
+        public void setAttribute(String name, OffsetDateTime value) {
+            if (TIME.equals(name) && timeRepresentation == DATE) {
+                // Write as date in order to be able to perform date/time queries on the "time" property name
+                writer.writeDateTime(name, toEpochMillisInUTC(value));
+            } else {
+                writer.writeString(name, Time.writeTime(value));
+            }
+        }
+    }
+
+    private static class ExtensionsWriter implements CloudEventExtensionsWriter {
+        private final BsonWriter writer;
+        private final String streamId;
+        private final long streamVersion;
+        private boolean streamIdWritten;
+        private boolean streamVersionWritten;
+
+        private ExtensionsWriter(BsonWriter writer, String streamId, long streamVersion) {
+            this.writer = writer;
+            this.streamId = streamId;
+            this.streamVersion = streamVersion;
+        }
+
+        @Override
+        public void setExtension(String name, String value) {
+            if (writeOccurrentExtension(name)) {
+                return;
+            }
+            writer.writeString(name, value);
+        }
+
+        @Override
+        public void setExtension(String name, Number value) {
+            if (writeOccurrentExtension(name)) {
+                return;
+            }
+
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                writer.writeInt32(name, value.intValue());
+            } else if (value instanceof Long) {
+                writeIntegral(name, value.longValue());
+            } else if (value instanceof Double) {
+                writeFloatingPoint(name, value.doubleValue(), value.toString());
+            } else if (value instanceof Float) {
+                writeFloatingPoint(name, Double.parseDouble(value.toString()), value.toString());
+            } else {
+                writer.writeName(name);
+                writeJson(writer, value.toString());
+            }
+        }
+
+        @Override
+        public void setExtension(String name, Boolean value) {
+            if (writeOccurrentExtension(name)) {
+                return;
+            }
+            writer.writeBoolean(name, value);
+        }
+
+        private void writeIntegral(String name, long value) {
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                writer.writeInt32(name, (int) value);
+            } else {
+                writer.writeInt64(name, value);
+            }
+        }
+
+        private void writeFloatingPoint(String name, double value, String valueAsString) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                // Jackson writes non-finite numbers as strings
+                writer.writeString(name, valueAsString);
+            } else {
+                writer.writeDouble(name, value);
+            }
+        }
+
+        // The Occurrent extensions are overwritten (in place) by the stream id and stream version supplied to the encoder
+        private boolean writeOccurrentExtension(String name) {
+            if (STREAM_ID.equals(name)) {
+                writer.writeString(STREAM_ID, streamId);
+                streamIdWritten = true;
+                return true;
+            } else if (STREAM_VERSION.equals(name) && streamVersion != -1) {
+                writer.writeInt64(STREAM_VERSION, streamVersion);
+                streamVersionWritten = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static long toEpochMillisInUTC(OffsetDateTime time) {
+        if (!time.truncatedTo(MILLIS).equals(time)) {
+            throw new IllegalArgumentException("The " + OffsetDateTime.class.getSimpleName() + " in the CloudEvent time field contains micro-/nanoseconds. " +
+                    "This is is not possible to represent when using " + TimeRepresentation.class.getSimpleName() + " " + DATE.name() +
+                    ", either change to " + TimeRepresentation.class.getSimpleName() + " " + RFC_3339_STRING.name() +
+                    " or remove micro-/nanoseconds using \"offsetDateTime.truncatedTo(ChronoUnit.MILLIS)\".");
+        } else if (!time.equals(time.withOffsetSameInstant(UTC))) {
+            throw new IllegalArgumentException("The " + OffsetDateTime.class.getSimpleName() + " in the CloudEvent time field is not defined in UTC. " +
+                    TimeRepresentation.class.getSimpleName() + " " + DATE.name() + " require UTC as timezone to not loose precision. " +
+                    "Either change to " + TimeRepresentation.class.getSimpleName() + " " + RFC_3339_STRING.name() +
+                    " or convert the " + OffsetDateTime.class.getSimpleName() + " to UTC using e.g. \"offsetDateTime.withOffsetSameInstant(ZoneOffset.UTC)\".");
+        }
+        return time.toInstant().toEpochMilli();
+    }
+}
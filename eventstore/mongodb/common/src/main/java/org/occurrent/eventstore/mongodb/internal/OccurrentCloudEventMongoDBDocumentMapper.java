@@ -17,77 +17,31 @@
 package org.occurrent.eventstore.mongodb.internal;
 
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.builder.CloudEventBuilder;
-import io.cloudevents.core.format.EventFormat;
 import org.bson.Document;
-import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 
-import java.time.OffsetDateTime;
-import java.util.Date;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.time.ZoneOffset.UTC;
-import static java.time.temporal.ChronoUnit.MILLIS;
-import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
-import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
-import static org.occurrent.time.internal.RFC3339.RFC_3339_DATE_TIME_FORMATTER;
-
 /**
  * Class responsible for converting a {@link CloudEvent} (that contains the Occurrent extensions)
  * into a MongoDB {@link Document} and vice versa.
+ * <p>
+ * Use {@link #convertToRawBsonDocument(TimeRepresentation, String, long, CloudEvent)} when inserting new cloud events since this
+ * avoids converting the cloud event into an intermediate {@link Document} altogether.
+ * </p>
  */
 public class OccurrentCloudEventMongoDBDocumentMapper {
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
 
-    public static Document convertToDocument(EventFormat eventFormat, TimeRepresentation timeRepresentation,
-                                             String streamId, long streamVersion, CloudEvent cloudEvent) {
-        byte[] bytes = eventFormat.serialize(cloudEvent);
-        String serializedAsString = new String(bytes, UTF_8);
-        Document cloudEventDocument = Document.parse(serializedAsString);
-        cloudEventDocument.put(OccurrentCloudEventExtension.STREAM_ID, streamId);
-        // TODO Remove once refactoring is complete
-        if (streamVersion != -1) {
-            cloudEventDocument.put(OccurrentCloudEventExtension.STREAM_VERSION, streamVersion);
-        }
-
-        if (timeRepresentation == DATE && cloudEvent.getTime() != null) {
-            OffsetDateTime time = cloudEvent.getTime();
-            if (!time.truncatedTo(MILLIS).equals(time)) {
-                throw new IllegalArgumentException("The " + OffsetDateTime.class.getSimpleName() + " in the CloudEvent time field contains micro-/nanoseconds. " +
-                        "This is is not possible to represent when using " + TimeRepresentation.class.getSimpleName() + " " + DATE.name() +
-                        ", either change to " + TimeRepresentation.class.getSimpleName() + " " + RFC_3339_STRING.name() +
-                        " or remove micro-/nanoseconds using \"offsetDateTime.truncatedTo(ChronoUnit.MILLIS)\".");
-            } else if (!time.equals(time.withOffsetSameInstant(UTC))) {
-                throw new IllegalArgumentException("The " + OffsetDateTime.class.getSimpleName() + " in the CloudEvent time field is not defined in UTC. " +
-                        TimeRepresentation.class.getSimpleName() + " " + DATE.name() + " require UTC as timezone to not loose precision. " +
-                        "Either change to " + TimeRepresentation.class.getSimpleName() + " " + RFC_3339_STRING.name() +
-                        " or convert the " + OffsetDateTime.class.getSimpleName() + " to UTC using e.g. \"offsetDateTime.withOffsetSameInstant(ZoneOffset.UTC)\".");
-            }
-
-            // Convert date string to a date in order to be able to perform date/time queries on the "time" property name
-            Date date = Date.from(time.toInstant());
-            cloudEventDocument.put("time", date);
-        }
-
-        return cloudEventDocument;
+    public static Document convertToDocument(TimeRepresentation timeRepresentation, String streamId, long streamVersion, CloudEvent cloudEvent) {
+        return OccurrentCloudEventBsonEncoder.encodeToRawBsonDocument(timeRepresentation, streamId, streamVersion, cloudEvent, false).decode(DOCUMENT_CODEC);
     }
 
-    public static CloudEvent convertToCloudEvent(EventFormat eventFormat, TimeRepresentation timeRepresentation, Document cloudEventDocument) {
-        Document document = new Document(cloudEventDocument);
-        document.remove("_id");
+    public static RawBsonDocument convertToRawBsonDocument(TimeRepresentation timeRepresentation, String streamId, long streamVersion, CloudEvent cloudEvent) {
+        return OccurrentCloudEventBsonEncoder.encodeToRawBsonDocument(timeRepresentation, streamId, streamVersion, cloudEvent, true);
+    }
 
-        if (timeRepresentation == DATE) {
-            Object time = document.get("time"); // Be a bit nice and don't enforce Date here if TimeRepresentation has been changed
-            if (time instanceof Date) {
-                Date timeAsDate = (Date) time;
-                OffsetDateTime offsetDateTime = OffsetDateTime.ofInstant(timeAsDate.toInstant(), UTC);
-                String format = RFC_3339_DATE_TIME_FORMATTER.format(offsetDateTime);
-                document.put("time", format);
-            }
-        }
-        String eventJsonString = document.toJson();
-        byte[] eventJsonBytes = eventJsonString.getBytes(UTF_8);
-        // When converting to JSON (document.toJson()) the stream version is interpreted as an int in Jackson, we convert it manually to long afterwards.
-        return CloudEventBuilder.v1(eventFormat.deserialize(eventJsonBytes)).withExtension(OccurrentCloudEventExtension.STREAM_VERSION, document.getLong(OccurrentCloudEventExtension.STREAM_VERSION)).build();
+    public static CloudEvent convertToCloudEvent(TimeRepresentation timeRepresentation, Document cloudEventDocument) {
+        return OccurrentCloudEventBsonDecoder.decode(timeRepresentation, cloudEventDocument);
     }
-}
\ No newline at end of file
+}
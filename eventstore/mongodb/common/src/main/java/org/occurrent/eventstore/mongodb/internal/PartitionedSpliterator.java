@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Spliterator} that reads a number of partitions in order. Each partition is read (and its cursor opened) lazily by a {@link Stream}
+ * when it's first advanced. The spliterator is split on partition boundaries which allows a parallel {@link Stream} to read the partitions
+ * concurrently, one cursor per partition.
+ * <p>
+ * Call {@link #close()} (for example from {@link Stream#onClose(Runnable)}) to close the partitions that have not been fully consumed.
+ * </p>
+ */
+public class PartitionedSpliterator<T> implements Spliterator<T>, AutoCloseable {
+    private final List<Supplier<Stream<T>>> partitions;
+    private final List<Stream<T>> openedStreams;
+    private int from;
+    private int to;
+    private Stream<T> currentStream;
+    private Spliterator<T> current;
+
+    public PartitionedSpliterator(List<Supplier<Stream<T>>> partitions) {
+        this(requireNonNull(partitions, "Partitions cannot be null"), Collections.synchronizedList(new ArrayList<>()), 0, partitions.size());
+    }
+
+    private PartitionedSpliterator(List<Supplier<Stream<T>>> partitions, List<Stream<T>> openedStreams, int from, int to) {
+        this.partitions = partitions;
+        this.openedStreams = openedStreams;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (true) {
+            if (current == null) {
+                if (from >= to) {
+                    return false;
+                }
+                currentStream = partitions.get(from++).get();
+                openedStreams.add(currentStream);
+                current = currentStream.spliterator();
+            }
+
+            if (current.tryAdvance(action)) {
+                return true;
+            }
+
+            currentStream.close();
+            openedStreams.remove(currentStream);
+            currentStream = null;
+            current = null;
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // The returned spliterator covers the prefix, i.e. the partition currently being read (if any) and the first half of the remaining partitions
+        int remaining = to - from;
+        if (remaining == 0 || (remaining == 1 && current == null)) {
+            return null;
+        }
+        int mid = from + remaining / 2;
+        PartitionedSpliterator<T> prefix = new PartitionedSpliterator<>(partitions, openedStreams, from, mid);
+        prefix.currentStream = currentStream;
+        prefix.current = current;
+        currentStream = null;
+        current = null;
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    @Override
+    public void close() {
+        synchronized (openedStreams) {
+            openedStreams.forEach(Stream::close);
+            openedStreams.clear();
+        }
+    }
+}
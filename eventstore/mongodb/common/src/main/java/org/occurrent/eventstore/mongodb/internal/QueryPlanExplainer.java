@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.occurrent.eventstore.mongodb.QueryPlan;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates the {@code explain} command for a query against the event collection and converts the result to a {@link QueryPlan}.
+ */
+public class QueryPlanExplainer {
+    private static final String COLLECTION_SCAN_STAGE = "COLLSCAN";
+
+    /**
+     * @param collectionName The name of the event collection
+     * @param query          The query to explain
+     * @return The {@code explain} command that returns the query plan (without executing the query)
+     */
+    public static Document explainCommand(String collectionName, Bson query) {
+        requireNonNull(collectionName, "Collection name cannot be null");
+        requireNonNull(query, "Query cannot be null");
+        return new Document("explain", new Document("find", collectionName).append("filter", toBsonDocument(query))).append("verbosity", "queryPlanner");
+    }
+
+    /**
+     * @param query         The query that was explained
+     * @param explainResult The result of the command returned by {@link #explainCommand(String, Bson)}
+     * @return The {@link QueryPlan} of the winning plan
+     */
+    public static QueryPlan toQueryPlan(Bson query, Document explainResult) {
+        requireNonNull(query, "Query cannot be null");
+        requireNonNull(explainResult, "Explain result cannot be null");
+        Document queryPlanner = explainResult.get("queryPlanner", Document.class);
+        if (queryPlanner == null) {
+            throw new IllegalArgumentException("Explain result doesn't contain a query planner: " + explainResult.toJson());
+        }
+        Document winningPlan = queryPlanner.get("winningPlan", Document.class);
+        Set<String> indexNames = new LinkedHashSet<>();
+        boolean collectionScan = traverse(winningPlan, indexNames);
+        return new QueryPlan(toBsonDocument(query).toJson(), collectionScan, indexNames, winningPlan);
+    }
+
+    // The stages are nested in "inputStage", "inputStages" and (for sharded clusters) "shards" so all values are traversed
+    private static boolean traverse(Object value, Set<String> indexNames) {
+        boolean collectionScan = false;
+        if (value instanceof Document) {
+            Document stage = (Document) value;
+            if (COLLECTION_SCAN_STAGE.equals(stage.get("stage"))) {
+                collectionScan = true;
+            }
+            Object indexName = stage.get("indexName");
+            if (indexName instanceof String) {
+                indexNames.add((String) indexName);
+            }
+            for (Object nested : stage.values()) {
+                collectionScan |= traverse(nested, indexNames);
+            }
+        } else if (value instanceof List) {
+            for (Object nested : (List<?>) value) {
+                collectionScan |= traverse(nested, indexNames);
+            }
+        }
+        return collectionScan;
+    }
+
+    private static BsonDocument toBsonDocument(Bson query) {
+        return query.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
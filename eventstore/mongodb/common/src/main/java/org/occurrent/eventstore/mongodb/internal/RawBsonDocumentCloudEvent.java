@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.SpecVersion;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+
+/**
+ * A {@link CloudEvent} that is backed by a {@link RawBsonDocument} read from MongoDB. Attributes, extensions and data are
+ * decoded from the raw bytes only when they are accessed (and the data is decoded at most once). This is useful when
+ * consumers only look at a few attributes (such as the type) of each cloud event and discard most of them.
+ * <p>
+ * The values returned by this cloud event are the same as for the cloud event returned by
+ * {@link OccurrentCloudEventBsonDecoder#decode(TimeRepresentation, org.bson.Document)}. {@link #equals(Object)}, {@link #hashCode()}
+ * and {@link #toString()} decodes the entire document and delegates to the fully decoded cloud event. Note that a {@code RawBsonDocumentCloudEvent}
+ * is only equal to other {@code RawBsonDocumentCloudEvent}'s (since other cloud event implementations are not equal to it), use
+ * {@link #toCloudEvent()} to compare it to other cloud events.
+ * </p>
+ */
+public class RawBsonDocumentCloudEvent implements CloudEvent {
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    private static final String ID = "_id";
+    private static final String SPEC_VERSION = "specversion";
+    private static final String DATA = "data";
+    private static final String DATA_BASE64 = "data_base64";
+    private static final String DATA_CONTENT_ENCODING = "datacontentencoding";
+    private static final String SCHEMA_URL = "schemaurl";
+
+    private final RawBsonDocument document;
+    private final TimeRepresentation timeRepresentation;
+
+    private volatile SpecVersion documentSpecVersion;
+    private volatile byte[] data;
+    private volatile boolean dataDecoded;
+    private volatile CloudEvent decodedCloudEvent;
+
+    public RawBsonDocumentCloudEvent(TimeRepresentation timeRepresentation, RawBsonDocument document) {
+        requireNonNull(timeRepresentation, TimeRepresentation.class.getSimpleName() + " cannot be null");
+        requireNonNull(document, RawBsonDocument.class.getSimpleName() + " cannot be null");
+        this.timeRepresentation = timeRepresentation;
+        this.document = document;
+    }
+
+    /**
+     * @return The {@link RawBsonDocument} backing this cloud event
+     */
+    public RawBsonDocument getDocument() {
+        return document;
+    }
+
+    @Override
+    public byte[] getData() {
+        if (!dataDecoded) {
+            SpecVersion specVersion = documentSpecVersion();
+            String dataContentEncoding = specVersion == SpecVersion.V03 ? getString(DATA_CONTENT_ENCODING) : null;
+            data = OccurrentCloudEventBsonDecoder.toData(specVersion, getDataContentType(), dataContentEncoding, document.containsKey(DATA), document.get(DATA), document.get(DATA_BASE64));
+            dataDecoded = true;
+        }
+        return data;
+    }
+
+    /**
+     * The cloud event is always represented as a spec version 1.0 cloud event (just as the cloud events returned by the event store).
+     */
+    @Override
+    public SpecVersion getSpecVersion() {
+        return SpecVersion.V1;
+    }
+
+    @Override
+    public String getId() {
+        return getString("id");
+    }
+
+    @Override
+    public String getType() {
+        return getString("type");
+    }
+
+    @Override
+    public URI getSource() {
+        return toURI(getString("source"));
+    }
+
+    @Override
+    public String getDataContentType() {
+        return getString("datacontenttype");
+    }
+
+    @Override
+    public URI getDataSchema() {
+        return toURI(getString(documentSpecVersion() == SpecVersion.V03 ? SCHEMA_URL : "dataschema"));
+    }
+
+    @Override
+    public String getSubject() {
+        return getString("subject");
+    }
+
+    @Override
+    public OffsetDateTime getTime() {
+        BsonValue time = document.get("time");
+        return time == null ? null : OccurrentCloudEventBsonDecoder.toOffsetDateTime(time);
+    }
+
+    @Override
+    public Object getAttribute(String attributeName) throws IllegalArgumentException {
+        switch (attributeName) {
+            case SPEC_VERSION:
+                return getSpecVersion();
+            case "id":
+                return getId();
+            case "source":
+                return getSource();
+            case "type":
+                return getType();
+            case "datacontenttype":
+                return getDataContentType();
+            case "dataschema":
+                return getDataSchema();
+            case "subject":
+                return getSubject();
+            case "time":
+                return getTime();
+            default:
+                throw new IllegalArgumentException("Spec version v1 doesn't have attribute named " + attributeName);
+        }
+    }
+
+    @Override
+    public Object getExtension(String extensionName) {
+        if (isReservedName(extensionName)) {
+            return null;
+        }
+        BsonValue value = document.get(extensionName);
+        if (STREAM_VERSION.equals(extensionName)) {
+            // The stream version is always represented as a long (even though it may fit in an int)
+            return value == null ? null : value.asNumber().longValue();
+        }
+        return value == null ? null : OccurrentCloudEventBsonDecoder.toExtensionValue(value);
+    }
+
+    @Override
+    public Set<String> getExtensionNames() {
+        Set<String> extensionNames = new LinkedHashSet<>();
+        for (String name : document.keySet()) {
+            if (!isReservedName(name)) {
+                extensionNames.add(name);
+            }
+        }
+        // The stream version extension is always defined (but may be null) for cloud events read from MongoDB
+        extensionNames.add(STREAM_VERSION);
+        return Collections.unmodifiableSet(extensionNames);
+    }
+
+    /**
+     * @return The fully decoded cloud event
+     */
+    public CloudEvent toCloudEvent() {
+        CloudEvent cloudEvent = decodedCloudEvent;
+        if (cloudEvent == null) {
+            cloudEvent = OccurrentCloudEventBsonDecoder.decode(timeRepresentation, document.decode(DOCUMENT_CODEC));
+            decodedCloudEvent = cloudEvent;
+        }
+        return cloudEvent;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RawBsonDocumentCloudEvent)) return false;
+        return toCloudEvent().equals(((RawBsonDocumentCloudEvent) o).toCloudEvent());
+    }
+
+    @Override
+    public int hashCode() {
+        return toCloudEvent().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toCloudEvent().toString();
+    }
+
+    private boolean isReservedName(String name) {
+        return ID.equals(name) || DATA.equals(name) || DATA_BASE64.equals(name)
+                || documentSpecVersion().getAllAttributes().contains(name)
+                || (documentSpecVersion() == SpecVersion.V03 && DATA_CONTENT_ENCODING.equals(name));
+    }
+
+    private SpecVersion documentSpecVersion() {
+        SpecVersion specVersion = documentSpecVersion;
+        if (specVersion == null) {
+            specVersion = SpecVersion.parse(getString(SPEC_VERSION));
+            documentSpecVersion = specVersion;
+        }
+        return specVersion;
+    }
+
+    private String getString(String name) {
+        BsonValue value = document.get(name);
+        return value == null || value.isNull() ? null : value.asString().getValue();
+    }
+
+    private static URI toURI(String value) {
+        return value == null ? null : URI.create(value);
+    }
+}
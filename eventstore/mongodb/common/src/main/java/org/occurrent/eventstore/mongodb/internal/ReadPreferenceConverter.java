@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import com.mongodb.ReadPreference;
+import org.occurrent.eventstore.api.QueryOptions;
+
+/**
+ * Converts a {@link QueryOptions.ReadPreference} into a MongoDB {@link ReadPreference}
+ */
+public class ReadPreferenceConverter {
+
+    public static ReadPreference convertToMongoReadPreference(QueryOptions.ReadPreference readPreference) {
+        if (readPreference == null) {
+            return null;
+        }
+        switch (readPreference) {
+            case PRIMARY:
+                return ReadPreference.primary();
+            case PRIMARY_PREFERRED:
+                return ReadPreference.primaryPreferred();
+            case SECONDARY:
+                return ReadPreference.secondary();
+            case SECONDARY_PREFERRED:
+                return ReadPreference.secondaryPreferred();
+            case NEAREST:
+                return ReadPreference.nearest();
+            default:
+                throw new IllegalStateException("Unexpected value: " + readPreference);
+        }
+    }
+}
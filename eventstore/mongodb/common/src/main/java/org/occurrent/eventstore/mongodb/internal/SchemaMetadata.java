@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.IndexModel;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.mongodb.client.model.Filters.eq;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps track of the schema (collections and indexes) that has been created for an event collection. The event stores write a
+ * schema metadata document (with the event collection name as id) once the collections and indexes have been created, and skip
+ * the initialization on the next startup if the document is still {@link #isCurrent(Document, String) current}.
+ */
+public class SchemaMetadata {
+    /**
+     * The version of the collections and indexes created by the event stores. This must be incremented whenever the event stores
+     * create new collections or indexes.
+     */
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final String ID = "_id";
+    private static final String VERSION = "schemaVersion";
+    private static final String SIGNATURE = "signature";
+    private static final String INITIALIZED_AT = "initializedAt";
+
+    /**
+     * @param collectionNames The names of the collections used by the event store (such as the event collection and the stream head collection), {@code null} for collections that are not used
+     * @param indexes         The additional indexes that are configured for the event collection
+     * @return A string that changes if the collections or the configured indexes are changed
+     */
+    public static String signature(List<String> collectionNames, List<IndexModel> indexes) {
+        requireNonNull(collectionNames, "Collection names cannot be null");
+        requireNonNull(indexes, "Indexes cannot be null");
+        List<String> indexDefinitions = indexes.stream()
+                .map(index -> toBsonDocument(index.getKeys()).toJson() + " " + index.getOptions())
+                .collect(Collectors.toList());
+        return new Document("collections", collectionNames)
+                .append("indexes", indexDefinitions)
+                .toJson();
+    }
+
+    /**
+     * @param eventCollectionName The name of the event collection
+     * @return A query that finds the schema metadata document of the event collection
+     */
+    public static Bson schemaMetadataId(String eventCollectionName) {
+        requireNonNull(eventCollectionName, "Event collection name cannot be null");
+        return eq(ID, eventCollectionName);
+    }
+
+    /**
+     * @param eventCollectionName The name of the event collection
+     * @param signature           The {@link #signature(List, List)} of the initialized schema
+     * @return The schema metadata document to store once the schema has been initialized
+     */
+    public static Document schemaMetadata(String eventCollectionName, String signature) {
+        requireNonNull(eventCollectionName, "Event collection name cannot be null");
+        requireNonNull(signature, "Signature cannot be null");
+        return new Document(ID, eventCollectionName)
+                .append(VERSION, SCHEMA_VERSION)
+                .append(SIGNATURE, signature)
+                .append(INITIALIZED_AT, new Date());
+    }
+
+    /**
+     * @param schemaMetadata The stored schema metadata document (may be {@code null})
+     * @param signature      The {@link #signature(List, List)} of the current configuration
+     * @return {@code true} if the schema has been initialized with the current schema version and signature, {@code false} otherwise.
+     */
+    public static boolean isCurrent(Document schemaMetadata, String signature) {
+        requireNonNull(signature, "Signature cannot be null");
+        return schemaMetadata != null
+                && Objects.equals(schemaMetadata.get(VERSION), SCHEMA_VERSION)
+                && signature.equals(schemaMetadata.getString(SIGNATURE));
+    }
+
+    private static BsonDocument toBsonDocument(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
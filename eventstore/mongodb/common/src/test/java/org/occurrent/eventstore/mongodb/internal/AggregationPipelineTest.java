@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.GroupBy;
+import org.occurrent.eventstore.api.GroupBy.TimeBucket;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
+
+class AggregationPipelineTest {
+
+    @Test
+    void pipeline_matches_groups_and_sorts_by_count() {
+        // Given
+        Document query = new Document("type", "type");
+
+        // When
+        List<Bson> pipeline = AggregationPipeline.pipeline(DATE, query, asList(GroupBy.type(), GroupBy.time(TimeBucket.HOUR)));
+
+        // Then
+        assertThat(pipeline).containsExactly(
+                new Document("$match", query),
+                Document.parse("{ $group : { _id : { g0 : '$type', g1 : { $dateToString : { format : '%Y-%m-%dT%H:00:00Z', date : '$time' } } }, " +
+                        "count : { $sum : 1 }, minTime : { $min : '$time' }, maxTime : { $max : '$time' } } }"),
+                Document.parse("{ $sort : { count : -1 } }"));
+    }
+
+    @Test
+    void pipeline_parses_time_when_time_is_represented_as_rfc_3339_string() {
+        // When
+        List<Bson> pipeline = AggregationPipeline.pipeline(RFC_3339_STRING, new Document(), asList(GroupBy.streamId()));
+
+        // Then
+        Document group = (Document) ((Document) pipeline.get(1)).get("$group");
+        assertThat(group.get("minTime")).isEqualTo(Document.parse("{ $min : { $dateFromString : { dateString : '$time', onNull : null } } }"));
+    }
+
+    @Test
+    void converts_aggregation_result_into_aggregated_group() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3), UTC);
+        Document document = new Document("_id", new Document("g0", "urn:name").append("g1", "2020-07-26T09:00:00Z"))
+                .append("count", 2)
+                .append("minTime", Date.from(time.toInstant()))
+                .append("maxTime", Date.from(time.plusMinutes(2).toInstant()));
+
+        // When
+        AggregatedGroup aggregatedGroup = AggregationPipeline.convertToAggregatedGroup(asList(GroupBy.source(), GroupBy.time(TimeBucket.HOUR)), document);
+
+        // Then
+        Map<String, Object> expectedGroup = new LinkedHashMap<>();
+        expectedGroup.put("source", URI.create("urn:name"));
+        expectedGroup.put("time", time.withMinute(0).withSecond(0));
+        assertThat(aggregatedGroup).isEqualTo(new AggregatedGroup(expectedGroup, 2, time, time.plusMinutes(2)));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.occurrent.eventstore.api.CloudEventView;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
+
+class CloudEventViewMapperTest {
+
+    @Test
+    void projection_includes_requested_attributes_and_excludes_id() {
+        // When
+        Document projection = CloudEventViewMapper.projection(new HashSet<>(asList("id", "type")));
+
+        // Then
+        assertThat(projection).containsEntry("id", 1).containsEntry("type", 1).containsEntry("_id", 0).hasSize(3);
+    }
+
+    @Test
+    void projection_throws_iae_when_data_is_requested() {
+        // When
+        Throwable throwable = catchThrowable(() -> CloudEventViewMapper.projection(new HashSet<>(asList("id", "data_base64"))));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Attribute data_base64 cannot be included in a CloudEventView");
+    }
+
+    @Test
+    void converts_projected_document_into_cloud_event_view() {
+        // Given
+        OffsetDateTime time = OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 123_000000), UTC);
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withTime(time)
+                .withExtension("intext", 2)
+                .withData("text/plain", "hello".getBytes(UTF_8))
+                .build();
+
+        for (Document document : asList(OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 2L, cloudEvent),
+                OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(DATE, "streamId", 2L, cloudEvent))) {
+            document.keySet().retainAll(asList("_id", "id", "source", "time", "intext", STREAM_ID, STREAM_VERSION));
+
+            // When
+            CloudEventView view = CloudEventViewMapper.convertToCloudEventView(document);
+
+            // Then
+            assertAll(
+                    () -> assertThat(view.getId()).isEqualTo("id"),
+                    () -> assertThat(view.getSource()).isEqualTo(URI.create("urn:name")),
+                    () -> assertThat(view.getTime()).isEqualTo(time),
+                    () -> assertThat(view.getType()).isNull(),
+                    () -> assertThat(view.getStreamId()).isEqualTo("streamId"),
+                    () -> assertThat(view.getStreamVersion()).isEqualTo(2L),
+                    () -> assertThat(view.getAttribute("intext")).isEqualTo(2),
+                    () -> assertThat(view.getAttributeNames()).containsExactlyInAnyOrder("id", "source", "time", "intext", STREAM_ID, STREAM_VERSION)
+            );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class KeysetPaginationTest {
+
+    @Test
+    void continue_after_returns_empty_query_when_continuation_token_is_null() {
+        assertThat(KeysetPagination.continueAfter("NATURAL_ASC", null)).isEmpty();
+    }
+
+    @Test
+    void continue_after_returns_id_range_query_for_natural_sort_order() {
+        // Given
+        ObjectId id = new ObjectId();
+        String continuationToken = KeysetPagination.continuationToken("NATURAL_DESC", "2020-07-26T09:13:03Z", id);
+
+        // When
+        Document query = KeysetPagination.continueAfter("NATURAL_DESC", continuationToken);
+
+        // Then
+        assertThat(query).isEqualTo(new Document("_id", new Document("$lt", id)));
+    }
+
+    @Test
+    void continue_after_returns_time_and_id_range_query_for_time_sort_order() {
+        // Given
+        ObjectId id = new ObjectId();
+        Date time = new Date(1595754783223L);
+        String continuationToken = KeysetPagination.continuationToken("TIME_ASC", new BsonDateTime(time.getTime()), new BsonObjectId(id));
+
+        // When
+        Document query = KeysetPagination.continueAfter("TIME_ASC", continuationToken);
+
+        // Then
+        assertThat(query).isEqualTo(new Document("$or", Arrays.asList(
+                new Document("time", new Document("$gt", time)),
+                new Document("time", time).append("_id", new Document("$gt", id)))));
+    }
+
+    @Test
+    void continue_after_throws_iae_when_continuation_token_was_created_for_another_sort_order() {
+        // Given
+        String continuationToken = KeysetPagination.continuationToken("TIME_ASC", "2020-07-26T09:13:03Z", new ObjectId());
+
+        // When
+        Throwable throwable = catchThrowable(() -> KeysetPagination.continueAfter("TIME_DESC", continuationToken));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Continuation token was created for TIME_ASC and cannot be used for TIME_DESC");
+    }
+
+    @Test
+    void continue_after_throws_iae_when_continuation_token_is_invalid() {
+        // When
+        Throwable throwable = catchThrowable(() -> KeysetPagination.continueAfter("TIME_ASC", "invalid"));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Invalid continuation token: invalid");
+    }
+
+    @Test
+    void sort_includes_id_when_sorting_by_time() {
+        assertThat(KeysetPagination.sort("TIME_DESC")).isEqualTo(new Document("time", -1).append("_id", -1));
+    }
+}
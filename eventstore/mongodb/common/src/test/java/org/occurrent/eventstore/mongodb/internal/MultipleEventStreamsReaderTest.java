@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
+import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
+
+class MultipleEventStreamsReaderTest {
+
+    @Test
+    void distinct_stream_ids_removes_duplicates_and_retains_order() {
+        // When
+        List<String> streamIds = MultipleEventStreamsReader.distinctStreamIds(asList("b", "a", "b", "c"));
+
+        // Then
+        assertThat(streamIds).containsExactly("b", "a", "c");
+    }
+
+    @Test
+    void distinct_stream_ids_throws_npe_when_a_stream_id_is_null() {
+        // When
+        Throwable throwable = catchThrowable(() -> MultipleEventStreamsReader.distinctStreamIds(asList("a", null)));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(NullPointerException.class).hasMessage("Stream id cannot be null");
+    }
+
+    @Test
+    void group_by_stream_id_returns_one_event_stream_per_stream_id_in_the_order_of_the_stream_ids() {
+        // Given
+        List<Document> documents = asList(document("b", 1), document("b", 2), document("a", 1), document("a", 2), document("a", 3));
+
+        // When
+        List<TestEventStream> eventStreams = MultipleEventStreamsReader.groupByStreamId(asList("a", "c", "b"), documents, document -> document.getString(STREAM_ID),
+                document -> document.getLong(STREAM_VERSION), TestEventStream::new);
+
+        // Then
+        assertThat(eventStreams).extracting(eventStream -> eventStream.streamId, eventStream -> eventStream.version, eventStream -> eventStream.documents.size())
+                .containsExactly(tuple("a", 3L, 3), tuple("c", 0L, 0), tuple("b", 2L, 2));
+    }
+
+    private static Document document(String streamId, long streamVersion) {
+        return new Document(STREAM_ID, streamId).append(STREAM_VERSION, streamVersion);
+    }
+
+    private static class TestEventStream {
+        private final String streamId;
+        private final long version;
+        private final List<Document> documents;
+
+        private TestEventStream(String streamId, long version, List<Document> documents) {
+            this.streamId = streamId;
+            this.version = version;
+            this.documents = documents;
+        }
+    }
+}
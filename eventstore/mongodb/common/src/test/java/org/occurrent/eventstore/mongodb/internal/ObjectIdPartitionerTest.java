@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ObjectIdPartitionerTest {
+
+    @Test
+    void returns_a_single_partition_matching_everything_when_collection_is_empty() {
+        // When
+        List<Document> partitions = ObjectIdPartitioner.partitions(null, null, 4);
+
+        // Then
+        assertThat(partitions).containsExactly(new Document());
+    }
+
+    @Test
+    void splits_the_timestamp_range_of_the_object_ids_into_adjacent_partitions() {
+        // Given
+        ObjectId minId = new ObjectId(new Date(1_000_000_000L));
+        ObjectId maxId = new ObjectId(new Date(1_000_399_000L));
+
+        // When
+        List<Document> partitions = ObjectIdPartitioner.partitions(minId, maxId, 4);
+
+        // Then
+        assertThat(partitions).hasSize(4);
+        assertThat(boundary(partitions.get(0), "$lt")).isEqualTo(boundary(partitions.get(1), "$gte"));
+        assertThat(boundary(partitions.get(1), "$lt")).isEqualTo(boundary(partitions.get(2), "$gte"));
+        assertThat(boundary(partitions.get(2), "$lt")).isEqualTo(boundary(partitions.get(3), "$gte"));
+        assertThat(boundary(partitions.get(1), "$gte").getTimestamp()).isEqualTo(1_000_100);
+        assertThat(partitions.get(3).get("_id", Document.class)).doesNotContainKey("$lt");
+    }
+
+    @Test
+    void returns_fewer_partitions_when_the_timestamp_range_is_smaller_than_the_number_of_partitions() {
+        // Given
+        ObjectId minId = new ObjectId(new Date(1_000_000_000L));
+        ObjectId maxId = new ObjectId(new Date(1_000_001_000L));
+
+        // When
+        List<Document> partitions = ObjectIdPartitioner.partitions(minId, maxId, 10);
+
+        // Then
+        assertThat(partitions).hasSize(2);
+        assertThat(boundary(partitions.get(0), "$lt").getTimestamp()).isEqualTo(1_000_001);
+    }
+
+    @Test
+    void throws_iae_when_partitions_is_less_than_one() {
+        // When
+        Throwable throwable = catchThrowable(() -> ObjectIdPartitioner.partitions(null, null, 0));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Partitions must be greater than zero");
+    }
+
+    private static ObjectId boundary(Document partition, String operator) {
+        return partition.get("_id", Document.class).get(operator, ObjectId.class);
+    }
+}
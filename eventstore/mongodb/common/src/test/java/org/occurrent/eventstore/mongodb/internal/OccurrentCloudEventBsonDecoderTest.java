@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.core.format.EventFormat;
+import io.cloudevents.core.provider.EventFormatProvider;
+import io.cloudevents.jackson.JsonFormat;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
+import static org.occurrent.time.internal.RFC3339.RFC_3339_DATE_TIME_FORMATTER;
+
+class OccurrentCloudEventBsonDecoderTest {
+
+    private EventFormat eventFormat;
+
+    @BeforeEach
+    void create_event_format() {
+        eventFormat = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
+    }
+
+    @Test
+    void decodes_cloud_event_with_json_data_identically_to_json_deserialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withSubject("subject")
+                .withDataSchema(URI.create("urn:schema"))
+                .withTime(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 123_456_789), ZoneOffset.ofHours(2)))
+                .withData("application/json", ("{\"name\" : \"hello \\\"world\\\" \\\\ \\n\\t\\u0001\", \"age\" : 3000000000, \"small\" : 3, " +
+                        "\"ratio\" : 1.5, \"big\" : 1.0E300, \"tags\" : [\"a\", 2, true, null, {}], \"nested\" : {\"x\" : 1}}").getBytes(UTF_8))
+                .build();
+
+        Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 2L, cloudEvent);
+
+        assertDecodedIdenticallyToJsonDeserialization(document);
+    }
+
+    @Test
+    void decodes_cloud_event_with_non_json_data_identically_to_json_deserialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withData("text/plain", "hello world".getBytes(UTF_8))
+                .build();
+
+        Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 2L, cloudEvent);
+
+        assertDecodedIdenticallyToJsonDeserialization(document);
+    }
+
+    @Test
+    void decodes_v03_cloud_event_identically_to_json_deserialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v03()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withDataSchema(URI.create("urn:schema"))
+                .withData("application/octet-stream", new byte[]{1, 2, 3, 4})
+                .build();
+
+        Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+
+        assertDecodedIdenticallyToJsonDeserialization(document);
+    }
+
+    @Test
+    void decodes_extensions_identically_to_json_deserialization() {
+        Document document = new Document()
+                .append("_id", new ObjectId())
+                .append("specversion", "1.0")
+                .append("id", "id")
+                .append("source", "urn:name")
+                .append("type", "type")
+                .append("stringext", "value")
+                .append("intext", 2)
+                .append("smalllongext", 3L)
+                .append("largelongext", Long.MAX_VALUE)
+                .append("doubleext", 2.25d)
+                .append("nanext", Double.NaN)
+                .append("booleanext", true)
+                .append("nullext", null)
+                .append("dateext", new Date(1595754783223L))
+                .append("objectidext", new ObjectId("5f1d4c6a3b5e2b6f1c8e9a11"))
+                .append("decimalext", new Decimal128(new BigDecimal("1.5")))
+                .append("documentext", new Document("a", 1).append("b", Arrays.asList(1, "two")))
+                .append("streamId", "streamId")
+                .append("streamVersion", 1L);
+
+        assertDecodedIdenticallyToJsonDeserialization(document);
+    }
+
+    @Test
+    void decodes_cloud_event_with_occurrent_extensions_and_without_stream_version_identically_to_json_deserialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withExtension(new OccurrentCloudEventExtension("streamId", 5L))
+                .withData("[1, \"two\", {\"three\" : 3}]".getBytes(UTF_8))
+                .build();
+
+        Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 5L, cloudEvent);
+        document.remove("streamVersion");
+
+        assertDecodedIdenticallyToJsonDeserialization(document);
+    }
+
+    @Test
+    void decodes_json_data_as_utf8() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withData("application/json", "{\"name\" : \"åäö\"}".getBytes(UTF_8))
+                .build();
+
+        Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+
+        CloudEvent actual = OccurrentCloudEventBsonDecoder.decode(RFC_3339_STRING, document);
+
+        assertThat(new String(actual.getData(), UTF_8)).isEqualTo("{\"name\":\"åäö\"}");
+    }
+
+    @Test
+    void decodes_time_represented_as_date() {
+        OffsetDateTime time = OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 223_000000), UTC);
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withTime(time)
+                .withData("application/json", "{\"name\" : \"hello\"}".getBytes(UTF_8))
+                .build();
+
+        Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(DATE, "streamId", 2L, cloudEvent);
+
+        CloudEvent actual = OccurrentCloudEventBsonDecoder.decode(DATE, document);
+
+        assertThat(actual.getTime()).isEqualTo(time);
+        Document documentWithTimeAsString = new Document(document).append("time", RFC_3339_DATE_TIME_FORMATTER.format(time));
+        assertThat(actual).isEqualTo(convertUsingJsonDeserialization(documentWithTimeAsString));
+    }
+
+    private void assertDecodedIdenticallyToJsonDeserialization(Document document) {
+        // When
+        CloudEvent actual = OccurrentCloudEventBsonDecoder.decode(RFC_3339_STRING, document);
+
+        // Then
+        CloudEvent expected = convertUsingJsonDeserialization(document);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(new String(actual.getData() == null ? new byte[0] : actual.getData(), UTF_8))
+                .isEqualTo(new String(expected.getData() == null ? new byte[0] : expected.getData(), UTF_8));
+    }
+
+    // The way documents were converted into cloud events before the OccurrentCloudEventBsonDecoder was introduced
+    private CloudEvent convertUsingJsonDeserialization(Document cloudEventDocument) {
+        Document document = new Document(cloudEventDocument);
+        document.remove("_id");
+        byte[] eventJsonBytes = document.toJson().getBytes(UTF_8);
+        return CloudEventBuilder.v1(eventFormat.deserialize(eventJsonBytes)).withExtension(OccurrentCloudEventExtension.STREAM_VERSION, document.getLong(OccurrentCloudEventExtension.STREAM_VERSION)).build();
+    }
+}
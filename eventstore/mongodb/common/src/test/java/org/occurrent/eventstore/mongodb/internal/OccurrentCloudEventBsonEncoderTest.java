@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import com.mongodb.MongoClientSettings;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.core.format.EventFormat;
+import io.cloudevents.core.provider.EventFormatProvider;
+import io.cloudevents.jackson.JsonFormat;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.occurrent.cloudevents.OccurrentCloudEventExtension;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
+
+class OccurrentCloudEventBsonEncoderTest {
+
+    private EventFormat eventFormat;
+
+    @BeforeEach
+    void create_event_format() {
+        eventFormat = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
+    }
+
+    @Test
+    void encodes_cloud_event_with_json_data_identically_to_json_serialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withSubject("subject")
+                .withTime(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 123_456_789), ZoneOffset.ofHours(2)))
+                .withData("application/json", "{\"name\" : \"hello\", \"age\" : 3000000000, \"ratio\" : 1.5, \"tags\" : [\"a\", 2, true, null], \"nested\" : {\"x\" : 1}}".getBytes(UTF_8))
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", 2L, cloudEvent);
+    }
+
+    @Test
+    void encodes_cloud_event_with_non_json_data_identically_to_json_serialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withDataSchema(URI.create("urn:schema"))
+                .withData("text/plain", "hello world".getBytes(UTF_8))
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+    }
+
+    @Test
+    void encodes_cloud_event_with_non_object_json_data_and_without_data_content_type_identically_to_json_serialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withData("[1, \"two\", {\"three\" : 3}]".getBytes(UTF_8))
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+    }
+
+    @Test
+    void encodes_v03_cloud_event_identically_to_json_serialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v03()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withData("application/octet-stream", new byte[]{1, 2, 3, 4})
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+    }
+
+    @Test
+    void encodes_extensions_identically_to_json_serialization() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withExtension("stringext", "value")
+                .withExtension("intext", 2)
+                .withExtension("smalllongext", 3L)
+                .withExtension("largelongext", Long.MAX_VALUE)
+                .withExtension("doubleext", 2.25d)
+                .withExtension("floatext", 1.1f)
+                .withExtension("nanext", Double.NaN)
+                .withExtension("booleanext", true)
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+    }
+
+    @Test
+    void overwrites_existing_occurrent_extensions_in_place() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withExtension(new OccurrentCloudEventExtension("oldStreamId", 5L))
+                .withExtension("other", "value")
+                .withData("{\"name\" : \"hello\"}".getBytes(UTF_8))
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", 6L, cloudEvent);
+    }
+
+    @Test
+    void keeps_existing_stream_version_extension_when_stream_version_is_not_defined() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withExtension(new OccurrentCloudEventExtension("oldStreamId", 5L))
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(RFC_3339_STRING, "streamId", -1L, cloudEvent);
+    }
+
+    @Test
+    void encodes_time_as_date_identically_to_json_serialization_when_time_representation_is_date() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withTime(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 223_000000), UTC))
+                .withData("application/json", "{\"name\" : \"hello\"}".getBytes(UTF_8))
+                .build();
+
+        assertEncodedIdenticallyToJsonSerialization(DATE, "streamId", 2L, cloudEvent);
+    }
+
+    @Test
+    void generates_object_id_as_first_field_when_requested() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .build();
+
+        RawBsonDocument document = OccurrentCloudEventBsonEncoder.encodeToRawBsonDocument(RFC_3339_STRING, "streamId", 1L, cloudEvent, true);
+
+        assertThat(document.getFirstKey()).isEqualTo("_id");
+        assertThat(document.getObjectId("_id")).isNotNull();
+    }
+
+    private void assertEncodedIdenticallyToJsonSerialization(TimeRepresentation timeRepresentation, String streamId, long streamVersion, CloudEvent cloudEvent) {
+        // When
+        RawBsonDocument encoded = OccurrentCloudEventBsonEncoder.encodeToRawBsonDocument(timeRepresentation, streamId, streamVersion, cloudEvent, false);
+
+        // Then
+        BsonDocument expected = convertUsingJsonSerialization(timeRepresentation, streamId, streamVersion, cloudEvent);
+        BsonDocument actual = encoded.decode(new BsonDocumentCodec());
+        assertThat(new ArrayList<>(actual.keySet())).containsExactlyElementsOf(expected.keySet());
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    // The way cloud events were converted into documents before the OccurrentCloudEventBsonEncoder was introduced
+    private BsonDocument convertUsingJsonSerialization(TimeRepresentation timeRepresentation, String streamId, long streamVersion, CloudEvent cloudEvent) {
+        Document document = Document.parse(new String(eventFormat.serialize(cloudEvent), UTF_8));
+        document.put(OccurrentCloudEventExtension.STREAM_ID, streamId);
+        if (streamVersion != -1) {
+            document.put(OccurrentCloudEventExtension.STREAM_VERSION, streamVersion);
+        }
+        if (timeRepresentation == DATE && cloudEvent.getTime() != null) {
+            document.put("time", Date.from(cloudEvent.getTime().toInstant()));
+        }
+        return document.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
@@ -17,12 +17,8 @@
 package org.occurrent.eventstore.mongodb.internal;
 
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.provider.EventFormatProvider;
 import io.cloudevents.core.v1.CloudEventBuilder;
-import io.cloudevents.jackson.JsonFormat;
 import org.bson.Document;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -45,13 +41,6 @@ import static org.occurrent.time.internal.RFC3339.RFC_3339_DATE_TIME_FORMATTER;
 
 class OccurrentCloudEventMongoDBDocumentMapperTest {
 
-    private EventFormat eventFormat;
-
-    @BeforeEach
-    void initialization() {
-        eventFormat = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
-    }
-
     @Nested
     @DisplayName("time representation is rfc 3339 string")
     class TimeRepresentationRfc3339String {
@@ -72,7 +61,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
                     .build();
 
             // When
-            Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(eventFormat, RFC_3339_STRING, "streamId", 2L, cloudEvent);
+            Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 2L, cloudEvent);
 
             // Then
             assertAll(
@@ -103,7 +92,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
                     .build();
 
             // When
-            Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(eventFormat, RFC_3339_STRING, "streamId", 2L, cloudEvent);
+            Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(RFC_3339_STRING, "streamId", 2L, cloudEvent);
 
             // Then
             assertAll(
@@ -139,7 +128,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, RFC_3339_STRING, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(RFC_3339_STRING, document);
 
             // Then
             CloudEvent expected = new CloudEventBuilder()
@@ -174,7 +163,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, RFC_3339_STRING, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(RFC_3339_STRING, document);
 
             // Then
             assertThat(actual.getTime()).isEqualTo(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 234_000000), UTC));
@@ -199,7 +188,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, RFC_3339_STRING, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(RFC_3339_STRING, document);
 
             // Then
             assertThat(actual.getTime()).isEqualTo(offsetDateTimeFrom(LocalDateTime.of(2020, 7, 26, 9, 13, 3), ZoneId.of("CET")));
@@ -224,7 +213,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, RFC_3339_STRING, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(RFC_3339_STRING, document);
 
             // Then
             assertThat(actual.getTime()).isEqualTo(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3), ZoneOffset.of("-02:00")));
@@ -251,7 +240,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
                     .build();
 
             // When
-            Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(eventFormat, DATE, "streamId", 2L, cloudEvent);
+            Document document = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(DATE, "streamId", 2L, cloudEvent);
 
             // Then
             assertAll(
@@ -281,7 +270,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
                     .build();
 
             // When
-            Throwable throwable = catchThrowable(() -> OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(eventFormat, DATE, "streamId", 2L, cloudEvent));
+            Throwable throwable = catchThrowable(() -> OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(DATE, "streamId", 2L, cloudEvent));
 
             // Then
             assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class)
@@ -303,7 +292,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
                     .build();
 
             // When
-            Throwable throwable = catchThrowable(() -> OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(eventFormat, DATE, "streamId", 2L, cloudEvent));
+            Throwable throwable = catchThrowable(() -> OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(DATE, "streamId", 2L, cloudEvent));
 
             // Then
             assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class)
@@ -330,7 +319,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, DATE, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(DATE, document);
 
             // Then
             CloudEvent expected = new CloudEventBuilder()
@@ -365,7 +354,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, DATE, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(DATE, document);
 
             // Then
             assertThat(actual.getTime()).isEqualTo(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 234_000000), UTC));
@@ -390,7 +379,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, DATE, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(DATE, document);
 
             // Then
             assertThat(actual.getTime()).isEqualTo(offsetDateTimeFrom(LocalDateTime.of(2020, 7, 26, 9, 13, 3), ZoneId.of("CET")));
@@ -415,7 +404,7 @@ class OccurrentCloudEventMongoDBDocumentMapperTest {
             }});
 
             // When
-            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, DATE, document);
+            CloudEvent actual = OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(DATE, document);
 
             // Then
             assertThat(actual.getTime()).isEqualTo(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3), ZoneOffset.of("-02:00")));
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionedSpliteratorTest {
+
+    @Test
+    void returns_elements_of_all_partitions_in_order_when_stream_is_parallel() {
+        // Given
+        List<Supplier<Stream<Integer>>> partitions = IntStream.range(0, 10)
+                .mapToObj(partition -> (Supplier<Stream<Integer>>) () -> IntStream.range(partition * 100, (partition + 1) * 100).boxed())
+                .collect(Collectors.toList());
+
+        // When
+        List<Integer> elements = StreamSupport.stream(new PartitionedSpliterator<>(partitions), true).collect(Collectors.toList());
+
+        // Then
+        assertThat(elements).containsExactlyElementsOf(IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    void splits_on_partition_boundaries_including_the_partition_currently_being_read() {
+        // Given
+        List<Supplier<Stream<Integer>>> partitions = new ArrayList<>();
+        partitions.add(() -> Stream.of(1, 2));
+        partitions.add(() -> Stream.of(3, 4));
+        PartitionedSpliterator<Integer> spliterator = new PartitionedSpliterator<>(partitions);
+        List<Integer> elements = new ArrayList<>();
+        spliterator.tryAdvance(elements::add);
+
+        // When
+        Spliterator<Integer> prefix = spliterator.trySplit();
+
+        // Then
+        prefix.forEachRemaining(elements::add);
+        spliterator.forEachRemaining(elements::add);
+        assertThat(elements).containsExactly(1, 2, 3, 4);
+        assertThat(spliterator.trySplit()).isNull();
+    }
+
+    @Test
+    void opens_partitions_lazily_and_closes_opened_partitions_when_closed() {
+        // Given
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        List<Supplier<Stream<Integer>>> partitions = IntStream.range(0, 3)
+                .mapToObj(partition -> (Supplier<Stream<Integer>>) () -> {
+                    opened.incrementAndGet();
+                    return Stream.of(partition, partition).onClose(closed::incrementAndGet);
+                })
+                .collect(Collectors.toList());
+        PartitionedSpliterator<Integer> spliterator = new PartitionedSpliterator<>(partitions);
+
+        // When
+        Integer first = StreamSupport.stream(spliterator, false).onClose(spliterator::close).findFirst().orElse(null);
+        spliterator.close();
+
+        // Then
+        assertThat(first).isZero();
+        assertThat(opened).hasValue(1);
+        assertThat(closed).hasValue(1);
+    }
+}
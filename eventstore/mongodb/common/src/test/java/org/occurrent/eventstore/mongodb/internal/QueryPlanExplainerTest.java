@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.occurrent.eventstore.mongodb.QueryPlan;
+
+import static com.mongodb.client.model.Filters.eq;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryPlanExplainerTest {
+
+    @Test
+    void explain_command_explains_find_with_query_planner_verbosity() {
+        // When
+        Document command = QueryPlanExplainer.explainCommand("events", eq("type", "NameDefined"));
+
+        // Then
+        assertThat(command.toJson()).isEqualTo("{\"explain\": {\"find\": \"events\", \"filter\": {\"type\": \"NameDefined\"}}, \"verbosity\": \"queryPlanner\"}");
+    }
+
+    @Test
+    void query_plan_is_collection_scan_when_winning_plan_contains_collscan_stage() {
+        // Given
+        Document explainResult = Document.parse("{ queryPlanner: { winningPlan: { stage: 'COLLSCAN', filter: { type: { $eq: 'NameDefined' } }, direction: 'forward' } }, ok: 1 }");
+
+        // When
+        QueryPlan queryPlan = QueryPlanExplainer.toQueryPlan(eq("type", "NameDefined"), explainResult);
+
+        // Then
+        assertThat(queryPlan.collectionScan).isTrue();
+        assertThat(queryPlan.indexNames).isEmpty();
+        assertThat(queryPlan.query).isEqualTo("{\"type\": \"NameDefined\"}");
+    }
+
+    @Test
+    void query_plan_contains_names_of_nested_indexes_when_indexes_are_used() {
+        // Given
+        Document explainResult = Document.parse("{ queryPlanner: { winningPlan: { stage: 'FETCH', inputStage: { stage: 'OR', inputStages: [ " +
+                "{ stage: 'IXSCAN', indexName: 'type_1' }, { stage: 'IXSCAN', indexName: 'subject_1' } ] } } }, ok: 1 }");
+
+        // When
+        QueryPlan queryPlan = QueryPlanExplainer.toQueryPlan(eq("type", "NameDefined"), explainResult);
+
+        // Then
+        assertThat(queryPlan.collectionScan).isFalse();
+        assertThat(queryPlan.indexNames).containsExactly("type_1", "subject_1");
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.jupiter.api.Test;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.DATE;
+import static org.occurrent.mongodb.timerepresentation.TimeRepresentation.RFC_3339_STRING;
+
+class RawBsonDocumentCloudEventTest {
+
+    @Test
+    void lazy_cloud_event_returns_same_values_as_eagerly_decoded_cloud_event() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withSubject("subject")
+                .withDataSchema(URI.create("urn:schema"))
+                .withTime(OffsetDateTime.of(LocalDateTime.of(2020, 7, 26, 9, 13, 3, 123_000000), UTC))
+                .withExtension("intext", 2)
+                .withExtension("stringext", "value")
+                .withData("application/json", "{\"name\" : \"hello\", \"list\" : [1, 2.5, null]}".getBytes(UTF_8))
+                .build();
+
+        assertLazyCloudEventEqualToEagerlyDecodedCloudEvent(RFC_3339_STRING, cloudEvent);
+        assertLazyCloudEventEqualToEagerlyDecodedCloudEvent(DATE, cloudEvent);
+    }
+
+    @Test
+    void lazy_cloud_event_returns_same_values_as_eagerly_decoded_v03_cloud_event_with_binary_data() {
+        CloudEvent cloudEvent = CloudEventBuilder.v03()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withDataSchema(URI.create("urn:schema"))
+                .withData("application/octet-stream", new byte[]{1, 2, 3})
+                .build();
+
+        assertLazyCloudEventEqualToEagerlyDecodedCloudEvent(RFC_3339_STRING, cloudEvent);
+    }
+
+    @Test
+    void lazy_cloud_event_is_equal_to_eagerly_decoded_cloud_event() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .withData("text/plain", "hello".getBytes(UTF_8))
+                .build();
+        RawBsonDocument document = OccurrentCloudEventMongoDBDocumentMapper.convertToRawBsonDocument(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+
+        RawBsonDocumentCloudEvent lazy = new RawBsonDocumentCloudEvent(RFC_3339_STRING, document);
+
+        assertThat(lazy.toCloudEvent()).isEqualTo(OccurrentCloudEventBsonDecoder.decode(RFC_3339_STRING, document.decode(new DocumentCodec())));
+        assertThat(lazy).isEqualTo(new RawBsonDocumentCloudEvent(RFC_3339_STRING, document));
+        assertThat(lazy.hashCode()).isEqualTo(new RawBsonDocumentCloudEvent(RFC_3339_STRING, document).hashCode());
+    }
+
+    @Test
+    void lazy_cloud_event_is_not_equal_to_other_cloud_event_implementations() {
+        CloudEvent cloudEvent = CloudEventBuilder.v1()
+                .withId("id")
+                .withSource(URI.create("urn:name"))
+                .withType("type")
+                .build();
+        RawBsonDocument document = OccurrentCloudEventMongoDBDocumentMapper.convertToRawBsonDocument(RFC_3339_STRING, "streamId", 1L, cloudEvent);
+        CloudEvent eager = OccurrentCloudEventBsonDecoder.decode(RFC_3339_STRING, document.decode(new DocumentCodec()));
+
+        RawBsonDocumentCloudEvent lazy = new RawBsonDocumentCloudEvent(RFC_3339_STRING, document);
+
+        assertThat(lazy).isNotEqualTo(eager);
+        assertThat(eager).isNotEqualTo(lazy);
+    }
+
+    private static void assertLazyCloudEventEqualToEagerlyDecodedCloudEvent(TimeRepresentation timeRepresentation, CloudEvent cloudEvent) {
+        // Given
+        RawBsonDocument document = OccurrentCloudEventMongoDBDocumentMapper.convertToRawBsonDocument(timeRepresentation, "streamId", 2L, cloudEvent);
+        CloudEvent expected = OccurrentCloudEventBsonDecoder.decode(timeRepresentation, document.decode(new DocumentCodec()));
+
+        // When
+        CloudEvent actual = new RawBsonDocumentCloudEvent(timeRepresentation, document);
+
+        // Then
+        assertAll(
+                () -> assertThat(actual.getSpecVersion()).isEqualTo(expected.getSpecVersion()),
+                () -> assertThat(actual.getId()).isEqualTo(expected.getId()),
+                () -> assertThat(actual.getSource()).isEqualTo(expected.getSource()),
+                () -> assertThat(actual.getType()).isEqualTo(expected.getType()),
+                () -> assertThat(actual.getSubject()).isEqualTo(expected.getSubject()),
+                () -> assertThat(actual.getDataContentType()).isEqualTo(expected.getDataContentType()),
+                () -> assertThat(actual.getDataSchema()).isEqualTo(expected.getDataSchema()),
+                () -> assertThat(actual.getTime()).isEqualTo(expected.getTime()),
+                () -> assertThat(actual.getData()).isEqualTo(expected.getData()),
+                () -> assertThat(actual.getExtensionNames()).containsExactlyInAnyOrderElementsOf(expected.getExtensionNames()),
+                () -> expected.getExtensionNames().forEach(name -> assertThat(actual.getExtension(name)).describedAs(name).isEqualTo(expected.getExtension(name))),
+                () -> assertThat(actual.getAttribute("subject")).isEqualTo(expected.getAttribute("subject"))
+        );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.internal;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaMetadataTest {
+
+    @Test
+    void schema_metadata_is_current_when_schema_version_and_signature_are_the_same() {
+        // Given
+        String signature = SchemaMetadata.signature(Arrays.asList("events", "streamHeads"), Collections.singletonList(new IndexModel(Indexes.ascending("type"))));
+        Document schemaMetadata = SchemaMetadata.schemaMetadata("events", signature);
+
+        // When
+        boolean current = SchemaMetadata.isCurrent(schemaMetadata, SchemaMetadata.signature(Arrays.asList("events", "streamHeads"), Collections.singletonList(new IndexModel(Indexes.ascending("type")))));
+
+        // Then
+        assertThat(current).isTrue();
+    }
+
+    @Test
+    void schema_metadata_is_not_current_when_indexes_have_changed() {
+        // Given
+        String signature = SchemaMetadata.signature(Collections.singletonList("events"), Collections.singletonList(new IndexModel(Indexes.ascending("type"))));
+        Document schemaMetadata = SchemaMetadata.schemaMetadata("events", signature);
+
+        // When
+        boolean current = SchemaMetadata.isCurrent(schemaMetadata, SchemaMetadata.signature(Collections.singletonList("events"),
+                Collections.singletonList(new IndexModel(Indexes.ascending("type"), new IndexOptions().unique(true)))));
+
+        // Then
+        assertThat(current).isFalse();
+    }
+
+    @Test
+    void schema_metadata_is_not_current_when_schema_version_has_changed_or_metadata_is_missing() {
+        // Given
+        String signature = SchemaMetadata.signature(Collections.singletonList("events"), Collections.emptyList());
+        Document schemaMetadata = SchemaMetadata.schemaMetadata("events", signature).append("schemaVersion", SchemaMetadata.SCHEMA_VERSION - 1);
+
+        // When
+        boolean current = SchemaMetadata.isCurrent(schemaMetadata, signature);
+
+        // Then
+        assertThat(current).isFalse();
+        assertThat(SchemaMetadata.isCurrent(null, signature)).isFalse();
+    }
+}
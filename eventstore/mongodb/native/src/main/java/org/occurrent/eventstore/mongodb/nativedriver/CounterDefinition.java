@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.nativedriver;
+
+import org.occurrent.filter.Filter;
+import org.occurrent.filter.Filter.CompositionFilter;
+import org.occurrent.filter.Filter.SingleConditionFilter;
+
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Defines a counter of events that is maintained by the {@link MongoEventStore} when events are written
+ * (see {@link EventStoreConfig.Builder#counters(String, CounterDefinition...)}). Calls to {@code count} with a filter that
+ * matches a counter are answered by reading the counter instead of counting the events in the event collection.
+ */
+public class CounterDefinition {
+    private static final CounterDefinition COUNT_BY_TYPE = new CounterDefinition(null);
+
+    /**
+     * The filter of the counter or {@code null} if events are counted by type
+     */
+    public final Filter filter;
+
+    private CounterDefinition(Filter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Count the events that matches the supplied filter. A call to {@code count} with an equivalent filter is answered by the counter.
+     * Note that it's not possible to count events by their data or time. The counters are created by counting the events in MongoDB
+     * but are then incremented by evaluating the filter in memory, and time is not compared in the same way (e.g. with the same precision) by both.
+     *
+     * @param filter The filter
+     * @return A {@link CounterDefinition} that counts the events matching the filter
+     */
+    public static CounterDefinition countMatching(Filter filter) {
+        requireNonNull(filter, Filter.class.getSimpleName() + " cannot be null");
+        if (filter instanceof Filter.All) {
+            throw new IllegalArgumentException("Counting all events doesn't require a counter");
+        }
+        assertDoesNotFilterOnDataOrTime(filter);
+        return new CounterDefinition(filter);
+    }
+
+    /**
+     * Count the events per cloud event type. A call to {@code count} with a filter such as {@code Filter.type("MyEvent")} is
+     * answered by the counter of the type.
+     *
+     * @return A {@link CounterDefinition} that counts the events of each type
+     */
+    public static CounterDefinition countByType() {
+        return COUNT_BY_TYPE;
+    }
+
+    /**
+     * @return {@code true} if this counter counts the events of each type, {@code false} if it counts the events matching {@link #filter}.
+     */
+    public boolean isCountByType() {
+        return filter == null;
+    }
+
+    private static void assertDoesNotFilterOnDataOrTime(Filter filter) {
+        if (filter instanceof SingleConditionFilter) {
+            String fieldName = ((SingleConditionFilter) filter).fieldName;
+            if (fieldName.equals(Filter.DATA) || fieldName.startsWith(Filter.DATA + ".")) {
+                throw new IllegalArgumentException("Counters cannot filter on " + Filter.DATA);
+            } else if (fieldName.equals(Filter.TIME)) {
+                throw new IllegalArgumentException("Counters cannot filter on " + Filter.TIME);
+            }
+        } else if (filter instanceof CompositionFilter) {
+            ((CompositionFilter) filter).filters.forEach(CounterDefinition::assertDoesNotFilterOnDataOrTime);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CounterDefinition)) return false;
+        CounterDefinition that = (CounterDefinition) o;
+        return Objects.equals(filter, that.filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filter);
+    }
+
+    @Override
+    public String toString() {
+        return "CounterDefinition{" +
+                "filter=" + (isCountByType() ? "<count by type>" : filter) +
+                '}';
+    }
+}
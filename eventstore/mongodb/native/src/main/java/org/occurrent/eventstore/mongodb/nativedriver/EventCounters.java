@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.nativedriver;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import io.cloudevents.CloudEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.occurrent.condition.Condition.SingleOperandCondition;
+import org.occurrent.condition.Condition.SingleOperandConditionName;
+import org.occurrent.eventstore.api.FilterEvaluator;
+import org.occurrent.filter.Filter;
+import org.occurrent.filter.Filter.SingleConditionFilter;
+import org.occurrent.mongodb.spring.filterbsonfilterconversion.internal.FilterToBsonFilterConverter;
+import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mongodb.client.model.Filters.eq;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maintains the counters defined by {@link CounterDefinition}'s in a separate collection. The counters are updated in the same
+ * transaction as the events are written (or deleted) so they're always consistent with the event collection. Each counter is
+ * stored as a document with the id of the counter and a {@value #COUNT} field.
+ */
+class EventCounters {
+    private static final String ID = "_id";
+    private static final String COUNT = "count";
+    private static final String TYPE_COUNTER_ID_PREFIX = "type:";
+    private static final String FILTER_COUNTER_ID_PREFIX = "filter:";
+    // Marks that the type counters have been created, since there's no type counter document for types that have no events
+    private static final String TYPE_COUNTERS_INITIALIZED_ID = "typeCountersInitialized";
+
+    private final MongoCollection<Document> eventCollection;
+    private final MongoCollection<Document> counterCollection;
+    private final TimeRepresentation timeRepresentation;
+    private final boolean countByType;
+    private final Map<String, Filter> filterCounters;
+
+    EventCounters(MongoCollection<Document> eventCollection, MongoCollection<Document> counterCollection, TimeRepresentation timeRepresentation, List<CounterDefinition> counterDefinitions) {
+        requireNonNull(eventCollection, "Event collection cannot be null");
+        requireNonNull(counterCollection, "Counter collection cannot be null");
+        requireNonNull(timeRepresentation, TimeRepresentation.class.getSimpleName() + " cannot be null");
+        requireNonNull(counterDefinitions, "Counter definitions cannot be null");
+        this.eventCollection = eventCollection;
+        this.counterCollection = counterCollection;
+        this.timeRepresentation = timeRepresentation;
+        this.countByType = counterDefinitions.stream().anyMatch(CounterDefinition::isCountByType);
+        Map<String, Filter> filterCounters = new LinkedHashMap<>();
+        counterDefinitions.stream().filter(counterDefinition -> !counterDefinition.isCountByType())
+                .forEach(counterDefinition -> filterCounters.put(filterCounterId(counterDefinition.filter), counterDefinition.filter));
+        this.filterCounters = Collections.unmodifiableMap(filterCounters);
+    }
+
+    /**
+     * Create the counters that doesn't exist by counting the events in the event collection. Counters that already exist are left as is.
+     */
+    void initialize(ClientSession clientSession) {
+        filterCounters.forEach((counterId, filter) -> {
+            if (counterCollection.find(clientSession, eq(ID, counterId)).first() == null) {
+                long count = eventCollection.countDocuments(clientSession, toBson(filter));
+                counterCollection.insertOne(clientSession, new Document(ID, counterId).append(COUNT, count));
+            }
+        });
+
+        if (countByType && counterCollection.find(clientSession, eq(ID, TYPE_COUNTERS_INITIALIZED_ID)).first() == null) {
+            List<Document> typeCounters = new ArrayList<>();
+            eventCollection.aggregate(clientSession, Collections.singletonList(Aggregates.group("$" + Filter.TYPE, Accumulators.sum(COUNT, 1L))))
+                    .forEach(group -> typeCounters.add(new Document(ID, TYPE_COUNTER_ID_PREFIX + group.getString(ID)).append(COUNT, ((Number) group.get(COUNT)).longValue())));
+            typeCounters.add(new Document(ID, TYPE_COUNTERS_INITIALIZED_ID));
+            counterCollection.insertMany(clientSession, typeCounters);
+        }
+    }
+
+    /**
+     * Increment the counters matching the supplied cloud events by {@code delta} (which is negative when cloud events are removed).
+     */
+    void increment(ClientSession clientSession, Iterable<? extends CloudEvent> cloudEvents, long delta) {
+        Map<String, Long> increments = new HashMap<>();
+        for (CloudEvent cloudEvent : cloudEvents) {
+            if (countByType) {
+                increments.merge(TYPE_COUNTER_ID_PREFIX + cloudEvent.getType(), delta, Long::sum);
+            }
+            filterCounters.forEach((counterId, filter) -> {
+                if (FilterEvaluator.evaluate(filter, cloudEvent)) {
+                    increments.merge(counterId, delta, Long::sum);
+                }
+            });
+        }
+
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        increments.forEach((counterId, increment) -> {
+            if (increment != 0) {
+                updates.add(new UpdateOneModel<>(eq(ID, counterId), Updates.inc(COUNT, increment), new UpdateOptions().upsert(true)));
+            }
+        });
+        if (!updates.isEmpty()) {
+            counterCollection.bulkWrite(clientSession, updates);
+        }
+    }
+
+    /**
+     * @return The number of events matching the supplied filter if there's a counter for the filter, {@code null} otherwise.
+     */
+    Long count(Filter filter) {
+        final String counterId;
+        if (countByType && isTypeEqualTo(filter)) {
+            counterId = TYPE_COUNTER_ID_PREFIX + ((SingleOperandCondition<?>) ((SingleConditionFilter) filter).condition).operand;
+        } else if (filter instanceof Filter.All || filterCounters.isEmpty()) {
+            return null;
+        } else {
+            String filterCounterId = filterCounterId(filter);
+            if (!filterCounters.containsKey(filterCounterId)) {
+                return null;
+            }
+            counterId = filterCounterId;
+        }
+
+        Document counter = counterCollection.find(eq(ID, counterId)).first();
+        return counter == null ? 0 : ((Number) counter.get(COUNT)).longValue();
+    }
+
+    private static boolean isTypeEqualTo(Filter filter) {
+        if (!(filter instanceof SingleConditionFilter)) {
+            return false;
+        }
+        SingleConditionFilter singleConditionFilter = (SingleConditionFilter) filter;
+        return Filter.TYPE.equals(singleConditionFilter.fieldName) && singleConditionFilter.condition instanceof SingleOperandCondition
+                && ((SingleOperandCondition<?>) singleConditionFilter.condition).singleOperandConditionName == SingleOperandConditionName.EQ;
+    }
+
+    // Filters are identified by their MongoDB query since conditions doesn't implement equals
+    private String filterCounterId(Filter filter) {
+        return FILTER_COUNTER_ID_PREFIX + toBson(filter).toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()).toJson();
+    }
+
+    private Bson toBson(Filter filter) {
+        return FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
+    }
+}
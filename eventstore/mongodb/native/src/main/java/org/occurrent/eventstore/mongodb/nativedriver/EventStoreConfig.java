@@ -16,18 +16,41 @@
 
 package org.occurrent.eventstore.mongodb.nativedriver;
 
+import com.mongodb.ReadConcern;
 import com.mongodb.TransactionOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
 import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Configuration for the synchronous java driver MongoDB EventStore
  */
 public class EventStoreConfig {
     public final TransactionOptions transactionOptions;
     public final TimeRepresentation timeRepresentation;
+    public final boolean lazyCloudEventDecoding;
+    public final String streamHeadCollectionName;
+    public final boolean transactionalWrites;
+    public final Duration groupCommitMaxDelay;
+    public final int groupCommitMaxBatchSize;
+    public final QueryOptions queryOptions;
+    public final ReadConcern singleQueryReadConcern;
+    public final String counterCollectionName;
+    public final List<CounterDefinition> counterDefinitions;
+    public final List<IndexModel> indexes;
+    public final String schemaMetadataCollectionName;
+    public final boolean asynchronousInitialization;
 
     /**
      * Create an {@link EventStoreConfig} indicating to the event store that it should represent time according to the supplied
@@ -52,13 +75,64 @@ public class EventStoreConfig {
      * @see TimeRepresentation
      */
     public EventStoreConfig(TimeRepresentation timeRepresentation, TransactionOptions transactionOptions) {
+        this(timeRepresentation, transactionOptions, false);
+    }
+
+    /**
+     * Create an {@link EventStoreConfig} indicating to the event store that it should represent time according to the supplied
+     * {@code timeRepresentation}. Also configure the default {@link TransactionOptions} that the event store will use
+     * when starting transactions and whether or not cloud events should be decoded lazily (see {@link Builder#lazyCloudEventDecoding(boolean)}).
+     *
+     * @param timeRepresentation     How the time field in the {@link CloudEvent} should be represented.
+     * @param transactionOptions     The default {@link TransactionOptions} that the event store will use when starting transactions.
+     * @param lazyCloudEventDecoding {@code true} if cloud events returned by {@code read} and {@code query} should be decoded lazily
+     * @see Builder
+     */
+    public EventStoreConfig(TimeRepresentation timeRepresentation, TransactionOptions transactionOptions, boolean lazyCloudEventDecoding) {
+        this(timeRepresentation, transactionOptions, lazyCloudEventDecoding, null, true, null, 0, null, null, null, Collections.emptyList(), Collections.emptyList(), null, false);
+    }
+
+    private EventStoreConfig(TimeRepresentation timeRepresentation, TransactionOptions transactionOptions, boolean lazyCloudEventDecoding, String streamHeadCollectionName,
+                             boolean transactionalWrites, Duration groupCommitMaxDelay, int groupCommitMaxBatchSize, QueryOptions queryOptions,
+                             ReadConcern singleQueryReadConcern, String counterCollectionName, List<CounterDefinition> counterDefinitions,
+                             List<IndexModel> indexes, String schemaMetadataCollectionName, boolean asynchronousInitialization) {
         Objects.requireNonNull(timeRepresentation, "Time representation cannot be null");
+        if (streamHeadCollectionName != null && !transactionalWrites) {
+            throw new IllegalArgumentException("Stream heads can only be used when transactional writes are enabled");
+        }
+        if (groupCommitMaxDelay != null) {
+            if (!transactionalWrites) {
+                throw new IllegalArgumentException("Group commit can only be used when transactional writes are enabled");
+            } else if (groupCommitMaxDelay.isNegative()) {
+                throw new IllegalArgumentException("Group commit max delay cannot be negative");
+            } else if (groupCommitMaxBatchSize < 1) {
+                throw new IllegalArgumentException("Group commit max batch size must be greater than zero");
+            }
+        }
+        if (singleQueryReadConcern != null && streamHeadCollectionName != null) {
+            throw new IllegalArgumentException("Single query reads cannot be used together with stream heads");
+        }
+        if (counterCollectionName != null && !transactionalWrites) {
+            throw new IllegalArgumentException("Counters can only be used when transactional writes are enabled");
+        }
         if (transactionOptions == null) {
             this.transactionOptions = TransactionOptions.builder().build();
         } else {
             this.transactionOptions = transactionOptions;
         }
         this.timeRepresentation = timeRepresentation;
+        this.lazyCloudEventDecoding = lazyCloudEventDecoding;
+        this.streamHeadCollectionName = streamHeadCollectionName;
+        this.transactionalWrites = transactionalWrites;
+        this.groupCommitMaxDelay = groupCommitMaxDelay;
+        this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+        this.queryOptions = queryOptions == null ? QueryOptions.none() : queryOptions;
+        this.singleQueryReadConcern = singleQueryReadConcern;
+        this.counterCollectionName = counterCollectionName;
+        this.counterDefinitions = Collections.unmodifiableList(new ArrayList<>(counterDefinitions));
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(indexes));
+        this.schemaMetadataCollectionName = schemaMetadataCollectionName;
+        this.asynchronousInitialization = asynchronousInitialization;
     }
 
     @Override
@@ -66,13 +140,26 @@ public class EventStoreConfig {
         if (this == o) return true;
         if (!(o instanceof EventStoreConfig)) return false;
         EventStoreConfig that = (EventStoreConfig) o;
-        return Objects.equals(transactionOptions, that.transactionOptions) &&
-                timeRepresentation == that.timeRepresentation;
+        return lazyCloudEventDecoding == that.lazyCloudEventDecoding &&
+                transactionalWrites == that.transactionalWrites &&
+                groupCommitMaxBatchSize == that.groupCommitMaxBatchSize &&
+                Objects.equals(groupCommitMaxDelay, that.groupCommitMaxDelay) &&
+                Objects.equals(transactionOptions, that.transactionOptions) &&
+                timeRepresentation == that.timeRepresentation &&
+                Objects.equals(streamHeadCollectionName, that.streamHeadCollectionName) &&
+                Objects.equals(queryOptions, that.queryOptions) &&
+                Objects.equals(singleQueryReadConcern, that.singleQueryReadConcern) &&
+                Objects.equals(counterCollectionName, that.counterCollectionName) &&
+                Objects.equals(counterDefinitions, that.counterDefinitions) &&
+                Objects.equals(indexes, that.indexes) &&
+                Objects.equals(schemaMetadataCollectionName, that.schemaMetadataCollectionName) &&
+                asynchronousInitialization == that.asynchronousInitialization;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(transactionOptions, timeRepresentation);
+        return Objects.hash(transactionOptions, timeRepresentation, lazyCloudEventDecoding, streamHeadCollectionName, transactionalWrites, groupCommitMaxDelay, groupCommitMaxBatchSize, queryOptions, singleQueryReadConcern,
+                counterCollectionName, counterDefinitions, indexes, schemaMetadataCollectionName, asynchronousInitialization);
     }
 
     @Override
@@ -80,6 +167,234 @@ public class EventStoreConfig {
         return "EventStoreConfig{" +
                 "transactionOptions=" + transactionOptions +
                 ", timeRepresentation=" + timeRepresentation +
+                ", lazyCloudEventDecoding=" + lazyCloudEventDecoding +
+                ", streamHeadCollectionName='" + streamHeadCollectionName + '\'' +
+                ", transactionalWrites=" + transactionalWrites +
+                ", groupCommitMaxDelay=" + groupCommitMaxDelay +
+                ", groupCommitMaxBatchSize=" + groupCommitMaxBatchSize +
+                ", queryOptions=" + queryOptions +
+                ", singleQueryReadConcern=" + singleQueryReadConcern +
+                ", counterCollectionName='" + counterCollectionName + '\'' +
+                ", counterDefinitions=" + counterDefinitions +
+                ", indexes=" + indexes +
+                ", schemaMetadataCollectionName='" + schemaMetadataCollectionName + '\'' +
+                ", asynchronousInitialization=" + asynchronousInitialization +
                 '}';
     }
+
+    public static final class Builder {
+        private TransactionOptions transactionOptions;
+        private TimeRepresentation timeRepresentation;
+        private boolean lazyCloudEventDecoding;
+        private String streamHeadCollectionName;
+        private boolean transactionalWrites = true;
+        private Duration groupCommitMaxDelay;
+        private int groupCommitMaxBatchSize;
+        private QueryOptions queryOptions;
+        private ReadConcern singleQueryReadConcern;
+        private String counterCollectionName;
+        private List<CounterDefinition> counterDefinitions = Collections.emptyList();
+        private List<IndexModel> indexes = Collections.emptyList();
+        private String schemaMetadataCollectionName;
+        private boolean asynchronousInitialization;
+
+        /**
+         * @param transactionOptions The default {@link TransactionOptions} that the event store will use when starting transactions.
+         * @return A same {@code Builder instance}
+         */
+        public Builder transactionConfig(TransactionOptions transactionOptions) {
+            this.transactionOptions = transactionOptions;
+            return this;
+        }
+
+        /**
+         * @param timeRepresentation How the time field in the {@link CloudEvent} should be represented.
+         * @return A same {@code Builder instance}
+         */
+        public Builder timeRepresentation(TimeRepresentation timeRepresentation) {
+            this.timeRepresentation = timeRepresentation;
+            return this;
+        }
+
+        /**
+         * Configure whether the cloud events returned by {@code read} and {@code query} should be decoded lazily. If {@code true}, the events are
+         * fetched as raw BSON and the attributes and data of each cloud event are only decoded when they are accessed. This is useful if
+         * most events are discarded after looking at e.g. the type. Note that lazily decoded cloud events are only equal to other lazily decoded cloud events.
+         * Default is {@code false}.
+         *
+         * @param lazyCloudEventDecoding {@code true} if cloud events should be decoded lazily, {@code false} otherwise.
+         * @return A same {@code Builder instance}
+         */
+        public Builder lazyCloudEventDecoding(boolean lazyCloudEventDecoding) {
+            this.lazyCloudEventDecoding = lazyCloudEventDecoding;
+            return this;
+        }
+
+        /**
+         * Configure the event store to keep track of the current version of each stream in a separate "stream head" collection.
+         * The stream head collection contains one document per stream and the stream head is updated in the same transaction
+         * as the events are written. This means that {@code WriteCondition}'s are checked by a single update of the stream head
+         * (by id) instead of finding the event with the highest stream version for each write. The stream head is also used by
+         * {@code read} and {@code exists}. Streams written before stream heads were enabled are still supported, their stream head
+         * is created on the next write. Default is {@code null}, i.e. stream heads are not used.
+         * <p>
+         * Note that all event store instances writing to the same event collection must use the same stream head configuration!
+         * </p>
+         *
+         * @param streamHeadCollectionName The name of the collection in which the stream heads are stored, or {@code null} to disable stream heads.
+         * @return A same {@code Builder instance}
+         */
+        public Builder streamHeadCollectionName(String streamHeadCollectionName) {
+            this.streamHeadCollectionName = streamHeadCollectionName;
+            return this;
+        }
+
+        /**
+         * Configure whether events should be written inside a MongoDB transaction. If {@code false}, the events are appended
+         * using a plain {@code insertMany} and the unique (streamId, streamVersion) index is used to detect concurrent writes
+         * to the same stream. If another writer has written to the stream in the meantime, the {@code WriteCondition} is evaluated
+         * against the new stream version and the write is either retried or a {@code WriteConditionNotFulfilledException} is thrown.
+         * <p>
+         * This avoids the cost of multi-document transactions and gives the same guarantees when a single event is written.
+         * Note however that writing several events at once is <i>not</i> atomic. When one of the events is a duplicate cloud event (same id and source as an
+         * existing cloud event) the events written before the duplicate are not rolled back. When another writer writes to the same stream after some
+         * of the events have been inserted, the write fails with an {@code IllegalStateException} and the events inserted before the conflict remain
+         * in the stream. Stream heads cannot be used without transactional writes. Default is {@code true}.
+         * </p>
+         *
+         * @param transactionalWrites {@code true} if events should be written in a transaction, {@code false} otherwise.
+         * @return A same {@code Builder instance}
+         */
+        public Builder transactionalWrites(boolean transactionalWrites) {
+            this.transactionalWrites = transactionalWrites;
+            return this;
+        }
+
+        /**
+         * Enable group commit of concurrent writes. Writes from different threads are queued for at most {@code maxDelay} (or until
+         * {@code maxBatchSize} writes have been queued) and are then written to MongoDB in a single transaction. Each caller still
+         * blocks until its own events have been written and gets its own {@code WriteConditionNotFulfilledException} or
+         * {@code DuplicateCloudEventException}. This reduces the number of round trips and transaction commits when there are many
+         * concurrent writers that write few events each, at the expense of a slightly higher latency for each write.
+         * Group commit is disabled by default.
+         *
+         * @param maxDelay     The maximum time that a write is queued before it's written, typically a few hundred microseconds.
+         * @param maxBatchSize The maximum number of writes that are written in a single transaction
+         * @return A same {@code Builder instance}
+         */
+        public Builder groupCommit(Duration maxDelay, int maxBatchSize) {
+            this.groupCommitMaxDelay = requireNonNull(maxDelay, "Max delay cannot be null");
+            this.groupCommitMaxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Configure the {@link QueryOptions} (such as cursor batch size, max time and read preference) that are used by all queries
+         * and reads made by the event store. Options passed to {@code EventStoreQueries#query(Filter, int, int, SortBy, QueryOptions)}
+         * override these options. Note that the read preference only applies to {@code EventStoreQueries} since reads of event streams
+         * take place in a transaction and must read from the primary. Default is {@link QueryOptions#none()}.
+         *
+         * @param queryOptions The query options to use
+         * @return A same {@code Builder instance}
+         */
+        public Builder queryOptions(QueryOptions queryOptions) {
+            this.queryOptions = queryOptions;
+            return this;
+        }
+
+        /**
+         * Configure the event store to read an entire event stream (i.e. {@code read(streamId)}) using a single sorted {@code find} with the
+         * supplied read concern instead of starting a transaction that first finds the current stream version and then the events.
+         * The version of the event stream is derived from the last event returned by the query. The events are still read lazily from the cursor.
+         * If the version is requested before the events have been iterated, the events are buffered in memory in order to find the last one.
+         * If the version is requested after all events have been iterated, it's the version of the last event. In both cases the version is consistent
+         * with the events. However, if the version is requested while the events are being iterated, it's read from the last event in the
+         * event collection using a separate query, and may thus include events written after the query was started.
+         * This halves the number of round trips when loading an aggregate. Reads with skip and limit or a stream version range are not affected.
+         * Single query reads cannot be used together with stream heads (since the version of a stream head is not necessarily the version of
+         * the last event, for example after the last event has been deleted). Default is {@code null}, i.e. event streams are read in a transaction.
+         *
+         * @param readConcern The read concern to use for the query, typically {@link ReadConcern#MAJORITY} (or {@link ReadConcern#SNAPSHOT} on MongoDB 5.0 or later), or {@code null} to read event streams in a transaction.
+         * @return A same {@code Builder instance}
+         */
+        public Builder singleQueryReads(ReadConcern readConcern) {
+            this.singleQueryReadConcern = readConcern;
+            return this;
+        }
+
+        /**
+         * Configure counters that are maintained by the event store in a separate collection. The counters are updated in the same
+         * transaction as events are written, deleted or updated, and calls to {@code count} with a filter matching a counter are
+         * answered by reading the counter instead of counting the events in the event collection. This is useful when the same
+         * counts are requested frequently, for example by a dashboard. Counters that doesn't exist are created (by counting the
+         * events) when the event store is created. Counters require transactional writes. Default is no counters.
+         * <p>
+         * Note that all event store instances writing to the same event collection must use the same counter configuration!
+         * </p>
+         *
+         * @param counterCollectionName The name of the collection in which the counters are stored
+         * @param counterDefinitions    The counters to maintain, for example {@code CounterDefinition.countByType()}
+         * @return A same {@code Builder instance}
+         */
+        public Builder counters(String counterCollectionName, CounterDefinition... counterDefinitions) {
+            requireNonNull(counterCollectionName, "Counter collection name cannot be null");
+            requireNonNull(counterDefinitions, "Counter definitions cannot be null");
+            this.counterCollectionName = counterCollectionName;
+            this.counterDefinitions = Arrays.asList(counterDefinitions);
+            return this;
+        }
+
+        /**
+         * Configure additional indexes that are created on the event collection when the event store is created, for example to avoid
+         * collection scans when querying by {@code type}, {@code time}, {@code subject} or {@code data}. Compound and partial indexes
+         * are defined using the {@link IndexOptions} of the {@link IndexModel}, e.g.
+         * <pre>
+         * new IndexModel(Indexes.compoundIndex(Indexes.ascending("type"), Indexes.descending("time")), new IndexOptions().partialFilterExpression(Filters.exists("subject")))
+         * </pre>
+         * Use {@code explain} of the event store to find queries that scan the entire collection. Default is no additional indexes.
+         *
+         * @param indexes The indexes to create
+         * @return A same {@code Builder instance}
+         */
+        public Builder indexes(IndexModel... indexes) {
+            requireNonNull(indexes, "Indexes cannot be null");
+            this.indexes = Arrays.asList(indexes);
+            return this;
+        }
+
+        /**
+         * Configure a collection in which the event store keeps track of the schema (collections and indexes) that has been created for the
+         * event collection. When the event store is created it first reads the schema metadata document of the event collection, and only
+         * lists the collections and creates the indexes if the schema has changed since the last time (for example if new indexes have been
+         * configured). This speeds up startup when there are many event stores (e.g. one per tenant). The same schema metadata collection
+         * can be used by several event collections. Default is {@code null}, i.e. the schema is always initialized.
+         *
+         * @param schemaMetadataCollectionName The name of the collection in which the schema metadata is stored, or {@code null} to always initialize the schema.
+         * @return A same {@code Builder instance}
+         */
+        public Builder schemaMetadataCollectionName(String schemaMetadataCollectionName) {
+            this.schemaMetadataCollectionName = schemaMetadataCollectionName;
+            return this;
+        }
+
+        /**
+         * Configure whether the collections, indexes and counters should be initialized in a background thread instead of in the constructor
+         * of the event store. If {@code true}, the constructor returns immediately and writes, deletes, updates and counts wait for the
+         * initialization to complete (and fail if the initialization failed). Reads and queries don't wait for the initialization since
+         * they don't depend on it. Default is {@code false}.
+         *
+         * @param asynchronousInitialization {@code true} if the event store should be initialized asynchronously, {@code false} otherwise.
+         * @return A same {@code Builder instance}
+         */
+        public Builder asynchronousInitialization(boolean asynchronousInitialization) {
+            this.asynchronousInitialization = asynchronousInitialization;
+            return this;
+        }
+
+        public EventStoreConfig build() {
+            return new EventStoreConfig(timeRepresentation, transactionOptions, lazyCloudEventDecoding, streamHeadCollectionName, transactionalWrites,
+                    groupCommitMaxDelay, groupCommitMaxBatchSize, queryOptions, singleQueryReadConcern, counterCollectionName, counterDefinitions, indexes,
+                    schemaMetadataCollectionName, asynchronousInitialization);
+        }
+    }
 }
\ No newline at end of file
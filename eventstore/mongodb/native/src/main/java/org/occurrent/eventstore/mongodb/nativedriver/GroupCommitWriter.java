@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.nativedriver;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.WriteCondition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Queues writes from concurrent callers for at most {@code maxDelay} (or until {@code maxBatchSize} writes have been queued) and
+ * hands them over to a flusher as a single batch. Each caller blocks until the flusher has completed its {@link PendingWrite}.
+ * Call {@link #shutdown()} to stop the thread that hands over the batches.
+ */
+class GroupCommitWriter {
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final long maxDelayNanos;
+    private final int maxBatchSize;
+    private final Consumer<List<PendingWrite>> flusher;
+    private final Thread thread;
+    // Guarded by queue
+    private boolean shutdown;
+
+    GroupCommitWriter(Duration maxDelay, int maxBatchSize, Consumer<List<PendingWrite>> flusher) {
+        requireNonNull(maxDelay, "Max delay cannot be null");
+        requireNonNull(flusher, "Flusher cannot be null");
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = flusher;
+        this.thread = new Thread(this::run, "occurrent-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void write(String streamId, WriteCondition writeCondition, List<CloudEvent> cloudEvents) {
+        PendingWrite pendingWrite = new PendingWrite(streamId, writeCondition, cloudEvents);
+        synchronized (queue) {
+            if (shutdown) {
+                throw new IllegalStateException(GroupCommitWriter.class.getSimpleName() + " has been shutdown");
+            }
+            queue.add(pendingWrite);
+        }
+        try {
+            pendingWrite.result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Interrupts the thread that hands over the batches and waits for it to stop. Writes that haven't been handed over to the flusher
+     * fail with an {@link IllegalStateException}, and so do all writes made after shutdown.
+     */
+    void shutdown() {
+        synchronized (queue) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IllegalStateException exception = new IllegalStateException(GroupCommitWriter.class.getSimpleName() + " has been shutdown");
+        List<PendingWrite> pendingWrites = new ArrayList<>();
+        queue.drainTo(pendingWrites);
+        pendingWrites.forEach(pendingWrite -> pendingWrite.fail(exception));
+    }
+
+    private void run() {
+        // The flusher may clear the interrupted flag (e.g. when the MongoDB driver is interrupted) so the shutdown flag is checked as well
+        while (!Thread.currentThread().isInterrupted() && !isShutdown()) {
+            final List<PendingWrite> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingWrite pendingWrite = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (pendingWrite == null) {
+                        break;
+                    }
+                    batch.add(pendingWrite);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                IllegalStateException exception = new IllegalStateException(GroupCommitWriter.class.getSimpleName() + " has been shutdown", e);
+                batch.forEach(pendingWrite -> pendingWrite.fail(exception));
+                return;
+            }
+
+            try {
+                flusher.accept(batch);
+            } catch (Throwable e) {
+                batch.forEach(pendingWrite -> pendingWrite.fail(e));
+            }
+        }
+    }
+
+    private boolean isShutdown() {
+        synchronized (queue) {
+            return shutdown;
+        }
+    }
+
+    static class PendingWrite {
+        final String streamId;
+        final WriteCondition writeCondition;
+        final List<CloudEvent> cloudEvents;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingWrite(String streamId, WriteCondition writeCondition, List<CloudEvent> cloudEvents) {
+            this.streamId = streamId;
+            this.writeCondition = writeCondition;
+            this.cloudEvents = cloudEvents;
+        }
+
+        void complete() {
+            result.complete(null);
+        }
+
+        void fail(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+    }
+}
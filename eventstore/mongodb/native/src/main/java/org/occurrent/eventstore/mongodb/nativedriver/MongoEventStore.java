@@ -17,40 +17,80 @@
 package org.occurrent.eventstore.mongodb.nativedriver;
 
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.ReadConcern;
 import com.mongodb.TransactionOptions;
+import com.mongodb.WriteError;
 import com.mongodb.client.*;
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.UpdateResult;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.provider.EventFormatProvider;
-import io.cloudevents.jackson.JsonFormat;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.occurrent.cloudevents.OccurrentCloudEventExtension;
 import org.occurrent.cloudevents.OccurrentExtensionGetter;
 import org.occurrent.condition.Condition;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.GroupBy;
 import org.occurrent.eventstore.api.LongConditionEvaluator;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.eventstore.api.WriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
 import org.occurrent.eventstore.api.blocking.EventStore;
 import org.occurrent.eventstore.api.blocking.EventStoreOperations;
 import org.occurrent.eventstore.api.blocking.EventStoreQueries;
 import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.eventstore.mongodb.QueryPlan;
+import org.occurrent.eventstore.mongodb.internal.AggregationPipeline;
+import org.occurrent.eventstore.mongodb.internal.CloudEventViewMapper;
+import org.occurrent.eventstore.mongodb.internal.KeysetPagination;
+import org.occurrent.eventstore.mongodb.internal.MultipleEventStreamsReader;
+import org.occurrent.eventstore.mongodb.internal.ObjectIdPartitioner;
+import org.occurrent.eventstore.mongodb.internal.PartitionedSpliterator;
+import org.occurrent.eventstore.mongodb.internal.QueryPlanExplainer;
+import org.occurrent.eventstore.mongodb.internal.RawBsonDocumentCloudEvent;
+import org.occurrent.eventstore.mongodb.internal.ReadPreferenceConverter;
+import org.occurrent.eventstore.mongodb.internal.SchemaMetadata;
 import org.occurrent.filter.Filter;
 import org.occurrent.functionalsupport.internal.FunctionalSupport.Pair;
 import org.occurrent.mongodb.spring.filterbsonfilterconversion.internal.FilterToBsonFilterConverter;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -58,6 +98,9 @@ import java.util.stream.StreamSupport;
 
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lte;
 import static com.mongodb.client.model.Sorts.ascending;
 import static com.mongodb.client.model.Sorts.descending;
 import static java.util.Objects.requireNonNull;
@@ -66,8 +109,10 @@ import static org.occurrent.eventstore.api.WriteCondition.anyStreamVersion;
 import static org.occurrent.eventstore.mongodb.internal.MongoBulkWriteExceptionToDuplicateCloudEventExceptionTranslator.translateToDuplicateCloudEventException;
 import static org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent;
 import static org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper.convertToDocument;
+import static org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper.convertToRawBsonDocument;
 import static org.occurrent.filter.Filter.TIME;
 import static org.occurrent.functionalsupport.internal.FunctionalSupport.zip;
+import static org.occurrent.mongodb.spring.filterbsonfilterconversion.internal.ConditionConverter.convertConditionToBsonCriteria;
 
 /**
  * This is an {@link EventStore} that stores events in MongoDB using the "native" synchronous java driver MongoDB.
@@ -75,12 +120,23 @@ import static org.occurrent.functionalsupport.internal.FunctionalSupport.zip;
  */
 public class MongoEventStore implements EventStore, EventStoreOperations, EventStoreQueries {
     private static final String ID = "_id";
+    private static final String STREAM_HEAD_VERSION = "version";
+    // The default name that MongoDB gives the unique streamId + streamVersion index
+    private static final String STREAM_ID_AND_STREAM_VERSION_INDEX_NAME = OccurrentCloudEventExtension.STREAM_ID + "_1_" + OccurrentCloudEventExtension.STREAM_VERSION + "_-1";
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
 
     private final MongoCollection<Document> eventCollection;
-    private final EventFormat cloudEventSerializer;
+    private final MongoCollection<Document> streamHeadCollection;
     private final MongoClient mongoClient;
     private final TimeRepresentation timeRepresentation;
     private final TransactionOptions transactionOptions;
+    private final boolean lazyCloudEventDecoding;
+    private final boolean transactionalWrites;
+    private final GroupCommitWriter groupCommitWriter;
+    private final QueryOptions queryOptions;
+    private final ReadConcern singleQueryReadConcern;
+    private final EventCounters eventCounters;
+    private final CompletableFuture<Void> initialization;
 
     /**
      * Create a new instance of {@code MongoEventStore}
@@ -109,36 +165,171 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
         requireNonNull(database, "Database must be defined");
         requireNonNull(eventCollection, "Event collection must be defined");
         requireNonNull(config, EventStoreConfig.class.getSimpleName() + " cannot be null");
-        cloudEventSerializer = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
         this.mongoClient = mongoClient;
         this.eventCollection = eventCollection;
         transactionOptions = config.transactionOptions;
         this.timeRepresentation = config.timeRepresentation;
-        initializeEventStore(eventCollection, database);
+        this.lazyCloudEventDecoding = config.lazyCloudEventDecoding;
+        this.transactionalWrites = config.transactionalWrites;
+        this.queryOptions = config.queryOptions;
+        this.singleQueryReadConcern = config.singleQueryReadConcern;
+        this.groupCommitWriter = config.groupCommitMaxDelay == null ? null : new GroupCommitWriter(config.groupCommitMaxDelay, config.groupCommitMaxBatchSize, this::writeGroup);
+        this.streamHeadCollection = config.streamHeadCollectionName == null ? null : database.getCollection(config.streamHeadCollectionName);
+        MongoCollection<Document> counterCollection = config.counterCollectionName == null ? null : database.getCollection(config.counterCollectionName);
+        this.eventCounters = counterCollection == null ? null : new EventCounters(eventCollection, counterCollection, timeRepresentation, config.counterDefinitions);
+        Runnable initialize = () -> {
+            initializeEventStore(eventCollection, streamHeadCollection, counterCollection, config.indexes, config.schemaMetadataCollectionName, database);
+            if (eventCounters != null) {
+                try (ClientSession clientSession = mongoClient.startSession()) {
+                    clientSession.withTransaction(() -> {
+                        eventCounters.initialize(clientSession);
+                        return "";
+                    }, transactionOptions);
+                }
+            }
+        };
+        if (config.asynchronousInitialization) {
+            this.initialization = CompletableFuture.runAsync(initialize, runnable -> {
+                Thread thread = new Thread(runnable, "occurrent-event-store-initialization");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        } else {
+            initialize.run();
+            this.initialization = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Stops the group commit thread (if {@link EventStoreConfig.Builder#groupCommit(java.time.Duration, int) group commit} is enabled). Writes that are waiting
+     * to be committed fail with an {@link IllegalStateException}, and so do all writes made after the event store has been shutdown. Call this
+     * method when the event store is no longer used, otherwise the group commit thread keeps running. It's safe to call this method more than once.
+     */
+    public void shutdown() {
+        if (groupCommitWriter != null) {
+            groupCommitWriter.shutdown();
+        }
     }
 
     @Override
     public EventStream<CloudEvent> read(String streamId, int skip, int limit) {
-        EventStream<Document> eventStream = readEventStream(streamId, skip, limit, transactionOptions);
-        return eventStream.map(document -> convertToCloudEvent(cloudEventSerializer, timeRepresentation, document));
+        if (singleQueryReadConcern != null && skip == 0 && limit == Integer.MAX_VALUE) {
+            return readEventStreamWithSingleQuery(streamId);
+        } else if (lazyCloudEventDecoding) {
+            EventStream<RawBsonDocument> eventStream = readEventStream(eventCollection.withDocumentClass(RawBsonDocument.class), streamId, skip, limit, transactionOptions);
+            return eventStream.map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document));
+        } else {
+            EventStream<Document> eventStream = readEventStream(eventCollection, streamId, skip, limit, transactionOptions);
+            return eventStream.map(document -> convertToCloudEvent(timeRepresentation, document));
+        }
+    }
+
+    @Override
+    public EventStream<CloudEvent> readVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        if (fromStreamVersion > toStreamVersion) {
+            throw new IllegalArgumentException("fromStreamVersion (" + fromStreamVersion + ") cannot be greater than toStreamVersion (" + toStreamVersion + ")");
+        }
+
+        if (lazyCloudEventDecoding) {
+            EventStream<RawBsonDocument> eventStream = readEventStream(streamId, transactionOptions, clientSession ->
+                    readCloudEventsInStreamVersionRange(eventCollection.withDocumentClass(RawBsonDocument.class), streamId, fromStreamVersion, toStreamVersion, clientSession, queryOptions.withoutReadPreference()));
+            return eventStream.map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document));
+        } else {
+            EventStream<Document> eventStream = readEventStream(streamId, transactionOptions, clientSession ->
+                    readCloudEventsInStreamVersionRange(eventCollection, streamId, fromStreamVersion, toStreamVersion, clientSession, queryOptions.withoutReadPreference()));
+            return eventStream.map(document -> convertToCloudEvent(timeRepresentation, document));
+        }
+    }
+
+    @Override
+    public List<EventStream<CloudEvent>> read(Collection<String> streamIds) {
+        List<String> distinctStreamIds = MultipleEventStreamsReader.distinctStreamIds(streamIds);
+        if (distinctStreamIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (lazyCloudEventDecoding) {
+            List<EventStream<RawBsonDocument>> eventStreams = readEventStreams(eventCollection.withDocumentClass(RawBsonDocument.class), distinctStreamIds,
+                    document -> document.getString(OccurrentCloudEventExtension.STREAM_ID).getValue(), document -> document.getNumber(OccurrentCloudEventExtension.STREAM_VERSION).longValue());
+            return eventStreams.stream().map(eventStream -> eventStream.map(document -> (CloudEvent) new RawBsonDocumentCloudEvent(timeRepresentation, document))).collect(Collectors.toList());
+        } else {
+            List<EventStream<Document>> eventStreams = readEventStreams(eventCollection, distinctStreamIds,
+                    document -> document.getString(OccurrentCloudEventExtension.STREAM_ID), document -> document.getLong(OccurrentCloudEventExtension.STREAM_VERSION));
+            return eventStreams.stream().map(eventStream -> eventStream.map(document -> convertToCloudEvent(timeRepresentation, document))).collect(Collectors.toList());
+        }
+    }
+
+    // All event streams are read with a single query in a single transaction. The version of each event stream is the stream version of its last event.
+    private <T> List<EventStream<T>> readEventStreams(MongoCollection<T> collection, List<String> streamIds, Function<T, String> streamIdOf, ToLongFunction<T> streamVersionOf) {
+        try (ClientSession clientSession = mongoClient.startSession()) {
+            return clientSession.withTransaction(() -> {
+                FindIterable<T> documents = applyQueryOptions(collection.find(clientSession, in(OccurrentCloudEventExtension.STREAM_ID, streamIds))
+                        .sort(MultipleEventStreamsReader.SORT_BY_STREAM_ID_AND_STREAM_VERSION), queryOptions.withoutReadPreference());
+                return MultipleEventStreamsReader.groupByStreamId(streamIds, documents, streamIdOf, streamVersionOf,
+                        (streamId, version, documentsInStream) -> new EventStreamImpl<>(streamId, version, documentsInStream.stream()));
+            }, transactionOptions);
+        }
+    }
+
+    private EventStream<CloudEvent> readEventStreamWithSingleQuery(String streamId) {
+        if (lazyCloudEventDecoding) {
+            EventStream<RawBsonDocument> eventStream = new SingleQueryEventStream<>(streamId, () -> readCloudEventsWithSingleQuery(eventCollection.withDocumentClass(RawBsonDocument.class), streamId),
+                    document -> document.getNumber(OccurrentCloudEventExtension.STREAM_VERSION).longValue(), () -> currentStreamVersionFromEvents(null, streamId));
+            return eventStream.map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document));
+        } else {
+            EventStream<Document> eventStream = new SingleQueryEventStream<>(streamId, () -> readCloudEventsWithSingleQuery(eventCollection, streamId),
+                    document -> document.getLong(OccurrentCloudEventExtension.STREAM_VERSION), () -> currentStreamVersionFromEvents(null, streamId));
+            return eventStream.map(document -> convertToCloudEvent(timeRepresentation, document));
+        }
+    }
+
+    // The query and sort matches the (streamid, streamversion) index
+    private <T> Stream<T> readCloudEventsWithSingleQuery(MongoCollection<T> collection, String streamId) {
+        FindIterable<T> documents = applyQueryOptions(collection.withReadConcern(singleQueryReadConcern).find(streamIdEqualTo(streamId))
+                .sort(ascending(OccurrentCloudEventExtension.STREAM_VERSION)), queryOptions.withoutReadPreference());
+        MongoCursor<T> cursor = documents.iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false).onClose(cursor::close);
     }
 
-    private EventStreamImpl<Document> readEventStream(String streamId, int skip, int limit, TransactionOptions transactionOptions) {
+    private <T> EventStreamImpl<T> readEventStream(MongoCollection<T> collection, String streamId, int skip, int limit, TransactionOptions transactionOptions) {
+        return readEventStream(streamId, transactionOptions, clientSession -> readCloudEvents(collection, streamIdEqualTo(streamId), skip, limit, SortBy.NATURAL_ASC, clientSession, queryOptions.withoutReadPreference()));
+    }
+
+    private <T> EventStreamImpl<T> readEventStream(String streamId, TransactionOptions transactionOptions, Function<ClientSession, Stream<T>> readCloudEvents) {
         try (ClientSession clientSession = mongoClient.startSession()) {
             return clientSession.withTransaction(() -> {
-                long currentStreamVersion = currentStreamVersion(streamId);
+                long currentStreamVersion = currentStreamVersion(clientSession, streamId);
                 if (currentStreamVersion == 0) {
                     return new EventStreamImpl<>(streamId, 0, Stream.empty());
                 }
 
-                Stream<Document> stream = readCloudEvents(streamIdEqualTo(streamId), skip, limit, SortBy.NATURAL_ASC, clientSession);
+                Stream<T> stream = readCloudEvents.apply(clientSession);
                 return new EventStreamImpl<>(streamId, currentStreamVersion, stream);
             }, transactionOptions);
         }
     }
 
-    private long currentStreamVersion(String streamId) {
-        Document documentWithLatestStreamVersion = eventCollection.find(streamIdEqualTo(streamId)).sort(Sorts.descending(OccurrentCloudEventExtension.STREAM_VERSION)).limit(1).projection(Projections.include(OccurrentCloudEventExtension.STREAM_VERSION)).first();
+    // The query and sort matches the (streamid, streamversion) index so no documents outside of the range are scanned
+    private static <T> Stream<T> readCloudEventsInStreamVersionRange(MongoCollection<T> collection, String streamId, long fromStreamVersion, long toStreamVersion, ClientSession clientSession,
+                                                                     QueryOptions queryOptions) {
+        Bson query = and(streamIdEqualTo(streamId), gte(OccurrentCloudEventExtension.STREAM_VERSION, fromStreamVersion), lte(OccurrentCloudEventExtension.STREAM_VERSION, toStreamVersion));
+        FindIterable<T> documents = applyQueryOptions(collection.find(clientSession, query).sort(ascending(OccurrentCloudEventExtension.STREAM_VERSION)), queryOptions);
+        return StreamSupport.stream(documents.spliterator(), false);
+    }
+
+    private long currentStreamVersion(ClientSession clientSession, String streamId) {
+        if (streamHeadCollection != null) {
+            Document streamHead = (clientSession == null ? streamHeadCollection.find(eq(ID, streamId)) : streamHeadCollection.find(clientSession, eq(ID, streamId))).first();
+            if (streamHead != null) {
+                return streamHead.getLong(STREAM_HEAD_VERSION);
+            }
+        }
+        return currentStreamVersionFromEvents(clientSession, streamId);
+    }
+
+    private long currentStreamVersionFromEvents(ClientSession clientSession, String streamId) {
+        FindIterable<Document> documents = clientSession == null ? eventCollection.find(streamIdEqualTo(streamId)) : eventCollection.find(clientSession, streamIdEqualTo(streamId));
+        Document documentWithLatestStreamVersion = documents.sort(Sorts.descending(OccurrentCloudEventExtension.STREAM_VERSION)).limit(1).projection(Projections.include(OccurrentCloudEventExtension.STREAM_VERSION)).first();
         final long currentStreamVersion;
         if (documentWithLatestStreamVersion == null) {
             currentStreamVersion = 0;
@@ -148,15 +339,25 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
         return currentStreamVersion;
     }
 
-    private Stream<Document> readCloudEvents(Bson query, int skip, int limit, SortBy sortBy, ClientSession clientSession) {
-        final FindIterable<Document> documentsWithoutSkipAndLimit;
+    private static <T> Stream<T> readCloudEvents(MongoCollection<T> collection, Bson query, int skip, int limit, SortBy sortBy, ClientSession clientSession, QueryOptions queryOptions) {
+        return readCloudEvents(collection, query, null, skip, limit, sortBy, clientSession, queryOptions);
+    }
+
+    private static <T> Stream<T> readCloudEvents(MongoCollection<T> collection, Bson query, Bson projection, int skip, int limit, SortBy sortBy, ClientSession clientSession,
+                                                 QueryOptions queryOptions) {
+        final FindIterable<T> documentsWithoutSkipAndLimit;
         if (clientSession == null) {
-            documentsWithoutSkipAndLimit = eventCollection.find(query);
+            documentsWithoutSkipAndLimit = withReadPreference(collection, queryOptions).find(query);
         } else {
-            documentsWithoutSkipAndLimit = eventCollection.find(clientSession, query);
+            documentsWithoutSkipAndLimit = collection.find(clientSession, query);
         }
+        applyQueryOptions(documentsWithoutSkipAndLimit, queryOptions);
 
-        final FindIterable<Document> documentsWithSkipAndLimit;
+        if (projection != null) {
+            documentsWithoutSkipAndLimit.projection(projection);
+        }
+
+        final FindIterable<T> documentsWithSkipAndLimit;
         if (skip != 0 || limit != Integer.MAX_VALUE) {
             documentsWithSkipAndLimit = documentsWithoutSkipAndLimit.skip(skip).limit(limit);
         } else {
@@ -182,6 +383,23 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
         return StreamSupport.stream(documentsWithSkipAndLimit.spliterator(), false);
     }
 
+    private static <T> MongoCollection<T> withReadPreference(MongoCollection<T> collection, QueryOptions queryOptions) {
+        return queryOptions.readPreference == null ? collection : collection.withReadPreference(ReadPreferenceConverter.convertToMongoReadPreference(queryOptions.readPreference));
+    }
+
+    private static <T> FindIterable<T> applyQueryOptions(FindIterable<T> documents, QueryOptions queryOptions) {
+        if (queryOptions.batchSize != null) {
+            documents.batchSize(queryOptions.batchSize);
+        }
+        if (queryOptions.maxTime != null) {
+            documents.maxTime(queryOptions.maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (queryOptions.noCursorTimeout != null) {
+            documents.noCursorTimeout(queryOptions.noCursorTimeout);
+        }
+        return documents;
+    }
+
     @Override
     public void write(String streamId, Stream<CloudEvent> events) {
         write(streamId, anyStreamVersion(), events);
@@ -193,28 +411,268 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
             throw new IllegalArgumentException(WriteCondition.class.getSimpleName() + " cannot be null");
         }
 
+        // Collect the events before starting the transaction since the transaction may be retried
+        List<CloudEvent> cloudEvents = events.collect(Collectors.toList());
+        awaitInitialization();
+
+        if (groupCommitWriter != null) {
+            groupCommitWriter.write(streamId, writeCondition, cloudEvents);
+        } else if (transactionalWrites) {
+            writeInTransaction(streamId, writeCondition, cloudEvents);
+        } else {
+            writeWithoutTransaction(streamId, writeCondition, cloudEvents);
+        }
+    }
+
+    private void writeInTransaction(String streamId, WriteCondition writeCondition, List<CloudEvent> cloudEvents) {
         try (ClientSession clientSession = mongoClient.startSession()) {
             clientSession.withTransaction(() -> {
-                long currentStreamVersion = currentStreamVersion(streamId);
-
-                if (!isFulfilled(currentStreamVersion, writeCondition)) {
-                    throw new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+                final long currentStreamVersion;
+                if (streamHeadCollection == null) {
+                    currentStreamVersion = currentStreamVersionFromEvents(clientSession, streamId);
+                    if (!isFulfilled(currentStreamVersion, writeCondition)) {
+                        throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+                    }
+                } else {
+                    currentStreamVersion = incrementStreamHeadVersion(clientSession, streamId, writeCondition, cloudEvents.size());
                 }
 
-                List<Document> cloudEventDocuments = zip(LongStream.iterate(currentStreamVersion + 1, i -> i + 1).boxed(), events, Pair::new)
-                        .map(pair -> convertToDocument(cloudEventSerializer, timeRepresentation, streamId, pair.t1, pair.t2))
-                        .collect(Collectors.toList());
+                List<RawBsonDocument> cloudEventDocuments = convertToRawBsonDocuments(streamId, currentStreamVersion, cloudEvents);
 
                 try {
-                    eventCollection.insertMany(clientSession, cloudEventDocuments);
+                    eventCollection.withDocumentClass(RawBsonDocument.class).insertMany(clientSession, cloudEventDocuments);
                 } catch (MongoBulkWriteException e) {
                     throw translateToDuplicateCloudEventException(e);
                 }
+                incrementCounters(clientSession, cloudEventDocuments);
                 return "";
             }, transactionOptions);
         }
     }
 
+    /**
+     * Writes to multiple event streams in a single transaction using a single {@code insertMany}. Note that this is always done
+     * in a transaction, regardless of whether transactional writes are enabled or not.
+     */
+    @Override
+    public void write(List<EventStreamWrite> writes) {
+        requireNonNull(writes, "Writes cannot be null");
+
+        // Collect the events before starting the transaction since the transaction may be retried
+        List<Pair<EventStreamWrite, List<CloudEvent>>> writesWithEvents = writes.stream()
+                .map(write -> new Pair<>(write, write.events.collect(Collectors.toList())))
+                .collect(Collectors.toList());
+        awaitInitialization();
+
+        try (ClientSession clientSession = mongoClient.startSession()) {
+            clientSession.withTransaction(() -> {
+                Map<String, Long> streamVersions = new HashMap<>();
+                List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions = new ArrayList<>();
+                List<RawBsonDocument> cloudEventDocuments = new ArrayList<>();
+                for (Pair<EventStreamWrite, List<CloudEvent>> writeWithEvents : writesWithEvents) {
+                    EventStreamWrite write = writeWithEvents.t1;
+                    WriteConditionNotFulfilledException e = addToBatch(clientSession, streamVersions, write.streamId, write.writeCondition, writeWithEvents.t2, cloudEventDocuments);
+                    if (e != null) {
+                        writeConditionNotFulfilledExceptions.add(e);
+                    }
+                }
+
+                if (!writeConditionNotFulfilledExceptions.isEmpty()) {
+                    throw new WriteConditionsNotFulfilledException(writeConditionNotFulfilledExceptions);
+                } else if (!cloudEventDocuments.isEmpty()) {
+                    try {
+                        eventCollection.withDocumentClass(RawBsonDocument.class).insertMany(clientSession, cloudEventDocuments);
+                    } catch (MongoBulkWriteException e) {
+                        throw translateToDuplicateCloudEventException(e);
+                    }
+                    incrementCounters(clientSession, cloudEventDocuments);
+                }
+                return "";
+            }, transactionOptions);
+        }
+    }
+
+    /**
+     * Writes the pending writes collected by the {@link GroupCommitWriter} in a single transaction. Writes whose write condition
+     * are not fulfilled are excluded from the transaction and fails individually. If the transaction fails (for example due to a
+     * duplicate cloud event), each pending write is retried in a transaction of its own so that only the offending write fails.
+     */
+    private void writeGroup(List<GroupCommitWriter.PendingWrite> pendingWrites) {
+        if (pendingWrites.size() == 1) {
+            writePendingWriteInTransaction(pendingWrites.get(0));
+            return;
+        }
+
+        final Map<GroupCommitWriter.PendingWrite, WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions;
+        try (ClientSession clientSession = mongoClient.startSession()) {
+            writeConditionNotFulfilledExceptions = clientSession.withTransaction(() -> {
+                Map<String, Long> streamVersions = new HashMap<>();
+                Map<GroupCommitWriter.PendingWrite, WriteConditionNotFulfilledException> notFulfilled = new HashMap<>();
+                List<RawBsonDocument> cloudEventDocuments = new ArrayList<>();
+                for (GroupCommitWriter.PendingWrite pendingWrite : pendingWrites) {
+                    WriteConditionNotFulfilledException e = addToBatch(clientSession, streamVersions, pendingWrite.streamId, pendingWrite.writeCondition, pendingWrite.cloudEvents, cloudEventDocuments);
+                    if (e != null) {
+                        notFulfilled.put(pendingWrite, e);
+                    }
+                }
+
+                if (!cloudEventDocuments.isEmpty()) {
+                    eventCollection.withDocumentClass(RawBsonDocument.class).insertMany(clientSession, cloudEventDocuments);
+                    incrementCounters(clientSession, cloudEventDocuments);
+                }
+                return notFulfilled;
+            }, transactionOptions);
+        } catch (RuntimeException e) {
+            pendingWrites.forEach(this::writePendingWriteInTransaction);
+            return;
+        }
+
+        for (GroupCommitWriter.PendingWrite pendingWrite : pendingWrites) {
+            WriteConditionNotFulfilledException e = writeConditionNotFulfilledExceptions.get(pendingWrite);
+            if (e == null) {
+                pendingWrite.complete();
+            } else {
+                pendingWrite.fail(e);
+            }
+        }
+    }
+
+    private void writePendingWriteInTransaction(GroupCommitWriter.PendingWrite pendingWrite) {
+        try {
+            writeInTransaction(pendingWrite.streamId, pendingWrite.writeCondition, pendingWrite.cloudEvents);
+            pendingWrite.complete();
+        } catch (RuntimeException e) {
+            pendingWrite.fail(e);
+        }
+    }
+
+    /**
+     * Checks the write condition of a write that is part of a batch and, if fulfilled, adds the cloud event documents to {@code cloudEventDocuments}.
+     * The events are not inserted until all write conditions in the batch have been checked so {@code streamVersions} is used to keep track of the
+     * stream versions that are the result of the previous writes in the batch.
+     *
+     * @return A {@link WriteConditionNotFulfilledException} if the write condition was not fulfilled, {@code null} otherwise.
+     */
+    private WriteConditionNotFulfilledException addToBatch(ClientSession clientSession, Map<String, Long> streamVersions, String streamId, WriteCondition writeCondition,
+                                                           List<CloudEvent> cloudEvents, List<RawBsonDocument> cloudEventDocuments) {
+        final long currentStreamVersion;
+        try {
+            if (streamHeadCollection == null) {
+                currentStreamVersion = streamVersions.computeIfAbsent(streamId, __ -> currentStreamVersionFromEvents(clientSession, streamId));
+                if (!isFulfilled(currentStreamVersion, writeCondition)) {
+                    throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+                }
+            } else {
+                currentStreamVersion = incrementStreamHeadVersion(clientSession, streamId, writeCondition, cloudEvents.size());
+            }
+        } catch (WriteConditionNotFulfilledException e) {
+            return e;
+        }
+
+        streamVersions.put(streamId, currentStreamVersion + cloudEvents.size());
+        cloudEventDocuments.addAll(convertToRawBsonDocuments(streamId, currentStreamVersion, cloudEvents));
+        return null;
+    }
+
+    private void writeWithoutTransaction(String streamId, WriteCondition writeCondition, List<CloudEvent> cloudEvents) {
+        while (true) {
+            long currentStreamVersion = currentStreamVersionFromEvents(null, streamId);
+            if (!isFulfilled(currentStreamVersion, writeCondition)) {
+                throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+            }
+
+            List<RawBsonDocument> cloudEventDocuments = convertToRawBsonDocuments(streamId, currentStreamVersion, cloudEvents);
+            try {
+                eventCollection.withDocumentClass(RawBsonDocument.class).insertMany(cloudEventDocuments);
+                return;
+            } catch (MongoBulkWriteException e) {
+                if (!isDuplicateStreamVersion(e)) {
+                    throw translateToDuplicateCloudEventException(e);
+                }
+                int insertedCount = e.getWriteResult().getInsertedCount();
+                if (insertedCount > 0) {
+                    // The inserts are not atomic, the events inserted before the conflicting event are visible to other writers
+                    // (that may have written events after them) so they cannot be rolled back.
+                    throw new IllegalStateException(String.format("Another writer wrote to event stream %s while writing %d events without a transaction. " +
+                            "The first %d events were written but the remaining %d events were not.", streamId, cloudEvents.size(), insertedCount, cloudEvents.size() - insertedCount), e);
+                }
+                // Another writer has written to the stream after we read the current stream version and nothing has been written.
+                // Evaluate the write condition again using the new stream version.
+            }
+        }
+    }
+
+    private void incrementCounters(ClientSession clientSession, List<RawBsonDocument> cloudEventDocuments) {
+        if (eventCounters != null) {
+            List<CloudEvent> cloudEvents = cloudEventDocuments.stream().map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document)).collect(Collectors.toList());
+            eventCounters.increment(clientSession, cloudEvents, 1);
+        }
+    }
+
+    private void decrementCounters(ClientSession clientSession, Bson query) {
+        if (eventCounters != null) {
+            List<CloudEvent> cloudEvents = new ArrayList<>();
+            eventCollection.withDocumentClass(RawBsonDocument.class).find(clientSession, query).forEach(document -> cloudEvents.add(new RawBsonDocumentCloudEvent(timeRepresentation, document)));
+            eventCounters.increment(clientSession, cloudEvents, -1);
+        }
+    }
+
+    private List<RawBsonDocument> convertToRawBsonDocuments(String streamId, long currentStreamVersion, List<CloudEvent> cloudEvents) {
+        return zip(LongStream.iterate(currentStreamVersion + 1, i -> i + 1).boxed(), cloudEvents.stream(), Pair::new)
+                .map(pair -> convertToRawBsonDocument(timeRepresentation, streamId, pair.t1, pair.t2))
+                .collect(Collectors.toList());
+    }
+
+    // The duplicate key error message contains the name of the violated index, e.g. "E11000 duplicate key error collection: db.events index: streamid_1_streamversion_-1 dup key: ..."
+    private static boolean isDuplicateStreamVersion(MongoBulkWriteException e) {
+        return e.getWriteErrors().stream()
+                .filter(error -> error.getCode() == 11000)
+                .map(WriteError::getMessage)
+                .anyMatch(errorMessage -> errorMessage.contains(" index: " + STREAM_ID_AND_STREAM_VERSION_INDEX_NAME + " "));
+    }
+
+    /**
+     * Increments the version of the stream head by {@code numberOfEvents} if the {@code writeCondition} is fulfilled. The write condition
+     * is included in the update query so that it's checked and the stream head is updated by a single operation on the stream head id.
+     *
+     * @return The stream version before the stream head was incremented
+     */
+    private long incrementStreamHeadVersion(ClientSession clientSession, String streamId, WriteCondition writeCondition, int numberOfEvents) {
+        Bson streamHeadQuery = eq(ID, streamId);
+        final Bson streamHeadQueryWithWriteCondition;
+        if (writeCondition.isAnyStreamVersion()) {
+            streamHeadQueryWithWriteCondition = streamHeadQuery;
+        } else if (writeCondition instanceof StreamVersionWriteCondition) {
+            Condition<Long> condition = ((StreamVersionWriteCondition) writeCondition).condition;
+            streamHeadQueryWithWriteCondition = and(streamHeadQuery, convertConditionToBsonCriteria(STREAM_HEAD_VERSION, condition));
+        } else {
+            throw new IllegalArgumentException("Invalid " + WriteCondition.class.getSimpleName() + ": " + writeCondition);
+        }
+
+        Document previousStreamHead = streamHeadCollection.findOneAndUpdate(clientSession, streamHeadQueryWithWriteCondition, Updates.inc(STREAM_HEAD_VERSION, (long) numberOfEvents));
+        if (previousStreamHead != null) {
+            return previousStreamHead.getLong(STREAM_HEAD_VERSION);
+        }
+
+        Document streamHead = streamHeadCollection.find(clientSession, streamHeadQuery).first();
+        if (streamHead != null) {
+            long currentStreamVersion = streamHead.getLong(STREAM_HEAD_VERSION);
+            throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+        }
+
+        // The stream head doesn't exist, either because this is a new stream or because the stream was written before stream heads were enabled
+        long currentStreamVersion = currentStreamVersionFromEvents(clientSession, streamId);
+        if (!isFulfilled(currentStreamVersion, writeCondition)) {
+            throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+        }
+        streamHeadCollection.insertOne(clientSession, new Document(ID, streamId).append(STREAM_HEAD_VERSION, currentStreamVersion + numberOfEvents));
+        return currentStreamVersion;
+    }
+
+    private static WriteConditionNotFulfilledException writeConditionNotFulfilled(String streamId, long currentStreamVersion, WriteCondition writeCondition) {
+        return new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+    }
+
     private static boolean isFulfilled(long currentStreamVersion, WriteCondition writeCondition) {
         if (writeCondition.isAnyStreamVersion()) {
             return true;
@@ -230,48 +688,88 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
 
     @Override
     public boolean exists(String streamId) {
+        if (streamHeadCollection != null && streamHeadCollection.find(eq(ID, streamId)).first() != null) {
+            return true;
+        }
         return eventCollection.countDocuments(eq(OccurrentCloudEventExtension.STREAM_ID, streamId)) > 0;
     }
 
     @Override
     public void deleteEventStream(String streamId) {
-        eventCollection.deleteMany(eq(OccurrentCloudEventExtension.STREAM_ID, streamId));
+        awaitInitialization();
+        if (streamHeadCollection == null && eventCounters == null) {
+            eventCollection.deleteMany(eq(OccurrentCloudEventExtension.STREAM_ID, streamId));
+        } else {
+            try (ClientSession clientSession = mongoClient.startSession()) {
+                clientSession.withTransaction(() -> {
+                    decrementCounters(clientSession, streamIdEqualTo(streamId));
+                    eventCollection.deleteMany(clientSession, eq(OccurrentCloudEventExtension.STREAM_ID, streamId));
+                    return streamHeadCollection == null ? null : streamHeadCollection.deleteOne(clientSession, eq(ID, streamId));
+                }, transactionOptions);
+            }
+        }
     }
 
     @Override
     public void deleteEvent(String cloudEventId, URI cloudEventSource) {
-        eventCollection.deleteOne(uniqueCloudEvent(cloudEventId, cloudEventSource));
+        awaitInitialization();
+        if (streamHeadCollection == null && eventCounters == null) {
+            eventCollection.deleteOne(uniqueCloudEvent(cloudEventId, cloudEventSource));
+        } else {
+            try (ClientSession clientSession = mongoClient.startSession()) {
+                clientSession.withTransaction(() -> {
+                    decrementCounters(clientSession, uniqueCloudEvent(cloudEventId, cloudEventSource));
+                    Document deletedEvent = eventCollection.findOneAndDelete(clientSession, uniqueCloudEvent(cloudEventId, cloudEventSource));
+                    if (deletedEvent != null && streamHeadCollection != null) {
+                        // The stream head is removed together with the last event so that the event stream no longer exists
+                        String streamId = deletedEvent.getString(OccurrentCloudEventExtension.STREAM_ID);
+                        if (eventCollection.find(clientSession, eq(OccurrentCloudEventExtension.STREAM_ID, streamId)).first() == null) {
+                            streamHeadCollection.deleteOne(clientSession, eq(ID, streamId));
+                        }
+                    }
+                    return deletedEvent;
+                }, transactionOptions);
+            }
+        }
     }
 
     @Override
     public Optional<CloudEvent> updateEvent(String cloudEventId, URI cloudEventSource, Function<CloudEvent, CloudEvent> updateFunction) {
         requireNonNull(updateFunction, "Update function cannot be null");
+        awaitInitialization();
 
         Bson cloudEvent = uniqueCloudEvent(cloudEventId, cloudEventSource);
         final Optional<CloudEvent> result;
         try (ClientSession clientSession = mongoClient.startSession()) {
             result = clientSession.withTransaction(
-                    () -> updateCloudEvent(updateFunction, () -> eventCollection.find(clientSession, cloudEvent), updatedDocument -> eventCollection.replaceOne(clientSession, cloudEvent, updatedDocument)),
+                    () -> updateCloudEvent(updateFunction, () -> eventCollection.find(clientSession, cloudEvent), (currentDocument, updatedDocument) -> {
+                        if (eventCounters != null) {
+                            eventCounters.increment(clientSession, Collections.singletonList(convertToCloudEvent(timeRepresentation, currentDocument)), -1);
+                            eventCounters.increment(clientSession, Collections.singletonList(convertToCloudEvent(timeRepresentation, updatedDocument)), 1);
+                        }
+                        return eventCollection.replaceOne(clientSession, cloudEvent, updatedDocument);
+                    }),
                     transactionOptions);
         }
         return result;
     }
 
-    private Optional<CloudEvent> updateCloudEvent(Function<CloudEvent, CloudEvent> fn, Supplier<FindIterable<Document>> cloudEventFinder, Function<Document, UpdateResult> cloudEventUpdater) {
+    private Optional<CloudEvent> updateCloudEvent(Function<CloudEvent, CloudEvent> fn, Supplier<FindIterable<Document>> cloudEventFinder,
+                                                 BiFunction<Document, Document, UpdateResult> cloudEventUpdater) {
         Document document = cloudEventFinder.get().first();
         if (document == null) {
             return Optional.empty();
         } else {
-            CloudEvent currentCloudEvent = convertToCloudEvent(cloudEventSerializer, timeRepresentation, document);
+            CloudEvent currentCloudEvent = convertToCloudEvent(timeRepresentation, document);
             CloudEvent updatedCloudEvent = fn.apply(currentCloudEvent);
             if (updatedCloudEvent == null) {
                 throw new IllegalArgumentException("Cloud event update function is not allowed to return null");
             } else if (!Objects.equals(updatedCloudEvent, currentCloudEvent)) {
                 String streamId = OccurrentExtensionGetter.getStreamId(currentCloudEvent);
                 long streamVersion = OccurrentExtensionGetter.getStreamVersion(currentCloudEvent);
-                Document updatedDocument = convertToDocument(cloudEventSerializer, timeRepresentation, streamId, streamVersion, updatedCloudEvent);
+                Document updatedDocument = convertToDocument(timeRepresentation, streamId, streamVersion, updatedCloudEvent);
                 updatedDocument.put(ID, document.get(ID)); // Insert the Mongo ObjectID
-                cloudEventUpdater.apply(updatedDocument);
+                cloudEventUpdater.apply(document, updatedDocument);
             }
             return Optional.of(updatedCloudEvent);
         }
@@ -279,23 +777,137 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
 
     @Override
     public Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy) {
+        return query(filter, skip, limit, sortBy, QueryOptions.none());
+    }
+
+    @Override
+    public Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy, QueryOptions queryOptions) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(queryOptions, QueryOptions.class.getSimpleName() + " cannot be null");
+        final Bson query = FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
+        final QueryOptions effectiveQueryOptions = this.queryOptions.overrideWith(queryOptions);
+        if (lazyCloudEventDecoding) {
+            return readCloudEvents(eventCollection.withDocumentClass(RawBsonDocument.class), query, skip, limit, sortBy, null, effectiveQueryOptions)
+                    .map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document));
+        } else {
+            return readCloudEvents(eventCollection, query, skip, limit, sortBy, null, effectiveQueryOptions)
+                    .map(document -> convertToCloudEvent(timeRepresentation, document));
+        }
+    }
+
+    @Override
+    public Stream<CloudEventView> queryViews(Filter filter, Set<String> attributes, int skip, int limit, SortBy sortBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Bson query = FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
+        return readCloudEvents(eventCollection, query, CloudEventViewMapper.projection(attributes), skip, limit, sortBy, null, queryOptions)
+                .map(CloudEventViewMapper::convertToCloudEventView);
+    }
+
+    @Override
+    public Stream<CloudEvent> queryParallel(Filter filter, int partitions) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Bson query = FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
+        List<Supplier<Stream<CloudEvent>>> partitionReaders = ObjectIdPartitioner.partitions(firstId(ascending(ID)), firstId(descending(ID)), partitions).stream()
+                .map(partition -> (Supplier<Stream<CloudEvent>>) () -> {
+                    Bson partitionQuery = and(query, partition);
+                    if (lazyCloudEventDecoding) {
+                        return readCloudEventsInPartition(eventCollection.withDocumentClass(RawBsonDocument.class), partitionQuery, queryOptions)
+                                .map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document));
+                    } else {
+                        return readCloudEventsInPartition(eventCollection, partitionQuery, queryOptions)
+                                .map(document -> convertToCloudEvent(timeRepresentation, document));
+                    }
+                })
+                .collect(Collectors.toList());
+        PartitionedSpliterator<CloudEvent> spliterator = new PartitionedSpliterator<>(partitionReaders);
+        return StreamSupport.stream(spliterator, true).onClose(spliterator::close);
+    }
+
+    private static <T> Stream<T> readCloudEventsInPartition(MongoCollection<T> collection, Bson partitionQuery, QueryOptions queryOptions) {
+        MongoCursor<T> cursor = applyQueryOptions(withReadPreference(collection, queryOptions).find(partitionQuery).sort(ascending(ID)), queryOptions).iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(cursor::close);
+    }
+
+    private ObjectId firstId(Bson sort) {
+        Document document = withReadPreference(eventCollection, queryOptions).find().projection(Projections.include(ID)).sort(sort).first();
+        return document == null ? null : document.getObjectId(ID);
+    }
+
+    @Override
+    public EventPage queryPage(Filter filter, int limit, SortBy sortBy, String continuationToken) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        }
+
+        Bson query = and(FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter), KeysetPagination.continueAfter(sortBy.name(), continuationToken));
+        // Read one more document than the limit to find out if there's a next page
+        List<RawBsonDocument> documents = applyQueryOptions(withReadPreference(eventCollection.withDocumentClass(RawBsonDocument.class), queryOptions).find(query), queryOptions)
+                .sort(KeysetPagination.sort(sortBy.name()))
+                .limit(limit == Integer.MAX_VALUE ? limit : limit + 1)
+                .into(new ArrayList<>());
+
+        final List<RawBsonDocument> documentsInPage;
+        final String nextContinuationToken;
+        if (documents.size() > limit) {
+            documentsInPage = documents.subList(0, limit);
+            RawBsonDocument lastDocument = documentsInPage.get(limit - 1);
+            nextContinuationToken = KeysetPagination.continuationToken(sortBy.name(), lastDocument.get(TIME), lastDocument.get(ID));
+        } else {
+            documentsInPage = documents;
+            nextContinuationToken = null;
+        }
+
+        List<CloudEvent> cloudEvents = documentsInPage.stream()
+                .map(document -> lazyCloudEventDecoding ? new RawBsonDocumentCloudEvent(timeRepresentation, document) : convertToCloudEvent(timeRepresentation, document.decode(DOCUMENT_CODEC)))
+                .collect(Collectors.toList());
+        return new EventPage(cloudEvents, nextContinuationToken);
+    }
+
+    @Override
+    public Stream<AggregatedGroup> aggregate(Filter filter, List<GroupBy> groupBy) {
         requireNonNull(filter, "Filter cannot be null");
         final Bson query = FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
-        return readCloudEvents(query, skip, limit, sortBy, null)
-                .map(document -> convertToCloudEvent(cloudEventSerializer, timeRepresentation, document));
+        AggregateIterable<Document> documents = withReadPreference(eventCollection, queryOptions).aggregate(AggregationPipeline.pipeline(timeRepresentation, query, groupBy));
+        if (queryOptions.maxTime != null) {
+            documents.maxTime(queryOptions.maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return StreamSupport.stream(documents.spliterator(), false)
+                .map(document -> AggregationPipeline.convertToAggregatedGroup(groupBy, document));
     }
 
     @Override
     public long count(Filter filter) {
         requireNonNull(filter, "Filter cannot be null");
-        if (filter instanceof Filter.All) {
-            return eventCollection.estimatedDocumentCount();
+        awaitInitialization();
+        Long count = eventCounters == null ? null : eventCounters.count(filter);
+        if (count != null) {
+            return count;
+        } else if (filter instanceof Filter.All) {
+            return withReadPreference(eventCollection, queryOptions).estimatedDocumentCount();
         } else {
             final Bson query = FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
-            return eventCollection.countDocuments(query);
+            return withReadPreference(eventCollection, queryOptions).countDocuments(query);
         }
     }
 
+    /**
+     * Explain how MongoDB executes the query for the supplied filter, without executing the query. Use this to find queries that scan
+     * the entire event collection (see {@link QueryPlan#collectionScan}) and that should be backed by an index
+     * (see {@link EventStoreConfig.Builder#indexes(IndexModel...)}).
+     *
+     * @param filter The filter to explain
+     * @return The {@link QueryPlan} of the query
+     */
+    public QueryPlan explain(Filter filter) {
+        requireNonNull(filter, "Filter cannot be null");
+        Bson query = FilterToBsonFilterConverter.convertFilterToBsonFilter(timeRepresentation, filter);
+        MongoNamespace namespace = eventCollection.getNamespace();
+        Document explainResult = mongoClient.getDatabase(namespace.getDatabaseName()).runCommand(QueryPlanExplainer.explainCommand(namespace.getCollectionName(), query));
+        return QueryPlanExplainer.toQueryPlan(query, explainResult);
+    }
+
     private static class EventStreamImpl<T> implements EventStream<T> {
         private final String id;
         private final long version;
@@ -324,17 +936,131 @@ public class MongoEventStore implements EventStore, EventStoreOperations, EventS
 
     }
 
-    private static void initializeEventStore(MongoCollection<Document> eventStoreCollection, MongoDatabase mongoDatabase) {
+    /**
+     * An event stream whose events are read by a single query and whose version is derived from the last event returned by the query.
+     * If the version is requested before the events are iterated, the events are buffered in memory. If the version is requested
+     * while the events are being iterated, the stream version of the last event is read from the database. Just as for other event
+     * streams, {@link #events()} returns the same (single use) {@link Stream} each time it's called (unless the events are buffered).
+     */
+    private static class SingleQueryEventStream<T> implements EventStream<T> {
+        private final String id;
+        private final Supplier<Stream<T>> readEvents;
+        private final ToLongFunction<T> streamVersionOf;
+        private final LongSupplier currentStreamVersion;
+
+        private List<T> bufferedEvents;
+        private Stream<T> events;
+        private boolean eventsRead;
+        private long lastStreamVersion;
+        private Long version;
+
+        SingleQueryEventStream(String id, Supplier<Stream<T>> readEvents, ToLongFunction<T> streamVersionOf, LongSupplier currentStreamVersion) {
+            this.id = id;
+            this.readEvents = readEvents;
+            this.streamVersionOf = streamVersionOf;
+            this.currentStreamVersion = currentStreamVersion;
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public long version() {
+            if (version == null) {
+                if (!eventsRead) {
+                    try (Stream<T> events = readEvents.get()) {
+                        bufferedEvents = events.collect(Collectors.toList());
+                    }
+                    eventsRead = true;
+                    version = bufferedEvents.isEmpty() ? 0 : streamVersionOf.applyAsLong(bufferedEvents.get(bufferedEvents.size() - 1));
+                } else {
+                    version = currentStreamVersion.getAsLong();
+                }
+            }
+            return version;
+        }
+
+        @Override
+        public Stream<T> events() {
+            if (bufferedEvents != null) {
+                return bufferedEvents.stream();
+            } else if (events != null) {
+                return events;
+            }
+            eventsRead = true;
+            Stream<T> events = readEvents.get();
+            Spliterator<T> cursor = events.spliterator();
+            Spliterator<T> eventsTrackingStreamVersion = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    boolean advanced = cursor.tryAdvance(event -> {
+                        lastStreamVersion = streamVersionOf.applyAsLong(event);
+                        action.accept(event);
+                    });
+                    if (!advanced && version == null) {
+                        version = lastStreamVersion;
+                    }
+                    return advanced;
+                }
+            };
+            this.events = StreamSupport.stream(eventsTrackingStreamVersion, false).onClose(events::close);
+            return this.events;
+        }
+    }
+
+    // Writes, deletes, updates and counts depend on the collections, indexes and counters created by the initialization
+    private void awaitInitialization() {
+        try {
+            initialization.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void initializeEventStore(MongoCollection<Document> eventStoreCollection, MongoCollection<Document> streamHeadCollection, MongoCollection<Document> counterCollection,
+                                             List<IndexModel> indexes, String schemaMetadataCollectionName, MongoDatabase mongoDatabase) {
         String eventStoreCollectionName = eventStoreCollection.getNamespace().getCollectionName();
+        MongoCollection<Document> schemaMetadataCollection = schemaMetadataCollectionName == null ? null : mongoDatabase.getCollection(schemaMetadataCollectionName);
+        String signature = SchemaMetadata.signature(Arrays.asList(eventStoreCollectionName, collectionName(streamHeadCollection), collectionName(counterCollection)), indexes);
+        if (schemaMetadataCollection != null && SchemaMetadata.isCurrent(schemaMetadataCollection.find(SchemaMetadata.schemaMetadataId(eventStoreCollectionName)).first(), signature)) {
+            return;
+        }
+
         if (!collectionExists(mongoDatabase, eventStoreCollectionName)) {
             mongoDatabase.createCollection(eventStoreCollectionName);
         }
+        // Collections cannot be created implicitly inside a transaction so the stream head collection must be created upfront
+        if (streamHeadCollection != null && !collectionExists(mongoDatabase, streamHeadCollection.getNamespace().getCollectionName())) {
+            mongoDatabase.createCollection(streamHeadCollection.getNamespace().getCollectionName());
+        }
+        if (counterCollection != null && !collectionExists(mongoDatabase, counterCollection.getNamespace().getCollectionName())) {
+            mongoDatabase.createCollection(counterCollection.getNamespace().getCollectionName());
+        }
         // Create a streamId index
         eventStoreCollection.createIndex(Indexes.ascending(OccurrentCloudEventExtension.STREAM_ID));
         // Cloud spec defines id + source must be unique!
         eventStoreCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("id"), Indexes.ascending("source")), new IndexOptions().unique(true));
         // Create a streamId + streamVersion index
-        eventStoreCollection.createIndex(Indexes.compoundIndex(Indexes.ascending(OccurrentCloudEventExtension.STREAM_ID), Indexes.descending(OccurrentCloudEventExtension.STREAM_VERSION)), new IndexOptions().unique(true));
+        eventStoreCollection.createIndex(Indexes.compoundIndex(Indexes.ascending(OccurrentCloudEventExtension.STREAM_ID), Indexes.descending(OccurrentCloudEventExtension.STREAM_VERSION)), new IndexOptions().name(STREAM_ID_AND_STREAM_VERSION_INDEX_NAME).unique(true));
+        // Create the indexes defined in the config
+        if (!indexes.isEmpty()) {
+            eventStoreCollection.createIndexes(indexes);
+        }
+        if (schemaMetadataCollection != null) {
+            schemaMetadataCollection.replaceOne(SchemaMetadata.schemaMetadataId(eventStoreCollectionName), SchemaMetadata.schemaMetadata(eventStoreCollectionName, signature), new ReplaceOptions().upsert(true));
+        }
+    }
+
+    private static String collectionName(MongoCollection<Document> collection) {
+        return collection == null ? null : collection.getNamespace().getCollectionName();
     }
 
     private static boolean collectionExists(MongoDatabase mongoDatabase, String collectionName) {
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.eventstore.mongodb.nativedriver;
+
+import org.junit.jupiter.api.Test;
+import org.occurrent.condition.Condition;
+import org.occurrent.filter.Filter;
+
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class CounterDefinitionTest {
+
+    @Test
+    void count_matching_throws_iae_when_filter_is_all() {
+        // When
+        Throwable throwable = catchThrowable(() -> CounterDefinition.countMatching(Filter.all()));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Counting all events doesn't require a counter");
+    }
+
+    @Test
+    void count_matching_throws_iae_when_filter_includes_data() {
+        // When
+        Throwable throwable = catchThrowable(() -> CounterDefinition.countMatching(Filter.type("MyEvent").and(Filter.data("name", Condition.eq("John")))));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Counters cannot filter on data");
+    }
+
+    @Test
+    void count_matching_throws_iae_when_filter_includes_time() {
+        // When
+        Throwable throwable = catchThrowable(() -> CounterDefinition.countMatching(Filter.type("MyEvent").or(Filter.time(Condition.gt(OffsetDateTime.now())))));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Counters cannot filter on time");
+    }
+
+    @Test
+    void count_by_type_is_not_filtered() {
+        // When
+        CounterDefinition counterDefinition = CounterDefinition.countByType();
+
+        // Then
+        assertThat(counterDefinition.isCountByType()).isTrue();
+        assertThat(counterDefinition.filter).isNull();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.occurrent.eventstore.mongodb.nativedriver;
+
+import org.junit.jupiter.api.Test;
+import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.occurrent.eventstore.api.WriteCondition.anyStreamVersion;
+
+class GroupCommitWriterTest {
+
+    @Test
+    void concurrent_writes_are_flushed_as_a_single_batch() throws InterruptedException {
+        // Given
+        int numberOfWriters = 5;
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitWriter groupCommitWriter = new GroupCommitWriter(Duration.ofSeconds(10), numberOfWriters, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(GroupCommitWriter.PendingWrite::complete);
+        });
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfWriters);
+        CountDownLatch written = new CountDownLatch(numberOfWriters);
+
+        // When
+        for (int i = 0; i < numberOfWriters; i++) {
+            String streamId = "stream" + i;
+            executorService.execute(() -> {
+                groupCommitWriter.write(streamId, anyStreamVersion(), emptyList());
+                written.countDown();
+            });
+        }
+
+        // Then
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(batchSizes).containsExactly(numberOfWriters);
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void each_caller_gets_its_own_exception() {
+        // Given
+        GroupCommitWriter groupCommitWriter = new GroupCommitWriter(Duration.ZERO, 10, batch -> batch.forEach(pendingWrite -> {
+            if (pendingWrite.streamId.equals("fail")) {
+                pendingWrite.fail(new WriteConditionNotFulfilledException(pendingWrite.streamId, 0, pendingWrite.writeCondition, "expected"));
+            } else {
+                pendingWrite.complete();
+            }
+        }));
+
+        // When
+        Throwable successful = catchThrowable(() -> groupCommitWriter.write("success", anyStreamVersion(), emptyList()));
+        Throwable failed = catchThrowable(() -> groupCommitWriter.write("fail", anyStreamVersion(), emptyList()));
+
+        // Then
+        assertThat(successful).isNull();
+        assertThat(failed).isExactlyInstanceOf(WriteConditionNotFulfilledException.class).hasMessage("expected");
+    }
+
+    @Test
+    void all_callers_in_the_batch_fails_when_flusher_throws_exception() {
+        // Given
+        GroupCommitWriter groupCommitWriter = new GroupCommitWriter(Duration.ZERO, 10, batch -> {
+            throw new IllegalStateException("expected");
+        });
+
+        // When
+        Throwable throwable = catchThrowable(() -> groupCommitWriter.write("stream", anyStreamVersion(), emptyList()));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalStateException.class).hasMessage("expected");
+    }
+
+    @Test
+    void shutdown_fails_pending_writes_and_rejects_new_writes() throws Exception {
+        // Given
+        CountDownLatch writing = new CountDownLatch(1);
+        GroupCommitWriter groupCommitWriter = new GroupCommitWriter(Duration.ofSeconds(10), 10, batch -> batch.forEach(GroupCommitWriter.PendingWrite::complete));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<Throwable> pendingWrite = executorService.submit(() -> {
+            writing.countDown();
+            return catchThrowable(() -> groupCommitWriter.write("stream", anyStreamVersion(), emptyList()));
+        });
+        writing.await(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+
+        // When
+        groupCommitWriter.shutdown();
+
+        // Then
+        assertThat(pendingWrite.get(5, TimeUnit.SECONDS)).isExactlyInstanceOf(IllegalStateException.class).hasMessageContaining("has been shutdown");
+        assertThat(catchThrowable(() -> groupCommitWriter.write("stream", anyStreamVersion(), emptyList()))).isExactlyInstanceOf(IllegalStateException.class);
+        executorService.shutdownNow();
+    }
+}
@@ -21,10 +21,14 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ReadConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
 import io.github.artsok.RepeatedIfExceptionsTest;
@@ -37,11 +41,19 @@ import org.occurrent.domain.DomainEvent;
 import org.occurrent.domain.Name;
 import org.occurrent.domain.NameDefined;
 import org.occurrent.domain.NameWasChanged;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventView;
 import org.occurrent.eventstore.api.DuplicateCloudEventException;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.GroupBy;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.eventstore.api.WriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
 import org.occurrent.eventstore.api.blocking.EventStoreQueries;
 import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.eventstore.mongodb.QueryPlan;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.occurrent.testsupport.mongodb.FlushMongoDBExtension;
 import org.testcontainers.containers.MongoDBContainer;
@@ -49,6 +61,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -56,16 +69,22 @@ import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static io.vavr.API.*;
 import static io.vavr.Predicates.is;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.condition.JRE.JAVA_11;
 import static org.junit.jupiter.api.condition.JRE.JAVA_8;
@@ -300,6 +319,859 @@ class MongoEventStoreTest {
         );
     }
 
+    @Nested
+    @DisplayName("write to multiple event streams")
+    class WriteToMultipleEventStreamsTest {
+
+        @Test
+        void writes_events_to_all_streams_when_all_write_conditions_are_fulfilled() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Smith");
+            persist("name1", event1);
+
+            // When
+            eventStore.write(
+                    EventStreamWrite.write("name1", WriteCondition.streamVersionEq(1), Stream.of(event2).map(convertDomainEventToCloudEvent())),
+                    EventStreamWrite.write("name2", WriteCondition.streamVersionEq(0), Stream.of(event3).map(convertDomainEventToCloudEvent())),
+                    EventStreamWrite.write("name2", WriteCondition.streamVersionEq(1), Stream.of(event4).map(convertDomainEventToCloudEvent()))
+            );
+
+            // Then
+            EventStream<CloudEvent> eventStream1 = eventStore.read("name1");
+            EventStream<CloudEvent> eventStream2 = eventStore.read("name2");
+            assertAll(
+                    () -> assertThat(eventStream1.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream1.events())).containsExactly(event1, event2),
+                    () -> assertThat(eventStream2.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream2.events())).containsExactly(event3, event4)
+            );
+        }
+
+        @Test
+        void writes_no_events_and_reports_each_write_condition_that_is_not_fulfilled() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Smith");
+            persist("name1", event1);
+
+            // When
+            Throwable throwable = catchThrowable(() -> eventStore.write(
+                    EventStreamWrite.write("name1", WriteCondition.streamVersionEq(0), Stream.of(event2).map(convertDomainEventToCloudEvent())),
+                    EventStreamWrite.write("name2", WriteCondition.streamVersionEq(0), Stream.of(event3).map(convertDomainEventToCloudEvent())),
+                    EventStreamWrite.write("name3", WriteCondition.streamVersionEq(2), Stream.of(event4).map(convertDomainEventToCloudEvent()))
+            ));
+
+            // Then
+            assertAll(
+                    () -> assertThat(throwable).isExactlyInstanceOf(WriteConditionsNotFulfilledException.class),
+                    () -> assertThat(((WriteConditionsNotFulfilledException) throwable).writeConditionNotFulfilledExceptions)
+                            .extracting(e -> e.eventStreamId, e -> e.eventStreamVersion)
+                            .containsExactly(tuple("name1", 1L), tuple("name3", 0L)),
+                    () -> assertThat(deserialize(eventStore.read("name1").events())).containsExactly(event1),
+                    () -> assertThat(eventStore.exists("name2")).isFalse(),
+                    () -> assertThat(eventStore.exists("name3")).isFalse()
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("transaction-free writes")
+    class TransactionFreeWritesTest {
+
+        @BeforeEach
+        void create_mongo_event_store_without_transactional_writes() {
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).transactionalWrites(false).build());
+        }
+
+        @Test
+        void writes_events_when_write_condition_is_fulfilled() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+
+            // When
+            persist("name", streamVersionEq(0), event1);
+            persist("name", streamVersionEq(1), event2);
+
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event1, event2)
+            );
+        }
+
+        @Test
+        void throws_write_condition_not_fulfilled_when_stream_version_does_not_match_expected_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            persist("name", new NameDefined(UUID.randomUUID().toString(), now, "John Doe"));
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", streamVersionEq(10), new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe")));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(WriteConditionNotFulfilledException.class)
+                    .hasMessage("WriteCondition was not fulfilled. Expected version to be equal to 10 but was 1.");
+        }
+
+        @Test
+        void throws_duplicate_cloud_event_exception_when_event_has_already_been_persisted() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined nameDefined = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            persist("name", nameDefined);
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", nameDefined));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(DuplicateCloudEventException.class).hasCauseExactlyInstanceOf(MongoBulkWriteException.class);
+        }
+
+        @Test
+        void concurrent_writes_to_the_same_stream_are_assigned_consecutive_stream_versions() throws InterruptedException {
+            // Given
+            int numberOfWriters = 10;
+            ExecutorService executorService = Executors.newFixedThreadPool(numberOfWriters);
+            LocalDateTime now = LocalDateTime.now();
+
+            // When
+            for (int i = 0; i < numberOfWriters; i++) {
+                executorService.execute(() -> persist("name", new NameDefined(UUID.randomUUID().toString(), now, "John Doe")));
+            }
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(numberOfWriters),
+                    () -> assertThat(eventStream.events().map(e -> e.getExtension(STREAM_VERSION))).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L)
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("group commit")
+    class GroupCommitTest {
+
+        @BeforeEach
+        void create_mongo_event_store_with_group_commit() {
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).groupCommit(Duration.ofMillis(5), 100).build());
+        }
+
+        @Test
+        void concurrent_writes_to_different_streams_are_all_written() throws InterruptedException {
+            // Given
+            int numberOfWriters = 10;
+            ExecutorService executorService = Executors.newFixedThreadPool(numberOfWriters);
+            LocalDateTime now = LocalDateTime.now();
+
+            // When
+            for (int i = 0; i < numberOfWriters; i++) {
+                String streamId = "name" + i;
+                executorService.execute(() -> persist(streamId, streamVersionEq(0), new NameDefined(UUID.randomUUID().toString(), now, "John Doe")));
+            }
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(IntStream.range(0, numberOfWriters).mapToObj(i -> eventStore.read("name" + i).version())).containsOnly(1L);
+        }
+
+        @Test
+        void concurrent_writes_with_the_same_write_condition_to_the_same_stream_fails_individually() throws InterruptedException {
+            // Given
+            int numberOfWriters = 10;
+            ExecutorService executorService = Executors.newFixedThreadPool(numberOfWriters);
+            LocalDateTime now = LocalDateTime.now();
+            List<Throwable> throwables = Collections.synchronizedList(new ArrayList<>());
+
+            // When
+            for (int i = 0; i < numberOfWriters; i++) {
+                executorService.execute(() -> {
+                    Throwable throwable = catchThrowable(() -> persist("name", streamVersionEq(0), new NameDefined(UUID.randomUUID().toString(), now, "John Doe")));
+                    if (throwable != null) {
+                        throwables.add(throwable);
+                    }
+                });
+            }
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStore.read("name").version()).isEqualTo(1),
+                    () -> assertThat(throwables).hasSize(numberOfWriters - 1).allMatch(WriteConditionNotFulfilledException.class::isInstance)
+            );
+        }
+
+        @Test
+        void throws_duplicate_cloud_event_exception_when_event_has_already_been_persisted() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined nameDefined = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            persist("name", nameDefined);
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", nameDefined));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(DuplicateCloudEventException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("keyset pagination")
+    class KeysetPaginationTest {
+
+        @Test
+        void query_page_returns_all_events_in_pages_when_following_continuation_tokens() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            List<DomainEvent> events = IntStream.range(0, 5).mapToObj(i -> new NameWasChanged(UUID.randomUUID().toString(), now.plusMinutes(i), "name" + i)).collect(Collectors.toList());
+            persist("name", events);
+
+            // When
+            EventPage page1 = eventStore.queryPage(all(), 2, EventStoreQueries.SortBy.TIME_DESC);
+            EventPage page2 = eventStore.queryPage(all(), 2, EventStoreQueries.SortBy.TIME_DESC, page1.continuationToken);
+            EventPage page3 = eventStore.queryPage(all(), 2, EventStoreQueries.SortBy.TIME_DESC, page2.continuationToken);
+
+            // Then
+            assertAll(
+                    () -> assertThat(deserialize(page1.events.stream())).containsExactly(events.get(4), events.get(3)),
+                    () -> assertThat(deserialize(page2.events.stream())).containsExactly(events.get(2), events.get(1)),
+                    () -> assertThat(deserialize(page3.events.stream())).containsExactly(events.get(0)),
+                    () -> assertThat(page3.hasNext()).isFalse()
+            );
+        }
+
+        @Test
+        void query_page_applies_filter() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            persist("name", Stream.of(event1, event2, event3));
+
+            // When
+            EventPage page1 = eventStore.queryPage(type(NameWasChanged.class.getSimpleName()), 1, EventStoreQueries.SortBy.NATURAL_ASC);
+            EventPage page2 = eventStore.queryPage(type(NameWasChanged.class.getSimpleName()), 1, EventStoreQueries.SortBy.NATURAL_ASC, page1.continuationToken);
+
+            // Then
+            assertAll(
+                    () -> assertThat(deserialize(page1.events.stream())).containsExactly(event2),
+                    () -> assertThat(deserialize(page2.events.stream())).containsExactly(event3),
+                    () -> assertThat(page2.hasNext()).isFalse()
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("aggregation")
+    class AggregationTest {
+
+        @Test
+        void aggregate_counts_events_grouped_by_type() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            persist("name1", Stream.of(new NameDefined(UUID.randomUUID().toString(), now, "John Doe"), new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe")));
+            persist("name2", Stream.of(new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe"), new NameWasChanged(UUID.randomUUID().toString(), now, "Jennifer Doe")));
+            persist("name2", Stream.of(new NameWasChanged(UUID.randomUUID().toString(), now, "Jennie Doe")));
+
+            // When
+            List<AggregatedGroup> groups = eventStore.aggregate(all(), GroupBy.type()).collect(Collectors.toList());
+
+            // Then
+            assertThat(groups).extracting(group -> group.group.get("type"), group -> group.count).containsExactly(
+                    tuple(NameWasChanged.class.getSimpleName(), 3L),
+                    tuple(NameDefined.class.getSimpleName(), 2L));
+        }
+
+        @Test
+        void aggregate_groups_by_stream_id_and_calculates_min_and_max_time() {
+            // Given
+            LocalDateTime time = LocalDateTime.of(2020, 7, 26, 9, 13, 3);
+            persist("name1", Stream.of(new NameDefined(UUID.randomUUID().toString(), time, "John Doe"), new NameWasChanged(UUID.randomUUID().toString(), time.plusDays(1), "Jan Doe")));
+            persist("name2", Stream.of(new NameDefined(UUID.randomUUID().toString(), time, "Jane Doe")));
+
+            // When
+            List<AggregatedGroup> groups = eventStore.aggregate(streamId("name1"), GroupBy.streamId(), GroupBy.time(GroupBy.TimeBucket.MONTH)).collect(Collectors.toList());
+
+            // Then
+            Map<String, Object> expectedGroup = new LinkedHashMap<>();
+            expectedGroup.put(STREAM_ID, "name1");
+            expectedGroup.put("time", LocalDateTime.of(2020, 7, 1, 0, 0).atOffset(UTC));
+            assertThat(groups).containsExactly(new AggregatedGroup(expectedGroup, 2, time.atOffset(UTC), time.plusDays(1).atOffset(UTC)));
+        }
+    }
+
+    @Nested
+    @DisplayName("parallel query")
+    class ParallelQueryTest {
+
+        @Test
+        void query_parallel_returns_all_events_matching_filter_in_insertion_order() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            List<DomainEvent> events = IntStream.range(0, 20).mapToObj(i -> new NameWasChanged(UUID.randomUUID().toString(), now.plusMinutes(i), "name" + i)).collect(Collectors.toList());
+            persist("name1", events.subList(0, 10));
+            persist("name2", events.subList(10, 20));
+
+            // When
+            List<CloudEvent> cloudEvents;
+            try (Stream<CloudEvent> stream = eventStore.queryParallel(all(), 4)) {
+                cloudEvents = stream.collect(Collectors.toList());
+            }
+
+            // Then
+            assertThat(deserialize(cloudEvents.stream())).containsExactlyElementsOf(events);
+        }
+
+        @Test
+        void query_parallel_applies_filter() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Stream.of(event1, event2));
+
+            // When
+            Stream<CloudEvent> cloudEvents = eventStore.queryParallel(type(NameWasChanged.class.getSimpleName()), 2);
+
+            // Then
+            assertThat(deserialize(cloudEvents)).containsExactly(event2);
+        }
+    }
+
+    @Nested
+    @DisplayName("query options")
+    class QueryOptionsTest {
+
+        @Test
+        void query_with_query_options_returns_all_events_matching_filter() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            List<DomainEvent> events = IntStream.range(0, 5).mapToObj(i -> new NameWasChanged(UUID.randomUUID().toString(), now.plusMinutes(i), "name" + i)).collect(Collectors.toList());
+            persist("name", events);
+            QueryOptions queryOptions = new QueryOptions.Builder().batchSize(2).maxTime(Duration.ofSeconds(10)).noCursorTimeout(true).readPreference(QueryOptions.ReadPreference.PRIMARY_PREFERRED).build();
+
+            // When
+            Stream<CloudEvent> cloudEvents = eventStore.query(all(), queryOptions);
+
+            // Then
+            assertThat(deserialize(cloudEvents)).containsExactlyElementsOf(events);
+        }
+
+        @Test
+        void query_options_configured_for_the_event_store_are_used_when_reading_event_streams() {
+            // Given
+            QueryOptions queryOptions = new QueryOptions.Builder().batchSize(1).readPreference(QueryOptions.ReadPreference.SECONDARY_PREFERRED).build();
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).queryOptions(queryOptions).build());
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Stream.of(event1, event2));
+
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+
+            // Then
+            assertThat(deserialize(eventStream.events())).containsExactly(event1, event2);
+        }
+    }
+
+    @Nested
+    @DisplayName("query views")
+    class QueryViewsTest {
+
+        @Test
+        void query_views_only_returns_the_requested_attributes() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            NameWasChanged event2 = new NameWasChanged(UUID.randomUUID().toString(), now.plusMinutes(1), "Jan Doe");
+            persist("name", Stream.of(event1, event2));
+
+            // When
+            List<CloudEventView> views = eventStore.queryViews(all(), new HashSet<>(asList("id", "type", "time", STREAM_ID, STREAM_VERSION))).collect(Collectors.toList());
+
+            // Then
+            assertAll(
+                    () -> assertThat(views).extracting(CloudEventView::getId).containsExactly(event1.getEventId(), event2.getEventId()),
+                    () -> assertThat(views).extracting(CloudEventView::getType).containsExactly(NameDefined.class.getSimpleName(), NameWasChanged.class.getSimpleName()),
+                    () -> assertThat(views).extracting(CloudEventView::getStreamId).containsOnly("name"),
+                    () -> assertThat(views).extracting(CloudEventView::getStreamVersion).containsExactly(1L, 2L),
+                    () -> assertThat(views).extracting(CloudEventView::getTime).doesNotContainNull(),
+                    () -> assertThat(views).extracting(CloudEventView::getSource).containsOnlyNulls()
+            );
+        }
+
+        @Test
+        void query_views_applies_filter_and_sort() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now.plusMinutes(1), "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now.plusMinutes(2), "Jane Doe");
+            persist("name", Stream.of(event1, event2, event3));
+
+            // When
+            Stream<CloudEventView> views = eventStore.queryViews(type(NameWasChanged.class.getSimpleName()), Collections.singleton("id"), 0, 10, EventStoreQueries.SortBy.TIME_DESC);
+
+            // Then
+            assertThat(views).extracting(CloudEventView::getId).containsExactly(event3.getEventId(), event2.getEventId());
+        }
+
+        @Test
+        void query_views_throws_iae_when_data_is_requested() {
+            // When
+            Throwable throwable = catchThrowable(() -> eventStore.queryViews(all(), new HashSet<>(asList("id", "data"))));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Attribute data cannot be included in a CloudEventView");
+        }
+    }
+
+    @Nested
+    @DisplayName("read version range")
+    class ReadVersionRangeTest {
+
+        @Test
+        void read_from_version_returns_events_with_stream_version_greater_than_or_equal_to_from_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            persist("name", Stream.of(event1, event2, event3));
+
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.readFromVersion("name", 2);
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(3),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event2, event3)
+            );
+        }
+
+        @Test
+        void read_version_range_returns_events_within_range() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jennifer Doe");
+            persist("name", Stream.of(event1, event2, event3, event4));
+
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.readVersionRange("name", 2, 3);
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(4),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event2, event3)
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("indexes")
+    class IndexesTest {
+
+        @Test
+        void explain_reports_collection_scan_when_there_is_no_index_for_the_query() {
+            // When
+            QueryPlan queryPlan = eventStore.explain(type(NameDefined.class.getSimpleName()));
+
+            // Then
+            assertThat(queryPlan.collectionScan).isTrue();
+        }
+
+        @Test
+        void indexes_defined_in_config_are_used_by_queries() {
+            // Given
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING)
+                    .indexes(new IndexModel(Indexes.ascending("type"), new IndexOptions().name("type_index").partialFilterExpression(Filters.exists("type")))).build());
+
+            // When
+            QueryPlan queryPlan = eventStore.explain(type(NameDefined.class.getSimpleName()));
+
+            // Then
+            assertAll(
+                    () -> assertThat(queryPlan.collectionScan).isFalse(),
+                    () -> assertThat(queryPlan.indexNames).containsExactly("type_index")
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("counters")
+    class CountersTest {
+
+        @Test
+        void count_is_answered_by_counters_that_are_maintained_when_events_are_written_and_deleted() {
+            // Given
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING)
+                    .counters("counters", CounterDefinition.countByType(), CounterDefinition.countMatching(subject("name2"))).build());
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            persist("name1", Stream.of(event1, event2));
+            persist("name2", Stream.of(event3));
+
+            // When
+            eventStore.deleteEventStream("name1");
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStore.count(type(NameDefined.class.getSimpleName()))).isZero(),
+                    () -> assertThat(eventStore.count(type(NameWasChanged.class.getSimpleName()))).isEqualTo(1),
+                    () -> assertThat(eventStore.count(subject("name2"))).isEqualTo(1),
+                    () -> assertThat(mongoClient.getDatabase(connectionString.getDatabase()).getCollection("counters").countDocuments()).isPositive()
+            );
+        }
+
+        @Test
+        void counters_are_initialized_from_existing_events() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Stream.of(event1, event2));
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+
+            // When
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING)
+                    .counters("counters", CounterDefinition.countByType()).build());
+
+            // Then
+            assertThat(eventStore.count(type(NameWasChanged.class.getSimpleName()))).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("initialization")
+    class InitializationTest {
+
+        @Test
+        void initialization_is_skipped_when_schema_metadata_is_current() {
+            // Given
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            MongoDatabase database = mongoClient.getDatabase(connectionString.getDatabase());
+            EventStoreConfig config = new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).schemaMetadataCollectionName("schema").build();
+            new MongoEventStore(mongoClient, connectionString.getDatabase(), "tenant-events", config);
+            database.getCollection("tenant-events").dropIndexes();
+
+            // When
+            new MongoEventStore(mongoClient, connectionString.getDatabase(), "tenant-events", config);
+
+            // Then
+            assertAll(
+                    () -> assertThat(database.getCollection("schema").countDocuments()).isEqualTo(1),
+                    () -> assertThat(database.getCollection("tenant-events").listIndexes()).hasSize(1)
+            );
+        }
+
+        @Test
+        void schema_is_initialized_again_when_indexes_have_changed() {
+            // Given
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            MongoDatabase database = mongoClient.getDatabase(connectionString.getDatabase());
+            new MongoEventStore(mongoClient, connectionString.getDatabase(), "tenant-events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING)
+                    .schemaMetadataCollectionName("schema").build());
+            database.getCollection("tenant-events").dropIndexes();
+
+            // When
+            new MongoEventStore(mongoClient, connectionString.getDatabase(), "tenant-events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING)
+                    .schemaMetadataCollectionName("schema").indexes(new IndexModel(Indexes.ascending("type"))).build());
+
+            // Then
+            assertThat(database.getCollection("tenant-events").listIndexes()).hasSize(5);
+        }
+
+        @Test
+        void writes_wait_for_asynchronous_initialization() {
+            // Given
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING)
+                    .streamHeadCollectionName("streamHeads").asynchronousInitialization(true).build());
+            NameDefined nameDefined = new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe");
+
+            // When
+            persist("name", nameDefined);
+
+            // Then
+            assertThat(deserialize(eventStore.read("name").events())).containsExactly(nameDefined);
+        }
+    }
+
+    @Nested
+    @DisplayName("single query reads")
+    class SingleQueryReadsTest {
+
+        @BeforeEach
+        void create_event_store_with_single_query_reads() {
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).singleQueryReads(ReadConcern.MAJORITY).build());
+        }
+
+        @Test
+        void version_is_derived_from_last_event_when_version_is_read_before_events() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Stream.of(event1, event2));
+
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event1, event2)
+            );
+        }
+
+        @Test
+        void version_is_derived_from_last_event_when_events_are_read_before_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            persist("name", Stream.of(event1, event2, event3));
+
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            List<DomainEvent> events = deserialize(eventStream.events());
+
+            // Then
+            assertAll(
+                    () -> assertThat(events).containsExactly(event1, event2, event3),
+                    () -> assertThat(eventStream.version()).isEqualTo(3)
+            );
+        }
+
+        @Test
+        void event_stream_can_be_printed_after_the_events_have_been_read() {
+            // Given
+            persist("name", Stream.of(new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe")));
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            eventStream.events().forEach(__ -> {
+            });
+
+            // When
+            Throwable throwable = catchThrowable(eventStream::toString);
+
+            // Then
+            assertThat(throwable).isNull();
+        }
+
+        @Test
+        void single_query_reads_cannot_be_used_together_with_stream_heads() {
+            // When
+            Throwable throwable = catchThrowable(() -> new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).streamHeadCollectionName("streamHeads").singleQueryReads(ReadConcern.MAJORITY).build());
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Single query reads cannot be used together with stream heads");
+        }
+
+        @Test
+        void version_is_zero_when_event_stream_does_not_exist() {
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStream.version()).isZero(),
+                    () -> assertThat(eventStream.events()).isEmpty()
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("read multiple event streams")
+    class ReadMultipleEventStreamsTest {
+
+        @Test
+        void read_multiple_event_streams_returns_one_event_stream_per_stream_id_in_the_order_of_the_stream_ids() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            persist("name1", Stream.of(event1, event2));
+            persist("name2", Stream.of(event3));
+
+            // When
+            List<EventStream<CloudEvent>> eventStreams = eventStore.read(asList("name2", "name3", "name1", "name2"));
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStreams).extracting(EventStream::id, EventStream::version).containsExactly(tuple("name2", 1L), tuple("name3", 0L), tuple("name1", 2L)),
+                    () -> assertThat(deserialize(eventStreams.get(0).events())).containsExactly(event3),
+                    () -> assertThat(eventStreams.get(1).events()).isEmpty(),
+                    () -> assertThat(deserialize(eventStreams.get(2).events())).containsExactly(event1, event2)
+            );
+        }
+
+        @Test
+        void read_multiple_event_streams_returns_empty_list_when_no_stream_ids_are_specified() {
+            // When
+            List<EventStream<CloudEvent>> eventStreams = eventStore.read(Collections.emptyList());
+
+            // Then
+            assertThat(eventStreams).isEmpty();
+        }
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Nested
+    @DisplayName("stream heads")
+    class StreamHeadsTest {
+
+        private MongoDatabase database;
+
+        @BeforeEach
+        void create_mongo_event_store_with_stream_heads() {
+            ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+            database = mongoClient.getDatabase(connectionString.getDatabase());
+            eventStore = new MongoEventStore(mongoClient, connectionString.getDatabase(), "events", new EventStoreConfig.Builder().timeRepresentation(TimeRepresentation.RFC_3339_STRING).streamHeadCollectionName("streamHeads").build());
+        }
+
+        @Test
+        void write_updates_stream_head_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+
+            // When
+            persist("name", Stream.of(event1, event2));
+            persist("name", streamVersionEq(2), event3);
+
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(3),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event1, event2, event3),
+                    () -> assertThat(database.getCollection("streamHeads").find(Filters.eq("_id", "name")).first().getLong("version")).isEqualTo(3L)
+            );
+        }
+
+        @Test
+        void throws_write_condition_not_fulfilled_when_stream_head_version_does_not_match_expected_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            persist("name", new NameDefined(UUID.randomUUID().toString(), now, "John Doe"));
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", streamVersionEq(10), new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe")));
+
+            // Then
+            assertAll(
+                    () -> assertThat(throwable).isExactlyInstanceOf(WriteConditionNotFulfilledException.class)
+                            .hasMessage("WriteCondition was not fulfilled. Expected version to be equal to 10 but was 1."),
+                    () -> assertThat(eventStore.read("name").version()).isEqualTo(1)
+            );
+        }
+
+        @Test
+        void throws_write_condition_not_fulfilled_when_stream_head_does_not_exist_and_write_condition_is_not_fulfilled() {
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", streamVersionEq(1), new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe")));
+
+            // Then
+            assertAll(
+                    () -> assertThat(throwable).isExactlyInstanceOf(WriteConditionNotFulfilledException.class)
+                            .hasMessage("WriteCondition was not fulfilled. Expected version to be equal to 1 but was 0."),
+                    () -> assertThat(eventStore.exists("name")).isFalse()
+            );
+        }
+
+        @Test
+        void creates_stream_head_from_events_written_before_stream_heads_were_enabled() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            MongoEventStore eventStoreWithStreamHeads = eventStore;
+            eventStore = newMongoEventStore(TimeRepresentation.RFC_3339_STRING);
+            persist("name", event1);
+            eventStore = eventStoreWithStreamHeads;
+
+            // When
+            persist("name", streamVersionEq(1), event2);
+
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event1, event2),
+                    () -> assertThat(database.getCollection("streamHeads").find(Filters.eq("_id", "name")).first().getLong("version")).isEqualTo(2L)
+            );
+        }
+
+        @Test
+        void deleteEventStream_deletes_stream_head() {
+            // Given
+            persist("name", new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe"));
+
+            // When
+            eventStore.deleteEventStream("name");
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStore.exists("name")).isFalse(),
+                    () -> assertThat(eventStore.read("name").version()).isZero(),
+                    () -> assertThat(database.getCollection("streamHeads").countDocuments()).isZero()
+            );
+        }
+
+        @Test
+        void deleteEvent_deletes_stream_head_when_the_last_event_in_the_event_stream_is_deleted() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined nameDefined = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            NameWasChanged nameWasChanged = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Stream.of(nameDefined, nameWasChanged));
+
+            // When
+            eventStore.deleteEvent(nameWasChanged.getEventId(), NAME_SOURCE);
+            long streamHeadsAfterFirstDelete = database.getCollection("streamHeads").countDocuments();
+            eventStore.deleteEvent(nameDefined.getEventId(), NAME_SOURCE);
+
+            // Then
+            assertAll(
+                    () -> assertThat(streamHeadsAfterFirstDelete).isEqualTo(1),
+                    () -> assertThat(eventStore.exists("name")).isFalse(),
+                    () -> assertThat(eventStore.read("name").version()).isZero(),
+                    () -> assertThat(database.getCollection("streamHeads").countDocuments()).isZero()
+            );
+        }
+    }
+
     @SuppressWarnings("ConstantConditions")
     @Nested
     @DisplayName("deletion")
@@ -16,10 +16,17 @@
 
 package org.occurrent.eventstore.mongodb.spring.blocking;
 
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import static java.util.Objects.requireNonNull;
@@ -31,6 +38,10 @@ public class EventStoreConfig {
     public final String eventStoreCollectionName;
     public final TransactionTemplate transactionTemplate;
     public final TimeRepresentation timeRepresentation;
+    public final String streamHeadCollectionName;
+    public final QueryOptions queryOptions;
+    public final List<IndexModel> indexes;
+    public final String schemaMetadataCollectionName;
 
     /**
      * Create a new instance of {@code EventStoreConfig}.
@@ -40,12 +51,21 @@ public class EventStoreConfig {
      * @param timeRepresentation       How time should be represented in the database
      */
     public EventStoreConfig(String eventStoreCollectionName, TransactionTemplate transactionTemplate, TimeRepresentation timeRepresentation) {
+        this(eventStoreCollectionName, transactionTemplate, timeRepresentation, null, null, Collections.emptyList(), null);
+    }
+
+    private EventStoreConfig(String eventStoreCollectionName, TransactionTemplate transactionTemplate, TimeRepresentation timeRepresentation, String streamHeadCollectionName,
+                             QueryOptions queryOptions, List<IndexModel> indexes, String schemaMetadataCollectionName) {
         requireNonNull(eventStoreCollectionName, "Event store collection name cannot be null");
         requireNonNull(transactionTemplate, TransactionTemplate.class.getSimpleName() + " cannot be null");
         requireNonNull(timeRepresentation, TimeRepresentation.class.getSimpleName() + " cannot be null");
         this.eventStoreCollectionName = eventStoreCollectionName;
         this.transactionTemplate = transactionTemplate;
         this.timeRepresentation = timeRepresentation;
+        this.streamHeadCollectionName = streamHeadCollectionName;
+        this.queryOptions = queryOptions == null ? QueryOptions.none() : queryOptions;
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(requireNonNull(indexes, "Indexes cannot be null")));
+        this.schemaMetadataCollectionName = schemaMetadataCollectionName;
     }
 
     @Override
@@ -55,12 +75,16 @@ public class EventStoreConfig {
         EventStoreConfig that = (EventStoreConfig) o;
         return Objects.equals(eventStoreCollectionName, that.eventStoreCollectionName) &&
                 Objects.equals(transactionTemplate, that.transactionTemplate) &&
-                timeRepresentation == that.timeRepresentation;
+                timeRepresentation == that.timeRepresentation &&
+                Objects.equals(streamHeadCollectionName, that.streamHeadCollectionName) &&
+                Objects.equals(queryOptions, that.queryOptions) &&
+                Objects.equals(indexes, that.indexes) &&
+                Objects.equals(schemaMetadataCollectionName, that.schemaMetadataCollectionName);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(eventStoreCollectionName, transactionTemplate, timeRepresentation);
+        return Objects.hash(eventStoreCollectionName, transactionTemplate, timeRepresentation, streamHeadCollectionName, queryOptions, indexes, schemaMetadataCollectionName);
     }
 
     @Override
@@ -69,6 +93,10 @@ public class EventStoreConfig {
                 "eventStoreCollectionName='" + eventStoreCollectionName + '\'' +
                 ", transactionTemplate=" + transactionTemplate +
                 ", timeRepresentation=" + timeRepresentation +
+                ", streamHeadCollectionName='" + streamHeadCollectionName + '\'' +
+                ", queryOptions=" + queryOptions +
+                ", indexes=" + indexes +
+                ", schemaMetadataCollectionName='" + schemaMetadataCollectionName + '\'' +
                 '}';
     }
 
@@ -76,6 +104,10 @@ public class EventStoreConfig {
         private String eventStoreCollectionName;
         private TransactionTemplate transactionTemplate;
         private TimeRepresentation timeRepresentation;
+        private String streamHeadCollectionName;
+        private QueryOptions queryOptions;
+        private List<IndexModel> indexes = Collections.emptyList();
+        private String schemaMetadataCollectionName;
 
         /**
          * @param eventStoreCollectionName The collection in which the events are persisted
@@ -113,9 +145,74 @@ public class EventStoreConfig {
             return this;
         }
 
+        /**
+         * Configure the event store to keep track of the current version of each stream in a separate "stream head" collection.
+         * The stream head collection contains one document per stream and the stream head is updated in the same transaction
+         * as the events are written. This means that {@code WriteCondition}'s are checked by a single update of the stream head
+         * (by id) instead of finding the event with the highest stream version for each write. The stream head is also used by
+         * {@code read} and {@code exists}. Streams written before stream heads were enabled are still supported, their stream head
+         * is created on the next write. Default is {@code null}, i.e. stream heads are not used.
+         * <p>
+         * Note that all event store instances writing to the same event collection must use the same stream head configuration!
+         * </p>
+         *
+         * @param streamHeadCollectionName The name of the collection in which the stream heads are stored, or {@code null} to disable stream heads.
+         * @return A same {@code Builder instance}
+         */
+        public Builder streamHeadCollectionName(String streamHeadCollectionName) {
+            this.streamHeadCollectionName = streamHeadCollectionName;
+            return this;
+        }
+
+        /**
+         * Configure the {@link QueryOptions} (such as cursor batch size, max time and read preference) that are used by all queries
+         * and reads made by the event store. Options passed to {@code EventStoreQueries#query(Filter, int, int, SortBy, QueryOptions)}
+         * override these options. Note that the read preference only applies to {@code EventStoreQueries} since reads of event streams
+         * take place in a transaction and must read from the primary. Default is {@link QueryOptions#none()}.
+         *
+         * @param queryOptions The query options to use
+         * @return A same {@code Builder instance}
+         */
+        public Builder queryOptions(QueryOptions queryOptions) {
+            this.queryOptions = queryOptions;
+            return this;
+        }
+
+        /**
+         * Configure additional indexes that are created on the event collection when the event store is created, for example to avoid
+         * collection scans when querying by {@code type}, {@code time}, {@code subject} or {@code data}. Compound and partial indexes
+         * are defined using the {@link IndexOptions} of the {@link IndexModel}, e.g.
+         * <pre>
+         * new IndexModel(Indexes.compoundIndex(Indexes.ascending("type"), Indexes.descending("time")), new IndexOptions().partialFilterExpression(Filters.exists("subject")))
+         * </pre>
+         * Use {@code explain} of the event store to find queries that scan the entire collection. Default is no additional indexes.
+         *
+         * @param indexes The indexes to create
+         * @return A same {@code Builder instance}
+         */
+        public Builder indexes(IndexModel... indexes) {
+            requireNonNull(indexes, "Indexes cannot be null");
+            this.indexes = Arrays.asList(indexes);
+            return this;
+        }
+
+        /**
+         * Configure a collection in which the event store keeps track of the schema (collections and indexes) that has been created for the
+         * event collection. When the event store is created it first reads the schema metadata document of the event collection, and only
+         * checks the collections and creates the indexes if the schema has changed since the last time (for example if new indexes have been
+         * configured). This speeds up startup when there are many event stores (e.g. one per tenant). The same schema metadata collection
+         * can be used by several event collections. Default is {@code null}, i.e. the schema is always initialized.
+         *
+         * @param schemaMetadataCollectionName The name of the collection in which the schema metadata is stored, or {@code null} to always initialize the schema.
+         * @return A same {@code Builder instance}
+         */
+        public Builder schemaMetadataCollectionName(String schemaMetadataCollectionName) {
+            this.schemaMetadataCollectionName = schemaMetadataCollectionName;
+            return this;
+        }
 
         public EventStoreConfig build() {
-            return new EventStoreConfig(eventStoreCollectionName, transactionTemplate, timeRepresentation);
+            return new EventStoreConfig(eventStoreCollectionName, transactionTemplate, timeRepresentation, streamHeadCollectionName, queryOptions, indexes, schemaMetadataCollectionName);
         }
     }
 }
\ No newline at end of file
@@ -17,49 +17,89 @@
 package org.occurrent.eventstore.mongodb.spring.blocking;
 
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Updates;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.provider.EventFormatProvider;
-import io.cloudevents.jackson.JsonFormat;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.occurrent.cloudevents.OccurrentExtensionGetter;
 import org.occurrent.condition.Condition;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.GroupBy;
 import org.occurrent.eventstore.api.LongConditionEvaluator;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.eventstore.api.WriteCondition;
 import org.occurrent.eventstore.api.WriteCondition.StreamVersionWriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
 import org.occurrent.eventstore.api.blocking.EventStore;
 import org.occurrent.eventstore.api.blocking.EventStoreOperations;
 import org.occurrent.eventstore.api.blocking.EventStoreQueries;
 import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
+import org.occurrent.eventstore.mongodb.QueryPlan;
+import org.occurrent.eventstore.mongodb.internal.AggregationPipeline;
+import org.occurrent.eventstore.mongodb.internal.CloudEventViewMapper;
+import org.occurrent.eventstore.mongodb.internal.KeysetPagination;
+import org.occurrent.eventstore.mongodb.internal.MultipleEventStreamsReader;
+import org.occurrent.eventstore.mongodb.internal.ObjectIdPartitioner;
+import org.occurrent.eventstore.mongodb.internal.PartitionedSpliterator;
+import org.occurrent.eventstore.mongodb.internal.QueryPlanExplainer;
+import org.occurrent.eventstore.mongodb.internal.ReadPreferenceConverter;
+import org.occurrent.eventstore.mongodb.internal.SchemaMetadata;
 import org.occurrent.filter.Filter;
+import org.occurrent.functionalsupport.internal.FunctionalSupport.Pair;
 import org.occurrent.mongodb.spring.filterqueryconversion.internal.FilterConverter;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.util.StreamUtils;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_ID;
 import static org.occurrent.cloudevents.OccurrentCloudEventExtension.STREAM_VERSION;
 import static org.occurrent.eventstore.mongodb.internal.MongoBulkWriteExceptionToDuplicateCloudEventExceptionTranslator.translateToDuplicateCloudEventException;
 import static org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent;
 import static org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper.convertToDocument;
+import static org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper.convertToRawBsonDocument;
 import static org.occurrent.filter.Filter.TIME;
 import static org.occurrent.functionalsupport.internal.FunctionalSupport.mapWithIndex;
+import static org.occurrent.mongodb.spring.filterqueryconversion.internal.ConditionToCriteriaConverter.convertConditionToCriteria;
 import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 import static org.springframework.data.mongodb.SessionSynchronization.ALWAYS;
@@ -72,12 +112,14 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
 public class SpringBlockingMongoEventStore implements EventStore, EventStoreOperations, EventStoreQueries {
 
     private static final String ID = "_id";
+    private static final String STREAM_HEAD_VERSION = "version";
 
     private final MongoTemplate mongoTemplate;
     private final String eventStoreCollectionName;
-    private final EventFormat cloudEventSerializer;
+    private final String streamHeadCollectionName;
     private final TimeRepresentation timeRepresentation;
     private final TransactionTemplate transactionTemplate;
+    private final QueryOptions queryOptions;
 
     /**
      * Create a new instance of {@code SpringBlockingMongoEventStore}
@@ -92,14 +134,43 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
         this.eventStoreCollectionName = config.eventStoreCollectionName;
         this.transactionTemplate = config.transactionTemplate;
         this.timeRepresentation = config.timeRepresentation;
-        cloudEventSerializer = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
-        initializeEventStore(eventStoreCollectionName, mongoTemplate);
+        this.streamHeadCollectionName = config.streamHeadCollectionName;
+        this.queryOptions = config.queryOptions;
+        initializeEventStore(eventStoreCollectionName, streamHeadCollectionName, config.indexes, config.schemaMetadataCollectionName, mongoTemplate);
     }
 
     @Override
     public EventStream<CloudEvent> read(String streamId, int skip, int limit) {
         final EventStream<Document> eventStream = transactionTemplate.execute(transactionStatus -> readEventStream(streamId, skip, limit));
-        return requireNonNull(eventStream).map(document -> convertToCloudEvent(cloudEventSerializer, timeRepresentation, document));
+        return requireNonNull(eventStream).map(document -> convertToCloudEvent(timeRepresentation, document));
+    }
+
+    @Override
+    public List<EventStream<CloudEvent>> read(Collection<String> streamIds) {
+        List<String> distinctStreamIds = MultipleEventStreamsReader.distinctStreamIds(streamIds);
+        if (distinctStreamIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // All event streams are read with a single query in a single transaction. The version of each event stream is the stream version of its last event.
+        final List<EventStream<Document>> eventStreams = transactionTemplate.execute(transactionStatus -> {
+            BasicQuery query = new BasicQuery(new Document(STREAM_ID, new Document("$in", distinctStreamIds)));
+            query.setSortObject(MultipleEventStreamsReader.SORT_BY_STREAM_ID_AND_STREAM_VERSION);
+            try (Stream<Document> documents = stream(query, queryOptions.withoutReadPreference())) {
+                return MultipleEventStreamsReader.groupByStreamId(distinctStreamIds, documents::iterator, document -> document.getString(STREAM_ID), document -> document.getLong(STREAM_VERSION),
+                        (streamId, version, documentsInStream) -> new EventStreamImpl<>(streamId, version, documentsInStream.stream()));
+            }
+        });
+        return requireNonNull(eventStreams).stream().map(eventStream -> eventStream.map(document -> convertToCloudEvent(timeRepresentation, document))).collect(Collectors.toList());
+    }
+
+    @Override
+    public EventStream<CloudEvent> readVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        if (fromStreamVersion > toStreamVersion) {
+            throw new IllegalArgumentException("fromStreamVersion (" + fromStreamVersion + ") cannot be greater than toStreamVersion (" + toStreamVersion + ")");
+        }
+        final EventStream<Document> eventStream = transactionTemplate.execute(transactionStatus -> readEventStream(streamId, () -> readCloudEventsInStreamVersionRange(streamId, fromStreamVersion, toStreamVersion)));
+        return requireNonNull(eventStream).map(document -> convertToCloudEvent(timeRepresentation, document));
     }
 
     @Override
@@ -108,19 +179,70 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
             throw new IllegalArgumentException(WriteCondition.class.getSimpleName() + " cannot be null");
         }
 
-        transactionTemplate.executeWithoutResult(transactionStatus -> {
-            long currentStreamVersion = currentStreamVersion(streamId);
+        List<CloudEvent> cloudEvents = events.collect(Collectors.toList());
 
-            if (!isFulfilled(currentStreamVersion, writeCondition)) {
-                throw new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            final long currentStreamVersion;
+            if (streamHeadCollectionName == null) {
+                currentStreamVersion = currentStreamVersionFromEvents(streamId);
+                if (!isFulfilled(currentStreamVersion, writeCondition)) {
+                    throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+                }
+            } else {
+                currentStreamVersion = incrementStreamHeadVersion(streamId, writeCondition, cloudEvents.size());
             }
 
-            List<Document> cloudEventDocuments = mapWithIndex(events, currentStreamVersion, pair -> convertToDocument(cloudEventSerializer, timeRepresentation, streamId, pair.t1, pair.t2)).collect(Collectors.toList());
+            List<RawBsonDocument> cloudEventDocuments = mapWithIndex(cloudEvents.stream(), currentStreamVersion, pair -> convertToRawBsonDocument(timeRepresentation, streamId, pair.t1, pair.t2)).collect(Collectors.toList());
 
             insertAll(cloudEventDocuments);
         });
     }
 
+    @Override
+    public void write(List<EventStreamWrite> writes) {
+        requireNonNull(writes, "Writes cannot be null");
+
+        List<Pair<EventStreamWrite, List<CloudEvent>>> writesWithEvents = writes.stream()
+                .map(write -> new Pair<>(write, write.events.collect(Collectors.toList())))
+                .collect(Collectors.toList());
+
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            Map<String, Long> streamVersions = new HashMap<>();
+            List<WriteConditionNotFulfilledException> writeConditionNotFulfilledExceptions = new ArrayList<>();
+            List<RawBsonDocument> cloudEventDocuments = new ArrayList<>();
+            for (Pair<EventStreamWrite, List<CloudEvent>> writeWithEvents : writesWithEvents) {
+                String streamId = writeWithEvents.t1.streamId;
+                WriteCondition writeCondition = writeWithEvents.t1.writeCondition;
+                List<CloudEvent> cloudEvents = writeWithEvents.t2;
+
+                final long currentStreamVersion;
+                try {
+                    if (streamHeadCollectionName == null) {
+                        // The events are not inserted until all write conditions have been checked so we need to keep track of the stream versions ourselves
+                        currentStreamVersion = streamVersions.computeIfAbsent(streamId, this::currentStreamVersionFromEvents);
+                        if (!isFulfilled(currentStreamVersion, writeCondition)) {
+                            throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+                        }
+                    } else {
+                        currentStreamVersion = incrementStreamHeadVersion(streamId, writeCondition, cloudEvents.size());
+                    }
+                } catch (WriteConditionNotFulfilledException e) {
+                    writeConditionNotFulfilledExceptions.add(e);
+                    continue;
+                }
+
+                streamVersions.put(streamId, currentStreamVersion + cloudEvents.size());
+                mapWithIndex(cloudEvents.stream(), currentStreamVersion, pair -> convertToRawBsonDocument(timeRepresentation, streamId, pair.t1, pair.t2)).forEach(cloudEventDocuments::add);
+            }
+
+            if (!writeConditionNotFulfilledExceptions.isEmpty()) {
+                throw new WriteConditionsNotFulfilledException(writeConditionNotFulfilledExceptions);
+            } else if (!cloudEventDocuments.isEmpty()) {
+                insertAll(cloudEventDocuments);
+            }
+        });
+    }
+
     @Override
     public void write(String streamId, Stream<CloudEvent> events) {
         write(streamId, StreamVersionWriteCondition.any(), events);
@@ -128,6 +250,9 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
 
     @Override
     public boolean exists(String streamId) {
+        if (streamHeadCollectionName != null && findStreamHead(streamId) != null) {
+            return true;
+        }
         return mongoTemplate.exists(Query.query(where(STREAM_ID).is(streamId)), eventStoreCollectionName);
     }
 
@@ -135,9 +260,12 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
     public void deleteEventStream(String streamId) {
         requireNonNull(streamId, "Stream id cannot be null");
 
-        transactionTemplate.executeWithoutResult(
-                __ -> mongoTemplate.remove(Query.query(where(STREAM_ID).is(streamId)), eventStoreCollectionName)
-        );
+        transactionTemplate.executeWithoutResult(__ -> {
+            mongoTemplate.remove(Query.query(where(STREAM_ID).is(streamId)), eventStoreCollectionName);
+            if (streamHeadCollectionName != null) {
+                mongoTemplate.getCollection(streamHeadCollectionName).deleteOne(streamHeadIdEqualTo(streamId));
+            }
+        });
     }
 
     @Override
@@ -145,7 +273,18 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
         requireNonNull(cloudEventId, "Cloud event id cannot be null");
         requireNonNull(cloudEventSource, "Cloud event source cannot be null");
 
-        mongoTemplate.remove(cloudEventIdEqualTo(cloudEventId, cloudEventSource), eventStoreCollectionName);
+        if (streamHeadCollectionName == null) {
+            mongoTemplate.remove(cloudEventIdEqualTo(cloudEventId, cloudEventSource), eventStoreCollectionName);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(__ -> {
+            Document deletedEvent = mongoTemplate.findAndRemove(cloudEventIdEqualTo(cloudEventId, cloudEventSource), Document.class, eventStoreCollectionName);
+            // The stream head is removed together with the last event so that the event stream no longer exists
+            if (deletedEvent != null && !mongoTemplate.exists(Query.query(where(STREAM_ID).is(deletedEvent.getString(STREAM_ID))), eventStoreCollectionName)) {
+                mongoTemplate.getCollection(streamHeadCollectionName).deleteOne(streamHeadIdEqualTo(deletedEvent.getString(STREAM_ID)));
+            }
+        });
     }
 
     @Override
@@ -157,14 +296,14 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
                 return Optional.empty();
             }
 
-            CloudEvent currentCloudEvent = convertToCloudEvent(cloudEventSerializer, timeRepresentation, document);
+            CloudEvent currentCloudEvent = convertToCloudEvent(timeRepresentation, document);
             CloudEvent updatedCloudEvent = fn.apply(currentCloudEvent);
             if (updatedCloudEvent == null) {
                 throw new IllegalArgumentException("Cloud event update function is not allowed to return null");
             } else if (!Objects.equals(updatedCloudEvent, currentCloudEvent)) {
                 String streamId = OccurrentExtensionGetter.getStreamId(currentCloudEvent);
                 long streamVersion = OccurrentExtensionGetter.getStreamVersion(currentCloudEvent);
-                Document updatedDocument = convertToDocument(cloudEventSerializer, timeRepresentation, streamId, streamVersion, updatedCloudEvent);
+                Document updatedDocument = convertToDocument(timeRepresentation, streamId, streamVersion, updatedCloudEvent);
                 updatedDocument.put(ID, document.get(ID)); // Insert the Mongo ObjectID
                 mongoTemplate.findAndReplace(cloudEventQuery, updatedDocument, eventStoreCollectionName);
             }
@@ -177,10 +316,93 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
     // Queries
     @Override
     public Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy) {
+        return query(filter, skip, limit, sortBy, QueryOptions.none());
+    }
+
+    @Override
+    public Stream<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy, QueryOptions queryOptions) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(queryOptions, QueryOptions.class.getSimpleName() + " cannot be null");
+        final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
+        return readCloudEvents(query, skip, limit, sortBy, this.queryOptions.overrideWith(queryOptions))
+                .map(document -> convertToCloudEvent(timeRepresentation, document));
+    }
+
+    @Override
+    public Stream<CloudEventView> queryViews(Filter filter, Set<String> attributes, int skip, int limit, SortBy sortBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
+        final Query projectedQuery = new BasicQuery(query.getQueryObject(), CloudEventViewMapper.projection(attributes));
+        return readCloudEvents(projectedQuery, skip, limit, sortBy, queryOptions)
+                .map(CloudEventViewMapper::convertToCloudEventView);
+    }
+
+    @Override
+    public Stream<CloudEvent> queryParallel(Filter filter, int partitions) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
+        List<Supplier<Stream<CloudEvent>>> partitionReaders = ObjectIdPartitioner.partitions(firstId(ASC), firstId(DESC), partitions).stream()
+                .map(partition -> (Supplier<Stream<CloudEvent>>) () -> {
+                    Query partitionQuery = new BasicQuery(new Document("$and", asList(query.getQueryObject(), partition))).with(Sort.by(ASC, ID));
+                    return stream(partitionQuery, queryOptions)
+                            .map(document -> convertToCloudEvent(timeRepresentation, document));
+                })
+                .collect(Collectors.toList());
+        PartitionedSpliterator<CloudEvent> spliterator = new PartitionedSpliterator<>(partitionReaders);
+        return StreamSupport.stream(spliterator, true).onClose(spliterator::close);
+    }
+
+    private ObjectId firstId(Sort.Direction direction) {
+        Document document = mongoTemplate.execute(eventStoreCollectionName, collection -> withReadPreference(collection, queryOptions).find().projection(new Document(ID, 1)).sort(new Document(ID, direction == ASC ? 1 : -1)).first());
+        return document == null ? null : document.getObjectId(ID);
+    }
+
+    @Override
+    public EventPage queryPage(Filter filter, int limit, SortBy sortBy, String continuationToken) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        }
+
+        Document filterQuery = FilterConverter.convertFilterToQuery(timeRepresentation, filter).getQueryObject();
+        BasicQuery query = new BasicQuery(new Document("$and", asList(filterQuery, KeysetPagination.continueAfter(sortBy.name(), continuationToken))));
+        query.setSortObject(KeysetPagination.sort(sortBy.name()));
+        // Read one more document than the limit to find out if there's a next page
+        query.limit(limit == Integer.MAX_VALUE ? limit : limit + 1);
+        List<Document> documents;
+        try (Stream<Document> stream = stream(query, queryOptions)) {
+            documents = stream.collect(Collectors.toList());
+        }
+
+        final List<Document> documentsInPage;
+        final String nextContinuationToken;
+        if (documents.size() > limit) {
+            documentsInPage = documents.subList(0, limit);
+            Document lastDocument = documentsInPage.get(limit - 1);
+            nextContinuationToken = KeysetPagination.continuationToken(sortBy.name(), lastDocument.get(TIME), lastDocument.get(ID));
+        } else {
+            documentsInPage = documents;
+            nextContinuationToken = null;
+        }
+
+        List<CloudEvent> cloudEvents = documentsInPage.stream().map(document -> convertToCloudEvent(timeRepresentation, document)).collect(Collectors.toList());
+        return new EventPage(cloudEvents, nextContinuationToken);
+    }
+
+    @Override
+    public Stream<AggregatedGroup> aggregate(Filter filter, List<GroupBy> groupBy) {
         requireNonNull(filter, "Filter cannot be null");
         final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
-        return readCloudEvents(query, skip, limit, sortBy)
-                .map(document -> convertToCloudEvent(cloudEventSerializer, timeRepresentation, document));
+        List<Bson> pipeline = AggregationPipeline.pipeline(timeRepresentation, query.getQueryObject(), groupBy);
+        List<Document> documents = mongoTemplate.execute(eventStoreCollectionName, collection -> {
+            AggregateIterable<Document> aggregation = withReadPreference(collection, queryOptions).aggregate(pipeline);
+            if (queryOptions.maxTime != null) {
+                aggregation.maxTime(queryOptions.maxTime.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            return aggregation.into(new ArrayList<>());
+        });
+        return requireNonNull(documents).stream().map(document -> AggregationPipeline.convertToAggregatedGroup(groupBy, document));
     }
 
     @Override
@@ -188,14 +410,33 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
         requireNonNull(filter, "Filter cannot be null");
         if (filter instanceof Filter.All) {
             //noinspection ConstantConditions
-            return mongoTemplate.execute(eventStoreCollectionName, MongoCollection::estimatedDocumentCount);
+            return mongoTemplate.execute(eventStoreCollectionName, collection -> withReadPreference(collection, queryOptions).estimatedDocumentCount());
         } else {
             final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
-            return mongoTemplate.count(query, eventStoreCollectionName);
+            if (queryOptions.readPreference == null) {
+                return mongoTemplate.count(query, eventStoreCollectionName);
+            }
+            //noinspection ConstantConditions
+            return mongoTemplate.execute(eventStoreCollectionName, collection -> withReadPreference(collection, queryOptions).countDocuments(query.getQueryObject()));
         }
     }
 
     // Data structures etc
+    /**
+     * Explain how MongoDB executes the query for the supplied filter, without executing the query. Use this to find queries that scan
+     * the entire event collection (see {@link QueryPlan#collectionScan}) and that should be backed by an index
+     * (see {@link EventStoreConfig.Builder#indexes(IndexModel...)}).
+     *
+     * @param filter The filter to explain
+     * @return The {@link QueryPlan} of the query
+     */
+    public QueryPlan explain(Filter filter) {
+        requireNonNull(filter, "Filter cannot be null");
+        Document query = FilterConverter.convertFilterToQuery(timeRepresentation, filter).getQueryObject();
+        Document explainResult = mongoTemplate.executeCommand(QueryPlanExplainer.explainCommand(eventStoreCollectionName, query));
+        return QueryPlanExplainer.toQueryPlan(query, explainResult);
+    }
+
     private static class EventStreamImpl<T> implements EventStream<T> {
         private String _id;
         private long version;
@@ -239,14 +480,66 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
         }
     }
 
-    private void insertAll(List<Document> documents) {
+    private void insertAll(List<RawBsonDocument> documents) {
         try {
-            mongoTemplate.getCollection(eventStoreCollectionName).insertMany(documents);
+            // The collection returned by the MongoTemplate is bound to the session of the current transaction
+            mongoTemplate.getCollection(eventStoreCollectionName).withDocumentClass(RawBsonDocument.class).insertMany(documents);
         } catch (MongoBulkWriteException e) {
             throw translateToDuplicateCloudEventException(e);
         }
     }
 
+    /**
+     * Increments the version of the stream head by {@code numberOfEvents} if the {@code writeCondition} is fulfilled. The write condition
+     * is included in the update query so that it's checked and the stream head is updated by a single operation on the stream head id.
+     *
+     * @return The stream version before the stream head was incremented
+     */
+    private long incrementStreamHeadVersion(String streamId, WriteCondition writeCondition, int numberOfEvents) {
+        final Criteria streamHeadCriteria;
+        if (writeCondition.isAnyStreamVersion()) {
+            streamHeadCriteria = where(ID).is(streamId);
+        } else if (writeCondition instanceof StreamVersionWriteCondition) {
+            Condition<Long> condition = ((StreamVersionWriteCondition) writeCondition).condition;
+            streamHeadCriteria = new Criteria().andOperator(where(ID).is(streamId), convertConditionToCriteria(STREAM_HEAD_VERSION, condition));
+        } else {
+            throw new IllegalArgumentException("Invalid " + WriteCondition.class.getSimpleName() + ": " + writeCondition);
+        }
+
+        // The collection returned by the MongoTemplate is bound to the session of the current transaction. We use the collection
+        // directly (instead of e.g. MongoTemplate#findAndModify) to prevent Spring from converting the stream id into an ObjectId.
+        MongoCollection<Document> streamHeadCollection = mongoTemplate.getCollection(streamHeadCollectionName);
+        Document previousStreamHead = streamHeadCollection.findOneAndUpdate(Query.query(streamHeadCriteria).getQueryObject(), Updates.inc(STREAM_HEAD_VERSION, (long) numberOfEvents));
+        if (previousStreamHead != null) {
+            return previousStreamHead.getLong(STREAM_HEAD_VERSION);
+        }
+
+        Document streamHead = findStreamHead(streamId);
+        if (streamHead != null) {
+            throw writeConditionNotFulfilled(streamId, streamHead.getLong(STREAM_HEAD_VERSION), writeCondition);
+        }
+
+        // The stream head doesn't exist, either because this is a new stream or because the stream was written before stream heads were enabled
+        long currentStreamVersion = currentStreamVersionFromEvents(streamId);
+        if (!isFulfilled(currentStreamVersion, writeCondition)) {
+            throw writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition);
+        }
+        streamHeadCollection.insertOne(new Document(ID, streamId).append(STREAM_HEAD_VERSION, currentStreamVersion + numberOfEvents));
+        return currentStreamVersion;
+    }
+
+    private Document findStreamHead(String streamId) {
+        return mongoTemplate.getCollection(streamHeadCollectionName).find(streamHeadIdEqualTo(streamId)).first();
+    }
+
+    private static Document streamHeadIdEqualTo(String streamId) {
+        return new Document(ID, streamId);
+    }
+
+    private static WriteConditionNotFulfilledException writeConditionNotFulfilled(String streamId, long currentStreamVersion, WriteCondition writeCondition) {
+        return new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
+    }
+
     private static boolean isFulfilled(long currentStreamVersion, WriteCondition writeCondition) {
         if (writeCondition.isAnyStreamVersion()) {
             return true;
@@ -266,16 +559,36 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
     }
 
     private EventStreamImpl<Document> readEventStream(String streamId, int skip, int limit) {
+        return readEventStream(streamId, () -> readCloudEvents(streamIdEqualTo(streamId), skip, limit, SortBy.NATURAL_ASC, queryOptions.withoutReadPreference()));
+    }
+
+    private EventStreamImpl<Document> readEventStream(String streamId, Supplier<Stream<Document>> readCloudEvents) {
         long currentStreamVersion = currentStreamVersion(streamId);
         if (currentStreamVersion == 0) {
             return new EventStreamImpl<>(streamId, 0, Stream.empty());
         }
 
-        Stream<Document> stream = readCloudEvents(streamIdEqualTo(streamId), skip, limit, SortBy.NATURAL_ASC);
+        Stream<Document> stream = readCloudEvents.get();
         return new EventStreamImpl<>(streamId, currentStreamVersion, stream);
     }
 
+    // The query and sort matches the (streamid, streamversion) index so no documents outside of the range are scanned
+    private Stream<Document> readCloudEventsInStreamVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        Query query = Query.query(where(STREAM_ID).is(streamId).and(STREAM_VERSION).gte(fromStreamVersion).lte(toStreamVersion)).with(Sort.by(ASC, STREAM_VERSION));
+        return stream(query, queryOptions.withoutReadPreference());
+    }
+
     private long currentStreamVersion(String streamId) {
+        if (streamHeadCollectionName != null) {
+            Document streamHead = findStreamHead(streamId);
+            if (streamHead != null) {
+                return streamHead.getLong(STREAM_HEAD_VERSION);
+            }
+        }
+        return currentStreamVersionFromEvents(streamId);
+    }
+
+    private long currentStreamVersionFromEvents(String streamId) {
         Query query = Query.query(where(STREAM_ID).is(streamId));
         query.fields().include(STREAM_VERSION);
         Document documentWithLatestStreamVersion = mongoTemplate.findOne(query.with(Sort.by(DESC, STREAM_VERSION)).limit(1), Document.class, eventStoreCollectionName);
@@ -288,7 +601,7 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
         return currentStreamVersion;
     }
 
-    private Stream<Document> readCloudEvents(Query query, int skip, int limit, SortBy sortBy) {
+    private Stream<Document> readCloudEvents(Query query, int skip, int limit, SortBy sortBy, QueryOptions queryOptions) {
         if (skip != 0 || limit != Integer.MAX_VALUE) {
             query.skip(skip).limit(limit);
         }
@@ -309,24 +622,82 @@ public class SpringBlockingMongoEventStore implements EventStore, EventStoreOper
                 throw new IllegalStateException("Unexpected value: " + sortBy);
         }
 
-        return StreamUtils.createStreamFromIterator(mongoTemplate.stream(query, Document.class, eventStoreCollectionName));
+        return stream(query, queryOptions);
+    }
+
+    private Stream<Document> stream(Query query, QueryOptions queryOptions) {
+        if (queryOptions.batchSize != null) {
+            query.cursorBatchSize(queryOptions.batchSize);
+        }
+        if (queryOptions.maxTime != null) {
+            query.maxTime(queryOptions.maxTime);
+        }
+        if (queryOptions.readPreference == null) {
+            if (Boolean.TRUE.equals(queryOptions.noCursorTimeout)) {
+                query.noCursorTimeout();
+            }
+            return StreamUtils.createStreamFromIterator(mongoTemplate.stream(query, Document.class, eventStoreCollectionName));
+        }
+
+        // MongoTemplate cannot be configured with a read preference per query so the collection is queried directly
+        MongoCursor<Document> cursor = mongoTemplate.execute(eventStoreCollectionName, collection -> {
+            FindIterable<Document> documents = withReadPreference(collection, queryOptions).find(query.getQueryObject())
+                    .projection(query.getFieldsObject())
+                    .sort(query.getSortObject())
+                    .skip((int) query.getSkip())
+                    .limit(query.getLimit());
+            if (queryOptions.batchSize != null) {
+                documents.batchSize(queryOptions.batchSize);
+            }
+            if (queryOptions.maxTime != null) {
+                documents.maxTime(queryOptions.maxTime.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (queryOptions.noCursorTimeout != null) {
+                documents.noCursorTimeout(queryOptions.noCursorTimeout);
+            }
+            return documents.iterator();
+        });
+        requireNonNull(cursor);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false).onClose(cursor::close);
+    }
+
+    private static MongoCollection<Document> withReadPreference(MongoCollection<Document> collection, QueryOptions queryOptions) {
+        return queryOptions.readPreference == null ? collection : collection.withReadPreference(ReadPreferenceConverter.convertToMongoReadPreference(queryOptions.readPreference));
     }
 
     // Initialization
-    private static void initializeEventStore(String eventStoreCollectionName, MongoTemplate mongoTemplate) {
+    private static void initializeEventStore(String eventStoreCollectionName, String streamHeadCollectionName, List<IndexModel> indexes, String schemaMetadataCollectionName,
+                                             MongoTemplate mongoTemplate) {
+        // SessionSynchronization need to be "ALWAYS" in order for TransactionTemplate to work with mongo template!
+        // See https://docs.spring.io/spring-data/mongodb/docs/current/reference/html/#mongo.transactions.transaction-template
+        mongoTemplate.setSessionSynchronization(ALWAYS);
+
+        MongoCollection<Document> schemaMetadataCollection = schemaMetadataCollectionName == null ? null : mongoTemplate.getCollection(schemaMetadataCollectionName);
+        String signature = SchemaMetadata.signature(asList(eventStoreCollectionName, streamHeadCollectionName), indexes);
+        if (schemaMetadataCollection != null && SchemaMetadata.isCurrent(schemaMetadataCollection.find(SchemaMetadata.schemaMetadataId(eventStoreCollectionName)).first(), signature)) {
+            return;
+        }
+
         if (!mongoTemplate.collectionExists(eventStoreCollectionName)) {
             mongoTemplate.createCollection(eventStoreCollectionName);
         }
+        // Collections cannot be created implicitly inside a transaction so the stream head collection must be created upfront
+        if (streamHeadCollectionName != null && !mongoTemplate.collectionExists(streamHeadCollectionName)) {
+            mongoTemplate.createCollection(streamHeadCollectionName);
+        }
         MongoCollection<Document> eventStoreCollection = mongoTemplate.getCollection(eventStoreCollectionName);
         eventStoreCollection.createIndex(Indexes.ascending(STREAM_ID));
         // Cloud spec defines id + source must be unique!
         eventStoreCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("id"), Indexes.ascending("source")), new IndexOptions().unique(true));
         // Create a streamId + streamVersion index
         eventStoreCollection.createIndex(Indexes.compoundIndex(Indexes.ascending(STREAM_ID), Indexes.descending(STREAM_VERSION)), new IndexOptions().unique(true));
-
-        // SessionSynchronization need to be "ALWAYS" in order for TransactionTemplate to work with mongo template!
-        // See https://docs.spring.io/spring-data/mongodb/docs/current/reference/html/#mongo.transactions.transaction-template
-        mongoTemplate.setSessionSynchronization(ALWAYS);
+        // Create the indexes defined in the config
+        if (!indexes.isEmpty()) {
+            eventStoreCollection.createIndexes(indexes);
+        }
+        if (schemaMetadataCollection != null) {
+            schemaMetadataCollection.replaceOne(SchemaMetadata.schemaMetadataId(eventStoreCollectionName), SchemaMetadata.schemaMetadata(eventStoreCollectionName, signature), new ReplaceOptions().upsert(true));
+        }
     }
 
     private static Query cloudEventIdEqualTo(String cloudEventId, URI cloudEventSource) {
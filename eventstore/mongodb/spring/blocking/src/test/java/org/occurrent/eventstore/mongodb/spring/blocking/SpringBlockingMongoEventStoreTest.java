@@ -26,6 +26,7 @@ import com.mongodb.client.MongoClients;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
 import io.github.artsok.RepeatedIfExceptionsTest;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -39,8 +40,10 @@ import org.occurrent.domain.*;
 import org.occurrent.eventstore.api.DuplicateCloudEventException;
 import org.occurrent.eventstore.api.WriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
+import org.occurrent.eventstore.api.WriteConditionsNotFulfilledException;
 import org.occurrent.eventstore.api.blocking.EventStoreQueries;
 import org.occurrent.eventstore.api.blocking.EventStream;
+import org.occurrent.eventstore.api.blocking.EventStreamWrite;
 import org.occurrent.functional.CheckedFunction;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.occurrent.testsupport.mongodb.FlushMongoDBExtension;
@@ -71,6 +74,7 @@ import static java.time.ZoneOffset.UTC;
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.condition.JRE.JAVA_11;
 import static org.junit.jupiter.api.condition.JRE.JAVA_8;
@@ -334,6 +338,175 @@ public class SpringBlockingMongoEventStoreTest {
         }
     }
 
+    @Nested
+    @DisplayName("write to multiple event streams")
+    class WriteToMultipleEventStreamsTest {
+
+        @Test
+        void writes_events_to_all_streams_when_all_write_conditions_are_fulfilled() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Smith");
+            persist("name1", event1);
+
+            // When
+            eventStore.write(
+                    EventStreamWrite.write("name1", WriteCondition.streamVersionEq(1), Stream.of(event2).map(SpringBlockingMongoEventStoreTest.this::convertDomainEventCloudEvent)),
+                    EventStreamWrite.write("name2", WriteCondition.streamVersionEq(0), Stream.of(event3).map(SpringBlockingMongoEventStoreTest.this::convertDomainEventCloudEvent)),
+                    EventStreamWrite.write("name2", WriteCondition.streamVersionEq(1), Stream.of(event4).map(SpringBlockingMongoEventStoreTest.this::convertDomainEventCloudEvent))
+            );
+
+            // Then
+            EventStream<CloudEvent> eventStream1 = eventStore.read("name1");
+            EventStream<CloudEvent> eventStream2 = eventStore.read("name2");
+            assertAll(
+                    () -> assertThat(eventStream1.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream1.events())).containsExactly(event1, event2),
+                    () -> assertThat(eventStream2.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream2.events())).containsExactly(event3, event4)
+            );
+        }
+
+        @Test
+        void writes_no_events_and_reports_each_write_condition_that_is_not_fulfilled() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameDefined(UUID.randomUUID().toString(), now, "Jane Smith");
+            persist("name1", event1);
+
+            // When
+            Throwable throwable = catchThrowable(() -> eventStore.write(
+                    EventStreamWrite.write("name1", WriteCondition.streamVersionEq(0), Stream.of(event2).map(SpringBlockingMongoEventStoreTest.this::convertDomainEventCloudEvent)),
+                    EventStreamWrite.write("name2", WriteCondition.streamVersionEq(0), Stream.of(event3).map(SpringBlockingMongoEventStoreTest.this::convertDomainEventCloudEvent)),
+                    EventStreamWrite.write("name3", WriteCondition.streamVersionEq(2), Stream.of(event4).map(SpringBlockingMongoEventStoreTest.this::convertDomainEventCloudEvent))
+            ));
+
+            // Then
+            assertAll(
+                    () -> assertThat(throwable).isExactlyInstanceOf(WriteConditionsNotFulfilledException.class),
+                    () -> assertThat(((WriteConditionsNotFulfilledException) throwable).writeConditionNotFulfilledExceptions)
+                            .extracting(e -> e.eventStreamId, e -> e.eventStreamVersion)
+                            .containsExactly(tuple("name1", 1L), tuple("name3", 0L)),
+                    () -> assertThat(deserialize(eventStore.read("name1").events())).containsExactly(event1),
+                    () -> assertThat(eventStore.exists("name2")).isFalse(),
+                    () -> assertThat(eventStore.exists("name3")).isFalse()
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("read version range")
+    class ReadVersionRangeTest {
+
+        @Test
+        void read_version_range_returns_events_within_range() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            DomainEvent event3 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe");
+            DomainEvent event4 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jennifer Doe");
+            persist("name", Stream.of(event1, event2, event3, event4));
+
+            // When
+            EventStream<CloudEvent> eventStream = eventStore.readVersionRange("name", 2, 3);
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(4),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event2, event3)
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("stream heads")
+    class StreamHeadsTest {
+
+        @BeforeEach
+        void create_mongo_spring_blocking_event_store_with_stream_heads() {
+            EventStoreConfig eventStoreConfig = new EventStoreConfig.Builder().eventStoreCollectionName(connectionString.getCollection()).transactionConfig(mongoTransactionManager)
+                    .timeRepresentation(TimeRepresentation.RFC_3339_STRING).streamHeadCollectionName("streamHeads").build();
+            eventStore = new SpringBlockingMongoEventStore(mongoTemplate, eventStoreConfig);
+        }
+
+        @Test
+        void write_updates_stream_head_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+
+            // When
+            persist("name", WriteCondition.streamVersionEq(0), event1);
+            persist("name", WriteCondition.streamVersionEq(1), event2);
+
+            // Then
+            EventStream<CloudEvent> eventStream = eventStore.read("name");
+            assertAll(
+                    () -> assertThat(eventStream.version()).isEqualTo(2),
+                    () -> assertThat(deserialize(eventStream.events())).containsExactly(event1, event2),
+                    () -> assertThat(mongoTemplate.getCollection("streamHeads").find(new Document("_id", "name")).first()).containsEntry("version", 2L)
+            );
+        }
+
+        @Test
+        void throws_write_condition_not_fulfilled_when_stream_head_version_does_not_match_expected_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            persist("name", new NameDefined(UUID.randomUUID().toString(), now, "John Doe"));
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", WriteCondition.streamVersionEq(10), new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe")));
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(WriteConditionNotFulfilledException.class)
+                    .hasMessage("WriteCondition was not fulfilled. Expected version to be equal to 10 but was 1.");
+        }
+
+        @Test
+        void deleteEventStream_deletes_stream_head() {
+            // Given
+            persist("name", new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe"));
+
+            // When
+            eventStore.deleteEventStream("name");
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStore.exists("name")).isFalse(),
+                    () -> assertThat(mongoTemplate.getCollection("streamHeads").countDocuments()).isZero()
+            );
+        }
+
+        @Test
+        void deleteEvent_deletes_stream_head_when_the_last_event_in_the_event_stream_is_deleted() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined nameDefined = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            NameWasChanged nameWasChanged = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Stream.of(nameDefined, nameWasChanged));
+
+            // When
+            eventStore.deleteEvent(nameWasChanged.getEventId(), NAME_SOURCE);
+            long streamHeadsAfterFirstDelete = mongoTemplate.getCollection("streamHeads").countDocuments();
+            eventStore.deleteEvent(nameDefined.getEventId(), NAME_SOURCE);
+
+            // Then
+            assertAll(
+                    () -> assertThat(streamHeadsAfterFirstDelete).isEqualTo(1),
+                    () -> assertThat(eventStore.exists("name")).isFalse(),
+                    () -> assertThat(mongoTemplate.getCollection("streamHeads").countDocuments()).isZero()
+            );
+        }
+    }
+
     @Nested
     @DisplayName("deletion")
     class Delete {
@@ -16,10 +16,17 @@
 
 package org.occurrent.eventstore.mongodb.spring.reactor;
 
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import static java.util.Objects.requireNonNull;
@@ -31,6 +38,12 @@ public class EventStoreConfig {
     public final String eventStoreCollectionName;
     public final TransactionalOperator transactionalOperator;
     public final TimeRepresentation timeRepresentation;
+    public final String streamHeadCollectionName;
+    public final int writeChunkSize;
+    public final QueryOptions queryOptions;
+    public final List<IndexModel> indexes;
+    public final String schemaMetadataCollectionName;
+    public final boolean asynchronousInitialization;
 
     /**
      * Create a new instance of {@code EventStoreConfig}.
@@ -40,12 +53,26 @@ public class EventStoreConfig {
      * @param timeRepresentation       How time should be represented in the database
      */
     public EventStoreConfig(String eventStoreCollectionName, TransactionalOperator transactionalOperator, TimeRepresentation timeRepresentation) {
+        this(eventStoreCollectionName, transactionalOperator, timeRepresentation, null, 0, null, Collections.emptyList(), null, false);
+    }
+
+    private EventStoreConfig(String eventStoreCollectionName, TransactionalOperator transactionalOperator, TimeRepresentation timeRepresentation, String streamHeadCollectionName,
+                             int writeChunkSize, QueryOptions queryOptions, List<IndexModel> indexes, String schemaMetadataCollectionName, boolean asynchronousInitialization) {
         requireNonNull(eventStoreCollectionName, "Event store collection name cannot be null");
         requireNonNull(transactionalOperator, TransactionalOperator.class.getSimpleName() + " cannot be null");
         requireNonNull(timeRepresentation, TimeRepresentation.class.getSimpleName() + " cannot be null");
         this.eventStoreCollectionName = eventStoreCollectionName;
         this.transactionalOperator = transactionalOperator;
         this.timeRepresentation = timeRepresentation;
+        if (writeChunkSize < 0) {
+            throw new IllegalArgumentException("Write chunk size cannot be negative");
+        }
+        this.streamHeadCollectionName = streamHeadCollectionName;
+        this.writeChunkSize = writeChunkSize;
+        this.queryOptions = queryOptions == null ? QueryOptions.none() : queryOptions;
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(requireNonNull(indexes, "Indexes cannot be null")));
+        this.schemaMetadataCollectionName = schemaMetadataCollectionName;
+        this.asynchronousInitialization = asynchronousInitialization;
     }
 
 
@@ -56,12 +83,18 @@ public class EventStoreConfig {
         EventStoreConfig that = (EventStoreConfig) o;
         return Objects.equals(eventStoreCollectionName, that.eventStoreCollectionName) &&
                 Objects.equals(transactionalOperator, that.transactionalOperator) &&
-                timeRepresentation == that.timeRepresentation;
+                timeRepresentation == that.timeRepresentation &&
+                Objects.equals(streamHeadCollectionName, that.streamHeadCollectionName) &&
+                writeChunkSize == that.writeChunkSize &&
+                Objects.equals(queryOptions, that.queryOptions) &&
+                Objects.equals(indexes, that.indexes) &&
+                Objects.equals(schemaMetadataCollectionName, that.schemaMetadataCollectionName) &&
+                asynchronousInitialization == that.asynchronousInitialization;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(eventStoreCollectionName, transactionalOperator, timeRepresentation);
+        return Objects.hash(eventStoreCollectionName, transactionalOperator, timeRepresentation, streamHeadCollectionName, writeChunkSize, queryOptions, indexes, schemaMetadataCollectionName, asynchronousInitialization);
     }
 
     @Override
@@ -70,6 +103,12 @@ public class EventStoreConfig {
                 "eventStoreCollectionName='" + eventStoreCollectionName + '\'' +
                 ", transactionTemplate=" + transactionalOperator +
                 ", timeRepresentation=" + timeRepresentation +
+                ", streamHeadCollectionName='" + streamHeadCollectionName + '\'' +
+                ", writeChunkSize=" + writeChunkSize +
+                ", queryOptions=" + queryOptions +
+                ", indexes=" + indexes +
+                ", schemaMetadataCollectionName='" + schemaMetadataCollectionName + '\'' +
+                ", asynchronousInitialization=" + asynchronousInitialization +
                 '}';
     }
 
@@ -77,6 +116,12 @@ public class EventStoreConfig {
         private String eventStoreCollectionName;
         private TransactionalOperator transactionalOperator;
         private TimeRepresentation timeRepresentation;
+        private String streamHeadCollectionName;
+        private int writeChunkSize;
+        private QueryOptions queryOptions;
+        private List<IndexModel> indexes = Collections.emptyList();
+        private String schemaMetadataCollectionName;
+        private boolean asynchronousInitialization;
 
         /**
          * @param eventStoreCollectionName The collection in which the events are persisted
@@ -114,9 +159,103 @@ public class EventStoreConfig {
             return this;
         }
 
+        /**
+         * Configure the event store to keep track of the current version of each stream in a separate "stream head" collection.
+         * The stream head collection contains one document per stream and the stream head is updated in the same transaction
+         * as the events are written. This means that {@code WriteCondition}'s are checked by a single update of the stream head
+         * (by id) instead of finding the event with the highest stream version for each write. The stream head is also used by
+         * {@code read} and {@code exists}. Streams written before stream heads were enabled are still supported, their stream head
+         * is created on the next write. Default is {@code null}, i.e. stream heads are not used.
+         * <p>
+         * Note that all event store instances writing to the same event collection must use the same stream head configuration!
+         * </p>
+         *
+         * @param streamHeadCollectionName The name of the collection in which the stream heads are stored, or {@code null} to disable stream heads.
+         * @return A same {@code Builder instance}
+         */
+        public Builder streamHeadCollectionName(String streamHeadCollectionName) {
+            this.streamHeadCollectionName = streamHeadCollectionName;
+            return this;
+        }
+
+        /**
+         * Configure the event store to insert the events of a write in chunks of (at most) {@code writeChunkSize} events, instead of
+         * collecting all events of the {@code Flux} in memory before inserting them. All chunks are inserted in the same transaction
+         * so a write is still atomic. The next chunk is not requested from the {@code Flux} until the previous chunk has been inserted,
+         * which means that the memory used by a write is bounded by the chunk size. This is useful when writing a large number of
+         * events, for example during migrations. Default is {@code 0}, i.e. all events are collected before they are inserted.
+         *
+         * @param writeChunkSize The maximum number of events to insert in each chunk, or {@code 0} to insert all events at once.
+         * @return A same {@code Builder instance}
+         */
+        public Builder writeChunkSize(int writeChunkSize) {
+            this.writeChunkSize = writeChunkSize;
+            return this;
+        }
+
+        /**
+         * Configure the {@link QueryOptions} (such as cursor batch size, max time and read preference) that are used by all queries
+         * and reads made by the event store. Options passed to {@code EventStoreQueries#query(Filter, int, int, SortBy, QueryOptions)}
+         * override these options. Note that the read preference only applies to {@code EventStoreQueries} since reads of event streams
+         * take place in a transaction and must read from the primary. Default is {@link QueryOptions#none()}.
+         *
+         * @param queryOptions The query options to use
+         * @return A same {@code Builder instance}
+         */
+        public Builder queryOptions(QueryOptions queryOptions) {
+            this.queryOptions = queryOptions;
+            return this;
+        }
+
+        /**
+         * Configure additional indexes that are created on the event collection when the event store is created, for example to avoid
+         * collection scans when querying by {@code type}, {@code time}, {@code subject} or {@code data}. Compound and partial indexes
+         * are defined using the {@link IndexOptions} of the {@link IndexModel}, e.g.
+         * <pre>
+         * new IndexModel(Indexes.compoundIndex(Indexes.ascending("type"), Indexes.descending("time")), new IndexOptions().partialFilterExpression(Filters.exists("subject")))
+         * </pre>
+         * Use {@code explain} of the event store to find queries that scan the entire collection. Default is no additional indexes.
+         *
+         * @param indexes The indexes to create
+         * @return A same {@code Builder instance}
+         */
+        public Builder indexes(IndexModel... indexes) {
+            requireNonNull(indexes, "Indexes cannot be null");
+            this.indexes = Arrays.asList(indexes);
+            return this;
+        }
+
+        /**
+         * Configure a collection in which the event store keeps track of the schema (collections and indexes) that has been created for the
+         * event collection. When the event store is created it first reads the schema metadata document of the event collection, and only
+         * checks the collections and creates the indexes if the schema has changed since the last time (for example if new indexes have been
+         * configured). This speeds up startup when there are many event stores (e.g. one per tenant). The same schema metadata collection
+         * can be used by several event collections. Default is {@code null}, i.e. the schema is always initialized.
+         *
+         * @param schemaMetadataCollectionName The name of the collection in which the schema metadata is stored, or {@code null} to always initialize the schema.
+         * @return A same {@code Builder instance}
+         */
+        public Builder schemaMetadataCollectionName(String schemaMetadataCollectionName) {
+            this.schemaMetadataCollectionName = schemaMetadataCollectionName;
+            return this;
+        }
+
+        /**
+         * Configure whether the collections and indexes should be initialized without blocking the constructor of the event store. If {@code true},
+         * the initialization is started by the constructor and writes, deletes and updates wait for it to complete (and fail if the initialization
+         * failed). Reads and queries don't wait for the initialization since they don't depend on it. Default is {@code false}, i.e. the constructor
+         * blocks until the event store is initialized.
+         *
+         * @param asynchronousInitialization {@code true} if the event store should be initialized asynchronously, {@code false} otherwise.
+         * @return A same {@code Builder instance}
+         */
+        public Builder asynchronousInitialization(boolean asynchronousInitialization) {
+            this.asynchronousInitialization = asynchronousInitialization;
+            return this;
+        }
 
         public EventStoreConfig build() {
-            return new EventStoreConfig(eventStoreCollectionName, transactionalOperator, timeRepresentation);
+            return new EventStoreConfig(eventStoreCollectionName, transactionalOperator, timeRepresentation, streamHeadCollectionName, writeChunkSize, queryOptions, indexes, schemaMetadataCollectionName, asynchronousInitialization);
         }
     }
 }
\ No newline at end of file
@@ -17,43 +17,73 @@
 package org.occurrent.eventstore.mongodb.spring.reactor;
 
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.reactivestreams.client.AggregatePublisher;
+import com.mongodb.reactivestreams.client.FindPublisher;
 import com.mongodb.reactivestreams.client.MongoCollection;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.provider.EventFormatProvider;
-import io.cloudevents.jackson.JsonFormat;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.occurrent.cloudevents.OccurrentCloudEventExtension;
 import org.occurrent.cloudevents.OccurrentExtensionGetter;
+import org.occurrent.condition.Condition;
+import org.occurrent.eventstore.api.AggregatedGroup;
+import org.occurrent.eventstore.api.CloudEventView;
+import org.occurrent.eventstore.api.EventPage;
+import org.occurrent.eventstore.api.GroupBy;
 import org.occurrent.eventstore.api.LongConditionEvaluator;
+import org.occurrent.eventstore.api.QueryOptions;
 import org.occurrent.eventstore.api.WriteCondition;
+import org.occurrent.eventstore.api.WriteCondition.StreamVersionWriteCondition;
 import org.occurrent.eventstore.api.WriteConditionNotFulfilledException;
 import org.occurrent.eventstore.api.reactor.EventStore;
 import org.occurrent.eventstore.api.reactor.EventStoreOperations;
 import org.occurrent.eventstore.api.reactor.EventStoreQueries;
 import org.occurrent.eventstore.api.reactor.EventStream;
+import org.occurrent.eventstore.mongodb.QueryPlan;
+import org.occurrent.eventstore.mongodb.internal.AggregationPipeline;
+import org.occurrent.eventstore.mongodb.internal.CloudEventViewMapper;
+import org.occurrent.eventstore.mongodb.internal.KeysetPagination;
 import org.occurrent.eventstore.mongodb.internal.MongoBulkWriteExceptionToDuplicateCloudEventExceptionTranslator;
+import org.occurrent.eventstore.mongodb.internal.MultipleEventStreamsReader;
+import org.occurrent.eventstore.mongodb.internal.ObjectIdPartitioner;
 import org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper;
+import org.occurrent.eventstore.mongodb.internal.QueryPlanExplainer;
+import org.occurrent.eventstore.mongodb.internal.ReadPreferenceConverter;
+import org.occurrent.eventstore.mongodb.internal.SchemaMetadata;
 import org.occurrent.filter.Filter;
 import org.occurrent.mongodb.spring.filterqueryconversion.internal.FilterConverter;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static org.occurrent.filter.Filter.TIME;
+import static org.occurrent.mongodb.spring.filterqueryconversion.internal.ConditionToCriteriaConverter.convertConditionToCriteria;
 import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 import static org.springframework.data.mongodb.SessionSynchronization.ALWAYS;
@@ -67,12 +97,16 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
 public class SpringReactorMongoEventStore implements EventStore, EventStoreOperations, EventStoreQueries {
 
     private static final String ID = "_id";
+    private static final String STREAM_HEAD_VERSION = "version";
 
     private final ReactiveMongoTemplate mongoTemplate;
     private final String eventStoreCollectionName;
-    private final EventFormat cloudEventSerializer;
+    private final String streamHeadCollectionName;
     private final TimeRepresentation timeRepresentation;
     private final TransactionalOperator transactionalOperator;
+    private final int writeChunkSize;
+    private final QueryOptions queryOptions;
+    private final Mono<Void> initialization;
 
     /**
      * Create a new instance of {@code SpringReactorMongoEventStore}
@@ -86,9 +120,20 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
         this.mongoTemplate = mongoTemplate;
         this.eventStoreCollectionName = config.eventStoreCollectionName;
         this.transactionalOperator = config.transactionalOperator;
+        this.writeChunkSize = config.writeChunkSize;
         this.timeRepresentation = config.timeRepresentation;
-        cloudEventSerializer = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
-        initializeEventStore(eventStoreCollectionName, mongoTemplate).block();
+        this.streamHeadCollectionName = config.streamHeadCollectionName;
+        this.queryOptions = config.queryOptions;
+        Mono<Void> initialization = initializeEventStore(eventStoreCollectionName, streamHeadCollectionName, config.indexes, config.schemaMetadataCollectionName, mongoTemplate);
+        if (config.asynchronousInitialization) {
+            // The initialization is started immediately and is only executed once. Errors are propagated to writes, deletes and updates.
+            this.initialization = initialization.cache();
+            this.initialization.subscribe(null, __ -> {
+            });
+        } else {
+            initialization.block();
+            this.initialization = Mono.empty();
+        }
     }
 
     @Override
@@ -102,28 +147,97 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
             throw new IllegalArgumentException(WriteCondition.class.getSimpleName() + " cannot be null");
         }
 
-        return transactionalOperator.execute(transactionStatus -> {
-                    Flux<Document> documentFlux = currentStreamVersion(streamId)
-                            .flatMap(currentStreamVersion -> {
-                                final Mono<Long> result;
-                                if (isFulfilled(currentStreamVersion, writeCondition)) {
-                                    result = Mono.just(currentStreamVersion);
-                                } else {
-                                    result = Mono.error(new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion)));
-                                }
-                                return result;
-                            })
-                            .flatMapMany(currentStreamVersion ->
-                                    infiniteFluxFrom(currentStreamVersion)
-                                            .zipWith(events)
-                                            .map(streamVersionAndEvent -> {
-                                                long streamVersion = streamVersionAndEvent.getT1();
-                                                CloudEvent event = streamVersionAndEvent.getT2();
-                                                return OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(cloudEventSerializer, timeRepresentation, streamId, streamVersion, event);
-                                            }));
+        return initialization.then(transactionalOperator.execute(transactionStatus -> {
+                    final Flux<RawBsonDocument> documentFlux;
+                    if (streamHeadCollectionName == null) {
+                        documentFlux = currentStreamVersionFromEvents(streamId)
+                                .flatMap(currentStreamVersion -> {
+                                    final Mono<Long> result;
+                                    if (isFulfilled(currentStreamVersion, writeCondition)) {
+                                        result = Mono.just(currentStreamVersion);
+                                    } else {
+                                        result = Mono.error(writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition));
+                                    }
+                                    return result;
+                                })
+                                .flatMapMany(currentStreamVersion -> convertToDocuments(streamId, currentStreamVersion, events));
+                    } else if (writeChunkSize > 0) {
+                        // The write condition is checked, and the stream head is locked by the transaction, by incrementing the
+                        // stream head version by zero. The stream head version is then incremented by the number of inserted events.
+                        return incrementStreamHeadVersion(streamId, writeCondition, 0)
+                                .flatMap(currentStreamVersion -> insertInChunks(convertToDocuments(streamId, currentStreamVersion, events))
+                                        .filter(numberOfEvents -> numberOfEvents > 0)
+                                        .flatMap(numberOfEvents -> mongoTemplate.createMono(streamHeadCollectionName, collection ->
+                                                collection.updateOne(streamHeadIdEqualTo(streamId), Updates.inc(STREAM_HEAD_VERSION, numberOfEvents)))))
+                                .then();
+                    } else {
+                        // The number of events must be known before the stream head can be updated
+                        documentFlux = events.collectList()
+                                .flatMapMany(cloudEvents -> incrementStreamHeadVersion(streamId, writeCondition, cloudEvents.size())
+                                        .flatMapMany(currentStreamVersion -> convertToDocuments(streamId, currentStreamVersion, Flux.fromIterable(cloudEvents))));
+                    }
                     return insertAll(documentFlux);
                 }
-        ).then();
+        ).then());
+    }
+
+    private Flux<RawBsonDocument> convertToDocuments(String streamId, long currentStreamVersion, Flux<CloudEvent> events) {
+        return infiniteFluxFrom(currentStreamVersion)
+                .zipWith(events)
+                .map(streamVersionAndEvent -> {
+                    long streamVersion = streamVersionAndEvent.getT1();
+                    CloudEvent event = streamVersionAndEvent.getT2();
+                    return OccurrentCloudEventMongoDBDocumentMapper.convertToRawBsonDocument(timeRepresentation, streamId, streamVersion, event);
+                });
+    }
+
+    /**
+     * Increments the version of the stream head by {@code numberOfEvents} if the {@code writeCondition} is fulfilled. The write condition
+     * is included in the update query so that it's checked and the stream head is updated by a single operation on the stream head id.
+     *
+     * @return The stream version before the stream head was incremented
+     */
+    private Mono<Long> incrementStreamHeadVersion(String streamId, WriteCondition writeCondition, int numberOfEvents) {
+        final Criteria streamHeadCriteria;
+        if (writeCondition.isAnyStreamVersion()) {
+            streamHeadCriteria = where(ID).is(streamId);
+        } else if (writeCondition instanceof StreamVersionWriteCondition) {
+            Condition<Long> condition = ((StreamVersionWriteCondition) writeCondition).condition;
+            streamHeadCriteria = new Criteria().andOperator(where(ID).is(streamId), convertConditionToCriteria(STREAM_HEAD_VERSION, condition));
+        } else {
+            return Mono.error(new IllegalArgumentException("Invalid " + WriteCondition.class.getSimpleName() + ": " + writeCondition));
+        }
+
+        // We use the collection directly (instead of e.g. ReactiveMongoTemplate#findAndModify) to prevent Spring from converting the stream id into an ObjectId.
+        // The collection is bound to the session of the current transaction by the ReactiveMongoTemplate.
+        Document streamHeadQuery = Query.query(streamHeadCriteria).getQueryObject();
+        return mongoTemplate.createMono(streamHeadCollectionName, collection -> collection.findOneAndUpdate(streamHeadQuery, Updates.inc(STREAM_HEAD_VERSION, (long) numberOfEvents)))
+                .map(previousStreamHead -> previousStreamHead.getLong(STREAM_HEAD_VERSION))
+                .switchIfEmpty(Mono.defer(() -> findStreamHead(streamId)
+                        .flatMap(streamHead -> Mono.<Long>error(writeConditionNotFulfilled(streamId, streamHead.getLong(STREAM_HEAD_VERSION), writeCondition)))
+                        // The stream head doesn't exist, either because this is a new stream or because the stream was written before stream heads were enabled
+                        .switchIfEmpty(Mono.defer(() -> currentStreamVersionFromEvents(streamId).flatMap(currentStreamVersion -> {
+                            final Mono<Long> result;
+                            if (isFulfilled(currentStreamVersion, writeCondition)) {
+                                Document streamHead = new Document(ID, streamId).append(STREAM_HEAD_VERSION, currentStreamVersion + numberOfEvents);
+                                result = mongoTemplate.createMono(streamHeadCollectionName, collection -> collection.insertOne(streamHead)).thenReturn(currentStreamVersion);
+                            } else {
+                                result = Mono.error(writeConditionNotFulfilled(streamId, currentStreamVersion, writeCondition));
+                            }
+                            return result;
+                        })))));
+    }
+
+    private Mono<Document> findStreamHead(String streamId) {
+        return mongoTemplate.createMono(streamHeadCollectionName, collection -> collection.find(streamHeadIdEqualTo(streamId)).first());
+    }
+
+    private static Document streamHeadIdEqualTo(String streamId) {
+        return new Document(ID, streamId);
+    }
+
+    private static WriteConditionNotFulfilledException writeConditionNotFulfilled(String streamId, long currentStreamVersion, WriteCondition writeCondition) {
+        return new WriteConditionNotFulfilledException(streamId, currentStreamVersion, writeCondition, String.format("%s was not fulfilled. Expected version %s but was %s.", WriteCondition.class.getSimpleName(), writeCondition.toString(), currentStreamVersion));
     }
 
     private static Flux<Long> infiniteFluxFrom(Long currentStreamVersion) {
@@ -136,26 +250,67 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
 
     @Override
     public Mono<Boolean> exists(String streamId) {
-        return mongoTemplate.exists(streamIdEqualTo(streamId), eventStoreCollectionName);
+        Mono<Boolean> existsInEventStoreCollection = mongoTemplate.exists(streamIdEqualTo(streamId), eventStoreCollectionName);
+        if (streamHeadCollectionName == null) {
+            return existsInEventStoreCollection;
+        }
+        return findStreamHead(streamId).map(__ -> true).switchIfEmpty(existsInEventStoreCollection);
     }
 
     @Override
     public Mono<EventStream<CloudEvent>> read(String streamId, int skip, int limit) {
         Mono<EventStreamImpl> eventStream = transactionalOperator.execute(transactionStatus -> readEventStream(streamId, skip, limit)).single();
-        return convertToCloudEvent(cloudEventSerializer, timeRepresentation, eventStream);
+        return convertToCloudEvent(timeRepresentation, eventStream);
+    }
+
+    @Override
+    public Flux<EventStream<CloudEvent>> read(Collection<String> streamIds) {
+        List<String> distinctStreamIds = MultipleEventStreamsReader.distinctStreamIds(streamIds);
+        if (distinctStreamIds.isEmpty()) {
+            return Flux.empty();
+        }
+
+        // All event streams are read with a single query in a single transaction. The version of each event stream is the stream version of its last event.
+        BasicQuery query = new BasicQuery(new Document(OccurrentCloudEventExtension.STREAM_ID, new Document("$in", distinctStreamIds)));
+        query.setSortObject(MultipleEventStreamsReader.SORT_BY_STREAM_ID_AND_STREAM_VERSION);
+        Mono<List<EventStreamImpl>> eventStreams = transactionalOperator.execute(transactionStatus -> find(query, queryOptions.withoutReadPreference()).collectList()
+                .map(documents -> MultipleEventStreamsReader.groupByStreamId(distinctStreamIds, documents, document -> document.getString(OccurrentCloudEventExtension.STREAM_ID),
+                        document -> document.getLong(OccurrentCloudEventExtension.STREAM_VERSION), (streamId, version, documentsInStream) -> new EventStreamImpl(streamId, version, Flux.fromIterable(documentsInStream)))))
+                .single();
+        return eventStreams.flatMapMany(Flux::fromIterable).map(eventStream -> eventStream.map(document -> convertToCloudEvent(timeRepresentation, document)));
+    }
+
+    @Override
+    public Mono<EventStream<CloudEvent>> readVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        if (fromStreamVersion > toStreamVersion) {
+            throw new IllegalArgumentException("fromStreamVersion (" + fromStreamVersion + ") cannot be greater than toStreamVersion (" + toStreamVersion + ")");
+        }
+        Mono<EventStreamImpl> eventStream = transactionalOperator.execute(transactionStatus -> readEventStream(streamId, () -> readCloudEventsInStreamVersionRange(streamId, fromStreamVersion, toStreamVersion))).single();
+        return convertToCloudEvent(timeRepresentation, eventStream);
     }
 
     // Read
     private Mono<EventStreamImpl> readEventStream(String streamId, int skip, int limit) {
+        return readEventStream(streamId, () -> readCloudEvents(streamIdEqualTo(streamId), skip, limit, SortBy.NATURAL_ASC, queryOptions.withoutReadPreference()));
+    }
+
+    private Mono<EventStreamImpl> readEventStream(String streamId, Supplier<Flux<Document>> readCloudEvents) {
         return currentStreamVersion(streamId)
                 .flatMap(currentStreamVersion -> {
-                    Flux<Document> cloudEventDocuments = readCloudEvents(streamIdEqualTo(streamId), skip, limit, SortBy.NATURAL_ASC);
+                    Flux<Document> cloudEventDocuments = readCloudEvents.get();
                     return Mono.just(new EventStreamImpl(streamId, currentStreamVersion, cloudEventDocuments));
                 })
                 .switchIfEmpty(Mono.fromSupplier(() -> new EventStreamImpl(streamId, 0, Flux.empty())));
     }
 
-    private Flux<Document> readCloudEvents(Query query, int skip, int limit, SortBy sortBy) {
+    // The query and sort matches the (streamid, streamversion) index so no documents outside of the range are scanned
+    private Flux<Document> readCloudEventsInStreamVersionRange(String streamId, long fromStreamVersion, long toStreamVersion) {
+        Query query = Query.query(where(OccurrentCloudEventExtension.STREAM_ID).is(streamId).and(OccurrentCloudEventExtension.STREAM_VERSION).gte(fromStreamVersion).lte(toStreamVersion))
+                .with(Sort.by(ASC, OccurrentCloudEventExtension.STREAM_VERSION));
+        return find(query, queryOptions.withoutReadPreference());
+    }
+
+    private Flux<Document> readCloudEvents(Query query, int skip, int limit, SortBy sortBy, QueryOptions queryOptions) {
         if (isSkipOrLimitDefined(skip, limit)) {
             query.skip(skip).limit(limit);
         }
@@ -176,10 +331,57 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
                 throw new IllegalStateException("Unexpected value: " + sortBy);
         }
 
-        return mongoTemplate.find(query, Document.class, eventStoreCollectionName);
+        return find(query, queryOptions);
+    }
+
+    private Flux<Document> find(Query query, QueryOptions queryOptions) {
+        if (queryOptions.batchSize != null) {
+            query.cursorBatchSize(queryOptions.batchSize);
+        }
+        if (queryOptions.maxTime != null) {
+            query.maxTime(queryOptions.maxTime);
+        }
+        if (queryOptions.readPreference == null) {
+            if (Boolean.TRUE.equals(queryOptions.noCursorTimeout)) {
+                query.noCursorTimeout();
+            }
+            return mongoTemplate.find(query, Document.class, eventStoreCollectionName);
+        }
+
+        // ReactiveMongoTemplate cannot be configured with a read preference per query so the collection is queried directly
+        return mongoTemplate.createFlux(eventStoreCollectionName, collection -> {
+            FindPublisher<Document> documents = withReadPreference(collection, queryOptions).find(query.getQueryObject())
+                    .projection(query.getFieldsObject())
+                    .sort(query.getSortObject())
+                    .skip((int) query.getSkip())
+                    .limit(query.getLimit());
+            if (queryOptions.batchSize != null) {
+                documents.batchSize(queryOptions.batchSize);
+            }
+            if (queryOptions.maxTime != null) {
+                documents.maxTime(queryOptions.maxTime.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (queryOptions.noCursorTimeout != null) {
+                documents.noCursorTimeout(queryOptions.noCursorTimeout);
+            }
+            return documents;
+        });
+    }
+
+    private static MongoCollection<Document> withReadPreference(MongoCollection<Document> collection, QueryOptions queryOptions) {
+        return queryOptions.readPreference == null ? collection : collection.withReadPreference(ReadPreferenceConverter.convertToMongoReadPreference(queryOptions.readPreference));
     }
 
     private Mono<Long> currentStreamVersion(String streamId) {
+        if (streamHeadCollectionName == null) {
+            return currentStreamVersionFromEvents(streamId);
+        }
+        return findStreamHead(streamId)
+                .map(streamHead -> streamHead.getLong(STREAM_HEAD_VERSION))
+                .switchIfEmpty(Mono.defer(() -> currentStreamVersionFromEvents(streamId)));
+    }
+
+    private Mono<Long> currentStreamVersionFromEvents(String streamId) {
         Query query = Query.query(where(OccurrentCloudEventExtension.STREAM_ID).is(streamId));
         query.fields().include(OccurrentCloudEventExtension.STREAM_VERSION);
         return mongoTemplate.findOne(query.with(Sort.by(DESC, OccurrentCloudEventExtension.STREAM_VERSION)).limit(1), Document.class, eventStoreCollectionName)
@@ -188,8 +390,30 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
     }
 
 
-    private Flux<Document> insertAll(Flux<Document> documents) {
-        return mongoTemplate.insertAll(documents.collectList(), eventStoreCollectionName)
+    private Mono<Void> insertAll(Flux<RawBsonDocument> documents) {
+        if (writeChunkSize > 0) {
+            return insertInChunks(documents).then();
+        }
+        return documents.collectList()
+                .filter(list -> !list.isEmpty())
+                // The collection is bound to the session of the current transaction by the ReactiveMongoTemplate
+                .flatMapMany(list -> mongoTemplate.createFlux(eventStoreCollectionName, collection -> collection.withDocumentClass(RawBsonDocument.class).insertMany(list)))
+                .onErrorMap(DuplicateKeyException.class, Throwable::getCause)
+                .onErrorMap(MongoBulkWriteException.class, MongoBulkWriteExceptionToDuplicateCloudEventExceptionTranslator::translateToDuplicateCloudEventException)
+                .then();
+    }
+
+    /**
+     * Inserts the documents in chunks of {@code writeChunkSize} documents. The next chunk is not requested until the previous chunk has been inserted.
+     *
+     * @return The number of inserted documents
+     */
+    private Mono<Long> insertInChunks(Flux<RawBsonDocument> documents) {
+        return documents.buffer(writeChunkSize)
+                // The collection is bound to the session of the current transaction by the ReactiveMongoTemplate
+                .concatMap(chunk -> mongoTemplate.createMono(eventStoreCollectionName, collection -> collection.withDocumentClass(RawBsonDocument.class).insertMany(chunk))
+                        .thenReturn((long) chunk.size()), 1)
+                .reduce(0L, Long::sum)
                 .onErrorMap(DuplicateKeyException.class, Throwable::getCause)
                 .onErrorMap(MongoBulkWriteException.class, MongoBulkWriteExceptionToDuplicateCloudEventExceptionTranslator::translateToDuplicateCloudEventException);
     }
@@ -208,9 +432,13 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
     }
 
     // Initialization
-    private static Mono<Void> initializeEventStore(String eventStoreCollectionName, ReactiveMongoTemplate mongoTemplate) {
+    private static Mono<Void> initializeEventStore(String eventStoreCollectionName, String streamHeadCollectionName, List<IndexModel> indexes, String schemaMetadataCollectionName,
+                                                   ReactiveMongoTemplate mongoTemplate) {
         Mono<MongoCollection<Document>> createEventStoreCollection = createCollection(eventStoreCollectionName, mongoTemplate);
 
+        // Collections cannot be created implicitly inside a transaction so the stream head collection must be created upfront
+        Mono<MongoCollection<Document>> createStreamHeadCollection = streamHeadCollectionName == null ? Mono.empty() : createCollection(streamHeadCollectionName, mongoTemplate);
+
         // Stream id
         Mono<String> indexStreamId = createIndex(eventStoreCollectionName, mongoTemplate, Indexes.ascending(OccurrentCloudEventExtension.STREAM_ID), new IndexOptions());
 
@@ -220,11 +448,27 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
         // Create a streamId + streamVersion index
         Mono<String> indexStreamIdAndStreamVersion = createIndex(eventStoreCollectionName, mongoTemplate, Indexes.compoundIndex(Indexes.ascending(OccurrentCloudEventExtension.STREAM_ID), Indexes.descending(OccurrentCloudEventExtension.STREAM_VERSION)), new IndexOptions().unique(true));
 
+        // Create the indexes defined in the config
+        Mono<Void> configuredIndexes = indexes.isEmpty() ? Mono.empty() : mongoTemplate.getCollection(eventStoreCollectionName).flatMap(collection -> Flux.from(collection.createIndexes(indexes)).then());
+
         // SessionSynchronization need to be "ALWAYS" in order for TransactionTemplate to work with mongo template!
         // See https://docs.spring.io/spring-data/mongodb/docs/current/reference/html/#mongo.transactions.transaction-template
         mongoTemplate.setSessionSynchronization(ALWAYS);
 
-        return createEventStoreCollection.then(indexStreamId).then(indexIdAndSource).then(indexStreamIdAndStreamVersion).then();
+        Mono<Void> initialize = createEventStoreCollection.then(createStreamHeadCollection).then(indexStreamId).then(indexIdAndSource).then(indexStreamIdAndStreamVersion).then(configuredIndexes).then();
+        if (schemaMetadataCollectionName == null) {
+            return initialize;
+        }
+
+        // Skip the initialization if the schema metadata document is current, otherwise store it once the schema has been initialized
+        String signature = SchemaMetadata.signature(asList(eventStoreCollectionName, streamHeadCollectionName), indexes);
+        Bson schemaMetadataId = SchemaMetadata.schemaMetadataId(eventStoreCollectionName);
+        Mono<Void> storeSchemaMetadata = mongoTemplate.createMono(schemaMetadataCollectionName, collection ->
+                collection.replaceOne(schemaMetadataId, SchemaMetadata.schemaMetadata(eventStoreCollectionName, signature), new ReplaceOptions().upsert(true))).then();
+        return mongoTemplate.createMono(schemaMetadataCollectionName, collection -> collection.find(schemaMetadataId).first())
+                .filter(schemaMetadata -> SchemaMetadata.isCurrent(schemaMetadata, signature))
+                .hasElement()
+                .flatMap(current -> current ? Mono.<Void>empty() : initialize.then(storeSchemaMetadata));
     }
 
     private static Mono<String> createIndex(String eventStoreCollectionName, ReactiveMongoTemplate mongoTemplate, Bson index, IndexOptions indexOptions) {
@@ -235,12 +479,12 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
         return mongoTemplate.collectionExists(eventStoreCollectionName).flatMap(exists -> exists ? Mono.empty() : mongoTemplate.createCollection(eventStoreCollectionName));
     }
 
-    public static Mono<EventStream<CloudEvent>> convertToCloudEvent(EventFormat eventFormat, TimeRepresentation timeRepresentation, Mono<EventStreamImpl> eventStream) {
-        return eventStream.map(es -> es.map(document -> convertToCloudEvent(eventFormat, timeRepresentation, document)));
+    public static Mono<EventStream<CloudEvent>> convertToCloudEvent(TimeRepresentation timeRepresentation, Mono<EventStreamImpl> eventStream) {
+        return eventStream.map(es -> es.map(document -> convertToCloudEvent(timeRepresentation, document)));
     }
 
-    private static CloudEvent convertToCloudEvent(EventFormat eventFormat, TimeRepresentation timeRepresentation, Document document) {
-        return OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(eventFormat, timeRepresentation, document);
+    private static CloudEvent convertToCloudEvent(TimeRepresentation timeRepresentation, Document document) {
+        return OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(timeRepresentation, document);
     }
 
     private static boolean isSkipOrLimitDefined(int skip, int limit) {
@@ -251,7 +495,12 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
     public Mono<Void> deleteEventStream(String streamId) {
         requireNonNull(streamId, "Stream id cannot be null");
 
-        return mongoTemplate.remove(streamIdEqualTo(streamId), eventStoreCollectionName).then();
+        Mono<Void> deleteEvents = mongoTemplate.remove(streamIdEqualTo(streamId), eventStoreCollectionName).then();
+        if (streamHeadCollectionName == null) {
+            return initialization.then(deleteEvents);
+        }
+        Mono<Void> deleteStreamHead = mongoTemplate.createMono(streamHeadCollectionName, collection -> collection.deleteOne(streamHeadIdEqualTo(streamId))).then();
+        return initialization.then(transactionalOperator.transactional(deleteEvents.then(deleteStreamHead)));
     }
 
     @Override
@@ -259,7 +508,18 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
         requireNonNull(cloudEventId, "Cloud event id cannot be null");
         requireNonNull(cloudEventSource, "Cloud event source cannot be null");
 
-        return mongoTemplate.remove(Query.query(where("id").is(cloudEventId).and("source").is(cloudEventSource)), eventStoreCollectionName).then();
+        Query cloudEventQuery = Query.query(where("id").is(cloudEventId).and("source").is(cloudEventSource));
+        if (streamHeadCollectionName == null) {
+            return initialization.then(mongoTemplate.remove(cloudEventQuery, eventStoreCollectionName).then());
+        }
+        // The stream head is removed together with the last event so that the event stream no longer exists
+        Mono<Void> deleteEventAndStreamHeadOfEmptyStream = mongoTemplate.findAndRemove(cloudEventQuery, Document.class, eventStoreCollectionName)
+                .map(deletedEvent -> deletedEvent.getString(OccurrentCloudEventExtension.STREAM_ID))
+                .flatMap(streamId -> mongoTemplate.exists(streamIdEqualTo(streamId), eventStoreCollectionName)
+                        .filter(streamExists -> !streamExists)
+                        .flatMap(__ -> mongoTemplate.createMono(streamHeadCollectionName, collection -> collection.deleteOne(streamHeadIdEqualTo(streamId)))))
+                .then();
+        return initialization.then(transactionalOperator.transactional(deleteEventAndStreamHeadOfEmptyStream));
     }
 
     @Override
@@ -269,7 +529,7 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
             return mongoTemplate.findOne(cloudEventQuery, Document.class, eventStoreCollectionName)
                     .log()
                     .flatMap(document -> {
-                        CloudEvent currentCloudEvent = convertToCloudEvent(cloudEventSerializer, timeRepresentation, document);
+                        CloudEvent currentCloudEvent = convertToCloudEvent(timeRepresentation, document);
                         CloudEvent updatedCloudEvent = fn.apply(currentCloudEvent);
                         final Mono<CloudEvent> result;
                         if (updatedCloudEvent == null) {
@@ -277,7 +537,7 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
                         } else if (!Objects.equals(updatedCloudEvent, currentCloudEvent)) {
                             String streamId = OccurrentExtensionGetter.getStreamId(currentCloudEvent);
                             long streamVersion = OccurrentExtensionGetter.getStreamVersion(currentCloudEvent);
-                            Document updatedDocument = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(cloudEventSerializer, timeRepresentation, streamId, streamVersion, updatedCloudEvent);
+                            Document updatedDocument = OccurrentCloudEventMongoDBDocumentMapper.convertToDocument(timeRepresentation, streamId, streamVersion, updatedCloudEvent);
                             updatedDocument.put(ID, document.get(ID)); // Insert the Mongo ObjectID
                             result = mongoTemplate.findAndReplace(cloudEventQuery, updatedDocument, eventStoreCollectionName).thenReturn(updatedCloudEvent);
                         } else {
@@ -287,29 +547,125 @@ public class SpringReactorMongoEventStore implements EventStore, EventStoreOpera
                     });
         };
 
-        return transactionalOperator.transactional(logic.apply(updateFunction));
+        return initialization.then(transactionalOperator.transactional(logic.apply(updateFunction)));
     }
 
     @Override
     public Flux<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy) {
+        return query(filter, skip, limit, sortBy, QueryOptions.none());
+    }
+
+    @Override
+    public Flux<CloudEvent> query(Filter filter, int skip, int limit, SortBy sortBy, QueryOptions queryOptions) {
         requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(queryOptions, QueryOptions.class.getSimpleName() + " cannot be null");
         final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
-        return readCloudEvents(query, skip, limit, sortBy)
-                .map(document -> convertToCloudEvent(cloudEventSerializer, timeRepresentation, document));
+        return readCloudEvents(query, skip, limit, sortBy, this.queryOptions.overrideWith(queryOptions))
+                .map(document -> convertToCloudEvent(timeRepresentation, document));
+    }
+
+    @Override
+    public Flux<CloudEventView> queryViews(Filter filter, Set<String> attributes, int skip, int limit, SortBy sortBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
+        final Query projectedQuery = new BasicQuery(query.getQueryObject(), CloudEventViewMapper.projection(attributes));
+        return readCloudEvents(projectedQuery, skip, limit, sortBy, queryOptions)
+                .map(CloudEventViewMapper::convertToCloudEventView);
+    }
+
+    @Override
+    public Flux<CloudEvent> queryParallel(Filter filter, int partitions) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
+        return firstId(1).zipWith(firstId(-1), (minId, maxId) -> ObjectIdPartitioner.partitions(minId, maxId, partitions))
+                .switchIfEmpty(Mono.fromSupplier(() -> ObjectIdPartitioner.partitions(null, null, partitions)))
+                .flatMapMany(partitionQueries -> Flux.merge(partitionQueries.stream()
+                        .map(partition -> find(new BasicQuery(new Document("$and", asList(query.getQueryObject(), partition))).with(Sort.by(ASC, ID)), queryOptions))
+                        .collect(Collectors.toList())))
+                .map(document -> convertToCloudEvent(timeRepresentation, document));
+    }
+
+    private Mono<ObjectId> firstId(int direction) {
+        return mongoTemplate.createMono(eventStoreCollectionName, collection -> withReadPreference(collection, queryOptions).find().projection(new Document(ID, 1)).sort(new Document(ID, direction)).first())
+                .map(document -> document.getObjectId(ID));
+    }
+
+    @Override
+    public Mono<EventPage> queryPage(Filter filter, int limit, SortBy sortBy, String continuationToken) {
+        requireNonNull(filter, "Filter cannot be null");
+        requireNonNull(sortBy, SortBy.class.getSimpleName() + " cannot be null");
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        }
+
+        Document filterQuery = FilterConverter.convertFilterToQuery(timeRepresentation, filter).getQueryObject();
+        BasicQuery query = new BasicQuery(new Document("$and", asList(filterQuery, KeysetPagination.continueAfter(sortBy.name(), continuationToken))));
+        query.setSortObject(KeysetPagination.sort(sortBy.name()));
+        // Read one more document than the limit to find out if there's a next page
+        query.limit(limit == Integer.MAX_VALUE ? limit : limit + 1);
+        return find(query, queryOptions)
+                .collectList()
+                .map(documents -> {
+                    final List<Document> documentsInPage;
+                    final String nextContinuationToken;
+                    if (documents.size() > limit) {
+                        documentsInPage = documents.subList(0, limit);
+                        Document lastDocument = documentsInPage.get(limit - 1);
+                        nextContinuationToken = KeysetPagination.continuationToken(sortBy.name(), lastDocument.get(TIME), lastDocument.get(ID));
+                    } else {
+                        documentsInPage = documents;
+                        nextContinuationToken = null;
+                    }
+
+                    List<CloudEvent> cloudEvents = documentsInPage.stream().map(document -> convertToCloudEvent(timeRepresentation, document)).collect(Collectors.toList());
+                    return new EventPage(cloudEvents, nextContinuationToken);
+                });
+    }
+
+    @Override
+    public Flux<AggregatedGroup> aggregate(Filter filter, List<GroupBy> groupBy) {
+        requireNonNull(filter, "Filter cannot be null");
+        final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
+        List<Bson> pipeline = AggregationPipeline.pipeline(timeRepresentation, query.getQueryObject(), groupBy);
+        return mongoTemplate.createFlux(eventStoreCollectionName, collection -> {
+            AggregatePublisher<Document> aggregation = withReadPreference(collection, queryOptions).aggregate(pipeline);
+            if (queryOptions.maxTime != null) {
+                aggregation.maxTime(queryOptions.maxTime.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            return aggregation;
+        })
+                .map(document -> AggregationPipeline.convertToAggregatedGroup(groupBy, document));
     }
 
     @Override
     public Mono<Long> count(Filter filter) {
         requireNonNull(filter, "Filter cannot be null");
         if (filter instanceof Filter.All) {
-            //noinspection NullableProblems
-            return mongoTemplate.createMono(eventStoreCollectionName, MongoCollection::estimatedDocumentCount);
+            return mongoTemplate.createMono(eventStoreCollectionName, collection -> withReadPreference(collection, queryOptions).estimatedDocumentCount());
         } else {
             final Query query = FilterConverter.convertFilterToQuery(timeRepresentation, filter);
-            return mongoTemplate.count(query, eventStoreCollectionName);
+            if (queryOptions.readPreference == null) {
+                return mongoTemplate.count(query, eventStoreCollectionName);
+            }
+            return mongoTemplate.createMono(eventStoreCollectionName, collection -> withReadPreference(collection, queryOptions).countDocuments(query.getQueryObject()));
         }
     }
 
+    /**
+     * Explain how MongoDB executes the query for the supplied filter, without executing the query. Use this to find queries that scan
+     * the entire event collection (see {@link QueryPlan#collectionScan}) and that should be backed by an index
+     * (see {@link EventStoreConfig.Builder#indexes(IndexModel...)}).
+     *
+     * @param filter The filter to explain
+     * @return A {@link Mono} with the {@link QueryPlan} of the query
+     */
+    public Mono<QueryPlan> explain(Filter filter) {
+        requireNonNull(filter, "Filter cannot be null");
+        Document query = FilterConverter.convertFilterToQuery(timeRepresentation, filter).getQueryObject();
+        return mongoTemplate.executeCommand(QueryPlanExplainer.explainCommand(eventStoreCollectionName, query))
+                .map(explainResult -> QueryPlanExplainer.toQueryPlan(query, explainResult));
+    }
+
     private static class EventStreamImpl implements EventStream<Document> {
         private String id;
         private long version;
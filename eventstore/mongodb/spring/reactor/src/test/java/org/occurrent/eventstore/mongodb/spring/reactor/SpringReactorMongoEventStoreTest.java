@@ -24,6 +24,7 @@ import com.mongodb.reactivestreams.client.MongoClients;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
 import org.awaitility.Awaitility;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -47,6 +48,7 @@ import org.occurrent.time.TimeConversion;
 import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.transaction.reactive.TransactionalOperator;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
@@ -373,6 +375,158 @@ public class SpringReactorMongoEventStoreTest {
         }
     }
 
+    @Nested
+    @DisplayName("stream heads")
+    class StreamHeadsTest {
+
+        @BeforeEach
+        void create_mongo_spring_reactive_event_store_with_stream_heads() {
+            EventStoreConfig eventStoreConfig = new EventStoreConfig.Builder().eventStoreCollectionName(connectionString.getCollection()).transactionConfig(reactiveMongoTransactionManager)
+                    .timeRepresentation(RFC_3339_STRING).streamHeadCollectionName("streamHeads").build();
+            eventStore = new SpringReactorMongoEventStore(mongoTemplate, eventStoreConfig);
+        }
+
+        @Test
+        void write_updates_stream_head_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            DomainEvent event1 = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            DomainEvent event2 = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+
+            // When
+            persist("name", WriteCondition.streamVersionEq(0), event1).block();
+            persist("name", WriteCondition.streamVersionEq(1), event2).block();
+
+            // Then
+            VersionAndEvents versionAndEvents = deserialize(eventStore.read("name"));
+            assertAll(
+                    () -> assertThat(versionAndEvents.version).isEqualTo(2),
+                    () -> assertThat(versionAndEvents.events).containsExactly(event1, event2),
+                    () -> assertThat(mongoTemplate.findAll(Document.class, "streamHeads").collectList().block()).containsExactly(new Document("_id", "name").append("version", 2L))
+            );
+        }
+
+        @Test
+        void throws_write_condition_not_fulfilled_when_stream_head_version_does_not_match_expected_version() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            persist("name", new NameDefined(UUID.randomUUID().toString(), now, "John Doe")).block();
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", WriteCondition.streamVersionEq(10), new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe")).block());
+
+            // Then
+            assertThat(throwable).isExactlyInstanceOf(WriteConditionNotFulfilledException.class)
+                    .hasMessage("WriteCondition was not fulfilled. Expected version to be equal to 10 but was 1.");
+        }
+
+        @Test
+        void deleteEventStream_deletes_stream_head() {
+            // Given
+            persist("name", new NameDefined(UUID.randomUUID().toString(), LocalDateTime.now(), "John Doe")).block();
+
+            // When
+            eventStore.deleteEventStream("name").block();
+
+            // Then
+            assertAll(
+                    () -> assertThat(eventStore.exists("name").block()).isFalse(),
+                    () -> assertThat(mongoTemplate.count(new Query(), "streamHeads").block()).isZero()
+            );
+        }
+
+        @Test
+        void deleteEvent_deletes_stream_head_when_the_last_event_in_the_event_stream_is_deleted() {
+            // Given
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined nameDefined = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            NameWasChanged nameWasChanged = new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe");
+            persist("name", Flux.just(nameDefined, nameWasChanged)).block();
+
+            // When
+            eventStore.deleteEvent(nameWasChanged.getEventId(), NAME_SOURCE).block();
+            Long streamHeadsAfterFirstDelete = mongoTemplate.count(new Query(), "streamHeads").block();
+            eventStore.deleteEvent(nameDefined.getEventId(), NAME_SOURCE).block();
+
+            // Then
+            assertAll(
+                    () -> assertThat(streamHeadsAfterFirstDelete).isEqualTo(1),
+                    () -> assertThat(eventStore.exists("name").block()).isFalse(),
+                    () -> assertThat(mongoTemplate.count(new Query(), "streamHeads").block()).isZero()
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("chunked writes")
+    class ChunkedWritesTest {
+
+        private EventStoreConfig.Builder eventStoreConfigBuilder;
+
+        @BeforeEach
+        void create_event_store_config_builder_with_write_chunk_size() {
+            eventStoreConfigBuilder = new EventStoreConfig.Builder().eventStoreCollectionName(connectionString.getCollection()).transactionConfig(reactiveMongoTransactionManager)
+                    .timeRepresentation(RFC_3339_STRING).writeChunkSize(2);
+        }
+
+        @Test
+        void writes_all_events_in_chunks() {
+            // Given
+            eventStore = new SpringReactorMongoEventStore(mongoTemplate, eventStoreConfigBuilder.build());
+            LocalDateTime now = LocalDateTime.now();
+            List<DomainEvent> events = Stream.generate(() -> new NameDefined(UUID.randomUUID().toString(), now, "John Doe")).limit(5).collect(Collectors.toList());
+
+            // When
+            persist("name", WriteCondition.streamVersionEq(0), events).block();
+
+            // Then
+            VersionAndEvents versionAndEvents = deserialize(eventStore.read("name"));
+            assertAll(
+                    () -> assertThat(versionAndEvents.version).isEqualTo(5),
+                    () -> assertThat(versionAndEvents.events).containsExactlyElementsOf(events)
+            );
+        }
+
+        @Test
+        void no_events_are_written_when_a_chunk_fails() {
+            // Given
+            eventStore = new SpringReactorMongoEventStore(mongoTemplate, eventStoreConfigBuilder.build());
+            LocalDateTime now = LocalDateTime.now();
+            NameDefined duplicate = new NameDefined(UUID.randomUUID().toString(), now, "John Doe");
+            persist("name", duplicate).block();
+
+            // When
+            Throwable throwable = catchThrowable(() -> persist("name", Flux.just(new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe"),
+                    new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe"), duplicate)).block());
+
+            // Then
+            VersionAndEvents versionAndEvents = deserialize(eventStore.read("name"));
+            assertAll(
+                    () -> assertThat(throwable).isExactlyInstanceOf(DuplicateCloudEventException.class),
+                    () -> assertThat(versionAndEvents.version).isEqualTo(1),
+                    () -> assertThat(versionAndEvents.events).containsExactly(duplicate)
+            );
+        }
+
+        @Test
+        void updates_stream_head_version_when_writing_in_chunks() {
+            // Given
+            eventStore = new SpringReactorMongoEventStore(mongoTemplate, eventStoreConfigBuilder.streamHeadCollectionName("streamHeads").build());
+            LocalDateTime now = LocalDateTime.now();
+            persist("name", new NameDefined(UUID.randomUUID().toString(), now, "John Doe")).block();
+
+            // When
+            persist("name", WriteCondition.streamVersionEq(1), Flux.just(new NameWasChanged(UUID.randomUUID().toString(), now, "Jan Doe"),
+                    new NameWasChanged(UUID.randomUUID().toString(), now, "Jane Doe"), new NameWasChanged(UUID.randomUUID().toString(), now, "Jennifer Doe"))).block();
+
+            // Then
+            assertAll(
+                    () -> assertThat(deserialize(eventStore.read("name")).version).isEqualTo(4),
+                    () -> assertThat(mongoTemplate.findAll(Document.class, "streamHeads").collectList().block()).containsExactly(new Document("_id", "name").append("version", 4L))
+            );
+        }
+    }
+
     @Nested
     @DisplayName("deletion")
     class Delete {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.api.blocking;
+
+import org.occurrent.snapshot.api.Snapshot;
+
+import java.util.Optional;
+
+/**
+ * Stores the latest {@link Snapshot} of each event stream.
+ */
+public interface SnapshotStore {
+
+    /**
+     * Save a snapshot. The snapshot replaces the current snapshot of the stream if its version is greater than the version of the current snapshot,
+     * otherwise the snapshot is ignored (since a newer snapshot already exists).
+     *
+     * @param snapshot The snapshot to save.
+     */
+    void save(Snapshot snapshot);
+
+    /**
+     * Find the latest snapshot of a particular event stream
+     *
+     * @param streamId The id of the event stream
+     * @return The latest snapshot or {@link Optional#empty()} if no snapshot has been taken for the event stream.
+     */
+    Optional<Snapshot> findLatest(String streamId);
+
+    /**
+     * Delete the snapshot of a particular event stream
+     *
+     * @param streamId The id of the event stream
+     */
+    void delete(String streamId);
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.api;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A snapshot of the state of an aggregate (or any other state derived from an event stream) at a particular version of the event stream.
+ * The state is represented as bytes, it's up to the application to serialize and deserialize the state.
+ */
+public class Snapshot {
+    public final String streamId;
+    public final long version;
+    public final byte[] data;
+
+    /**
+     * Create a new snapshot.
+     *
+     * @param streamId The id of the event stream that the snapshot was derived from
+     * @param version  The version of the event stream when the snapshot was taken, i.e. the stream version of the last event included in the snapshot
+     * @param data     The serialized state
+     */
+    public Snapshot(String streamId, long version, byte[] data) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        requireNonNull(data, "Data cannot be null");
+        if (version < 1) {
+            throw new IllegalArgumentException("Version must be greater than zero");
+        }
+        this.streamId = streamId;
+        this.version = version;
+        this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Snapshot)) return false;
+        Snapshot snapshot = (Snapshot) o;
+        return version == snapshot.version &&
+                Objects.equals(streamId, snapshot.streamId) &&
+                Arrays.equals(data, snapshot.data);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(streamId, version);
+        result = 31 * result + Arrays.hashCode(data);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot{" +
+                "streamId='" + streamId + '\'' +
+                ", version=" + version +
+                ", data=" + data.length + " bytes" +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.api;
+
+import io.cloudevents.CloudEvent;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decides whether a new snapshot should be taken for an event stream. The policy is typically evaluated after new events have been written to the
+ * event stream, with all events that have been written after the latest snapshot (i.e. the events that must be replayed on top of the latest snapshot
+ * to recreate the current state).
+ */
+@FunctionalInterface
+public interface SnapshotPolicy {
+
+    /**
+     * @param latestSnapshotVersion The version of the latest snapshot, or {@code 0} if no snapshot has been taken for the stream.
+     * @param streamVersion         The current version of the event stream
+     * @param eventsSinceSnapshot   The events that have been written after the latest snapshot
+     * @return {@code true} if a new snapshot should be taken, {@code false} otherwise.
+     */
+    boolean shouldTakeSnapshot(long latestSnapshotVersion, long streamVersion, List<CloudEvent> eventsSinceSnapshot);
+
+    /**
+     * @param other Another policy
+     * @return A policy that takes a snapshot if either this policy or the {@code other} policy says so.
+     */
+    default SnapshotPolicy or(SnapshotPolicy other) {
+        requireNonNull(other, SnapshotPolicy.class.getSimpleName() + " cannot be null");
+        return (latestSnapshotVersion, streamVersion, eventsSinceSnapshot) -> shouldTakeSnapshot(latestSnapshotVersion, streamVersion, eventsSinceSnapshot)
+                || other.shouldTakeSnapshot(latestSnapshotVersion, streamVersion, eventsSinceSnapshot);
+    }
+
+    /**
+     * Take a snapshot when {@code numberOfEvents} or more events have been written to the event stream since the latest snapshot.
+     *
+     * @param numberOfEvents The number of events
+     * @return A {@link SnapshotPolicy} instance
+     */
+    static SnapshotPolicy everyNEvents(long numberOfEvents) {
+        if (numberOfEvents < 1) {
+            throw new IllegalArgumentException("Number of events must be greater than zero");
+        }
+        return (latestSnapshotVersion, streamVersion, __) -> streamVersion - latestSnapshotVersion >= numberOfEvents;
+    }
+
+    /**
+     * Take a snapshot when the total size of the data of the events written since the latest snapshot is {@code numberOfBytes} or more.
+     * This is useful when the cost of replaying events is dominated by deserializing the event data rather than by the number of events.
+     *
+     * @param numberOfBytes The number of bytes
+     * @return A {@link SnapshotPolicy} instance
+     */
+    static SnapshotPolicy whenEventDataSizeExceeds(long numberOfBytes) {
+        if (numberOfBytes < 1) {
+            throw new IllegalArgumentException("Number of bytes must be greater than zero");
+        }
+        return (latestSnapshotVersion, streamVersion, eventsSinceSnapshot) -> {
+            long size = 0;
+            for (CloudEvent cloudEvent : eventsSinceSnapshot) {
+                byte[] data = cloudEvent.getData();
+                size += data == null ? 0 : data.length;
+                if (size >= numberOfBytes) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.api;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotPolicyTest {
+
+    @Test
+    void every_n_events_takes_snapshot_when_n_events_have_been_written_since_latest_snapshot() {
+        // Given
+        SnapshotPolicy snapshotPolicy = SnapshotPolicy.everyNEvents(10);
+
+        // When
+        boolean shouldTakeSnapshotAfterNineEvents = snapshotPolicy.shouldTakeSnapshot(10, 19, emptyList());
+        boolean shouldTakeSnapshotAfterTenEvents = snapshotPolicy.shouldTakeSnapshot(10, 20, emptyList());
+
+        // Then
+        assertThat(shouldTakeSnapshotAfterNineEvents).isFalse();
+        assertThat(shouldTakeSnapshotAfterTenEvents).isTrue();
+    }
+
+    @Test
+    void when_event_data_size_exceeds_takes_snapshot_when_size_of_event_data_since_latest_snapshot_exceeds_number_of_bytes() {
+        // Given
+        SnapshotPolicy snapshotPolicy = SnapshotPolicy.whenEventDataSizeExceeds(5);
+
+        // When
+        boolean shouldTakeSnapshotForFourBytes = snapshotPolicy.shouldTakeSnapshot(0, 2, Arrays.asList(cloudEvent(new byte[2]), cloudEvent(new byte[2])));
+        boolean shouldTakeSnapshotForSixBytes = snapshotPolicy.shouldTakeSnapshot(0, 3, Arrays.asList(cloudEvent(new byte[2]), cloudEvent(null), cloudEvent(new byte[4])));
+
+        // Then
+        assertThat(shouldTakeSnapshotForFourBytes).isFalse();
+        assertThat(shouldTakeSnapshotForSixBytes).isTrue();
+    }
+
+    @Test
+    void or_takes_snapshot_when_any_of_the_policies_takes_snapshot() {
+        // Given
+        SnapshotPolicy snapshotPolicy = SnapshotPolicy.everyNEvents(100).or(SnapshotPolicy.whenEventDataSizeExceeds(1));
+
+        // When
+        boolean shouldTakeSnapshot = snapshotPolicy.shouldTakeSnapshot(0, 1, Arrays.asList(cloudEvent(new byte[1])));
+
+        // Then
+        assertThat(shouldTakeSnapshot).isTrue();
+    }
+
+    private static CloudEvent cloudEvent(byte[] data) {
+        return CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withSource(URI.create("urn:test"))
+                .withType("type")
+                .withData(data)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.api.reactor;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.reactor.EventStream;
+import org.occurrent.snapshot.api.Snapshot;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The latest snapshot of an event stream together with the events that have been written after the snapshot was taken.
+ */
+public class SnapshotAndEventStream {
+    private final Snapshot snapshot;
+    private final EventStream<CloudEvent> eventStream;
+
+    public SnapshotAndEventStream(Snapshot snapshot, EventStream<CloudEvent> eventStream) {
+        requireNonNull(eventStream, EventStream.class.getSimpleName() + " cannot be null");
+        this.snapshot = snapshot;
+        this.eventStream = eventStream;
+    }
+
+    /**
+     * @return The latest snapshot, or {@link Optional#empty()} if no snapshot has been taken for the event stream.
+     */
+    public Optional<Snapshot> snapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * @return The version of the latest snapshot, or {@code 0} if no snapshot has been taken for the event stream.
+     */
+    public long snapshotVersion() {
+        return snapshot == null ? 0 : snapshot.version;
+    }
+
+    /**
+     * @return An {@link EventStream} containing the events written after the latest snapshot. The version of the event stream is the current version of the stream.
+     */
+    public EventStream<CloudEvent> eventStream() {
+        return eventStream;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SnapshotAndEventStream)) return false;
+        SnapshotAndEventStream that = (SnapshotAndEventStream) o;
+        return Objects.equals(snapshot, that.snapshot) &&
+                Objects.equals(eventStream, that.eventStream);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(snapshot, eventStream);
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotAndEventStream{" +
+                "snapshot=" + snapshot +
+                ", eventStream=" + eventStream +
+                '}';
+    }
+}
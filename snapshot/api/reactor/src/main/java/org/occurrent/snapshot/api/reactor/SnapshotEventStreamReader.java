@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.api.reactor;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.reactor.ReadEventStream;
+import org.occurrent.snapshot.api.Snapshot;
+import org.occurrent.snapshot.api.SnapshotPolicy;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads an event stream by first loading the latest {@link Snapshot} from a {@link SnapshotStore} and then reading only the events that
+ * have been written after the snapshot from the event store. Snapshots are taken according to a {@link SnapshotPolicy}.
+ */
+public class SnapshotEventStreamReader {
+    private final ReadEventStream readEventStream;
+    private final SnapshotStore snapshotStore;
+    private final SnapshotPolicy snapshotPolicy;
+
+    /**
+     * @param readEventStream The event store to read the events from
+     * @param snapshotStore   The snapshot store to load and save the snapshots from/to
+     * @param snapshotPolicy  The policy that decides when a new snapshot should be taken
+     */
+    public SnapshotEventStreamReader(ReadEventStream readEventStream, SnapshotStore snapshotStore, SnapshotPolicy snapshotPolicy) {
+        requireNonNull(readEventStream, ReadEventStream.class.getSimpleName() + " cannot be null");
+        requireNonNull(snapshotStore, SnapshotStore.class.getSimpleName() + " cannot be null");
+        requireNonNull(snapshotPolicy, SnapshotPolicy.class.getSimpleName() + " cannot be null");
+        this.readEventStream = readEventStream;
+        this.snapshotStore = snapshotStore;
+        this.snapshotPolicy = snapshotPolicy;
+    }
+
+    /**
+     * Read the latest snapshot and the events written after the snapshot.
+     *
+     * @param streamId The id of the stream to read.
+     * @return The latest snapshot (if any) and an {@code EventStream} containing the events written after the snapshot.
+     */
+    public Mono<SnapshotAndEventStream> read(String streamId) {
+        return snapshotStore.findLatest(streamId)
+                .flatMap(snapshot -> readEventStream.readFromVersion(streamId, snapshot.version + 1).map(eventStream -> new SnapshotAndEventStream(snapshot, eventStream)))
+                .switchIfEmpty(Mono.defer(() -> readEventStream.read(streamId).map(eventStream -> new SnapshotAndEventStream(null, eventStream))));
+    }
+
+    /**
+     * Save a new snapshot if required by the {@link SnapshotPolicy}. This is typically called after new events have been written to the stream.
+     *
+     * @param streamId              The id of the stream
+     * @param latestSnapshotVersion The version of the latest snapshot (see {@link SnapshotAndEventStream#snapshotVersion()})
+     * @param streamVersion         The version of the stream after the new events were written
+     * @param eventsSinceSnapshot   All events written after the latest snapshot, including the new events
+     * @param state                 Supplies the serialized state at {@code streamVersion}, only invoked if a snapshot should be taken.
+     * @return A {@link Mono} with {@code true} if a snapshot was saved, {@code false} otherwise.
+     */
+    public Mono<Boolean> saveSnapshotIfRequired(String streamId, long latestSnapshotVersion, long streamVersion, List<CloudEvent> eventsSinceSnapshot, Supplier<byte[]> state) {
+        requireNonNull(state, "State cannot be null");
+        if (streamVersion <= latestSnapshotVersion || !snapshotPolicy.shouldTakeSnapshot(latestSnapshotVersion, streamVersion, eventsSinceSnapshot)) {
+            return Mono.just(false);
+        }
+        return Mono.fromSupplier(() -> new Snapshot(streamId, streamVersion, state.get()))
+                .flatMap(snapshotStore::save)
+                .thenReturn(true);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.inmemory;
+
+import org.occurrent.snapshot.api.Snapshot;
+import org.occurrent.snapshot.api.blocking.SnapshotStore;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An in-memory implementation of the {@link SnapshotStore}
+ */
+public class InMemorySnapshotStore implements SnapshotStore {
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(Snapshot snapshot) {
+        requireNonNull(snapshot, Snapshot.class.getSimpleName() + " cannot be null");
+        snapshots.merge(snapshot.streamId, snapshot, (currentSnapshot, newSnapshot) -> newSnapshot.version > currentSnapshot.version ? newSnapshot : currentSnapshot);
+    }
+
+    @Override
+    public Optional<Snapshot> findLatest(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        return Optional.ofNullable(snapshots.get(streamId));
+    }
+
+    @Override
+    public void delete(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        snapshots.remove(streamId);
+    }
+}
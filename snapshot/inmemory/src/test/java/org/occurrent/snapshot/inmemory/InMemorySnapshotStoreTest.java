@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.inmemory;
+
+import org.junit.jupiter.api.Test;
+import org.occurrent.snapshot.api.Snapshot;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySnapshotStoreTest {
+
+    @Test
+    void find_latest_returns_saved_snapshot() {
+        // Given
+        InMemorySnapshotStore snapshotStore = new InMemorySnapshotStore();
+        Snapshot snapshot = new Snapshot("name", 2, "state".getBytes(UTF_8));
+
+        // When
+        snapshotStore.save(snapshot);
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).contains(snapshot);
+    }
+
+    @Test
+    void save_ignores_snapshot_that_is_older_than_the_current_snapshot() {
+        // Given
+        InMemorySnapshotStore snapshotStore = new InMemorySnapshotStore();
+        Snapshot snapshot = new Snapshot("name", 3, "new state".getBytes(UTF_8));
+        snapshotStore.save(snapshot);
+
+        // When
+        snapshotStore.save(new Snapshot("name", 2, "old state".getBytes(UTF_8)));
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).contains(snapshot);
+    }
+
+    @Test
+    void delete_deletes_snapshot() {
+        // Given
+        InMemorySnapshotStore snapshotStore = new InMemorySnapshotStore();
+        snapshotStore.save(new Snapshot("name", 2, "state".getBytes(UTF_8)));
+
+        // When
+        snapshotStore.delete("name");
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.inmemory;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.occurrent.eventstore.inmemory.InMemoryEventStore;
+import org.occurrent.snapshot.api.Snapshot;
+import org.occurrent.snapshot.api.SnapshotPolicy;
+import org.occurrent.snapshot.api.blocking.SnapshotAndEventStream;
+import org.occurrent.snapshot.api.blocking.SnapshotEventStreamReader;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotEventStreamReaderTest {
+
+    private InMemoryEventStore eventStore;
+    private InMemorySnapshotStore snapshotStore;
+    private SnapshotEventStreamReader snapshotEventStreamReader;
+
+    @BeforeEach
+    void create_snapshot_event_stream_reader() {
+        eventStore = new InMemoryEventStore();
+        snapshotStore = new InMemorySnapshotStore();
+        snapshotEventStreamReader = new SnapshotEventStreamReader(eventStore, snapshotStore, SnapshotPolicy.everyNEvents(3));
+    }
+
+    @Test
+    void reads_all_events_when_no_snapshot_exists() {
+        // Given
+        eventStore.write("name", Stream.of(cloudEvent("1"), cloudEvent("2")));
+
+        // When
+        SnapshotAndEventStream snapshotAndEventStream = snapshotEventStreamReader.read("name");
+
+        // Then
+        assertThat(snapshotAndEventStream.snapshot()).isEmpty();
+        assertThat(snapshotAndEventStream.eventStream().version()).isEqualTo(2);
+        assertThat(snapshotAndEventStream.eventStream().events().map(CloudEvent::getId)).containsExactly("1", "2");
+    }
+
+    @Test
+    void reads_only_events_written_after_the_latest_snapshot() {
+        // Given
+        eventStore.write("name", Stream.of(cloudEvent("1"), cloudEvent("2"), cloudEvent("3")));
+        Snapshot snapshot = new Snapshot("name", 2, "state".getBytes(UTF_8));
+        snapshotStore.save(snapshot);
+
+        // When
+        SnapshotAndEventStream snapshotAndEventStream = snapshotEventStreamReader.read("name");
+
+        // Then
+        assertThat(snapshotAndEventStream.snapshot()).contains(snapshot);
+        assertThat(snapshotAndEventStream.eventStream().version()).isEqualTo(3);
+        assertThat(snapshotAndEventStream.eventStream().events().map(CloudEvent::getId)).containsExactly("3");
+    }
+
+    @Test
+    void saves_snapshot_when_required_by_snapshot_policy() {
+        // Given
+        eventStore.write("name", Stream.of(cloudEvent("1"), cloudEvent("2"), cloudEvent("3")));
+        SnapshotAndEventStream snapshotAndEventStream = snapshotEventStreamReader.read("name");
+        List<CloudEvent> eventsSinceSnapshot = snapshotAndEventStream.eventStream().events().collect(Collectors.toList());
+
+        // When
+        boolean saved = snapshotEventStreamReader.saveSnapshotIfRequired("name", snapshotAndEventStream.snapshotVersion(), snapshotAndEventStream.eventStream().version(),
+                eventsSinceSnapshot, () -> "state".getBytes(UTF_8));
+
+        // Then
+        assertThat(saved).isTrue();
+        assertThat(snapshotStore.findLatest("name")).contains(new Snapshot("name", 3, "state".getBytes(UTF_8)));
+    }
+
+    @Test
+    void does_not_save_snapshot_when_not_required_by_snapshot_policy() {
+        // Given
+        eventStore.write("name", Stream.of(cloudEvent("1"), cloudEvent("2")));
+        SnapshotAndEventStream snapshotAndEventStream = snapshotEventStreamReader.read("name");
+        List<CloudEvent> eventsSinceSnapshot = snapshotAndEventStream.eventStream().events().collect(Collectors.toList());
+
+        // When
+        boolean saved = snapshotEventStreamReader.saveSnapshotIfRequired("name", snapshotAndEventStream.snapshotVersion(), snapshotAndEventStream.eventStream().version(),
+                eventsSinceSnapshot, () -> "state".getBytes(UTF_8));
+
+        // Then
+        assertThat(saved).isFalse();
+        assertThat(snapshotStore.findLatest("name")).isEmpty();
+    }
+
+    private static CloudEvent cloudEvent(String id) {
+        return CloudEventBuilder.v1()
+                .withId(id)
+                .withSource(URI.create("urn:test"))
+                .withType("type")
+                .build();
+    }
+}
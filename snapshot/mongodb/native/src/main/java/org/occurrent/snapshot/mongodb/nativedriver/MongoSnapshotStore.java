@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.mongodb.nativedriver;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.occurrent.snapshot.api.Snapshot;
+import org.occurrent.snapshot.api.blocking.SnapshotStore;
+
+import java.util.Optional;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.lt;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link SnapshotStore} that stores the latest snapshot of each event stream as a document in a MongoDB collection
+ * (separate from the collection that contains the events), using the stream id as document id.
+ */
+public class MongoSnapshotStore implements SnapshotStore {
+    private static final String ID = "_id";
+    private static final String VERSION = "version";
+    private static final String DATA = "data";
+
+    private final MongoCollection<Document> snapshotCollection;
+
+    /**
+     * Create a new instance of {@code MongoSnapshotStore}
+     *
+     * @param mongoClient              The mongo client
+     * @param databaseName             The database in which the snapshots are stored
+     * @param snapshotCollectionName   The collection in which the snapshots are stored
+     */
+    public MongoSnapshotStore(MongoClient mongoClient, String databaseName, String snapshotCollectionName) {
+        requireNonNull(mongoClient, MongoClient.class.getSimpleName() + " cannot be null");
+        requireNonNull(databaseName, "Database name cannot be null");
+        requireNonNull(snapshotCollectionName, "Snapshot collection name cannot be null");
+        this.snapshotCollection = mongoClient.getDatabase(databaseName).getCollection(snapshotCollectionName);
+    }
+
+    @Override
+    public void save(Snapshot snapshot) {
+        requireNonNull(snapshot, Snapshot.class.getSimpleName() + " cannot be null");
+        Document document = new Document(ID, snapshot.streamId).append(VERSION, snapshot.version).append(DATA, new Binary(snapshot.data));
+        try {
+            // Only replace the snapshot if the new snapshot is newer than the existing snapshot
+            snapshotCollection.replaceOne(and(eq(ID, snapshot.streamId), lt(VERSION, snapshot.version)), document, new ReplaceOptions().upsert(true));
+        } catch (MongoWriteException e) {
+            // A newer snapshot already exists so the upsert tried to insert a document with the same id
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Snapshot> findLatest(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        Document document = snapshotCollection.find(eq(ID, streamId)).first();
+        return Optional.ofNullable(document).map(MongoSnapshotStore::convertToSnapshot);
+    }
+
+    @Override
+    public void delete(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        snapshotCollection.deleteOne(eq(ID, streamId));
+    }
+
+    private static Snapshot convertToSnapshot(Document document) {
+        return new Snapshot(document.getString(ID), document.getLong(VERSION), document.get(DATA, Binary.class).getData());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.mongodb.nativedriver;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.occurrent.snapshot.api.Snapshot;
+import org.occurrent.testsupport.mongodb.FlushMongoDBExtension;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Timeout(10)
+@Testcontainers
+class MongoSnapshotStoreTest {
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:4.2.8");
+
+    @RegisterExtension
+    FlushMongoDBExtension flushMongoDBExtension = new FlushMongoDBExtension(new ConnectionString(mongoDBContainer.getReplicaSetUrl()));
+
+    private MongoClient mongoClient;
+    private MongoSnapshotStore snapshotStore;
+
+    @BeforeEach
+    void create_mongo_snapshot_store() {
+        ConnectionString connectionString = new ConnectionString(mongoDBContainer.getReplicaSetUrl());
+        mongoClient = MongoClients.create(connectionString);
+        snapshotStore = new MongoSnapshotStore(mongoClient, connectionString.getDatabase(), "snapshots");
+    }
+
+    @AfterEach
+    void mongo_client_is_closed_after_each_test() {
+        mongoClient.close();
+    }
+
+    @Test
+    void find_latest_returns_saved_snapshot() {
+        // Given
+        Snapshot snapshot = new Snapshot("name", 2, "state".getBytes(UTF_8));
+
+        // When
+        snapshotStore.save(snapshot);
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).contains(snapshot);
+    }
+
+    @Test
+    void save_replaces_snapshot_that_is_older_than_the_new_snapshot() {
+        // Given
+        snapshotStore.save(new Snapshot("name", 2, "old state".getBytes(UTF_8)));
+        Snapshot snapshot = new Snapshot("name", 3, "new state".getBytes(UTF_8));
+
+        // When
+        snapshotStore.save(snapshot);
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).contains(snapshot);
+    }
+
+    @Test
+    void save_ignores_snapshot_that_is_older_than_the_current_snapshot() {
+        // Given
+        Snapshot snapshot = new Snapshot("name", 3, "new state".getBytes(UTF_8));
+        snapshotStore.save(snapshot);
+
+        // When
+        snapshotStore.save(new Snapshot("name", 2, "old state".getBytes(UTF_8)));
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).contains(snapshot);
+    }
+
+    @Test
+    void delete_deletes_snapshot() {
+        // Given
+        snapshotStore.save(new Snapshot("name", 2, "state".getBytes(UTF_8)));
+
+        // When
+        snapshotStore.delete("name");
+
+        // Then
+        assertThat(snapshotStore.findLatest("name")).isEmpty();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.snapshot.mongodb.spring.reactor;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.occurrent.snapshot.api.Snapshot;
+import org.occurrent.snapshot.api.reactor.SnapshotStore;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.lt;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link SnapshotStore} that uses the Spring {@link ReactiveMongoTemplate} to store the latest snapshot of each event stream as a
+ * document in a MongoDB collection (separate from the collection that contains the events), using the stream id as document id.
+ */
+public class SpringReactorMongoSnapshotStore implements SnapshotStore {
+    private static final String ID = "_id";
+    private static final String VERSION = "version";
+    private static final String DATA = "data";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String snapshotCollectionName;
+
+    /**
+     * Create a new instance of {@code SpringReactorMongoSnapshotStore}
+     *
+     * @param mongoTemplate          The {@link ReactiveMongoTemplate} to use
+     * @param snapshotCollectionName The collection in which the snapshots are stored
+     */
+    public SpringReactorMongoSnapshotStore(ReactiveMongoTemplate mongoTemplate, String snapshotCollectionName) {
+        requireNonNull(mongoTemplate, ReactiveMongoTemplate.class.getSimpleName() + " cannot be null");
+        requireNonNull(snapshotCollectionName, "Snapshot collection name cannot be null");
+        this.mongoTemplate = mongoTemplate;
+        this.snapshotCollectionName = snapshotCollectionName;
+    }
+
+    @Override
+    public Mono<Void> save(Snapshot snapshot) {
+        requireNonNull(snapshot, Snapshot.class.getSimpleName() + " cannot be null");
+        Document document = new Document(ID, snapshot.streamId).append(VERSION, snapshot.version).append(DATA, new Binary(snapshot.data));
+        // We use the collection directly to prevent Spring from converting the stream id into an ObjectId.
+        // Only replace the snapshot if the new snapshot is newer than the existing snapshot.
+        return mongoTemplate.createMono(snapshotCollectionName, collection -> collection.replaceOne(and(eq(ID, snapshot.streamId), lt(VERSION, snapshot.version)), document, new ReplaceOptions().upsert(true)))
+                // A newer snapshot already exists so the upsert tried to insert a document with the same id
+                .onErrorResume(DuplicateKeyException.class, __ -> Mono.empty())
+                .onErrorResume(MongoWriteException.class, e -> e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY ? Mono.empty() : Mono.error(e))
+                .then();
+    }
+
+    @Override
+    public Mono<Snapshot> findLatest(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        return mongoTemplate.createMono(snapshotCollectionName, collection -> collection.find(eq(ID, streamId)).first())
+                .map(SpringReactorMongoSnapshotStore::convertToSnapshot);
+    }
+
+    @Override
+    public Mono<Void> delete(String streamId) {
+        requireNonNull(streamId, "Stream id cannot be null");
+        return mongoTemplate.createMono(snapshotCollectionName, collection -> collection.deleteOne(eq(ID, streamId))).then();
+    }
+
+    private static Snapshot convertToSnapshot(Document document) {
+        return new Snapshot(document.getString(ID), document.getLong(VERSION), document.get(DATA, Binary.class).getData());
+    }
+}
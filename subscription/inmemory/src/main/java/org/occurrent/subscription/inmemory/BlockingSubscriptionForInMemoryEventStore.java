@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.subscription.inmemory;
+
+import io.cloudevents.CloudEvent;
+import org.occurrent.eventstore.api.FilterEvaluator;
+import org.occurrent.eventstore.inmemory.InMemoryEventStore;
+import org.occurrent.eventstore.inmemory.SequencedCloudEvent;
+import org.occurrent.filter.Filter;
+import org.occurrent.subscription.*;
+import org.occurrent.subscription.api.blocking.PositionAwareBlockingSubscription;
+import org.occurrent.subscription.api.blocking.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A subscription to an {@link InMemoryEventStore} that doesn't require a database, which is useful for testing and local development.
+ * Events are delivered in the order they were written to the event store and the {@link SubscriptionPosition} of each event is its
+ * global sequence number ({@link GlobalSequenceSubscriptionPosition}). Just as for the MongoDB subscriptions, the position is not maintained
+ * by this subscription so you need to store it yourself if you want to continue from where a subscription left off.
+ * <p>
+ * The subscriptions don't poll the event store. The event store wakes up the subscriptions that have been created by this instance when events
+ * are written, and the events are then delivered by a shared dispatcher ({@link Executor}) so that thousands of subscriptions don't need
+ * thousands of threads. The events of a subscription are always delivered by one thread at a time. A {@link OccurrentSubscriptionFilter} is evaluated
+ * in-process using the {@link FilterEvaluator}.
+ * </p>
+ * <p>
+ * If the action of a subscription throws an exception the error is logged and the event is delivered again after 100 milliseconds.
+ * </p>
+ */
+public class BlockingSubscriptionForInMemoryEventStore implements PositionAwareBlockingSubscription {
+    private static final Logger log = LoggerFactory.getLogger(BlockingSubscriptionForInMemoryEventStore.class);
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    private final InMemoryEventStore eventStore;
+    private final Executor dispatcher;
+    private final ExecutorService ownedDispatcher;
+    private final ScheduledExecutorService retryScheduler;
+    private final ConcurrentMap<String, InMemorySubscriptionState> subscriptions;
+    private final Runnable writeListener;
+
+    /**
+     * Create a subscription that delivers the events using a single (daemon) dispatcher thread that is shared by all subscriptions.
+     *
+     * @param eventStore The event store to subscribe to
+     */
+    public BlockingSubscriptionForInMemoryEventStore(InMemoryEventStore eventStore) {
+        this(eventStore, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occurrent-in-memory-subscription-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Create a subscription that delivers the events using the supplied dispatcher. Each subscription is delivered by at most one
+     * thread at a time, so the number of threads of the dispatcher limits how many subscriptions that are delivered concurrently.
+     *
+     * @param eventStore The event store to subscribe to
+     * @param dispatcher The executor that delivers the events to the subscriptions. It's not shutdown by {@link #shutdown()}.
+     */
+    public BlockingSubscriptionForInMemoryEventStore(InMemoryEventStore eventStore, Executor dispatcher) {
+        this(eventStore, dispatcher, false);
+    }
+
+    private BlockingSubscriptionForInMemoryEventStore(InMemoryEventStore eventStore, Executor dispatcher, boolean ownsDispatcher) {
+        requireNonNull(eventStore, InMemoryEventStore.class.getSimpleName() + " cannot be null");
+        requireNonNull(dispatcher, "Dispatcher cannot be null");
+        this.eventStore = eventStore;
+        this.dispatcher = dispatcher;
+        this.ownedDispatcher = ownsDispatcher ? (ExecutorService) dispatcher : null;
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occurrent-in-memory-subscription-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writeListener = () -> subscriptions.values().forEach(InMemorySubscriptionState::wakeUp);
+        eventStore.addWriteListener(writeListener);
+    }
+
+    @Override
+    public Subscription subscribe(String subscriptionId, SubscriptionFilter filter, Supplier<StartAt> startAtSupplier, Consumer<CloudEventWithSubscriptionPosition> action) {
+        requireNonNull(subscriptionId, "subscriptionId cannot be null");
+        requireNonNull(action, "Action cannot be null");
+        requireNonNull(startAtSupplier, "Start at cannot be null");
+
+        Predicate<CloudEvent> predicate = createPredicate(filter);
+        StartAt startAt = requireNonNull(startAtSupplier.get(), "Start at cannot be null");
+        long sequence = startAt.isNow() ? eventStore.globalSequence() : GlobalSequenceSubscriptionPosition.from(((StartAt.StartAtSubscriptionPosition) startAt).subscriptionPosition).sequence;
+
+        InMemorySubscriptionState subscription = new InMemorySubscriptionState(subscriptionId, predicate, action, sequence);
+        if (subscriptions.putIfAbsent(subscriptionId, subscription) != null) {
+            throw new IllegalArgumentException("Subscription " + subscriptionId + " is already defined");
+        }
+        // Deliver the events that were written after the start position but before the subscription was added
+        subscription.wakeUp();
+        return new InMemorySubscription(subscriptionId);
+    }
+
+    private static Predicate<CloudEvent> createPredicate(SubscriptionFilter filter) {
+        if (filter == null) {
+            return __ -> true;
+        } else if (filter instanceof OccurrentSubscriptionFilter) {
+            Filter occurrentFilter = ((OccurrentSubscriptionFilter) filter).filter;
+            return cloudEvent -> FilterEvaluator.evaluate(occurrentFilter, cloudEvent);
+        } else {
+            throw new IllegalArgumentException("Invalid " + SubscriptionFilter.class.getSimpleName());
+        }
+    }
+
+    @Override
+    public void cancelSubscription(String subscriptionId) {
+        InMemorySubscriptionState subscription = subscriptions.remove(subscriptionId);
+        if (subscription != null) {
+            subscription.cancelled = true;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        eventStore.removeWriteListener(writeListener);
+        subscriptions.keySet().forEach(this::cancelSubscription);
+        retryScheduler.shutdown();
+        if (ownedDispatcher != null) {
+            ownedDispatcher.shutdown();
+        }
+    }
+
+    @Override
+    public SubscriptionPosition globalSubscriptionPosition() {
+        return new GlobalSequenceSubscriptionPosition(eventStore.globalSequence());
+    }
+
+    private class InMemorySubscriptionState {
+        private final String subscriptionId;
+        private final Predicate<CloudEvent> predicate;
+        private final Consumer<CloudEventWithSubscriptionPosition> action;
+        // The number of wake-ups that haven't been handled by the dispatcher, the subscription is scheduled when this goes from 0 to 1
+        private final AtomicInteger pendingWakeUps = new AtomicInteger();
+        // Only accessed by the thread that is currently delivering events to the subscription
+        private long sequence;
+        private volatile boolean cancelled;
+
+        private InMemorySubscriptionState(String subscriptionId, Predicate<CloudEvent> predicate, Consumer<CloudEventWithSubscriptionPosition> action, long sequence) {
+            this.subscriptionId = subscriptionId;
+            this.predicate = predicate;
+            this.action = action;
+            this.sequence = sequence;
+        }
+
+        private void wakeUp() {
+            if (!cancelled && pendingWakeUps.getAndIncrement() == 0) {
+                try {
+                    dispatcher.execute(this::deliverEvents);
+                } catch (RejectedExecutionException e) {
+                    // The dispatcher has been shutdown, this is not an error for the thread that wrote the events
+                    log.debug("Dispatcher rejected subscription {}, this might happen when the subscription is shutdown.", subscriptionId, e);
+                }
+            }
+        }
+
+        private void deliverEvents() {
+            int wakeUps = pendingWakeUps.get();
+            do {
+                deliverEventsAfterCurrentSequence();
+                wakeUps = pendingWakeUps.addAndGet(-wakeUps);
+            } while (wakeUps != 0);
+        }
+
+        private void deliverEventsAfterCurrentSequence() {
+            try (Stream<SequencedCloudEvent> events = eventStore.readAfterGlobalSequence(sequence)) {
+                Iterator<SequencedCloudEvent> iterator = events.iterator();
+                while (iterator.hasNext() && !cancelled) {
+                    SequencedCloudEvent event = iterator.next();
+                    if (predicate.test(event.cloudEvent)) {
+                        action.accept(new CloudEventWithSubscriptionPosition(event.cloudEvent, new GlobalSequenceSubscriptionPosition(event.sequence)));
+                    }
+                    sequence = event.sequence;
+                }
+            } catch (Exception e) {
+                log.error("Caught {} with message \"{}\" when delivering events to subscription {}, will retry in {} milliseconds.",
+                        e.getClass().getName(), e.getMessage(), subscriptionId, RETRY_DELAY_MILLIS, e);
+                scheduleRetry();
+            }
+        }
+
+        private void scheduleRetry() {
+            try {
+                retryScheduler.schedule(this::wakeUp, RETRY_DELAY_MILLIS, MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Retry of subscription {} was rejected, this might happen when the subscription is shutdown.", subscriptionId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.subscription.inmemory;
+
+import org.occurrent.eventstore.inmemory.InMemoryEventStore;
+import org.occurrent.subscription.SubscriptionPosition;
+
+import java.util.Objects;
+
+/**
+ * A {@link SubscriptionPosition} that is the global sequence number (see {@link InMemoryEventStore#globalSequence()}) of the last event
+ * that was consumed by a subscription. A subscription started at this position receives all events with a greater global sequence number.
+ */
+public class GlobalSequenceSubscriptionPosition implements SubscriptionPosition {
+    public final long sequence;
+
+    public GlobalSequenceSubscriptionPosition(long sequence) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Global sequence cannot be negative");
+        }
+        this.sequence = sequence;
+    }
+
+    /**
+     * Parse a subscription position that was created by {@link #asString()}.
+     *
+     * @param subscriptionPosition The subscription position, for example a position that has been persisted by a subscription position storage.
+     * @return The {@link GlobalSequenceSubscriptionPosition}
+     * @throws IllegalArgumentException If the {@code subscriptionPosition} is not a global sequence number
+     */
+    public static GlobalSequenceSubscriptionPosition from(SubscriptionPosition subscriptionPosition) {
+        Objects.requireNonNull(subscriptionPosition, SubscriptionPosition.class.getSimpleName() + " cannot be null");
+        if (subscriptionPosition instanceof GlobalSequenceSubscriptionPosition) {
+            return (GlobalSequenceSubscriptionPosition) subscriptionPosition;
+        }
+        String value = subscriptionPosition.asString();
+        try {
+            return new GlobalSequenceSubscriptionPosition(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Subscription position \"" + value + "\" is not a global sequence number", e);
+        }
+    }
+
+    @Override
+    public String asString() {
+        return Long.toString(sequence);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GlobalSequenceSubscriptionPosition)) return false;
+        GlobalSequenceSubscriptionPosition that = (GlobalSequenceSubscriptionPosition) o;
+        return sequence == that.sequence;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "GlobalSequenceSubscriptionPosition{" +
+                "sequence=" + sequence +
+                '}';
+    }
+}
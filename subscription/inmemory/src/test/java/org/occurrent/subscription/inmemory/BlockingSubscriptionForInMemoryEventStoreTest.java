@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Johan Haleby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.occurrent.subscription.inmemory;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.occurrent.eventstore.inmemory.InMemoryEventStore;
+import org.occurrent.filter.Filter;
+import org.occurrent.subscription.CloudEventWithSubscriptionPosition;
+import org.occurrent.subscription.OccurrentSubscriptionFilter;
+import org.occurrent.subscription.StartAt;
+import org.occurrent.subscription.StringBasedSubscriptionPosition;
+import org.occurrent.subscription.SubscriptionPosition;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+
+@Timeout(15000)
+class BlockingSubscriptionForInMemoryEventStoreTest {
+
+    private InMemoryEventStore eventStore;
+    private BlockingSubscriptionForInMemoryEventStore subscription;
+
+    @BeforeEach
+    void create_subscription() {
+        eventStore = new InMemoryEventStore();
+        subscription = new BlockingSubscriptionForInMemoryEventStore(eventStore);
+    }
+
+    @AfterEach
+    void shutdown() {
+        subscription.shutdown();
+    }
+
+    @Test
+    void in_memory_subscription_calls_action_for_each_new_event_in_global_sequence_order() {
+        // Given
+        CopyOnWriteArrayList<CloudEventWithSubscriptionPosition> state = new CopyOnWriteArrayList<>();
+        eventStore.write("1", Stream.of(cloudEvent("NameDefined", "name0")));
+        subscription.subscribe(UUID.randomUUID().toString(), state::add).waitUntilStarted();
+
+        // When
+        eventStore.write("1", Stream.of(cloudEvent("NameWasChanged", "name1")));
+        eventStore.write("2", Stream.of(cloudEvent("NameDefined", "name2"), cloudEvent("NameWasChanged", "name3")));
+
+        // Then
+        await().atMost(FIVE_SECONDS).with().pollInterval(Duration.of(20, MILLIS)).untilAsserted(() -> assertThat(state).hasSize(3));
+        assertThat(state).extracting(CloudEvent::getSubject).containsExactly("name1", "name2", "name3");
+        assertThat(state).extracting(CloudEventWithSubscriptionPosition::getStreamPosition)
+                .containsExactly(new GlobalSequenceSubscriptionPosition(2), new GlobalSequenceSubscriptionPosition(3), new GlobalSequenceSubscriptionPosition(4));
+    }
+
+    @Test
+    void in_memory_subscription_only_delivers_events_matching_the_filter() {
+        // Given
+        CopyOnWriteArrayList<CloudEvent> state = new CopyOnWriteArrayList<>();
+        subscription.subscribe(UUID.randomUUID().toString(), OccurrentSubscriptionFilter.filter(Filter.type("NameDefined")), state::add).waitUntilStarted();
+
+        // When
+        eventStore.write("1", Stream.of(cloudEvent("NameDefined", "name1"), cloudEvent("NameWasChanged", "name2")));
+        eventStore.write("2", Stream.of(cloudEvent("NameDefined", "name3")));
+
+        // Then
+        await().atMost(FIVE_SECONDS).with().pollInterval(Duration.of(20, MILLIS)).untilAsserted(() -> assertThat(state).hasSize(2));
+        assertThat(state).extracting(CloudEvent::getSubject).containsExactly("name1", "name3");
+    }
+
+    @Test
+    void in_memory_subscription_starts_after_the_supplied_subscription_position() {
+        // Given
+        eventStore.write("1", Stream.of(cloudEvent("NameDefined", "name1"), cloudEvent("NameWasChanged", "name2")));
+        SubscriptionPosition position = subscription.globalSubscriptionPosition();
+        eventStore.write("1", Stream.of(cloudEvent("NameWasChanged", "name3")));
+        CopyOnWriteArrayList<CloudEvent> state = new CopyOnWriteArrayList<>();
+
+        // When
+        subscription.subscribe(UUID.randomUUID().toString(), StartAt.subscriptionPosition(new StringBasedSubscriptionPosition(position.asString())), state::add).waitUntilStarted();
+
+        // Then
+        await().atMost(FIVE_SECONDS).with().pollInterval(Duration.of(20, MILLIS)).untilAsserted(() -> assertThat(state).hasSize(1));
+        assertThat(state).extracting(CloudEvent::getSubject).containsExactly("name3");
+    }
+
+    @Test
+    void in_memory_subscription_throws_iae_when_subscription_position_is_not_a_global_sequence() {
+        // When
+        Throwable throwable = catchThrowable(() -> subscription.subscribe(UUID.randomUUID().toString(), StartAt.subscriptionPosition(new StringBasedSubscriptionPosition("invalid")), __ -> {
+        }));
+
+        // Then
+        assertThat(throwable).isExactlyInstanceOf(IllegalArgumentException.class).hasMessage("Subscription position \"invalid\" is not a global sequence number");
+    }
+
+    @Test
+    void retrying_on_failure() {
+        // Given
+        AtomicInteger counter = new AtomicInteger(0);
+        CopyOnWriteArrayList<CloudEvent> state = new CopyOnWriteArrayList<>();
+        subscription.subscribe(UUID.randomUUID().toString(), cloudEvent -> {
+            if (counter.incrementAndGet() == 1) {
+                throw new IllegalArgumentException("expected");
+            }
+            state.add(cloudEvent);
+        }).waitUntilStarted();
+
+        // When
+        eventStore.write("1", Stream.of(cloudEvent("NameDefined", "name1")));
+        eventStore.write("1", Stream.of(cloudEvent("NameWasChanged", "name2")));
+
+        // Then
+        await().atMost(FIVE_SECONDS).with().pollInterval(Duration.of(20, MILLIS)).untilAsserted(() -> assertThat(state).hasSize(2));
+        assertThat(state).extracting(CloudEvent::getSubject).containsExactly("name1", "name2");
+    }
+
+    @Test
+    void in_memory_subscription_allows_cancelling_subscription() throws InterruptedException {
+        // Given
+        CopyOnWriteArrayList<CloudEvent> state = new CopyOnWriteArrayList<>();
+        String subscriberId = UUID.randomUUID().toString();
+        subscription.subscribe(subscriberId, state::add).waitUntilStarted();
+
+        // When
+        eventStore.write("1", Stream.of(cloudEvent("NameDefined", "name1")));
+        await().atMost(FIVE_SECONDS).untilAsserted(() -> assertThat(state).hasSize(1));
+        subscription.cancelSubscription(subscriberId);
+
+        // Then
+        eventStore.write("1", Stream.of(cloudEvent("NameWasChanged", "name2")));
+        Thread.sleep(200);
+        assertThat(state).hasSize(1);
+    }
+
+    @Test
+    void many_subscriptions_receive_all_events_written_concurrently_in_global_sequence_order() throws InterruptedException {
+        // Given
+        ExecutorService dispatcher = Executors.newFixedThreadPool(4);
+        BlockingSubscriptionForInMemoryEventStore sharedSubscription = new BlockingSubscriptionForInMemoryEventStore(eventStore, dispatcher);
+        List<CopyOnWriteArrayList<Long>> positions = IntStream.range(0, 1000).mapToObj(__ -> new CopyOnWriteArrayList<Long>()).collect(Collectors.toList());
+        positions.forEach(state -> sharedSubscription.subscribe(UUID.randomUUID().toString(), cloudEvent -> state.add(GlobalSequenceSubscriptionPosition.from(cloudEvent.getStreamPosition()).sequence)));
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+
+        // When
+        IntStream.range(0, 4).forEach(writer -> writers.execute(() -> IntStream.range(0, 50).forEach(i -> eventStore.write("stream" + writer, Stream.of(cloudEvent("NameDefined", "name" + i))))));
+        writers.shutdown();
+        writers.awaitTermination(10, SECONDS);
+
+        // Then
+        try {
+            await().atMost(FIVE_SECONDS).with().pollInterval(Duration.of(20, MILLIS)).untilAsserted(() -> assertThat(positions).allSatisfy(state -> assertThat(state).hasSize(200)));
+            assertThat(positions).allSatisfy(state -> assertThat(state).isSorted().doesNotHaveDuplicates());
+        } finally {
+            sharedSubscription.shutdown();
+            dispatcher.shutdown();
+            dispatcher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static CloudEvent cloudEvent(String type, String subject) {
+        return CloudEventBuilder.v1()
+                .withId(UUID.randomUUID().toString())
+                .withSource(URI.create("http://name"))
+                .withType(type)
+                .withSubject(subject)
+                .build();
+    }
+}
@@ -19,9 +19,10 @@ package org.occurrent.subscription.mongodb.internal;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import com.mongodb.client.model.changestream.OperationType;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.format.EventFormat;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.occurrent.eventstore.mongodb.internal.OccurrentCloudEventMongoDBDocumentMapper;
+import org.occurrent.eventstore.mongodb.internal.RawBsonDocumentCloudEvent;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 
 import java.util.Optional;
@@ -32,13 +33,23 @@ public class MongoDBCloudEventsToJsonDeserializer {
 
     public static final String ID = "_id";
 
-    public static Optional<CloudEvent> deserializeToCloudEvent(EventFormat cloudEventSerializer, ChangeStreamDocument<Document> changeStreamDocument, TimeRepresentation timeRepresentation) {
+    public static Optional<CloudEvent> deserializeToCloudEvent(ChangeStreamDocument<Document> changeStreamDocument, TimeRepresentation timeRepresentation) {
         return changeStreamDocumentToCloudEventAsJson(changeStreamDocument)
-                .map(document -> OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(cloudEventSerializer, timeRepresentation, document));
+                .map(document -> OccurrentCloudEventMongoDBDocumentMapper.convertToCloudEvent(timeRepresentation, document));
     }
 
-    private static Optional<Document> changeStreamDocumentToCloudEventAsJson(ChangeStreamDocument<Document> changeStreamDocument) {
-        final Document eventsAsJson;
+    /**
+     * Create a {@link CloudEvent} that lazily decodes the attributes and data from the raw document in the {@code changeStreamDocument}.
+     *
+     * @see RawBsonDocumentCloudEvent
+     */
+    public static Optional<CloudEvent> deserializeToLazyCloudEvent(ChangeStreamDocument<RawBsonDocument> changeStreamDocument, TimeRepresentation timeRepresentation) {
+        return changeStreamDocumentToCloudEventAsJson(changeStreamDocument)
+                .map(document -> new RawBsonDocumentCloudEvent(timeRepresentation, document));
+    }
+
+    private static <T> Optional<T> changeStreamDocumentToCloudEventAsJson(ChangeStreamDocument<T> changeStreamDocument) {
+        final T eventsAsJson;
         OperationType operationType = changeStreamDocument.getOperationType();
         if (operationType == INSERT) {
             eventsAsJson = changeStreamDocument.getFullDocument();
@@ -23,12 +23,11 @@ import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.provider.EventFormatProvider;
-import io.cloudevents.jackson.JsonFormat;
+import io.cloudevents.CloudEvent;
 import org.bson.BsonDocument;
 import org.bson.BsonTimestamp;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 import org.occurrent.filter.Filter;
 import org.occurrent.mongodb.spring.filterbsonfilterconversion.internal.FilterToBsonFilterConverter;
@@ -48,11 +47,13 @@ import org.slf4j.LoggerFactory;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -71,12 +72,12 @@ public class BlockingSubscriptionForMongoDB implements PositionAwareBlockingSubs
     private static final Logger log = LoggerFactory.getLogger(BlockingSubscriptionForMongoDB.class);
 
     private final MongoCollection<Document> eventCollection;
-    private final ConcurrentMap<String, MongoChangeStreamCursor<ChangeStreamDocument<Document>>> subscriptions;
-    private final EventFormat cloudEventSerializer;
+    private final ConcurrentMap<String, MongoChangeStreamCursor<?>> subscriptions;
     private final TimeRepresentation timeRepresentation;
     private final Executor cloudEventDispatcher;
     private final RetryStrategy retryStrategy;
     private final MongoDatabase database;
+    private final boolean lazyCloudEventDecoding;
 
     private volatile boolean shuttingDown = false;
 
@@ -105,6 +106,23 @@ public class BlockingSubscriptionForMongoDB implements PositionAwareBlockingSubs
      */
     public BlockingSubscriptionForMongoDB(MongoDatabase database, MongoCollection<Document> eventCollection, TimeRepresentation timeRepresentation,
                                           Executor subscriptionExecutor, RetryStrategy retryStrategy) {
+        this(database, eventCollection, timeRepresentation, subscriptionExecutor, retryStrategy, false);
+    }
+
+    /**
+     * Create a subscription using the native MongoDB sync driver.
+     *
+     * @param database               The MongoDB database to use
+     * @param eventCollection        The collection that contains the events
+     * @param timeRepresentation     How time is represented in the database, must be the same as what's specified for the EventStore that stores the events.
+     * @param subscriptionExecutor   The executor that will be used for the subscription. Typically a dedicated thread will be required per subscription.
+     * @param retryStrategy          Configure how retries should be handled
+     * @param lazyCloudEventDecoding If {@code true} the events are read from the change stream as raw BSON and the attributes and data of
+     *                               each cloud event are only decoded when accessed. Useful if many events are discarded by the action after
+     *                               looking at e.g. the type.
+     */
+    public BlockingSubscriptionForMongoDB(MongoDatabase database, MongoCollection<Document> eventCollection, TimeRepresentation timeRepresentation,
+                                          Executor subscriptionExecutor, RetryStrategy retryStrategy, boolean lazyCloudEventDecoding) {
         requireNonNull(database, MongoDatabase.class.getSimpleName() + " cannot be null");
         requireNonNull(eventCollection, "Event collection cannot be null");
         requireNonNull(timeRepresentation, "Time representation cannot be null");
@@ -116,7 +134,7 @@ public class BlockingSubscriptionForMongoDB implements PositionAwareBlockingSubs
         this.timeRepresentation = timeRepresentation;
         this.eventCollection = eventCollection;
         this.subscriptions = new ConcurrentHashMap<>();
-        this.cloudEventSerializer = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
+        this.lazyCloudEventDecoding = lazyCloudEventDecoding;
     }
 
     @Override
@@ -130,21 +148,12 @@ public class BlockingSubscriptionForMongoDB implements PositionAwareBlockingSubs
         CountDownLatch subscriptionStartedLatch = new CountDownLatch(1);
 
         Runnable runnable = () -> {
-            ChangeStreamIterable<Document> changeStreamDocuments = eventCollection.watch(pipeline, Document.class);
-            ChangeStreamIterable<Document> changeStreamDocumentsAtPosition = MongoDBCommons.applyStartPosition(changeStreamDocuments, ChangeStreamIterable::startAfter, ChangeStreamIterable::startAtOperationTime, startAtSupplier.get());
-            MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changeStreamDocumentsAtPosition.cursor();
-
-            subscriptions.put(subscriptionId, cursor);
-
-            subscriptionStartedLatch.countDown();
-            try {
-                cursor.forEachRemaining(changeStreamDocument -> MongoDBCloudEventsToJsonDeserializer.deserializeToCloudEvent(cloudEventSerializer, changeStreamDocument, timeRepresentation)
-                        .map(cloudEvent -> new CloudEventWithSubscriptionPosition(cloudEvent, new MongoDBResumeTokenBasedSubscriptionPosition(changeStreamDocument.getResumeToken())))
-                        .ifPresent(retry(action, __ -> true, convertToDelayStream(retryStrategy))));
-            } catch (MongoException e) {
-                log.debug("Caught {} (code={}, message={}), this might happen when cursor is shutdown.", e.getClass().getName(), e.getCode(), e.getMessage(), e);
-            } catch (IllegalStateException e) {
-                log.debug("Caught {} (message={}), this might happen when cursor is shutdown.", e.getClass().getName(), e.getMessage(), e);
+            if (lazyCloudEventDecoding) {
+                consumeChangeStream(subscriptionId, pipeline, RawBsonDocument.class, startAtSupplier, subscriptionStartedLatch, action,
+                        changeStreamDocument -> MongoDBCloudEventsToJsonDeserializer.deserializeToLazyCloudEvent(changeStreamDocument, timeRepresentation));
+            } else {
+                consumeChangeStream(subscriptionId, pipeline, Document.class, startAtSupplier, subscriptionStartedLatch, action,
+                        changeStreamDocument -> MongoDBCloudEventsToJsonDeserializer.deserializeToCloudEvent(changeStreamDocument, timeRepresentation));
             }
         };
 
@@ -152,6 +161,26 @@ public class BlockingSubscriptionForMongoDB implements PositionAwareBlockingSubs
         return new NativeMongoDBSubscription(subscriptionId, subscriptionStartedLatch);
     }
 
+    private <T> void consumeChangeStream(String subscriptionId, List<Bson> pipeline, Class<T> documentClass, Supplier<StartAt> startAtSupplier, CountDownLatch subscriptionStartedLatch,
+                                         Consumer<CloudEventWithSubscriptionPosition> action, Function<ChangeStreamDocument<T>, Optional<CloudEvent>> deserializer) {
+        ChangeStreamIterable<T> changeStreamDocuments = eventCollection.watch(pipeline, documentClass);
+        ChangeStreamIterable<T> changeStreamDocumentsAtPosition = MongoDBCommons.applyStartPosition(changeStreamDocuments, ChangeStreamIterable::startAfter, ChangeStreamIterable::startAtOperationTime, startAtSupplier.get());
+        MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = changeStreamDocumentsAtPosition.cursor();
+
+        subscriptions.put(subscriptionId, cursor);
+
+        subscriptionStartedLatch.countDown();
+        try {
+            cursor.forEachRemaining(changeStreamDocument -> deserializer.apply(changeStreamDocument)
+                    .map(cloudEvent -> new CloudEventWithSubscriptionPosition(cloudEvent, new MongoDBResumeTokenBasedSubscriptionPosition(changeStreamDocument.getResumeToken())))
+                    .ifPresent(retry(action, __ -> true, convertToDelayStream(retryStrategy))));
+        } catch (MongoException e) {
+            log.debug("Caught {} (code={}, message={}), this might happen when cursor is shutdown.", e.getClass().getName(), e.getCode(), e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            log.debug("Caught {} (message={}), this might happen when cursor is shutdown.", e.getClass().getName(), e.getMessage(), e);
+        }
+    }
+
     private static List<Bson> createPipeline(TimeRepresentation timeRepresentation, SubscriptionFilter filter) {
         final List<Bson> pipeline;
         if (filter == null) {
@@ -185,7 +214,7 @@ public class BlockingSubscriptionForMongoDB implements PositionAwareBlockingSubs
 
     @Override
     public void cancelSubscription(String subscriptionId) {
-        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = subscriptions.remove(subscriptionId);
+        MongoChangeStreamCursor<?> cursor = subscriptions.remove(subscriptionId);
         if (cursor != null) {
             try {
                 cursor.close();
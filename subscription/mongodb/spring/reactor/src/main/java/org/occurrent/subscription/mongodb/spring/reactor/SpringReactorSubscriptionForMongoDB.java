@@ -16,9 +16,6 @@
 
 package org.occurrent.subscription.mongodb.spring.reactor;
 
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.provider.EventFormatProvider;
-import io.cloudevents.jackson.JsonFormat;
 import org.bson.Document;
 import org.occurrent.mongodb.timerepresentation.TimeRepresentation;
 import org.occurrent.subscription.CloudEventWithSubscriptionPosition;
@@ -51,7 +48,6 @@ public class SpringReactorSubscriptionForMongoDB implements PositionAwareReactor
     private final ReactiveMongoOperations mongo;
     private final String eventCollection;
     private final TimeRepresentation timeRepresentation;
-    private final EventFormat cloudEventSerializer;
 
     /**
      * Create a blocking subscription using Spring
@@ -64,7 +60,6 @@ public class SpringReactorSubscriptionForMongoDB implements PositionAwareReactor
         this.mongo = mongo;
         this.eventCollection = eventCollection;
         this.timeRepresentation = timeRepresentation;
-        this.cloudEventSerializer = EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
     }
 
     @Override
@@ -75,7 +70,7 @@ public class SpringReactorSubscriptionForMongoDB implements PositionAwareReactor
         Flux<ChangeStreamEvent<Document>> changeStream = mongo.changeStream(eventCollection, changeStreamOptions, Document.class);
         return changeStream
                 .flatMap(changeEvent ->
-                        MongoDBCloudEventsToJsonDeserializer.deserializeToCloudEvent(cloudEventSerializer, changeEvent.getRaw(), timeRepresentation)
+                        MongoDBCloudEventsToJsonDeserializer.deserializeToCloudEvent(changeEvent.getRaw(), timeRepresentation)
                                 .map(cloudEvent -> new CloudEventWithSubscriptionPosition(cloudEvent, new MongoDBResumeTokenBasedSubscriptionPosition(requireNonNull(changeEvent.getResumeToken()).asDocument())))
                                 .map(Mono::just)
                                 .orElse(Mono.empty()));